@@ -0,0 +1,95 @@
+package com.github.mrbox.apilogging.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.ApiLoggingAspect;
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.benchmark.BenchmarkFixtures.PayloadSize;
+import com.github.mrbox.apilogging.benchmark.BenchmarkFixtures.StubJoinPoint;
+import com.github.mrbox.apilogging.filter.FilterManager;
+import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
+import com.github.mrbox.apilogging.logger.DefaultJsonLogger;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.profiler.OverheadProfiler;
+import com.github.mrbox.apilogging.trigger.ExceptionDetailedLogTrigger;
+import com.github.mrbox.apilogging.trigger.HeaderDetailedLogTrigger;
+import com.github.mrbox.apilogging.trigger.HttpStatusCodeDetailedLogTrigger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     切面完整处理一个请求的开销：日志模式判断、过滤器、格式化和发布。
+ *     Controller方法直接返回固定结果，测量值即为切面给请求增加的耗时，
+ *     按日志模式、返回值大小以及是否启用自身开销分析分别测量。
+ *     发布器为 {@link DefaultJsonLogger}，输出到 NOPAppender。
+ * </pre>
+ *
+ * @author Zwk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ApiLoggingAspectBenchmark {
+
+    @Param({"SIMPLE", "DETAILED"})
+    private LogMode logMode;
+
+    @Param({"SMALL", "LARGE"})
+    private PayloadSize payloadSize;
+
+    @Param({"false", "true"})
+    private boolean profiler;
+
+    private ApiLoggingAspect aspect;
+    private StubJoinPoint joinPoint;
+
+    @Setup
+    public void setUp() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.setEnabled(true);
+        properties.setLogMode(logMode);
+        properties.refreshCompiled();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        aspect = new ApiLoggingAspect(properties,
+                Arrays.asList(new HeaderDetailedLogTrigger(), new HttpStatusCodeDetailedLogTrigger(),
+                        new ExceptionDetailedLogTrigger()),
+                new DefaultJsonLogger(objectMapper), new DefaultLogContentFormatter(objectMapper),
+                new FilterManager(null, null),
+                new ApiLoggingAspect.OptionalComponents().metrics(profiler ? new OverheadProfiler(properties) : null));
+
+        // 切面从当前线程读取请求，状态的作用域为线程，setUp 与基准方法在同一线程执行
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(BenchmarkFixtures.request(), new MockHttpServletResponse()));
+        joinPoint = new StubJoinPoint(BenchmarkFixtures.order(payloadSize));
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public Object advice() throws Throwable {
+        return aspect.logRequestAndResponse(joinPoint);
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.mrbox.apilogging.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     比较两次 JMH 运行的 JSON 结果 (-rf json)，按基准和参数输出耗时和每次调用分配字节数的变化。
+ *     用法: java -cp target/benchmarks.jar com.github.mrbox.apilogging.benchmark.CompareResults \
+ *               results/baseline.json results/current.json
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class CompareResults {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("用法: CompareResults <baseline.json> <current.json>");
+            System.exit(1);
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(objectMapper.readTree(new File(args[0])));
+        Map<String, JsonNode> current = index(objectMapper.readTree(new File(args[1])));
+
+        System.out.println(String.format(Locale.ROOT, "%-90s %14s %14s %9s %12s %12s",
+                "Benchmark", "base ns/op", "curr ns/op", "change", "base B/op", "curr B/op"));
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode base = baseline.get(entry.getKey());
+            JsonNode curr = entry.getValue();
+            double currScore = curr.path("primaryMetric").path("score").asDouble();
+            String currAlloc = alloc(curr);
+            if (base == null) {
+                System.out.println(String.format(Locale.ROOT, "%-90s %14s %14.1f %9s %12s %12s",
+                        entry.getKey(), "-", currScore, "new", "-", currAlloc));
+                continue;
+            }
+            double baseScore = base.path("primaryMetric").path("score").asDouble();
+            double change = baseScore == 0D ? 0D : (currScore - baseScore) / baseScore * 100D;
+            System.out.println(String.format(Locale.ROOT, "%-90s %14.1f %14.1f %+8.1f%% %12s %12s",
+                    entry.getKey(), baseScore, currScore, change, alloc(base), currAlloc));
+        }
+    }
+
+    /**
+     * 以 "基准方法 (参数=值, ...)" 为键索引结果
+     */
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace(CompareResults.class.getPackage().getName() + ".", ""));
+            JsonNode params = result.path("params");
+            if (params.size() > 0) {
+                key.append(" (");
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    key.append(field.getKey()).append('=').append(field.getValue().asText());
+                    if (fields.hasNext()) {
+                        key.append(", ");
+                    }
+                }
+                key.append(')');
+            }
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static String alloc(JsonNode result) {
+        JsonNode metric = result.path("secondaryMetrics").path(ALLOC_METRIC);
+        return metric.isMissingNode() ? "-" : String.format(Locale.ROOT, "%.0f", metric.path("score").asDouble());
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.mrbox.apilogging.benchmark;
+
+import com.github.mrbox.apilogging.benchmark.BenchmarkFixtures.StubJoinPoint;
+import com.github.mrbox.apilogging.filter.FilterInput;
+import com.github.mrbox.apilogging.filter.FilterManager;
+import com.github.mrbox.apilogging.filter.PostFilter;
+import com.github.mrbox.apilogging.filter.PreFilter;
+import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+import com.github.mrbox.apilogging.model.LogMode;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     {@link FilterManager} 前置、后置过滤器链的开销，按过滤器数量分别测量。
+ *     所有过滤器都不跳过日志，整条链都会执行：
+ *      - handler: 只依赖 Controller方法 的过滤器，结果按方法缓存
+ *      - request: 依赖请求URI的过滤器，每个请求都执行
+ * </pre>
+ *
+ * @author Zwk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class FilterManagerBenchmark {
+
+    @Param({"1", "4", "16"})
+    private int chainLength;
+
+    @Param({"handler", "request"})
+    private String filterKind;
+
+    private FilterManager filterManager;
+    private StubJoinPoint joinPoint;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private ApiLoggingDataContext context;
+
+    @Setup
+    public void setUp() {
+        boolean handlerOnly = "handler".equals(filterKind);
+        List<PreFilter> preFilters = new ArrayList<>();
+        List<PostFilter> postFilters = new ArrayList<>();
+        for (int i = 0; i < chainLength; i++) {
+            preFilters.add(new UriPrefixPreFilter("/internal/" + i, handlerOnly));
+            postFilters.add(new SlowRequestPostFilter(i, handlerOnly));
+        }
+        filterManager = new FilterManager(preFilters, postFilters);
+        joinPoint = new StubJoinPoint(BenchmarkFixtures.order(BenchmarkFixtures.PayloadSize.SMALL));
+        request = BenchmarkFixtures.request();
+        response = new MockHttpServletResponse();
+        context = new ApiLoggingDataContext(LogMode.SIMPLE);
+    }
+
+    @Benchmark
+    public boolean preFilters() {
+        return filterManager.shouldSkipLoggingByPreFilters(joinPoint, request);
+    }
+
+    @Benchmark
+    public boolean postFilters() {
+        return filterManager.shouldSkipLoggingByPostFilters(joinPoint, request, response, joinPoint.proceed(),
+                null, context, 1_000L);
+    }
+
+    /**
+     * 跳过指定前缀的请求，handlerOnly 时只按方法名判断
+     */
+    private static final class UriPrefixPreFilter implements PreFilter {
+        private final String prefix;
+        private final boolean handlerOnly;
+
+        private UriPrefixPreFilter(String prefix, boolean handlerOnly) {
+            this.prefix = prefix;
+            this.handlerOnly = handlerOnly;
+        }
+
+        @Override
+        public boolean shouldSkipLogging(ProceedingJoinPoint joinPoint, HttpServletRequest request) {
+            if (handlerOnly) {
+                return joinPoint.getSignature().getName().startsWith(prefix);
+            }
+            return request != null && request.getRequestURI().startsWith(prefix);
+        }
+
+        @Override
+        public Set<FilterInput> decisionInputs() {
+            return handlerOnly ? EnumSet.of(FilterInput.HANDLER) : EnumSet.of(FilterInput.URI);
+        }
+    }
+
+    /**
+     * 只记录慢请求，handlerOnly 时只按方法名判断
+     */
+    private static final class SlowRequestPostFilter implements PostFilter {
+        private final long thresholdMs;
+        private final boolean handlerOnly;
+
+        private SlowRequestPostFilter(long thresholdMs, boolean handlerOnly) {
+            this.thresholdMs = thresholdMs;
+            this.handlerOnly = handlerOnly;
+        }
+
+        @Override
+        public boolean shouldSkipLogging(ProceedingJoinPoint joinPoint, HttpServletRequest request,
+                                         HttpServletResponse response, Object result, Throwable exception,
+                                         ApiLoggingDataContext loggingDataContext, long processingTimeMs) {
+            if (handlerOnly) {
+                return joinPoint.getSignature().getName().startsWith("internal");
+            }
+            return processingTimeMs < thresholdMs;
+        }
+
+        @Override
+        public Set<FilterInput> decisionInputs() {
+            return handlerOnly ? EnumSet.of(FilterInput.HANDLER) : EnumSet.allOf(FilterInput.class);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.mrbox.apilogging.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.logger.JsonLogRecordEncoder;
+import com.github.mrbox.apilogging.model.DetailedLogRecord;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     {@link JsonLogRecordEncoder} 与 ObjectMapper 序列化日志记录的开销比较，不经过 logback。
+ *     与 {@link JsonLoggerBenchmark} 一起看，可以区分序列化和日志框架各自的开销。
+ * </pre>
+ *
+ * @author Zwk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class JsonLogRecordEncoderBenchmark {
+
+    private ObjectMapper objectMapper;
+    private JsonLogRecordEncoder encoder;
+    private SimpleLogRecord simpleRecord;
+    private DetailedLogRecord detailedRecord;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        encoder = new JsonLogRecordEncoder();
+
+        simpleRecord = new SimpleLogRecord(1700000000000L, "/orders/42", "OrderController#getOrder",
+                LogMode.SIMPLE.name());
+        simpleRecord.setClientIp("10.0.0.1");
+        simpleRecord.setRoute("/orders/{id}");
+        simpleRecord.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        simpleRecord.setSpanId("00f067aa0ba902b7");
+        simpleRecord.setProcessingTimeMs(12L);
+        simpleRecord.setStatusCode(200);
+
+        detailedRecord = new DetailedLogRecord();
+        detailedRecord.copyFrom(simpleRecord);
+        detailedRecord.setLogMode(LogMode.DETAILED.name());
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("content-type", "application/json");
+        headers.put("user-agent", "Mozilla/5.0 (X11; Linux x86_64)");
+        headers.put("authorization", "******");
+        detailedRecord.setRequestHeader(headers);
+        detailedRecord.setRequestParams("{\"id\":42,\"expand\":[\"items\",\"customer\"]}");
+        detailedRecord.setResponseData("{\"id\":42,\"status\":\"PAID\",\"amount\":199.00,\"items\":[{\"sku\":\"A-1\",\"qty\":2}]}");
+    }
+
+    @Benchmark
+    public String encoderSimple() {
+        return encoder.encodeToString(simpleRecord);
+    }
+
+    @Benchmark
+    public String objectMapperSimple() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(simpleRecord);
+    }
+
+    @Benchmark
+    public String encoderDetailed() {
+        return encoder.encodeToString(detailedRecord);
+    }
+
+    @Benchmark
+    public String objectMapperDetailed() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(detailedRecord);
+    }
+}
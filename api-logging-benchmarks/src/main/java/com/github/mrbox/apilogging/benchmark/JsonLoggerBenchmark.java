@@ -0,0 +1,94 @@
+package com.github.mrbox.apilogging.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.benchmark.BenchmarkFixtures.PayloadSize;
+import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
+import com.github.mrbox.apilogging.logger.DefaultJsonLogger;
+import com.github.mrbox.apilogging.model.DetailedLogRecord;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     {@link DefaultJsonLogger#publish} 的开销：序列化日志记录并交给 logback。
+ *     logback.xml 为发布器的 logger 配置了 NOPAppender，测量结果不包括输出到文件或控制台的开销。
+ * </pre>
+ *
+ * @author Zwk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class JsonLoggerBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    private PayloadSize payloadSize;
+
+    private DefaultJsonLogger logger;
+    private SimpleLogRecord simpleRecord;
+    private DetailedLogRecord detailedRecord;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        logger = new DefaultJsonLogger(objectMapper);
+
+        simpleRecord = new SimpleLogRecord(1700000000000L, "/orders/42?expand=items", "OrderController#getOrder",
+                LogMode.SIMPLE.name());
+        fillCommon(simpleRecord);
+
+        // 详细记录的请求参数和返回值使用格式化器的实际输出
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.refreshCompiled();
+        DefaultLogContentFormatter formatter = new DefaultLogContentFormatter(objectMapper);
+        MockHttpServletRequest request = BenchmarkFixtures.request();
+        BenchmarkFixtures.Order order = BenchmarkFixtures.order(payloadSize);
+        detailedRecord = new DetailedLogRecord();
+        detailedRecord.setRequestTimestamp(1700000000000L);
+        detailedRecord.setUri("/orders/42?expand=items");
+        detailedRecord.setControllerHandler("OrderController#getOrder");
+        detailedRecord.setLogMode(LogMode.DETAILED.name());
+        fillCommon(detailedRecord);
+        detailedRecord.setRequestHeader(formatter.formatRequestHeaders(request, properties));
+        detailedRecord.setRequestParams(formatter.formatArguments(new BenchmarkFixtures.StubJoinPoint(order),
+                request, properties));
+        detailedRecord.setResponseData(formatter.formatReturnValue(order, LogMode.DETAILED, properties));
+    }
+
+    private static void fillCommon(SimpleLogRecord record) {
+        record.setClientIp("10.0.0.1");
+        record.setRoute("/orders/{id}");
+        record.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        record.setSpanId("00f067aa0ba902b7");
+        record.setProcessingTimeMs(12L);
+        record.setStatusCode(200);
+    }
+
+    @Benchmark
+    public void publishSimple() {
+        logger.publish(simpleRecord);
+    }
+
+    @Benchmark
+    public void publishDetailed() {
+        logger.publish(detailedRecord);
+    }
+}
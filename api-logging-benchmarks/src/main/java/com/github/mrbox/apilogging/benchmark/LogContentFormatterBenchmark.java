@@ -0,0 +1,93 @@
+package com.github.mrbox.apilogging.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.benchmark.BenchmarkFixtures.PayloadSize;
+import com.github.mrbox.apilogging.benchmark.BenchmarkFixtures.StubJoinPoint;
+import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
+import com.github.mrbox.apilogging.model.LogMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     {@link DefaultLogContentFormatter} 各格式化方法的开销，参数和返回值按载荷大小分别测量，
+ *     大载荷在默认的 maxPayloadLength 处截断，用于观察截断是否限制了序列化的开销。
+ *     异常堆栈格式化会缓存同一异常位置的格式化帧，这里测量的是缓存命中后的稳态开销。
+ * </pre>
+ *
+ * @author Zwk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class LogContentFormatterBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private PayloadSize payloadSize;
+
+    private ApiLoggingProperties properties;
+    private DefaultLogContentFormatter formatter;
+    private MockHttpServletRequest request;
+    private StubJoinPoint joinPoint;
+    private BenchmarkFixtures.Order returnValue;
+    private Throwable exception;
+
+    @Setup
+    public void setUp() {
+        // 使用默认配置，载荷超过 maxPayloadLength 时按结构截断
+        properties = new ApiLoggingProperties();
+        properties.refreshCompiled();
+        formatter = new DefaultLogContentFormatter(new ObjectMapper());
+        request = BenchmarkFixtures.request();
+        returnValue = BenchmarkFixtures.order(payloadSize);
+        joinPoint = new StubJoinPoint(returnValue);
+        exception = BenchmarkFixtures.exception(20);
+    }
+
+    @Benchmark
+    public String arguments() {
+        return formatter.formatArguments(joinPoint, request, properties);
+    }
+
+    @Benchmark
+    public String returnValueDetailed() {
+        return formatter.formatReturnValue(returnValue, LogMode.DETAILED, properties);
+    }
+
+    @Benchmark
+    public String returnValueSimple() {
+        return formatter.formatReturnValue(returnValue, LogMode.SIMPLE, properties);
+    }
+
+    @Benchmark
+    public Map<String, String> requestHeaders() {
+        return formatter.formatRequestHeaders(request, properties);
+    }
+
+    @Benchmark
+    public String exceptionDetailed() {
+        return formatter.formatException(exception, LogMode.DETAILED, properties);
+    }
+
+    @Benchmark
+    public String clientIp() {
+        return formatter.formatClientIp(request);
+    }
+}
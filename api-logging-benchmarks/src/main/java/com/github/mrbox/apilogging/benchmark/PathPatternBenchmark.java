@@ -0,0 +1,83 @@
+package com.github.mrbox.apilogging.benchmark;
+
+import com.github.mrbox.apilogging.pattern.PathPatternIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     URI模式匹配的开销：逐个调用 AntPathMatcher 与 {@link PathPatternIndex} 一次遍历的对比，
+ *     按模式数量分别测量。请求路径不命中任何模式，两种方式都需要检查全部模式。
+ * </pre>
+ *
+ * @author Zwk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class PathPatternBenchmark {
+
+    private static final String PATH = "/api/v2/orders/42/items";
+
+    @Param({"1", "8", "64"})
+    private int patternCount;
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private String[] patterns;
+    private PathPatternIndex index;
+
+    @Setup
+    public void setUp() {
+        List<String> list = new ArrayList<>(patternCount);
+        for (int i = 0; i < patternCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    list.add("/api/v" + i + "/orders/**");
+                    break;
+                case 1:
+                    list.add("/internal/" + i + "/*");
+                    break;
+                case 2:
+                    list.add("/api/*/customers/{id}/" + i);
+                    break;
+                default:
+                    list.add("/**/admin" + i + "/**");
+                    break;
+            }
+        }
+        patterns = list.toArray(new String[0]);
+        index = PathPatternIndex.compile(list);
+    }
+
+    @Benchmark
+    public boolean antPathMatcher() {
+        for (String pattern : patterns) {
+            if (antPathMatcher.match(pattern, PATH)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean pathPatternIndex() {
+        return index.matches(PATH);
+    }
+}
@@ -1,12 +1,25 @@
 package com.github.mrbox.apilogging;
 
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
+import com.github.mrbox.apilogging.exception.ExceptionDeduplicator;
 import com.github.mrbox.apilogging.filter.FilterManager;
+import com.github.mrbox.apilogging.formatter.DetailedFormattingExecutor;
 import com.github.mrbox.apilogging.formatter.LogContentFormatter;
+import com.github.mrbox.apilogging.formatter.PayloadSnapshot;
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+import com.github.mrbox.apilogging.handler.RouteRegistry;
 import com.github.mrbox.apilogging.logger.ApiLoggingLogger;
+import com.github.mrbox.apilogging.metrics.ApiLoggingMetrics;
 import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+import com.github.mrbox.apilogging.model.CaptureMode;
 import com.github.mrbox.apilogging.model.DetailedLogRecord;
 import com.github.mrbox.apilogging.model.LogMode;
 import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import com.github.mrbox.apilogging.rollup.RollupAggregator;
+import com.github.mrbox.apilogging.sampling.LogSampler;
+import com.github.mrbox.apilogging.servlet.CapturingRequestWrapper;
+import com.github.mrbox.apilogging.servlet.CountingResponseWrapper;
+import com.github.mrbox.apilogging.trace.TraceContext;
 import com.github.mrbox.apilogging.trigger.DetailedLogTrigger;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -14,16 +27,30 @@ import org.aspectj.lang.annotation.Aspect;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.Ordered;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.AntPathMatcher;
-import org.springframework.util.CollectionUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 日志组件的核心AOP切面，用于拦截Controller记录请求和响应信息。
@@ -35,27 +62,88 @@ public class ApiLoggingAspect implements Ordered {
 
     private final ApiLoggingProperties properties;
     private final ThreadLocal<ApiLoggingDataContext> loggingDataContextThreadLocal = new ThreadLocal<>();
+    private final ThreadLocal<PendingLog> pendingLogPool = new ThreadLocal<>();
     private final List<DetailedLogTrigger> detailedLogTriggers;
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private volatile EnabledTriggers enabledTriggers;
     private final ApiLoggingLogger logger;
     private final LogContentFormatter logContentFormatter;
     private final FilterManager filterManager;
+    private final DetailedFormattingExecutor formattingExecutor;
+    private final LogSampler logSampler;
+    private final ExceptionDeduplicator exceptionDeduplicator;
+    private final RollupAggregator rollupAggregator;
+    private final ApiLoggingMetrics metrics;
+
+    /**
+     * 在 WebAsyncManager 中注册异步拦截器的key
+     */
+    private static final Object ASYNC_INTERCEPTOR_KEY = ApiLoggingAspect.class.getName() + ".ASYNC_COMPLETION";
+
+    private static final String STREAM_COMPLETED = "COMPLETED";
+    private static final String STREAM_CANCELLED = "CANCELLED";
+    private static final String STREAM_TIMEOUT = "TIMEOUT";
+    private static final String STREAM_ERROR = "ERROR";
+
+    /**
+     * 异常类型的错误指示，下标 0 为 WARN，1 为 ERROR
+     */
+    private static final ClassValue<String[]> EXCEPTION_INDICATORS = new ClassValue<String[]>() {
+        @Override
+        protected String[] computeValue(Class<?> type) {
+            String errorType = type.getSimpleName();
+            return new String[]{"WARN:" + errorType, "ERROR:" + errorType};
+        }
+    };
+
+    /**
+     * 400 ~ 599 状态码的错误指示
+     */
+    private static final String[] STATUS_INDICATORS = new String[200];
+
+    static {
+        for (int i = 0; i < STATUS_INDICATORS.length; i++) {
+            int statusCode = 400 + i;
+            STATUS_INDICATORS[i] = statusCode >= 500
+                    ? "ERROR_HTTP_STATUS_" + statusCode : "WARN_HTTP_STATUS_" + statusCode;
+        }
+    }
 
     public ApiLoggingAspect(ApiLoggingProperties properties,
                             List<DetailedLogTrigger> detailedLogTriggers,
                             ApiLoggingLogger logger,
                             LogContentFormatter logContentFormatter,
                             FilterManager filterManager) {
+        this(properties, detailedLogTriggers, logger, logContentFormatter, filterManager, null);
+    }
+
+    /**
+     * @param optionalComponents 可选组件，为 null 时全部不启用
+     */
+    public ApiLoggingAspect(ApiLoggingProperties properties,
+                            List<DetailedLogTrigger> detailedLogTriggers,
+                            ApiLoggingLogger logger,
+                            LogContentFormatter logContentFormatter,
+                            FilterManager filterManager,
+                            OptionalComponents optionalComponents) {
+        OptionalComponents components = optionalComponents != null ? optionalComponents : new OptionalComponents();
         this.properties = properties;
         this.detailedLogTriggers = Optional.ofNullable(detailedLogTriggers).orElse(Collections.emptyList());
         this.logger = logger;
         this.logContentFormatter = logContentFormatter;
         this.filterManager = filterManager;
+        this.formattingExecutor = components.formattingExecutor;
+        this.logSampler = components.logSampler;
+        this.exceptionDeduplicator = components.exceptionDeduplicator;
+        this.rollupAggregator = components.rollupAggregator;
+        this.metrics = components.metrics;
     }
 
     @Around("@within(org.springframework.stereotype.Controller) || @within(org.springframework.web.bind.annotation.RestController)")
     public Object logRequestAndResponse(ProceedingJoinPoint joinPoint) throws Throwable {
-        if (!properties.isEnabled()) {
+        // 整个请求只读取一次配置快照，处理期间配置刷新不影响当前请求
+        CompiledApiLoggingConfig config = properties.compiled();
+        ApiLoggingProperties current = config.getProperties();
+        if (!current.isEnabled()) {
             return joinPoint.proceed();
         }
 
@@ -64,41 +152,102 @@ public class ApiLoggingAspect implements Ordered {
         HttpServletResponse response = (sra != null) ? sra.getResponse() : null;
 
 
-        ApiLoggingDataContext loggingDataContext = new ApiLoggingDataContext(properties.getLogMode());
+        // 日志上下文和工作记录从当前线程的状态中复用，精简日志的请求线程路径不分配新对象
+        PendingLog pending = acquirePendingLog();
+        pending.config = config;
+        ApiLoggingDataContext loggingDataContext = pending.loggingDataContext;
+        loggingDataContext.reset(current.getLogMode());
         loggingDataContextThreadLocal.set(loggingDataContext);
 
+        // 命中的路由模板，如 /orders/{id}
+        String route = RouteRegistry.resolveRoute(request);
+
         // 是否触发了详细模式的触发条件
-        boolean detailModeTriggerEffected = determineEffectiveLogModeByUriPattern(request) || determineEffectiveLogModeByTriggers(request, response, null);
+        long stageStart = phaseStart();
+        boolean detailModeTriggerEffected = determineEffectiveLogModeByUriPattern(config, request, route);
+        stageStart = recordStage(pending, ApiLoggingMetrics.Stage.URI_PATTERN, stageStart);
+        if (!detailModeTriggerEffected) {
+            detailModeTriggerEffected = determineEffectiveLogModeByTriggers(config, request, response, null);
+            stageStart = recordStage(pending, ApiLoggingMetrics.Stage.TRIGGER, stageStart);
+        }
 
         // 如果没有触发器被触发，执行前置过滤器检查，如果被过滤，直接执行业务方法
-        if (!detailModeTriggerEffected && filterManager.shouldSkipLoggingByPreFilters(joinPoint, request)) {
-            return joinPoint.proceed();
+        if (!detailModeTriggerEffected) {
+            boolean skippedByPreFilters = filterManager.shouldSkipLoggingByPreFilters(joinPoint, request);
+            recordStage(pending, ApiLoggingMetrics.Stage.PRE_FILTER, stageStart);
+            if (skippedByPreFilters) {
+                recordOutcome(ApiLoggingMetrics.Outcome.FILTERED);
+                recordOverhead(joinPoint, pending);
+                clearLoggingDataContext();
+                pending.release();
+                return joinPoint.proceed();
+            }
+        }
+
+        // 启用按 traceId 一致性采样时，未触发详细模式的请求在执行前作出决定，被丢弃的请求不再采集参数；
+        // 否则链路追踪请求头推迟到确定发布日志时才解析
+        TraceContext traceContext = null;
+        boolean traceResolved = false;
+        double traceWeight = 1D;
+        if (logSampler != null && logSampler.isTraceSamplingEnabled()) {
+            traceContext = TraceContext.resolve(request, current.getTraceIdHeader());
+            traceResolved = true;
+            if (!detailModeTriggerEffected) {
+                traceWeight = logSampler.sampleTrace(traceContext);
+            }
         }
 
-        DetailedLogRecord logRecord = new DetailedLogRecord();
+        // 不依赖执行结果的后置过滤器提前判断，被过滤时推迟请求信息的格式化，直到执行后有触发器生效
+        boolean skippedByRequestPostFilters = false;
+        if (!detailModeTriggerEffected) {
+            stageStart = phaseStart();
+            skippedByRequestPostFilters = filterManager.shouldSkipLoggingByRequestPostFilters(joinPoint, request);
+            recordStage(pending, ApiLoggingMetrics.Stage.POST_FILTER, stageStart);
+        }
 
+        // 延迟采集时请求头和参数在确定最终日志模式后才格式化，精简日志和被过滤的请求不产生序列化开销
+        pending.begin(joinPoint, request, response, detailModeTriggerEffected, skippedByRequestPostFilters, traceWeight);
+        pending.traceResolved = traceResolved;
+        DetailedLogRecord logRecord = pending.logRecord;
+
+        // 从响应输出流采集详细日志的返回值，代替对返回值的重复序列化
+        if (current.getResponseCapture().isEnabled()) {
+            CountingResponseWrapper wrapper = CountingResponseWrapper.get(request);
+            if (wrapper != null && wrapper.startCapture(current.getMaxPayloadLength())) {
+                pending.responseCapture = wrapper;
+            }
+        }
+
+        stageStart = phaseStart();
         logRecord.setClientIp(logContentFormatter.formatClientIp(request));
+        recordStage(pending, ApiLoggingMetrics.Stage.CLIENT_IP, stageStart);
 
-        String controllerMethod = joinPoint.getTarget().getClass().getSimpleName() + "#"
-                + joinPoint.getSignature().getName();
+        String controllerMethod = HandlerDescriptor.of(joinPoint).getHandlerName();
         String requestUri = (request != null) ? request.getRequestURI() : "UnknownURI";
 
         Object result = null;
         Throwable exception = null;
+        boolean asyncPending = false;
 
         try {
-            LogMode currentMode = getEffectiveLogMode();
+            LogMode currentMode = getEffectiveLogMode(config);
             logRecord.setLogMode(currentMode.name());
 
             logRecord.setControllerHandler(controllerMethod);
             String queryString = null;
             if (request != null) {
-                queryString = logContentFormatter.formatRequestQueries(request, properties);
-                logRecord.setRequestHeader(logContentFormatter.formatRequestHeaders(request, properties));
-                logRecord.setRequestParams(logContentFormatter.formatArguments(joinPoint, request, properties));
+                queryString = logContentFormatter.formatRequestQueries(request, current);
+                if (current.getCaptureMode() == CaptureMode.EAGER && !skippedByRequestPostFilters
+                        && traceWeight != LogSampler.DROPPED) {
+                    captureRequestContent(pending, logRecord, joinPoint, request);
+                    pending.requestContentCaptured = true;
+                }
             }
             // uri可以使用URLDecoder.decode()方法处理一下以解析requestUri里的中文字符，暂不处理
-            logRecord.setUri(queryString == null || queryString.isEmpty() ? requestUri : requestUri + "?" + queryString);
+            // 路径和查询参数分开保存，发布时才拼接
+            logRecord.setUri(requestUri, queryString);
+            logRecord.setRoute(route);
+            applyTraceContext(logRecord, traceContext);
 
             logRecord.setRequestTimestamp(System.currentTimeMillis());
         } catch (Exception e) {
@@ -107,103 +256,514 @@ public class ApiLoggingAspect implements Ordered {
 
         try {
             result = joinPoint.proceed();
+            // 异步返回值在异步处理完成后才记录日志
+            asyncPending = registerAsyncCompletion(pending, result);
             return result;
         } catch (Throwable ex) {
             exception = ex;
             throw ex;
         } finally {
             try {
-                loggingDataContext.setProceedResult(result);
+                if (!asyncPending) {
+                    completeLog(pending, result, exception);
+                }
+            } finally {
+                clearLoggingDataContext();
+                // 推迟到响应写出后发布的日志在发布时才释放状态
+                if (!asyncPending && !pending.deferred) {
+                    pending.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * 确定最终日志模式，执行后置过滤器、采样后格式化并发布日志，调用时日志上下文需已绑定到当前线程
+     *
+     * @param pending   请求开始时的日志状态
+     * @param result    最终的返回值，异步请求为异步处理的结果
+     * @param exception 最终的异常，异步请求为异步处理的异常
+     */
+    private void completeLog(PendingLog pending, Object result, Throwable exception) {
+        ProceedingJoinPoint joinPoint = pending.joinPoint;
+        HttpServletRequest request = pending.request;
+        HttpServletResponse response = pending.response;
+        DetailedLogRecord logRecord = pending.logRecord;
+        boolean detailModeTriggerEffected = pending.detailModeTriggerEffected;
+        try {
+            pending.loggingDataContext.setProceedResult(result);
+            if (exception != null && exceptionDeduplicator != null) {
+                // 在触发器之前判断，被去重的重复异常不再触发详细日志
+                recordExceptionOccurrence(pending.loggingDataContext, exception);
+            }
 
-                long processingTimeMs = System.currentTimeMillis() - logRecord.getRequestTimestamp();
+            long processingTimeMs = System.currentTimeMillis() - logRecord.getRequestTimestamp();
 
-                if (!detailModeTriggerEffected) {
-                    // 确定最终的日志模式
-                    detailModeTriggerEffected = determineEffectiveLogModeByTriggers(request, response, exception);
-                }
-                // 执行后置过滤器检查
-                boolean shouldSkipByPostFilter = false;
-                // 如果没有触发器被触发，执行后置过滤器检查
-                if (!detailModeTriggerEffected) {
-                    shouldSkipByPostFilter = filterManager.shouldSkipLoggingByPostFilters(
-                            joinPoint, request, response, result, exception, loggingDataContext, processingTimeMs);
+            if (!detailModeTriggerEffected) {
+                // 确定最终的日志模式
+                long stageStart = phaseStart();
+                detailModeTriggerEffected = determineEffectiveLogModeByTriggers(pending.config, request, response, exception);
+                recordStage(pending, ApiLoggingMetrics.Stage.TRIGGER, stageStart);
+            }
+            // 执行后置过滤器检查
+            boolean shouldSkipByPostFilter = false;
+            // 如果没有触发器被触发，执行后置过滤器检查
+            if (!detailModeTriggerEffected) {
+                long stageStart = phaseStart();
+                shouldSkipByPostFilter = pending.skippedByRequestPostFilters
+                        || filterManager.shouldSkipLoggingByResponsePostFilters(
+                        joinPoint, request, response, result, exception, pending.loggingDataContext, processingTimeMs);
+                recordStage(pending, ApiLoggingMetrics.Stage.POST_FILTER, stageStart);
+            }
+            if (shouldSkipByPostFilter) {
+                recordOutcome(ApiLoggingMetrics.Outcome.FILTERED);
+            }
+
+            if (!shouldSkipByPostFilter) {
+                logRecord.setProcessingTimeMs(processingTimeMs);
+
+                // 获取状态码，以基本类型传递，避免装箱
+                int statusCode = SimpleLogRecord.UNSET;
+                if (result instanceof ResponseEntity) {
+                    statusCode = ((ResponseEntity<?>) result).getStatusCodeValue();
+                } else if (result instanceof HttpServletResponse) {
+                    statusCode = ((HttpServletResponse) result).getStatus();
+                } else if (response != null) {
+                    statusCode = response.getStatus();
                 }
 
-                if (!shouldSkipByPostFilter) {
-                    logRecord.setProcessingTimeMs(processingTimeMs);
-
-                    // 获取状态码
-                    Integer statusCode = null;
-                    if (result instanceof ResponseEntity) {
-                        statusCode = ((ResponseEntity<?>) result).getStatusCodeValue();
-                    } else if (result instanceof HttpServletResponse) {
-                        statusCode = ((HttpServletResponse) result).getStatus();
-                    } else if (response != null) {
-                        statusCode = response.getStatus();
-                    }
+                LogMode finalMode = getEffectiveLogMode(pending.config);
+                logRecord.setLogMode(finalMode.name());
 
-                    LogMode finalMode = getEffectiveLogMode();
-                    logRecord.setLogMode(finalMode.name());
-
-                    // 设置状态码和相关数据
-                    logRecord.setStatusCode(statusCode);
-                    if (exception != null) {
-                        logRecord.setExceptionStacktrace(
-                                logContentFormatter.formatException(exception, finalMode, properties));
-                        String errorType = exception.getClass().getSimpleName();
-                        logRecord.setErrorIndicator(
-                                statusCode != null && statusCode >= 500 ? "ERROR:" + errorType : "WARN:" + errorType);
-                    } else {
-                        logRecord.setResponseData(logContentFormatter.formatReturnValue(result, finalMode, properties));
-                        if (statusCode != null && statusCode >= 400) {
-                            logRecord.setErrorIndicator(statusCode >= 500 ? "ERROR_HTTP_STATUS_" + statusCode
-                                    : "WARN_HTTP_STATUS_" + statusCode);
-                        }
-                    }
+                // 设置状态码和错误指示
+                logRecord.setStatusCode(statusCode);
+                logRecord.setErrorIndicator(resolveErrorIndicator(statusCode, exception));
+                logRecord.setExceptionFingerprint(pending.loggingDataContext.getExceptionFingerprint());
+                if (pending.streaming) {
+                    applyStreamingStats(logRecord, request, exception, pending.timedOut);
+                }
+                if (metrics != null) {
+                    metrics.recordRequest(HandlerDescriptor.of(joinPoint), statusCode, processingTimeMs);
+                }
 
-                    if (!LogMode.DETAILED.name().equals(logRecord.getLogMode())) {
-                        logger.publish(convertToSimpleLog(logRecord));
-                    } else {
-                        logger.publish(logRecord);
+                // 汇总计入全部请求，只累加不发布的记录不再采样和格式化
+                if (rollupAggregator != null && rollupAggregator.record(logRecord)) {
+                    recordOutcome(ApiLoggingMetrics.Outcome.ROLLED_UP);
+                    return;
+                }
+                // 采样在格式化之前进行，被丢弃的记录不产生格式化开销；权重以基本类型传递，避免装箱
+                if (logSampler != null) {
+                    double sampleWeight = logSampler.sample(logRecord, pending.traceWeight);
+                    if (sampleWeight == LogSampler.DROPPED) {
+                        recordOutcome(ApiLoggingMetrics.Outcome.SAMPLED_OUT);
+                        return;
                     }
+                    logRecord.setSampleWeight(sampleWeight);
+                }
+                if (!pending.traceResolved && request != null) {
+                    applyTraceContext(logRecord,
+                            TraceContext.resolve(request, pending.config.getProperties().getTraceIdHeader()));
                 }
+                formatAndPublish(pending, finalMode, result, exception);
+            }
+
+        } catch (Throwable e) {
+            LoggerFactory.getLogger(getClass()).error("请求日志记录失败，异常信息:{}", e.getMessage(), e);
+        } finally {
+            // 推迟到响应写出后发布的日志在发布时记录
+            if (!pending.deferred) {
+                recordOverhead(joinPoint, pending);
+            }
+        }
+    }
+
+    /**
+     * 计算异常指纹并记录一次出现，结果保存在日志上下文中
+     */
+    private void recordExceptionOccurrence(ApiLoggingDataContext context, Throwable exception) {
+        try {
+            String fingerprint = exceptionDeduplicator.fingerprint(exception);
+            context.setExceptionFingerprint(fingerprint);
+            context.setExceptionSuppressed(!exceptionDeduplicator.recordOccurrence(fingerprint, exception));
+        } catch (Exception e) {
+            LoggerFactory.getLogger(getClass()).warn("异常指纹计算失败:{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 格式化异常，同一指纹的异常在当前窗口内已记录过足够多的完整堆栈时只记录一行异常信息
+     */
+    private String formatException(ApiLoggingProperties current, Throwable exception, LogMode mode,
+                                   boolean suppressed) {
+        if (suppressed) {
+            return exception.getClass().getName() + ": " + exception.getMessage();
+        }
+        return logContentFormatter.formatException(exception, mode, current);
+    }
+
+    /**
+     * <pre>
+     * 返回值为异步类型时，向 WebAsyncManager 注册拦截器，在异步处理完成后记录日志。
+     * CompletableFuture、ListenableFuture 由 Spring MVC 转换为 DeferredResult，WebAsyncTask 转换为 Callable，
+     * StreamingResponseBody 按 Callable 处理，ResponseBodyEmitter、SseEmitter 按 DeferredResult 处理，
+     * 因此只需拦截 Callable 和 DeferredResult 两种处理过程。
+     * </pre>
+     *
+     * @return 是否已推迟到异步处理完成后记录
+     */
+    private boolean registerAsyncCompletion(PendingLog pending, Object result) {
+        if (pending.request == null) {
+            return false;
+        }
+        pending.streaming = isStreamingReturnValue(result);
+        if (!pending.streaming && !isAsyncReturnValue(result)) {
+            return false;
+        }
+        // 异步处理期间状态归拦截器所有，不再放回当前线程复用
+        detachPendingLog(pending);
+        pending.async = true;
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(pending.request);
+        AsyncCompletionInterceptor interceptor = new AsyncCompletionInterceptor(pending, result);
+        asyncManager.registerCallableInterceptor(ASYNC_INTERCEPTOR_KEY, interceptor);
+        asyncManager.registerDeferredResultInterceptor(ASYNC_INTERCEPTOR_KEY, interceptor);
+        return true;
+    }
+
+    /**
+     * 流式返回值，包括 ResponseEntity 包装的流式响应体
+     */
+    private static boolean isStreamingReturnValue(Object result) {
+        Object body = result instanceof ResponseEntity ? ((ResponseEntity<?>) result).getBody() : result;
+        return body instanceof StreamingResponseBody || body instanceof ResponseBodyEmitter;
+    }
+
+    /**
+     * 从响应计数包装对象读取流式响应的统计，未注册计数过滤器时只记录结束状态
+     */
+    private static void applyStreamingStats(DetailedLogRecord logRecord, HttpServletRequest request,
+                                            Throwable exception, boolean timedOut) {
+        CountingResponseWrapper counter = CountingResponseWrapper.get(request);
+        String streamStatus;
+        if (timedOut) {
+            streamStatus = STREAM_TIMEOUT;
+        } else if (counter != null && counter.isWriteFailed()) {
+            streamStatus = STREAM_CANCELLED;
+        } else if (exception != null) {
+            streamStatus = STREAM_ERROR;
+        } else {
+            streamStatus = STREAM_COMPLETED;
+        }
+        logRecord.setStreamStatus(streamStatus);
+        if (counter != null) {
+            logRecord.setStreamBytes(counter.getBytesWritten());
+            logRecord.setStreamEvents(counter.getEventCount());
+            long firstByteTimestamp = counter.getFirstByteTimestamp();
+            if (firstByteTimestamp > 0) {
+                logRecord.setTimeToFirstByteMs(firstByteTimestamp - logRecord.getRequestTimestamp());
+            }
+        }
+    }
+
+    private static boolean isAsyncReturnValue(Object result) {
+        return result instanceof Callable
+                || result instanceof WebAsyncTask
+                || result instanceof DeferredResult
+                || result instanceof CompletionStage
+                || result instanceof ListenableFuture;
+    }
+
+    /**
+     * <pre>
+     * 格式化参数、返回值或异常并发布日志。
+     * 采集响应内容时，同步请求的响应体在切面返回后才由 HttpMessageConverter 写出，详细日志推迟到过滤器链结束后发布；
+     * 异步请求完成时响应已经写出，直接使用采集到的内容。
+     * </pre>
+     */
+    private void formatAndPublish(PendingLog pending, LogMode finalMode, Object result, Throwable exception) {
+        CountingResponseWrapper capture = pending.responseCapture;
+        if (finalMode == LogMode.DETAILED && exception == null && capture != null
+                && !pending.streaming && !(result instanceof ModelAndView)) {
+            if (!pending.async && !capture.isChainCompleted()) {
+                detachPendingLog(pending);
+                pending.deferred = true;
+                capture.afterChain(() -> publishCapturedResponse(pending, result));
+                return;
+            }
+            publish(pending, finalMode, result, null, capturedResponseData(pending, result));
+            return;
+        }
+        publish(pending, finalMode, result, exception, null);
+    }
+
+    /**
+     * 过滤器链结束后使用采集到的响应内容发布详细日志
+     */
+    private void publishCapturedResponse(PendingLog pending, Object result) {
+        loggingDataContextThreadLocal.set(pending.loggingDataContext);
+        try {
+            publish(pending, LogMode.DETAILED, result, null, capturedResponseData(pending, result));
+        } catch (Throwable e) {
+            LoggerFactory.getLogger(getClass()).error("请求日志记录失败，异常信息:{}", e.getMessage(), e);
+        } finally {
+            recordOverhead(pending.joinPoint, pending);
+            clearLoggingDataContext();
+        }
+    }
+
+    /**
+     * 读取采集到的响应内容并记录实际写出的字节数，未通过输出流写出内容时仍序列化返回值
+     */
+    private String capturedResponseData(PendingLog pending, Object result) {
+        CountingResponseWrapper capture = pending.responseCapture;
+        String body = capture.getCapturedBody();
+        if (body == null) {
+            return logContentFormatter.formatReturnValue(result, LogMode.DETAILED, pending.config.getProperties());
+        }
+        pending.logRecord.setResponseBytes(capture.getBytesWritten());
+        return body;
+    }
+
+    /**
+     * 格式化参数、返回值或异常并发布日志
+     *
+     * @param responseData 已采集的返回值，为 null 时格式化返回值
+     */
+    private void publish(PendingLog pending, LogMode finalMode, Object result, Throwable exception,
+                         String responseData) {
+        DetailedLogRecord logRecord = pending.logRecord;
+        ProceedingJoinPoint joinPoint = pending.joinPoint;
+        HttpServletRequest request = pending.request;
+        ApiLoggingProperties current = pending.config.getProperties();
+        boolean requestContentCaptured = pending.requestContentCaptured;
+        if (finalMode == LogMode.DETAILED) {
+            // 详细日志直接发布工作记录，记录不再归当前线程所有
+            pending.recordPublished = true;
+        }
+        if (finalMode == LogMode.DETAILED && formattingExecutor != null) {
+            PayloadSnapshot returnValue = null;
+            if (exception == null) {
+                long stageStart = phaseStart();
+                returnValue = responseData != null ? PayloadSnapshot.formatted(responseData)
+                        : logContentFormatter.captureReturnValue(result, LogMode.DETAILED, current);
+                recordStage(pending, ApiLoggingMetrics.Stage.RETURN_VALUE, stageStart);
+            }
+            publishWithOffloadedFormatting(pending, logRecord, joinPoint, request, returnValue, exception,
+                    pending.loggingDataContext.isExceptionSuppressed(), requestContentCaptured);
+            return;
+        }
+
+        // 最终为详细模式时补充尚未采集的请求信息
+        if (finalMode == LogMode.DETAILED && !requestContentCaptured && request != null) {
+            captureRequestContent(pending, logRecord, joinPoint, request);
+        }
+
+        long stageStart = phaseStart();
+        if (exception != null) {
+            logRecord.setExceptionStacktrace(
+                    formatException(current, exception, finalMode, pending.loggingDataContext.isExceptionSuppressed()));
+            recordStage(pending, ApiLoggingMetrics.Stage.EXCEPTION, stageStart);
+        } else {
+            logRecord.setResponseData(responseData != null ? responseData
+                    : logContentFormatter.formatReturnValue(result, finalMode, current));
+            recordStage(pending, ApiLoggingMetrics.Stage.RETURN_VALUE, stageStart);
+        }
+
+        if (!LogMode.DETAILED.name().equals(logRecord.getLogMode())) {
+            // 发布器不持有记录引用时复用当前线程的精简记录；持有引用的发布器拥有记录，每条日志分配一个新的记录
+            stageStart = phaseStart();
+            SimpleLogRecord simpleRecord = logger.supportsRecordReuse() ? pending.simpleRecord() : new SimpleLogRecord();
+            simpleRecord.copyFrom(logRecord);
+            recordStage(pending, ApiLoggingMetrics.Stage.RECORD_CONVERSION, stageStart);
+            publishRecord(pending, simpleRecord);
+        } else {
+            publishRecord(pending, logRecord);
+        }
+    }
+
+    /**
+     * 调用发布器发布日志，启用指标时记录发布耗时
+     *
+     * @param pending 请求线程中的日志状态，在后台线程发布时为 null
+     */
+    private void publishRecord(PendingLog pending, SimpleLogRecord record) {
+        long start = phaseStart();
+        logger.publish(record);
+        if (metrics != null) {
+            recordStage(pending, ApiLoggingMetrics.Stage.PUBLISH, start);
+            metrics.recordOutcome(ApiLoggingMetrics.Outcome.PUBLISHED);
+        }
+    }
+
+    /**
+     * @return 阶段的开始时间，未启用指标时返回 0，不读取时钟
+     */
+    private long phaseStart() {
+        return metrics != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 记录从 start 开始的阶段耗时，并累加到请求的自身开销中
+     *
+     * @param pending 请求线程中的日志状态，在后台线程执行的阶段为 null，不计入请求的开销
+     * @return 当前时间，作为下一阶段的开始时间；未启用指标时返回 0
+     */
+    private long recordStage(PendingLog pending, ApiLoggingMetrics.Stage stage, long start) {
+        if (metrics == null) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        long elapsed = now - start;
+        metrics.recordStage(stage, elapsed);
+        if (pending != null) {
+            pending.overheadNanos += elapsed;
+        }
+        return now;
+    }
+
+    /**
+     * 记录日志组件在请求线程中给当前请求增加的总耗时
+     */
+    private void recordOverhead(ProceedingJoinPoint joinPoint, PendingLog pending) {
+        if (metrics != null) {
+            metrics.recordOverhead(HandlerDescriptor.of(joinPoint), pending.overheadNanos);
+        }
+    }
+
+    private void recordOutcome(ApiLoggingMetrics.Outcome outcome) {
+        if (metrics != null) {
+            metrics.recordOutcome(outcome);
+        }
+    }
+
+    /**
+     * 格式化请求头和请求参数
+     */
+    private void captureRequestContent(PendingLog pending, DetailedLogRecord logRecord,
+                                       ProceedingJoinPoint joinPoint, HttpServletRequest request) {
+        ApiLoggingProperties current = pending.config.getProperties();
+        long stageStart = phaseStart();
+        logRecord.setRequestHeader(logContentFormatter.formatRequestHeaders(request, current));
+        stageStart = recordStage(pending, ApiLoggingMetrics.Stage.REQUEST_HEADERS, stageStart);
+        logRecord.setRequestParams(logContentFormatter.formatArguments(joinPoint, request, current));
+        applyRequestBytes(current, logRecord, request);
+        recordStage(pending, ApiLoggingMetrics.Stage.ARGUMENTS, stageStart);
+    }
 
+    /**
+     * 记录应用读取的请求体字节数，multipart 等不复制内容的请求体也会统计
+     */
+    private void applyRequestBytes(ApiLoggingProperties current, DetailedLogRecord logRecord,
+                                   HttpServletRequest request) {
+        if (!current.getRequestCapture().isEnabled()) {
+            return;
+        }
+        CapturingRequestWrapper wrapper = CapturingRequestWrapper.get(request);
+        if (wrapper != null && wrapper.getBytesRead() > 0) {
+            logRecord.setRequestBytes(wrapper.getBytesRead());
+        }
+    }
+
+    /**
+     * <pre>
+     * 在请求线程中采集请求头、参数和返回值的快照，交由后台线程格式化并发布详细日志。
+     * 请求对象在请求结束后会被容器回收，因此请求头和参数快照必须在当前线程完成。
+     * 格式化线程池饱和时在当前线程直接格式化。
+     * </pre>
+     */
+    private void publishWithOffloadedFormatting(PendingLog pending, DetailedLogRecord logRecord,
+                                                ProceedingJoinPoint joinPoint, HttpServletRequest request,
+                                                PayloadSnapshot returnValue, Throwable exception,
+                                                boolean exceptionSuppressed,
+                                                boolean requestContentCaptured) {
+        // 后台线程执行时请求状态可能已被释放，提前取出配置
+        ApiLoggingProperties current = pending.config.getProperties();
+        PayloadSnapshot arguments = null;
+        if (!requestContentCaptured && request != null) {
+            long stageStart = phaseStart();
+            logRecord.setRequestHeader(logContentFormatter.formatRequestHeaders(request, current));
+            stageStart = recordStage(pending, ApiLoggingMetrics.Stage.REQUEST_HEADERS, stageStart);
+            arguments = logContentFormatter.captureArguments(joinPoint, request, current);
+            applyRequestBytes(current, logRecord, request);
+            recordStage(pending, ApiLoggingMetrics.Stage.ARGUMENTS, stageStart);
+        }
+
+        PayloadSnapshot capturedArguments = arguments;
+        Runnable formatting = () -> {
+            try {
+                // 后台线程中的阶段只计入阶段耗时，不计入请求的开销
+                long stageStart = phaseStart();
+                if (capturedArguments != null) {
+                    logRecord.setRequestParams(logContentFormatter.formatCapturedArguments(capturedArguments, current));
+                    stageStart = recordStage(null, ApiLoggingMetrics.Stage.ARGUMENTS, stageStart);
+                }
+                if (exception != null) {
+                    logRecord.setExceptionStacktrace(formatException(current, exception, LogMode.DETAILED, exceptionSuppressed));
+                    recordStage(null, ApiLoggingMetrics.Stage.EXCEPTION, stageStart);
+                } else {
+                    logRecord.setResponseData(logContentFormatter.formatCapturedReturnValue(returnValue, current));
+                    recordStage(null, ApiLoggingMetrics.Stage.RETURN_VALUE, stageStart);
+                }
+            } catch (Throwable e) {
+                LoggerFactory.getLogger(getClass()).error("请求日志记录失败，异常信息:{}", e.getMessage(), e);
+            }
+        };
+        Runnable publishing = () -> {
+            try {
+                publishRecord(null, logRecord);
             } catch (Throwable e) {
                 LoggerFactory.getLogger(getClass()).error("请求日志记录失败，异常信息:{}", e.getMessage(), e);
-            } finally {
-                loggingDataContextThreadLocal.remove();
             }
+        };
+        if (!formattingExecutor.execute(formatting, publishing)) {
+            formatting.run();
+            publishing.run();
         }
     }
 
-    private SimpleLogRecord convertToSimpleLog(DetailedLogRecord logRecord) {
-        SimpleLogRecord record = new SimpleLogRecord();
-        record.setLogMode(logRecord.getLogMode());
-        record.setClientIp(logRecord.getClientIp());
-        record.setRequestTimestamp(logRecord.getRequestTimestamp());
-        record.setUri(logRecord.getUri());
-        record.setControllerHandler(logRecord.getControllerHandler());
-        record.setProcessingTimeMs(logRecord.getProcessingTimeMs());
-        record.setStatusCode(logRecord.getStatusCode());
-        record.setErrorIndicator(logRecord.getErrorIndicator());
-        record.setExceptionStacktrace(logRecord.getExceptionStacktrace());
+    private static void applyTraceContext(DetailedLogRecord logRecord, TraceContext traceContext) {
+        if (traceContext != null) {
+            logRecord.setTraceId(traceContext.getTraceId());
+            logRecord.setSpanId(traceContext.getSpanId());
+        }
+    }
 
-        return record;
+    /**
+     * 错误指示的字符串按异常类型和状态码缓存，请求线程中不再拼接
+     */
+    private static String resolveErrorIndicator(int statusCode, Throwable exception) {
+        if (exception != null) {
+            String[] indicators = EXCEPTION_INDICATORS.get(exception.getClass());
+            return statusCode >= 500 ? indicators[1] : indicators[0];
+        }
+        if (statusCode >= 400) {
+            if (statusCode < 400 + STATUS_INDICATORS.length) {
+                return STATUS_INDICATORS[statusCode - 400];
+            }
+            return statusCode >= 500 ? "ERROR_HTTP_STATUS_" + statusCode : "WARN_HTTP_STATUS_" + statusCode;
+        }
+        return null;
     }
 
-    private boolean determineEffectiveLogModeByUriPattern(HttpServletRequest request) {
+    /**
+     * 根据强制详细模式的URI模式切换日志模式，优先匹配路由模板（结果按路由缓存），无路由模板时匹配原始URI
+     *
+     * @param config  当前请求的配置快照
+     * @param request 当前请求
+     * @param route   路由模板
+     * @return 是否触发了详细模式
+     */
+    private boolean determineEffectiveLogModeByUriPattern(CompiledApiLoggingConfig config,
+                                                          HttpServletRequest request, String route) {
         ApiLoggingDataContext context = loggingDataContextThreadLocal.get();
         if (context == null) {
             return false;
         }
         try {
             // 根据uri匹配强制详细模式
-            if (request != null && !CollectionUtils.isEmpty(properties.getForceDetailedLogPatterns())) {
-                for (String pattern : properties.getForceDetailedLogPatterns()) {
-                    if (pathMatcher.match(pattern, request.getRequestURI())) {
-                        context.setEffectiveLogMode(LogMode.DETAILED);
-                        return true;
-                    }
+            if (request != null && !config.getForceDetailedPatternIndex().isEmpty()) {
+                if (config.isForceDetailed(route, request.getRequestURI())) {
+                    context.setEffectiveLogMode(LogMode.DETAILED);
+                    return true;
                 }
             }
         } catch (Exception e) {
@@ -216,13 +776,14 @@ public class ApiLoggingAspect implements Ordered {
     /**
      * 通过触发器切换日志模式
      *
+     * @param config
      * @param request
      * @param response
      * @param exception
      * @return 是否触发了详细模式的触发条件
      */
-    private boolean determineEffectiveLogModeByTriggers(HttpServletRequest request, HttpServletResponse response,
-                                                        Throwable exception) {
+    private boolean determineEffectiveLogModeByTriggers(CompiledApiLoggingConfig config, HttpServletRequest request,
+                                                        HttpServletResponse response, Throwable exception) {
         ApiLoggingDataContext context = loggingDataContextThreadLocal.get();
         if (context == null) {
             return false;
@@ -230,12 +791,13 @@ public class ApiLoggingAspect implements Ordered {
 
         try {
             // 通过详细模式触发器触发
-            if (!CollectionUtils.isEmpty(properties.getTriggers())) {
-                for (DetailedLogTrigger trigger : detailedLogTriggers) {
-                    if (properties.getTriggers().contains(trigger.name()) && trigger.shouldLogDetailed(request, response, exception, context, properties)) {
-                        context.setEffectiveLogMode(LogMode.DETAILED);
-                        return true;
-                    }
+            // 按下标遍历，避免每个请求创建迭代器
+            List<DetailedLogTrigger> triggers = getEnabledTriggers(config);
+            ApiLoggingProperties current = config.getProperties();
+            for (int i = 0, size = triggers.size(); i < size; i++) {
+                if (triggers.get(i).shouldLogDetailed(request, response, exception, context, current)) {
+                    context.setEffectiveLogMode(LogMode.DETAILED);
+                    return true;
                 }
             }
         } catch (Exception e) {
@@ -245,9 +807,21 @@ public class ApiLoggingAspect implements Ordered {
         return false;
     }
 
-    private LogMode getEffectiveLogMode() {
+    /**
+     * 获取配置中启用的触发器，配置快照替换后重新筛选
+     */
+    private List<DetailedLogTrigger> getEnabledTriggers(CompiledApiLoggingConfig config) {
+        EnabledTriggers enabled = this.enabledTriggers;
+        if (enabled == null || enabled.config != config) {
+            enabled = new EnabledTriggers(config, detailedLogTriggers);
+            this.enabledTriggers = enabled;
+        }
+        return enabled.triggers;
+    }
+
+    private LogMode getEffectiveLogMode(CompiledApiLoggingConfig config) {
         ApiLoggingDataContext context = loggingDataContextThreadLocal.get();
-        return (context != null) ? context.getEffectiveLogMode() : properties.getLogMode();
+        return (context != null) ? context.getEffectiveLogMode() : config.getProperties().getLogMode();
     }
 
     @Override
@@ -255,4 +829,313 @@ public class ApiLoggingAspect implements Ordered {
         return 0;
         //return properties.getAop().getOrder();
     }
+
+    /**
+     * 解除当前线程绑定的日志上下文。
+     * 置空而不是 remove：remove 会删除 ThreadLocalMap 中的条目，下一个请求 set 时需要重新分配
+     */
+    private void clearLoggingDataContext() {
+        loggingDataContextThreadLocal.set(null);
+    }
+
+    /**
+     * 获取当前线程可复用的请求日志状态
+     */
+    private PendingLog acquirePendingLog() {
+        PendingLog pending = pendingLogPool.get();
+        if (pending == null) {
+            pending = new PendingLog();
+            pendingLogPool.set(pending);
+        } else if (pending.inUse) {
+            // Controller方法嵌套调用时，内层调用使用独立的状态
+            pending = new PendingLog();
+        }
+        pending.inUse = true;
+        return pending;
+    }
+
+    private void detachPendingLog(PendingLog pending) {
+        if (pendingLogPool.get() == pending) {
+            pendingLogPool.remove();
+        }
+    }
+
+    /**
+     * <pre>
+     * 请求开始时确定的日志状态，同步请求在方法返回时使用，异步请求在异步处理完成后使用。
+     * 同步请求结束后重置并留给当前线程的下一个请求复用，日志上下文、工作记录和精简记录都不再重新分配；
+     * 工作记录作为详细日志发布后不再复用，异步请求的状态不再放回当前线程。
+     * </pre>
+     */
+    private static final class PendingLog {
+        private final ApiLoggingDataContext loggingDataContext = new ApiLoggingDataContext();
+        /**
+         * 请求开始时读取的配置快照，请求处理的各阶段都使用同一个快照
+         */
+        private CompiledApiLoggingConfig config;
+        private DetailedLogRecord logRecord = new DetailedLogRecord();
+        private SimpleLogRecord simpleRecord;
+        private ProceedingJoinPoint joinPoint;
+        private HttpServletRequest request;
+        private HttpServletResponse response;
+        private boolean detailModeTriggerEffected;
+        private boolean skippedByRequestPostFilters;
+        private double traceWeight;
+        private boolean traceResolved;
+        private boolean requestContentCaptured;
+        private boolean streaming;
+        private volatile boolean timedOut;
+        private boolean recordPublished;
+        private boolean inUse;
+        private CountingResponseWrapper responseCapture;
+        private boolean async;
+        private boolean deferred;
+
+        /**
+         * 请求线程中各阶段耗时之和 (纳秒)，只在启用指标时累加
+         */
+        private long overheadNanos;
+
+        private void begin(ProceedingJoinPoint joinPoint, HttpServletRequest request, HttpServletResponse response,
+                           boolean detailModeTriggerEffected, boolean skippedByRequestPostFilters,
+                           double traceWeight) {
+            this.joinPoint = joinPoint;
+            this.request = request;
+            this.response = response;
+            this.detailModeTriggerEffected = detailModeTriggerEffected;
+            this.skippedByRequestPostFilters = skippedByRequestPostFilters;
+            this.traceWeight = traceWeight;
+        }
+
+        private SimpleLogRecord simpleRecord() {
+            SimpleLogRecord record = this.simpleRecord;
+            if (record == null) {
+                record = new SimpleLogRecord();
+                this.simpleRecord = record;
+            }
+            return record;
+        }
+
+        /**
+         * 重置状态，释放对请求、返回值等对象的引用
+         */
+        private void release() {
+            config = null;
+            joinPoint = null;
+            request = null;
+            response = null;
+            detailModeTriggerEffected = false;
+            skippedByRequestPostFilters = false;
+            traceWeight = 1D;
+            traceResolved = false;
+            requestContentCaptured = false;
+            streaming = false;
+            timedOut = false;
+            releaseResponseCapture();
+            async = false;
+            deferred = false;
+            overheadNanos = 0L;
+            loggingDataContext.reset(null);
+            if (recordPublished) {
+                logRecord = new DetailedLogRecord();
+                recordPublished = false;
+            } else {
+                logRecord.reset();
+            }
+            if (simpleRecord != null) {
+                simpleRecord.reset();
+            }
+            inUse = false;
+        }
+
+        /**
+         * 归还响应内容的采集缓冲区
+         */
+        private void releaseResponseCapture() {
+            if (responseCapture != null) {
+                responseCapture.releaseCapture();
+                responseCapture = null;
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * 异步处理的拦截器：
+     *  - Callable 在异步线程中执行时绑定日志上下文
+     *  - 记录异步处理的结果或异常
+     *  - 异步请求完成（响应已写出）后，在容器线程中绑定日志上下文并记录日志，耗时为端到端耗时
+     * </pre>
+     */
+    private final class AsyncCompletionInterceptor
+            implements CallableProcessingInterceptor, DeferredResultProcessingInterceptor {
+
+        private final PendingLog pending;
+        private final Object returnValue;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile Object concurrentResult;
+
+        private AsyncCompletionInterceptor(PendingLog pending, Object returnValue) {
+            this.pending = pending;
+            this.returnValue = returnValue;
+        }
+
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            loggingDataContextThreadLocal.set(pending.loggingDataContext);
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            // 超时后 Callable 仍会执行完成，请求的结果以超时为准
+            if (!pending.timedOut) {
+                this.concurrentResult = concurrentResult;
+            }
+            clearLoggingDataContext();
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, DeferredResult<T> deferredResult,
+                                    Object concurrentResult) {
+            this.concurrentResult = concurrentResult;
+        }
+
+        @Override
+        public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+            recordTimeout();
+            return RESULT_NONE;
+        }
+
+        @Override
+        public <T> boolean handleTimeout(NativeWebRequest request, DeferredResult<T> deferredResult) {
+            recordTimeout();
+            return true;
+        }
+
+        /**
+         * Callable 超时的结果由 Spring MVC 直接设置，不经过 postProcess，这里显式记录超时异常作为错误指示；
+         * DeferredResult 超时后设置的结果仍会经过 postProcess 覆盖。流式响应的超时记录在 streamStatus 中
+         */
+        private void recordTimeout() {
+            pending.timedOut = true;
+            if (!pending.streaming) {
+                recordError(new AsyncRequestTimeoutException());
+            }
+        }
+
+        @Override
+        public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) {
+            recordError(t);
+            return RESULT_NONE;
+        }
+
+        @Override
+        public <T> boolean handleError(NativeWebRequest request, DeferredResult<T> deferredResult, Throwable t) {
+            recordError(t);
+            return true;
+        }
+
+        private void recordError(Throwable t) {
+            if (this.concurrentResult == null) {
+                this.concurrentResult = t;
+            }
+        }
+
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+            complete();
+        }
+
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, DeferredResult<T> deferredResult) {
+            complete();
+        }
+
+        private void complete() {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            Object asyncResult = this.concurrentResult;
+            Throwable exception = asyncResult instanceof Throwable ? (Throwable) asyncResult : null;
+            // 流式响应的内容已直接写出，记录原始返回值的类型而不是异步处理的结果
+            Object result = pending.streaming ? returnValue : asyncResult;
+            loggingDataContextThreadLocal.set(pending.loggingDataContext);
+            try {
+                completeLog(pending, exception != null ? null : result, exception);
+            } finally {
+                clearLoggingDataContext();
+                pending.releaseResponseCapture();
+            }
+        }
+    }
+
+    /**
+     * 按配置快照筛选出的触发器
+     */
+    private static final class EnabledTriggers {
+        private final CompiledApiLoggingConfig config;
+        private final List<DetailedLogTrigger> triggers;
+
+        private EnabledTriggers(CompiledApiLoggingConfig config, List<DetailedLogTrigger> allTriggers) {
+            this.config = config;
+            List<DetailedLogTrigger> enabled = new ArrayList<>();
+            for (DetailedLogTrigger trigger : allTriggers) {
+                if (config.getTriggers().contains(trigger.name())) {
+                    enabled.add(trigger);
+                }
+            }
+            this.triggers = enabled;
+        }
+    }
+
+    /**
+     * 切面的可选组件，未设置的组件对应的功能不启用
+     */
+    public static final class OptionalComponents {
+        private DetailedFormattingExecutor formattingExecutor;
+        private LogSampler logSampler;
+        private ExceptionDeduplicator exceptionDeduplicator;
+        private RollupAggregator rollupAggregator;
+        private ApiLoggingMetrics metrics;
+
+        /**
+         * @param formattingExecutor 详细日志的后台格式化线程池，为 null 时在请求线程中格式化
+         */
+        public OptionalComponents formattingExecutor(DetailedFormattingExecutor formattingExecutor) {
+            this.formattingExecutor = formattingExecutor;
+            return this;
+        }
+
+        /**
+         * @param logSampler 精简日志采样器，为 null 时不采样
+         */
+        public OptionalComponents logSampler(LogSampler logSampler) {
+            this.logSampler = logSampler;
+            return this;
+        }
+
+        /**
+         * @param exceptionDeduplicator 重复异常去重，为 null 时每次都记录完整堆栈
+         */
+        public OptionalComponents exceptionDeduplicator(ExceptionDeduplicator exceptionDeduplicator) {
+            this.exceptionDeduplicator = exceptionDeduplicator;
+            return this;
+        }
+
+        /**
+         * @param rollupAggregator 精简日志按路由汇总，为 null 时逐条发布
+         */
+        public OptionalComponents rollupAggregator(RollupAggregator rollupAggregator) {
+            this.rollupAggregator = rollupAggregator;
+            return this;
+        }
+
+        /**
+         * @param metrics 请求耗时和日志组件自身的指标，为 null 时不记录
+         */
+        public OptionalComponents metrics(ApiLoggingMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+    }
 }
@@ -1,30 +1,55 @@
 package com.github.mrbox.apilogging;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.config.ApiLoggingConfigRefresher;
+import com.github.mrbox.apilogging.exception.ExceptionDeduplicator;
 import com.github.mrbox.apilogging.filter.FilterManager;
 import com.github.mrbox.apilogging.filter.PostFilter;
 import com.github.mrbox.apilogging.filter.PreFilter;
 import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
+import com.github.mrbox.apilogging.formatter.DetailedFormattingExecutor;
 import com.github.mrbox.apilogging.formatter.LogContentFormatter;
+import com.github.mrbox.apilogging.handler.RouteRegistry;
 import com.github.mrbox.apilogging.logger.ApiLoggingLogger;
+import com.github.mrbox.apilogging.logger.AsyncApiLoggingLogger;
 import com.github.mrbox.apilogging.logger.DefaultJsonLogger;
+import com.github.mrbox.apilogging.metrics.ApiLoggingMetrics;
+import com.github.mrbox.apilogging.metrics.CompositeApiLoggingMetrics;
+import com.github.mrbox.apilogging.metrics.MicrometerApiLoggingMetrics;
+import com.github.mrbox.apilogging.profiler.ApiLoggingEndpoint;
+import com.github.mrbox.apilogging.profiler.OverheadProfiler;
+import com.github.mrbox.apilogging.rollup.RollupAggregator;
+import com.github.mrbox.apilogging.sampling.LogSampler;
+import com.github.mrbox.apilogging.servlet.RequestCapturingFilter;
+import com.github.mrbox.apilogging.servlet.ResponseCountingFilter;
 import com.github.mrbox.apilogging.trigger.DetailedLogTrigger;
 import com.github.mrbox.apilogging.trigger.ExceptionDetailedLogTrigger;
 import com.github.mrbox.apilogging.trigger.HeaderDetailedLogTrigger;
 import com.github.mrbox.apilogging.trigger.HttpStatusCodeDetailedLogTrigger;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.Banner;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 
 import java.io.InputStream;
 import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 /**
  * 日志组件的Spring Boot自动配置类。
@@ -70,8 +95,20 @@ public class ApiLoggingAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public ApiLoggingLogger apiLoggingLogger(@Autowired(required = false) ObjectMapper objectMapper) {
-        return new DefaultJsonLogger(objectMapper);
+    public ApiLoggingLogger apiLoggingLogger(@Autowired(required = false) ObjectMapper objectMapper,
+                                             ObjectProvider<ApiLoggingMetrics> metrics) {
+        return new DefaultJsonLogger(objectMapper, CompositeApiLoggingMetrics.of(orderedList(metrics)));
+    }
+
+    /**
+     * 异步发布装饰器，包装实际的日志发布器。
+     * 声明为 Primary 以便切面注入的是异步发布器，被包装的发布器仍按类型注入到这里。
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = PREFIX, name = "async.enabled", havingValue = "true")
+    public AsyncApiLoggingLogger asyncApiLoggingLogger(ApiLoggingLogger apiLoggingLogger) {
+        return new AsyncApiLoggingLogger(apiLoggingLogger, properties.getAsync());
     }
 
     // --- 格式化器 Bean ---
@@ -81,6 +118,141 @@ public class ApiLoggingAutoConfiguration {
         return new DefaultLogContentFormatter(objectMapper);
     }
 
+    /**
+     * 详细日志后台格式化线程池
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = PREFIX, name = "offload.enabled", havingValue = "true")
+    public DetailedFormattingExecutor detailedFormattingExecutor() {
+        return new DetailedFormattingExecutor(properties.getOffload());
+    }
+
+    /**
+     * 精简日志采样器，启用采样或按 traceId 一致性采样时注册
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @Conditional(SamplingCondition.class)
+    public LogSampler logSampler() {
+        return new LogSampler(properties);
+    }
+
+    /**
+     * 重复异常去重，汇总记录通过切面使用的发布器发布
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = PREFIX, name = "exception-dedup.enabled", havingValue = "true")
+    public ExceptionDeduplicator exceptionDeduplicator(ApiLoggingLogger apiLoggingLogger) {
+        return new ExceptionDeduplicator(properties, apiLoggingLogger);
+    }
+
+    /**
+     * 精简日志按路由汇总，汇总记录通过切面使用的发布器发布
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = PREFIX, name = "rollup.enabled", havingValue = "true")
+    public RollupAggregator rollupAggregator(ApiLoggingLogger apiLoggingLogger) {
+        return new RollupAggregator(properties, apiLoggingLogger);
+    }
+
+    /**
+     * 日志组件自身开销分析，与 Micrometer 指标同时启用时切面依次记录到两者
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = PREFIX, name = "profiler.enabled", havingValue = "true")
+    public OverheadProfiler overheadProfiler() {
+        return new OverheadProfiler(properties);
+    }
+
+    /**
+     * 流式响应计数过滤器，启用流式响应统计或响应内容采集时注册
+     */
+    @Bean
+    @Conditional(ResponseCountingCondition.class)
+    public FilterRegistrationBean<ResponseCountingFilter> apiLoggingResponseCountingFilter() {
+        FilterRegistrationBean<ResponseCountingFilter> registration =
+                new FilterRegistrationBean<>(new ResponseCountingFilter(properties));
+        registration.setOrder(properties.getStreaming().getFilterOrder());
+        return registration;
+    }
+
+    /**
+     * 原始请求体采集过滤器
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = PREFIX, name = "request-capture.enabled", havingValue = "true")
+    public FilterRegistrationBean<RequestCapturingFilter> apiLoggingRequestCapturingFilter() {
+        FilterRegistrationBean<RequestCapturingFilter> registration =
+                new FilterRegistrationBean<>(new RequestCapturingFilter(properties));
+        registration.setOrder(properties.getRequestCapture().getFilterOrder());
+        return registration;
+    }
+
+    // --- 配置刷新 Bean ---
+    @Bean
+    @ConditionalOnMissingBean
+    public ApiLoggingConfigRefresher apiLoggingConfigRefresher(Environment environment,
+                                                               ObjectProvider<RouteRegistry> routeRegistry,
+                                                               ObjectProvider<FilterManager> filterManager) {
+        return new ApiLoggingConfigRefresher(properties, environment, routeRegistry.getIfAvailable(),
+                filterManager.getIfAvailable());
+    }
+
+    // --- 路由模板注册表 Bean ---
+    @Bean
+    @ConditionalOnMissingBean
+    public RouteRegistry routeRegistry() {
+        return new RouteRegistry(properties);
+    }
+
+    /**
+     * 引入 micrometer-core 时输出请求耗时和日志组件自身的指标，未注册 MeterRegistry 时使用全局注册表
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = PREFIX, name = "metrics.enabled", havingValue = "true")
+    public static class MicrometerMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public MicrometerApiLoggingMetrics apiLoggingMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+                                                             ApiLoggingProperties properties) {
+            return new MicrometerApiLoggingMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), properties);
+        }
+    }
+
+    /**
+     * 引入 spring-boot-actuator 时通过 /actuator/apilogging 端点查看日志组件自身的开销
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    @ConditionalOnProperty(prefix = PREFIX, name = "profiler.enabled", havingValue = "true")
+    public static class ProfilerEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ApiLoggingEndpoint apiLoggingEndpoint(OverheadProfiler overheadProfiler) {
+            return new ApiLoggingEndpoint(overheadProfiler);
+        }
+    }
+
+    /**
+     * 引入 spring-cloud-context 时，在环境变化后自动刷新日志配置
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.cloud.context.environment.EnvironmentChangeEvent")
+    public static class EnvironmentChangeRefreshConfiguration {
+
+        @Bean
+        public ApplicationListener<EnvironmentChangeEvent> apiLoggingEnvironmentChangeListener(
+                ObjectProvider<ApiLoggingConfigRefresher> apiLoggingConfigRefresher) {
+            return event -> apiLoggingConfigRefresher.ifAvailable(ApiLoggingConfigRefresher::refresh);
+        }
+    }
+
     // --- 触发器 Beans ---
     @Bean
     @ConditionalOnMissingBean
@@ -115,9 +287,60 @@ public class ApiLoggingAutoConfiguration {
             List<DetailedLogTrigger> detailedLogTriggers,
             ApiLoggingLogger apiLoggingLogger,
             LogContentFormatter logContentFormatter,
-            FilterManager filterManager) {
+            FilterManager filterManager,
+            ObjectProvider<DetailedFormattingExecutor> formattingExecutor,
+            ObjectProvider<LogSampler> logSampler,
+            ObjectProvider<ExceptionDeduplicator> exceptionDeduplicator,
+            ObjectProvider<RollupAggregator> rollupAggregator,
+            ObjectProvider<ApiLoggingMetrics> metrics) {
+
+        return new ApiLoggingAspect(properties, detailedLogTriggers, apiLoggingLogger, logContentFormatter, filterManager,
+                new ApiLoggingAspect.OptionalComponents()
+                        .formattingExecutor(formattingExecutor.getIfAvailable())
+                        .logSampler(logSampler.getIfAvailable())
+                        .exceptionDeduplicator(exceptionDeduplicator.getIfAvailable())
+                        .rollupAggregator(rollupAggregator.getIfAvailable())
+                        .metrics(CompositeApiLoggingMetrics.of(orderedList(metrics))));
+    }
+
+    /**
+     * 启用流式响应统计或响应内容采集时注册计数过滤器，两者都依赖计数过滤器包装的响应输出流
+     */
+    static class ResponseCountingCondition extends AnyNestedCondition {
+
+        ResponseCountingCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = PREFIX, name = "streaming.enabled", havingValue = "true")
+        static class StreamingEnabled {
+        }
+
+        @ConditionalOnProperty(prefix = PREFIX, name = "response-capture.enabled", havingValue = "true")
+        static class ResponseCaptureEnabled {
+        }
+    }
+
+    /**
+     * 启用精简日志采样或按 traceId 一致性采样时注册采样器，两者在采样器中分别按当前配置判断
+     */
+    public static class SamplingCondition extends AnyNestedCondition {
+
+        SamplingCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = PREFIX, name = "sampling.enabled", havingValue = "true")
+        static class SamplingEnabled {
+        }
+
+        @ConditionalOnProperty(prefix = PREFIX, name = "sampling.trace.enabled", havingValue = "true")
+        static class TraceSamplingEnabled {
+        }
+    }
 
-        return new ApiLoggingAspect(properties, detailedLogTriggers, apiLoggingLogger, logContentFormatter, filterManager);
+    private static <T> List<T> orderedList(ObjectProvider<T> provider) {
+        return provider.orderedStream().collect(Collectors.toList());
     }
 
     /**
@@ -1,8 +1,18 @@
 package com.github.mrbox.apilogging;
 
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
+import com.github.mrbox.apilogging.formatter.SnapshotStrategy;
+import com.github.mrbox.apilogging.logger.AsyncOverflowPolicy;
+import com.github.mrbox.apilogging.model.CaptureMode;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import com.github.mrbox.apilogging.model.LogMode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.Ordered;
 
 import java.util.*;
 
@@ -32,6 +42,21 @@ public class ApiLoggingProperties {
      */
     private int maxPayloadLength = 1024;
 
+    /**
+     * <pre>
+     * 请求头和请求参数的采集时机。
+     * - LAZY 确定最终日志模式为详细模式后才格式化，精简日志不产生序列化开销（默认）；
+     *   参数在方法执行后序列化，Controller修改过的入参记录的是修改后的值，与 1.0.0 不同
+     * - EAGER 方法执行前立即格式化，适用于Controller会修改入参对象、需要记录原始入参的场景
+     * </pre>
+     */
+    private CaptureMode captureMode = CaptureMode.LAZY;
+
+    /**
+     * 参数和返回值按结构截断的配置
+     */
+    private Truncation truncation = new Truncation();
+
     /**
      * 机密信息处理配置
      */
@@ -73,6 +98,15 @@ public class ApiLoggingProperties {
      */
     private List<String> forceDetailedLogPatterns = new ArrayList<>();
 
+    /**
+     * <pre>
+     * URI 模式是否只匹配路由模板（如 /orders/{id}）。
+     * 默认 false：路由模板未命中时再匹配原始请求URI（含 context-path），按具体路径或带 context-path 编写的模式仍然生效。
+     * 设置为 true 时命中Controller映射的请求只匹配路由模板，匹配结果按路由缓存，不再逐个请求匹配原始URI。
+     * </pre>
+     */
+    private boolean routeTemplateOnly = false;
+
 
     /**
      * 不记录日志的请求Content-Type集合。
@@ -81,6 +115,125 @@ public class ApiLoggingProperties {
     private Set<String> excludedArgumentOnContentTypes = new HashSet<>(
             Arrays.asList("application/octet-stream", "multipart/form-data"));
 
+    /**
+     * 异步发布日志配置
+     */
+    private Async async = new Async();
+
+    /**
+     * 详细日志后台格式化配置
+     */
+    private Offload offload = new Offload();
+
+    /**
+     * <pre>
+     * 自定义的 traceId 请求头名称，请求未携带 traceparent、b3 或 X-B3-TraceId 时使用（默认为空）。
+     * 示例: "X-Trace-Id"
+     * </pre>
+     */
+    private String traceIdHeader = "";
+
+    /**
+     * 精简日志采样配置
+     */
+    private Sampling sampling = new Sampling();
+
+    /**
+     * 流式响应配置
+     */
+    private Streaming streaming = new Streaming();
+
+    /**
+     * 重复异常去重配置
+     */
+    private ExceptionDedup exceptionDedup = new ExceptionDedup();
+
+    /**
+     * 精简日志按路由汇总配置
+     */
+    private Rollup rollup = new Rollup();
+
+    /**
+     * Micrometer 指标配置
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * 日志组件自身开销分析配置
+     */
+    private Profiler profiler = new Profiler();
+
+    /**
+     * 详细日志请求体采集配置
+     */
+    private RequestCapture requestCapture = new RequestCapture();
+
+    /**
+     * 详细日志响应内容采集配置
+     */
+    private ResponseCapture responseCapture = new ResponseCapture();
+
+    /**
+     * 编译后的配置快照，不参与配置绑定
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient volatile CompiledApiLoggingConfig compiled;
+
+    /**
+     * 获取编译后的配置快照，首次调用时编译。
+     * 快照由配置属性的副本编译而来，直接修改配置属性后需要调用 {@link #refreshCompiled()} 才会生效。
+     *
+     * @return 配置快照
+     */
+    public CompiledApiLoggingConfig compiled() {
+        CompiledApiLoggingConfig config = this.compiled;
+        return config != null ? config : refreshCompiled();
+    }
+
+    /**
+     * 获取当前生效的配置属性，即当前配置快照编译时复制的配置属性，不随本对象的修改而变化。
+     * 请求处理时应通过此方法读取配置，而不是直接读取本对象的属性；返回的对象不应被修改。
+     *
+     * @return 当前生效的配置属性
+     */
+    public ApiLoggingProperties current() {
+        return compiled().getProperties();
+    }
+
+    /**
+     * 按本对象当前的配置属性重新编译配置快照，并原子替换旧的快照
+     *
+     * @return 新的配置快照
+     */
+    public synchronized CompiledApiLoggingConfig refreshCompiled() {
+        return publish(CompiledApiLoggingConfig.compile(this));
+    }
+
+    /**
+     * 按给定的配置属性编译配置快照并原子替换旧的快照，同时把给定的配置属性复制到本对象，
+     * 之后注入本对象的组件读到的也是刷新后的配置。
+     *
+     * @param source 新绑定的配置属性
+     * @return 新的配置快照
+     */
+    public synchronized CompiledApiLoggingConfig refreshCompiled(ApiLoggingProperties source) {
+        CompiledApiLoggingConfig config = CompiledApiLoggingConfig.compile(source);
+        if (source != this) {
+            config.copyTo(this);
+        }
+        return publish(config);
+    }
+
+    private CompiledApiLoggingConfig publish(CompiledApiLoggingConfig config) {
+        // 快照中的配置副本也指向同一个快照，按副本读取的组件得到一致的编译结果
+        config.getProperties().compiled = config;
+        this.compiled = config;
+        return config;
+    }
+
 
     @Data
     public static class HeaderTriggerProperties {
@@ -137,4 +290,302 @@ public class ApiLoggingProperties {
         private int maxLines = 20;
     }
 
+    @Data
+    public static class Truncation {
+        /**
+         * <pre>
+         * 是否按结构截断参数和返回值。默认为 false
+         * 启用后按深度、元素个数、字符串长度截断，输出仍是合法的JSON，只序列化需要记录的部分；
+         * maxPayloadLength 仍作为总长度上限。
+         * </pre>
+         */
+        private boolean enabled = false;
+
+        /**
+         * 最大嵌套深度，超出的对象输出为 "[超出最大深度: 类名]"，小于等于 0 表示不限制
+         */
+        private int maxDepth = 5;
+
+        /**
+         * 集合、数组、Map 最多输出的元素个数，超出部分输出为 "...+N more"，小于等于 0 表示不限制
+         */
+        private int maxCollectionElements = 20;
+
+        /**
+         * 单个字符串字段的最大长度，超出部分输出为 "...+N more"，小于等于 0 表示不限制
+         */
+        private int maxStringLength = 512;
+    }
+
+    @Data
+    public static class Async {
+        /**
+         * 是否启用异步发布，启用后日志的序列化和输出在后台线程执行。默认为 false
+         */
+        private boolean enabled = false;
+
+        /**
+         * 异步队列容量，会向上取整为2的幂
+         */
+        private int bufferSize = 8192;
+
+        /**
+         * 消费线程数
+         */
+        private int consumerThreads = 1;
+
+        /**
+         * 队列已满时的处理策略
+         */
+        private AsyncOverflowPolicy overflowPolicy = AsyncOverflowPolicy.DROP_SIMPLE_KEEP_ERRORS;
+
+        /**
+         * 应用关闭时等待队列清空的最长时间（毫秒）
+         */
+        private long shutdownTimeoutMs = 5000;
+    }
+
+    @Data
+    public static class Offload {
+        /**
+         * 是否将详细日志的参数、返回值、异常格式化转移到后台线程池执行。默认为 false
+         */
+        private boolean enabled = false;
+
+        /**
+         * 格式化线程数
+         */
+        private int threads = 2;
+
+        /**
+         * 等待格式化的队列容量，队列已满时在请求线程中直接格式化
+         */
+        private int queueCapacity = 1024;
+
+        /**
+         * 参数和返回值默认的快照方式。默认为 DEEP_COPY，字符串、数字等不可变的简单类型始终直接引用。
+         * 只有确认请求结束后不会再被修改的类型才应配置为 REFERENCE
+         */
+        private SnapshotStrategy defaultSnapshot = SnapshotStrategy.DEEP_COPY;
+
+        /**
+         * <pre>
+         * 按类型指定快照方式，key 为类或接口的全限定名，对子类同样生效。
+         * 示例: "java.util.Map": DEEP_COPY, "com.example.entity.BaseEntity": SERIALIZE
+         * </pre>
+         */
+        private Map<String, SnapshotStrategy> snapshotTypes = new LinkedHashMap<>();
+
+        /**
+         * 应用关闭时等待格式化任务完成的最长时间（毫秒）
+         */
+        private long shutdownTimeoutMs = 5000;
+    }
+
+    @Data
+    public static class Sampling {
+        /**
+         * 是否对精简日志按采样率和令牌桶采样。默认为 false
+         * 启动时启用该项或 trace.enabled 才会创建采样器，之后两者都可以随配置刷新停用、重新启用。
+         */
+        private boolean enabled = false;
+
+        /**
+         * 默认采样率，取值 0~1，1 表示全部保留
+         */
+        private double rate = 1.0;
+
+        /**
+         * 默认每个路由每秒最多保留的记录数，小于等于 0 表示不限制
+         */
+        private int ratePerSecond = 0;
+
+        /**
+         * 慢请求阈值（毫秒），处理耗时不小于该值的记录始终保留，小于 0 表示不启用
+         */
+        private long slowThresholdMs = 1000;
+
+        /**
+         * <pre>
+         * 按路由指定采样配置，key 为 Ant 风格的路由模板模式，按配置顺序使用第一个匹配项。
+         * 示例: "[/api/orders/**]": { rate: 0.1, ratePerSecond: 100 }
+         * </pre>
+         */
+        private Map<String, RouteSampling> routes = new LinkedHashMap<>();
+
+        /**
+         * 按 traceId 的一致性采样配置
+         */
+        private TraceSampling trace = new TraceSampling();
+    }
+
+    @Data
+    public static class Streaming {
+        /**
+         * <pre>
+         * 是否统计流式响应（StreamingResponseBody、ResponseBodyEmitter、SseEmitter）写出的字节数、事件数和首字节时间。默认为 false
+         * 启用后注册一个包装响应输出流的Servlet过滤器，只计数不缓冲响应内容。
+         * </pre>
+         */
+        private boolean enabled = false;
+
+        /**
+         * 计数过滤器的顺序，默认在其他过滤器之后执行，统计的是应用写出的字节数
+         */
+        private int filterOrder = Ordered.LOWEST_PRECEDENCE - 100;
+    }
+
+    @Data
+    public static class ExceptionDedup {
+        /**
+         * <pre>
+         * 是否对重复异常去重。默认为 false
+         * 启用后按 异常类型+栈顶帧 计算异常指纹，每个窗口内同一指纹只有前 maxFullStacks 次记录完整堆栈并触发详细日志，
+         * 之后的记录只带指纹和一行异常信息；每个窗口结束时为有被去重记录的指纹发布一条汇总记录。
+         * </pre>
+         */
+        private boolean enabled = false;
+
+        /**
+         * 去重窗口（毫秒），也是汇总记录的发布周期，启动后修改不生效
+         */
+        private long windowMs = 60000;
+
+        /**
+         * 每个窗口内同一指纹记录完整堆栈的次数
+         */
+        private int maxFullStacks = 5;
+
+        /**
+         * 计算指纹使用的栈顶帧数
+         */
+        private int topFrames = 5;
+
+        /**
+         * 最多跟踪的指纹数，超出后新指纹的异常不去重
+         */
+        private int maxFingerprints = 1024;
+    }
+
+    @Data
+    public static class Rollup {
+        /**
+         * <pre>
+         * 是否按路由汇总精简日志。默认为 false
+         * 启用后匹配路由的精简日志不再逐条发布，而是累加到路由的计数和耗时直方图中，每个周期为每个路由发布一条汇总记录；
+         * 带有错误指示的记录和详细日志仍逐条发布，同时计入汇总。
+         * </pre>
+         */
+        private boolean enabled = false;
+
+        /**
+         * 汇总周期（秒），启动后修改不生效
+         */
+        private int intervalSeconds = 60;
+
+        /**
+         * 汇总的路由，Ant 风格的路由模板模式，为空时汇总全部路由，刷新后立即生效
+         */
+        private List<String> routes = new ArrayList<>();
+
+        /**
+         * 最多汇总的路由数，超出后新路由的精简日志仍逐条发布
+         */
+        private int maxRoutes = 512;
+    }
+
+    @Data
+    public static class Metrics {
+        /**
+         * <pre>
+         * 是否通过 Micrometer 输出指标。默认为 false，需要引入 micrometer-core
+         * 包括按Controller方法和状态码类别的请求耗时，以及日志组件各阶段的耗时、日志的处理结果和序列化字节数。
+         * </pre>
+         */
+        private boolean enabled = false;
+
+        /**
+         * 是否输出按Controller方法和状态码类别的请求耗时 (api.logging.requests)，启动后修改不生效
+         */
+        private boolean routeTimers = true;
+    }
+
+    @Data
+    public static class Profiler {
+        /**
+         * <pre>
+         * 是否分析日志组件自身的开销。默认为 false
+         * 按阶段和Controller方法记录耗时分布，引入 spring-boot-actuator 时通过 /actuator/apilogging 端点查看。
+         * </pre>
+         */
+        private boolean enabled = false;
+
+        /**
+         * 最多分析的Controller方法数，超出后新方法只计入各阶段的耗时
+         */
+        private int maxHandlers = 256;
+    }
+
+    @Data
+    public static class RequestCapture {
+        /**
+         * <pre>
+         * 是否从应用读取的原始请求体中采集详细日志的请求参数。默认为 false
+         * 启用后注册一个包装请求输入流的Servlet过滤器，JSON、表单、文本、XML 请求体的前 maxPayloadLength 个字节
+         * 在应用读取时被复制，直接作为 requestParams 记录，不再序列化Controller参数；其他类型的请求体只统计字节数。
+         * </pre>
+         */
+        private boolean enabled = false;
+
+        /**
+         * 采集过滤器的顺序，默认在其他过滤器之前执行，其他过滤器读取的请求体也能被采集
+         */
+        private int filterOrder = Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    @Data
+    public static class ResponseCapture {
+        /**
+         * <pre>
+         * 是否从实际写出的响应字节中采集详细日志的返回值。默认为 false
+         * 启用后不再重复序列化返回值，而是在响应输出流写出时复制前 maxPayloadLength 个字节作为 responseData，
+         * 并记录响应实际写出的字节数；同步请求的详细日志推迟到响应写出后发布。
+         * 依赖计数过滤器，启用后即使 streaming.enabled 为 false 也会注册，maxPayloadLength 小于等于 0 时不生效。
+         * </pre>
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class TraceSampling {
+        /**
+         * 是否按 traceId 一致性采样，启用后各服务对同一条链路的请求作出相同的保留或丢弃决定。默认为 false
+         * 不依赖 sampling.enabled；两者同时启用时，带有 traceId 的记录不再按路由的采样率随机丢弃，但仍经过令牌桶限流。
+         */
+        private boolean enabled = false;
+
+        /**
+         * 按 traceId 哈希保留的比例，取值 0~1。各服务应配置相同的值
+         */
+        private double rate = 1.0;
+
+        /**
+         * 是否优先使用上游传递的采样标记（traceparent 的 sampled 标记、B3 的 sampled/debug）
+         */
+        private boolean respectSampledFlag = true;
+    }
+
+    @Data
+    public static class RouteSampling {
+        /**
+         * 采样率，为空时使用默认采样率
+         */
+        private Double rate;
+
+        /**
+         * 每秒最多保留的记录数，为空时使用默认值
+         */
+        private Integer ratePerSecond;
+    }
+
 }
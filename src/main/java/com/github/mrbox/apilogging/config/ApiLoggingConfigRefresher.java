@@ -0,0 +1,78 @@
+package com.github.mrbox.apilogging.config;
+
+import com.github.mrbox.apilogging.ApiLoggingAutoConfiguration;
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.filter.FilterManager;
+import com.github.mrbox.apilogging.handler.RouteRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+/**
+ * <pre>
+ *     运行时刷新日志配置：从 Environment 绑定一份新的配置属性并编译，配置属性和配置快照一起原子替换。
+ *     不在原对象上重新绑定，请求线程不会读到绑定了一半的配置，已从配置源删除的配置项也会恢复默认值。
+ *     请求处理通过 {@link ApiLoggingProperties#current()} 读取新的配置；新的配置同时复制到注入的配置属性对象，
+ *     直接读取配置属性对象的组件在刷新后也读到新的配置。
+ *
+ *     引入 spring-cloud-context 时会在 EnvironmentChangeEvent（如 /actuator/refresh、配置中心推送）后自动刷新，
+ *     也可以在配置源变化后手动调用 {@link #refresh()}。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class ApiLoggingConfigRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiLoggingConfigRefresher.class);
+
+    private final ApiLoggingProperties properties;
+    private final Environment environment;
+    private final RouteRegistry routeRegistry;
+    private final FilterManager filterManager;
+
+    public ApiLoggingConfigRefresher(ApiLoggingProperties properties, Environment environment) {
+        this(properties, environment, null);
+    }
+
+    /**
+     * @param routeRegistry 路由模板注册表，刷新后用于预先计算新快照的路由匹配结果，可以为 null
+     */
+    public ApiLoggingConfigRefresher(ApiLoggingProperties properties, Environment environment,
+                                     RouteRegistry routeRegistry) {
+        this(properties, environment, routeRegistry, null);
+    }
+
+    /**
+     * @param routeRegistry 路由模板注册表，刷新后用于预先计算新快照的路由匹配结果，可以为 null
+     * @param filterManager 过滤器管理器，刷新后清除缓存的过滤器结果，可以为 null
+     */
+    public ApiLoggingConfigRefresher(ApiLoggingProperties properties, Environment environment,
+                                     RouteRegistry routeRegistry, FilterManager filterManager) {
+        this.properties = properties;
+        this.environment = environment;
+        this.routeRegistry = routeRegistry;
+        this.filterManager = filterManager;
+    }
+
+    /**
+     * 绑定新的配置属性并编译新的配置快照
+     *
+     * @return 新的配置快照
+     */
+    public CompiledApiLoggingConfig refresh() {
+        synchronized (properties) {
+            ApiLoggingProperties bound = Binder.get(environment)
+                    .bindOrCreate(ApiLoggingAutoConfiguration.PREFIX, ApiLoggingProperties.class);
+            CompiledApiLoggingConfig config = properties.refreshCompiled(bound);
+            if (routeRegistry != null) {
+                routeRegistry.warmUp();
+            }
+            if (filterManager != null) {
+                filterManager.clearCache();
+            }
+            logger.info("API日志配置已刷新");
+            return config;
+        }
+    }
+}
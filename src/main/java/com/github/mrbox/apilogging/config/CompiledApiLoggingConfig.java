@@ -0,0 +1,314 @@
+package com.github.mrbox.apilogging.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.formatter.SnapshotStrategy;
+import com.github.mrbox.apilogging.pattern.PathPatternIndex;
+import com.github.mrbox.apilogging.pattern.RouteMatchCache;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *     由 {@link ApiLoggingProperties} 编译而来的不可变配置快照，供请求处理的热点路径直接使用：
+ *     请求头、Content-Type 等需要忽略大小写比较的配置预先处理，状态码集合转为位图，
+ *     URI 模式预先编译为 {@link PathPatternIndex} 并按路由模板缓存匹配结果，请求处理时不再重复计算和分配对象。
+ *
+ *     快照编译自配置属性的深拷贝，之后再修改原配置属性对象不会影响已发布的快照；
+ *     配置变化时整体重新编译并原子替换，同一个快照内的配置始终一致。
+ * </pre>
+ *
+ * @author Zwk
+ * @see ApiLoggingProperties#compiled()
+ */
+public final class CompiledApiLoggingConfig {
+
+    /**
+     * 状态码位图的上限，超出范围的状态码不会触发详细日志
+     */
+    private static final int MAX_STATUS_CODE = 1000;
+
+    /**
+     * 复制配置属性，只在编译快照时使用
+     */
+    private static final ObjectMapper COPIER = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final ApiLoggingProperties properties;
+    private final Set<String> sensitiveArgNames;
+    private final Set<String> sensitiveHeaderNames;
+    private final String[] excludedArgumentContentTypes;
+    private final BitSet detailedStatusCodes;
+    private final boolean detailedStatusCodesEmpty;
+    private final PathPatternIndex forceDetailedPatternIndex;
+    private final RouteMatchCache forceDetailedRoutes;
+    private final RouteMatchCache rollupRoutes;
+    private final boolean routeTemplateOnly;
+    private final Set<String> triggers;
+    private final String triggerHeaderName;
+    private final String triggerHeaderValue;
+    private final SnapshotStrategy defaultSnapshot;
+    private final SnapshotTypeTable snapshotTypes;
+
+    private CompiledApiLoggingConfig(ApiLoggingProperties properties) {
+        this.properties = properties;
+        ApiLoggingProperties.Sensitive sensitive = properties.getSensitive();
+        this.sensitiveArgNames = sensitive.getArgNames() != null
+                ? Collections.unmodifiableSet(new HashSet<>(sensitive.getArgNames())) : Collections.emptySet();
+        // 忽略大小写的有序集合，查找时无需为请求头名称生成小写副本
+        Set<String> headerNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (sensitive.getRequestHeaders() != null) {
+            for (String headerName : sensitive.getRequestHeaders()) {
+                if (headerName != null) {
+                    headerNames.add(headerName);
+                }
+            }
+        }
+        this.sensitiveHeaderNames = Collections.unmodifiableSet(headerNames);
+
+        Set<String> excluded = toLowerCaseSet(properties.getExcludedArgumentOnContentTypes());
+        this.excludedArgumentContentTypes = excluded.toArray(new String[0]);
+
+        this.detailedStatusCodes = new BitSet(MAX_STATUS_CODE);
+        if (properties.getDetailedLogOnStatusCodes() != null) {
+            for (Integer statusCode : properties.getDetailedLogOnStatusCodes()) {
+                if (statusCode != null && statusCode >= 0 && statusCode < MAX_STATUS_CODE) {
+                    detailedStatusCodes.set(statusCode);
+                }
+            }
+        }
+        this.detailedStatusCodesEmpty = detailedStatusCodes.isEmpty();
+
+        this.forceDetailedPatternIndex = PathPatternIndex.compile(properties.getForceDetailedLogPatterns());
+        this.forceDetailedRoutes = new RouteMatchCache(forceDetailedPatternIndex);
+        this.rollupRoutes = new RouteMatchCache(PathPatternIndex.compile(properties.getRollup().getRoutes()));
+        this.routeTemplateOnly = properties.isRouteTemplateOnly();
+        this.triggers = properties.getTriggers() != null
+                ? Collections.unmodifiableSet(new LinkedHashSet<>(properties.getTriggers())) : Collections.emptySet();
+
+        ApiLoggingProperties.HeaderTriggerProperties headerTrigger = properties.getHeaderTrigger();
+        this.triggerHeaderName = headerTrigger != null ? headerTrigger.getHeaderName() : null;
+        this.triggerHeaderValue = headerTrigger != null ? headerTrigger.getDetailedValue() : null;
+
+        ApiLoggingProperties.Offload offload = properties.getOffload();
+        this.defaultSnapshot = offload.getDefaultSnapshot() != null
+                ? offload.getDefaultSnapshot() : SnapshotStrategy.DEEP_COPY;
+        this.snapshotTypes = offload.getSnapshotTypes() != null && !offload.getSnapshotTypes().isEmpty()
+                ? new SnapshotTypeTable(offload.getSnapshotTypes()) : null;
+    }
+
+    /**
+     * 复制配置属性并编译配置快照
+     *
+     * @param properties 日志配置属性，编译后再修改不影响快照
+     * @return 配置快照
+     */
+    public static CompiledApiLoggingConfig compile(ApiLoggingProperties properties) {
+        return new CompiledApiLoggingConfig(copyOf(properties));
+    }
+
+    /**
+     * @return 编译此快照时复制的配置属性，与快照一起发布，请求处理时读取未编译的配置，不应被修改
+     */
+    public ApiLoggingProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * 把此快照的配置属性复制到目标对象，目标对象原有的嵌套配置和集合整体替换，不与快照共享
+     *
+     * @param target 目标配置属性
+     */
+    public void copyTo(ApiLoggingProperties target) {
+        try {
+            COPIER.readerForUpdating(target).readValue(COPIER.writeValueAsBytes(properties));
+        } catch (IOException e) {
+            throw new UncheckedIOException("复制日志配置属性失败", e);
+        }
+    }
+
+    private static ApiLoggingProperties copyOf(ApiLoggingProperties properties) {
+        try {
+            return COPIER.readValue(COPIER.writeValueAsBytes(properties), properties.getClass());
+        } catch (IOException e) {
+            throw new UncheckedIOException("复制日志配置属性失败", e);
+        }
+    }
+
+    /**
+     * @return 敏感参数名称，不可修改
+     */
+    public Set<String> getSensitiveArgNames() {
+        return sensitiveArgNames;
+    }
+
+    /**
+     * @param headerName 请求头名称
+     * @return 是否是需要脱敏的请求头，不区分大小写
+     */
+    public boolean isSensitiveHeader(String headerName) {
+        return headerName != null && !sensitiveHeaderNames.isEmpty() && sensitiveHeaderNames.contains(headerName);
+    }
+
+    /**
+     * @param contentType 请求的Content-Type
+     * @return 是否是不记录参数的Content-Type，不区分大小写、前缀匹配
+     */
+    public boolean isExcludedArgumentContentType(String contentType) {
+        if (contentType == null || excludedArgumentContentTypes.length == 0) {
+            return false;
+        }
+        for (String excluded : excludedArgumentContentTypes) {
+            if (contentType.regionMatches(true, 0, excluded, 0, excluded.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param statusCode HTTP状态码
+     * @return 是否是应触发详细日志的状态码
+     */
+    public boolean isDetailedStatusCode(int statusCode) {
+        return statusCode >= 0 && statusCode < MAX_STATUS_CODE && detailedStatusCodes.get(statusCode);
+    }
+
+    /**
+     * @return 是否没有配置触发详细日志的状态码
+     */
+    public boolean isDetailedStatusCodesEmpty() {
+        return detailedStatusCodesEmpty;
+    }
+
+    /**
+     * @return 强制详细日志的URI模式索引
+     */
+    public PathPatternIndex getForceDetailedPatternIndex() {
+        return forceDetailedPatternIndex;
+    }
+
+    /**
+     * @return 强制详细日志模式按路由模板缓存的匹配结果
+     */
+    public RouteMatchCache getForceDetailedRoutes() {
+        return forceDetailedRoutes;
+    }
+
+    /**
+     * @return 汇总路由模式按路由模板缓存的匹配结果
+     */
+    public RouteMatchCache getRollupRoutes() {
+        return rollupRoutes;
+    }
+
+    /**
+     * @param route 路由模板，请求未命中Controller映射时为 null
+     * @param uri   原始请求URI
+     * @return 是否匹配强制详细日志的URI模式，路由模板未命中时按 {@link #isRouteTemplateOnly()} 决定是否匹配原始URI
+     */
+    public boolean isForceDetailed(String route, String uri) {
+        return forceDetailedRoutes.matches(route, uri, routeTemplateOnly);
+    }
+
+    /**
+     * @return URI 模式是否只匹配路由模板
+     */
+    public boolean isRouteTemplateOnly() {
+        return routeTemplateOnly;
+    }
+
+    /**
+     * @return 启用的详细日志触发器名称，不可修改
+     */
+    public Set<String> getTriggers() {
+        return triggers;
+    }
+
+    /**
+     * @return 触发详细日志的请求头名称
+     */
+    public String getTriggerHeaderName() {
+        return triggerHeaderName;
+    }
+
+    /**
+     * @return 触发详细日志的请求头值
+     */
+    public String getTriggerHeaderValue() {
+        return triggerHeaderValue;
+    }
+
+    /**
+     * @param type 参数或返回值的类型
+     * @return 后台格式化时该类型的快照方式，未按类型配置时为默认快照方式
+     */
+    public SnapshotStrategy resolveSnapshotStrategy(Class<?> type) {
+        if (snapshotTypes == null) {
+            return defaultSnapshot;
+        }
+        SnapshotStrategy strategy = snapshotTypes.resolve(type);
+        return strategy != null ? strategy : defaultSnapshot;
+    }
+
+    private static Set<String> toLowerCaseSet(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> lowerCaseValues = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value != null) {
+                lowerCaseValues.add(value.toLowerCase(Locale.ROOT));
+            }
+        }
+        return Collections.unmodifiableSet(lowerCaseValues);
+    }
+
+    /**
+     * 类型到快照方式的映射，依次按类本身、父类、接口的全限定名匹配，匹配结果按类型缓存
+     */
+    private static final class SnapshotTypeTable {
+        private final Map<String, SnapshotStrategy> source;
+        private final ConcurrentMap<Class<?>, Optional<SnapshotStrategy>> resolved = new ConcurrentHashMap<>();
+
+        private SnapshotTypeTable(Map<String, SnapshotStrategy> source) {
+            this.source = new LinkedHashMap<>(source);
+        }
+
+        private SnapshotStrategy resolve(Class<?> type) {
+            return resolved.computeIfAbsent(type, this::lookup).orElse(null);
+        }
+
+        private Optional<SnapshotStrategy> lookup(Class<?> type) {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                SnapshotStrategy strategy = source.get(current.getName());
+                if (strategy != null) {
+                    return Optional.of(strategy);
+                }
+            }
+            for (Class<?> ifc : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+                SnapshotStrategy strategy = source.get(ifc.getName());
+                if (strategy != null) {
+                    return Optional.of(strategy);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.mrbox.apilogging.exception;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.logger.ApiLoggingLogger;
+import com.github.mrbox.apilogging.model.ExceptionSummaryRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *     重复异常去重：
+ *      - 按 异常类型 + 栈顶若干帧（类名、方法名、行号）计算 64 位指纹，同一版本的代码在不同节点上指纹一致
+ *      - 每个窗口内同一指纹只有前 maxFullStacks 次记录完整堆栈，之后只记录指纹
+ *      - 窗口结束时为有被去重记录的指纹发布一条 {@link ExceptionSummaryRecord}，并移除整个窗口内没有出现的指纹
+ *
+ *     指纹数受 maxFingerprints 限制，超出后新指纹的异常不去重。计数只使用原子操作，不加锁。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class ExceptionDeduplicator implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExceptionDeduplicator.class);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ApiLoggingProperties properties;
+    private final ApiLoggingLogger logger;
+    private final ConcurrentMap<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile long windowStart = System.currentTimeMillis();
+
+    /**
+     * @param properties 日志配置属性
+     * @param logger     发布汇总记录的发布器
+     */
+    public ExceptionDeduplicator(ApiLoggingProperties properties, ApiLoggingLogger logger) {
+        this.properties = properties;
+        this.logger = logger;
+        // 窗口长度决定汇总的发布周期，只在创建时读取一次，配置刷新后修改不生效
+        long windowMs = Math.max(1L, properties.getExceptionDedup().getWindowMs());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-logging-exception-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(this::flushSafely, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 计算异常指纹
+     *
+     * @param throwable 异常
+     * @return 16位十六进制的指纹
+     */
+    public String fingerprint(Throwable throwable) {
+        long hash = mix(FNV_OFFSET, throwable.getClass().getName());
+        StackTraceElement[] frames = throwable.getStackTrace();
+        int count = Math.min(frames.length, Math.max(0, properties.current().getExceptionDedup().getTopFrames()));
+        for (int i = 0; i < count; i++) {
+            StackTraceElement frame = frames[i];
+            hash = mix(hash, frame.getClassName());
+            hash = mix(hash, frame.getMethodName());
+            hash = (hash ^ frame.getLineNumber()) * FNV_PRIME;
+        }
+        String hex = Long.toHexString(hash);
+        return hex.length() < 16 ? "0000000000000000".substring(hex.length()) + hex : hex;
+    }
+
+    /**
+     * 记录一次异常
+     *
+     * @param fingerprint 异常指纹
+     * @param throwable   异常
+     * @return 本次是否应记录完整堆栈
+     */
+    public boolean recordOccurrence(String fingerprint, Throwable throwable) {
+        for (; ; ) {
+            Fingerprint entry = fingerprints.get(fingerprint);
+            if (entry == null) {
+                if (fingerprints.size() >= properties.current().getExceptionDedup().getMaxFingerprints()) {
+                    return true;
+                }
+                entry = fingerprints.computeIfAbsent(fingerprint, key -> new Fingerprint(throwable));
+            }
+            long occurrences = entry.increment();
+            if (occurrences > 0) {
+                return occurrences <= properties.current().getExceptionDedup().getMaxFullStacks();
+            }
+            // 窗口结束时该指纹已被移除，重新创建
+            fingerprints.remove(fingerprint, entry);
+        }
+    }
+
+    /**
+     * 结束当前窗口：为有被去重记录的指纹发布汇总记录，重置计数，移除整个窗口内没有出现的指纹
+     */
+    public void flush() {
+        long start = this.windowStart;
+        long now = System.currentTimeMillis();
+        this.windowStart = now;
+        int maxFullStacks = properties.current().getExceptionDedup().getMaxFullStacks();
+        for (Map.Entry<String, Fingerprint> mapEntry : fingerprints.entrySet()) {
+            Fingerprint entry = mapEntry.getValue();
+            long occurrences = entry.reset();
+            if (occurrences <= 0) {
+                // 只移除已标记移除的同一个对象，并发记录的异常会重新创建指纹
+                fingerprints.remove(mapEntry.getKey(), entry);
+                continue;
+            }
+            long suppressed = occurrences - Math.max(0, maxFullStacks);
+            if (suppressed > 0) {
+                logger.publish(summary(mapEntry.getKey(), entry, start, now - start, occurrences, suppressed));
+            }
+        }
+    }
+
+    /**
+     * @return 当前跟踪的指纹数
+     */
+    public int getFingerprintCount() {
+        return fingerprints.size();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        flushSafely();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            log.warn("api-logging 异常汇总记录发布失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private ExceptionSummaryRecord summary(String fingerprint, Fingerprint entry, long start, long duration,
+                                           long occurrences, long suppressed) {
+        ExceptionSummaryRecord record = new ExceptionSummaryRecord();
+        record.setLogMode(ExceptionSummaryRecord.LOG_MODE);
+        record.setRequestTimestamp(start);
+        record.setExceptionFingerprint(fingerprint);
+        record.setExceptionType(entry.exceptionType);
+        record.setTopFrame(entry.topFrame);
+        record.setOccurrences(occurrences);
+        record.setSuppressedCount(suppressed);
+        record.setWindowMs(duration);
+        return record;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 指纹的描述信息和当前窗口内的次数，次数为 {@link #RETIRED} 表示已从指纹表中移除
+     */
+    private static final class Fingerprint {
+        private static final long RETIRED = -1L;
+
+        private final String exceptionType;
+        private final String topFrame;
+        private final AtomicLong occurrences = new AtomicLong();
+
+        private Fingerprint(Throwable throwable) {
+            this.exceptionType = throwable.getClass().getName();
+            StackTraceElement[] frames = throwable.getStackTrace();
+            this.topFrame = frames.length > 0 ? frames[0].toString() : null;
+        }
+
+        /**
+         * @return 增加后的次数，已移除时返回 {@link #RETIRED}
+         */
+        private long increment() {
+            for (; ; ) {
+                long current = occurrences.get();
+                if (current == RETIRED) {
+                    return RETIRED;
+                }
+                if (occurrences.compareAndSet(current, current + 1)) {
+                    return current + 1;
+                }
+            }
+        }
+
+        /**
+         * 取出当前窗口的次数并清零；整个窗口内没有出现时标记为已移除
+         *
+         * @return 当前窗口的次数，没有出现或已移除时返回 0 或 {@link #RETIRED}
+         */
+        private long reset() {
+            for (; ; ) {
+                long current = occurrences.get();
+                if (current == RETIRED) {
+                    return RETIRED;
+                }
+                if (occurrences.compareAndSet(current, current == 0 ? RETIRED : 0)) {
+                    return current;
+                }
+            }
+        }
+    }
+}
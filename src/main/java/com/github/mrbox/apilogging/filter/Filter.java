@@ -1,5 +1,8 @@
 package com.github.mrbox.apilogging.filter;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  *
  * @author Zwk
@@ -31,4 +34,19 @@ public interface Filter {
     default int getOrder() {
         return 0;
     }
+
+    /**
+     * <pre>
+     * 过滤器判断所依赖的输入。
+     *
+     * 声明准确的输入可以让FilterManager缓存或提前执行过滤器，例如只依赖 HANDLER 的过滤器
+     * 每个Controller方法只会执行一次。声明的输入必须覆盖过滤器实际使用的全部信息，
+     * 默认依赖全部输入，不做任何优化。
+     * </pre>
+     *
+     * @return 判断所依赖的输入
+     */
+    default Set<FilterInput> decisionInputs() {
+        return EnumSet.allOf(FilterInput.class);
+    }
 }
@@ -0,0 +1,40 @@
+package com.github.mrbox.apilogging.filter;
+
+/**
+ * <pre>
+ * 过滤器判断所依赖的输入，由过滤器通过 {@link Filter#decisionInputs()} 声明。
+ *
+ * FilterManager 根据声明优化执行方式：
+ *  - 只依赖 HANDLER、ROUTE 的过滤器，结果按 Controller方法 + 路由模板 缓存，每个路由只计算一次
+ *  - 不依赖 RESPONSE 的后置过滤器，在Controller方法执行前提前判断
+ * </pre>
+ *
+ * @author Zwk
+ */
+public enum FilterInput {
+    /**
+     * Controller类和方法
+     */
+    HANDLER,
+    /**
+     * 路由模板，如 /orders/{id}，见 {@link com.github.mrbox.apilogging.handler.RouteRegistry#resolveRoute}。
+     * 请求没有路由模板时结果不会被缓存，此时过滤器可以退回使用原始URI
+     */
+    ROUTE,
+    /**
+     * 原始请求URI
+     */
+    URI,
+    /**
+     * 请求头
+     */
+    HEADER,
+    /**
+     * 其他请求信息，如请求参数、请求属性等
+     */
+    REQUEST,
+    /**
+     * 方法执行结果、异常、响应对象或处理耗时
+     */
+    RESPONSE
+}
@@ -1,5 +1,7 @@
 package com.github.mrbox.apilogging.filter;
 
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+import com.github.mrbox.apilogging.handler.RouteRegistry;
 import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.slf4j.Logger;
@@ -8,9 +10,14 @@ import org.springframework.util.CollectionUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -19,6 +26,13 @@ import java.util.stream.Collectors;
  *
  *     该管理器采用责任链模式，按照过滤器的优先级顺序执行，
  *     支持短路操作（任一过滤器返回true即跳过日志记录）。
+ *
+ *     根据过滤器声明的 {@link FilterInput}：
+ *      - 按优先级排序后，相邻的只依赖 HANDLER、ROUTE 的过滤器组成一段，整段的结果按Controller方法 + 路由模板缓存，
+ *        其他过滤器每个请求执行，各段仍按 {@link Filter#getOrder()} 的顺序执行
+ *      - 不依赖 RESPONSE 的后置过滤器，可在Controller方法执行前通过
+ *        {@link #shouldSkipLoggingByRequestPostFilters} 提前判断，依赖 RESPONSE 的后置过滤器总是在其后执行
+ *      - 配置刷新后通过 {@link #clearCache()} 清除缓存的结果
  * </pre>
  *
  * @author Zwk
@@ -27,25 +41,46 @@ public class FilterManager {
 
     private static final Logger logger = LoggerFactory.getLogger(FilterManager.class);
 
+    /**
+     * 不依赖路由的过滤器结果使用的路由key
+     */
+    private static final String ANY_ROUTE = "";
+
     private final List<PreFilter> preFilters;
     private final List<PostFilter> postFilters;
 
+    private final List<FilterSegment<PreFilter>> preFilterSegments;
+    private final List<FilterSegment<PostFilter>> requestPostFilterSegments;
+    private final List<PostFilter> responsePostFilters;
+
     public FilterManager(List<PreFilter> preFilters, List<PostFilter> postFilters) {
         // 按优先级排序过滤器
         this.preFilters = sortFilters(preFilters);
         this.postFilters = sortFilters(postFilters);
 
+        this.preFilterSegments = segments(this.preFilters);
+        this.requestPostFilterSegments = segments(select(this.postFilters, filter -> !dependsOnResponse(filter)));
+        this.responsePostFilters = select(this.postFilters, FilterManager::dependsOnResponse);
+
         if (logger.isDebugEnabled()) {
             logger.debug("初始化FilterManager - 前置过滤器: {}, 后置过滤器: {}",
                     this.preFilters.size(), this.postFilters.size());
 
             this.preFilters.forEach(filter ->
-                logger.debug("前置过滤器: {} (order: {})", filter.getClass().getSimpleName(), filter.getOrder()));
+                logger.debug("前置过滤器: {} (order: {}, inputs: {})", filter.getClass().getSimpleName(), filter.getOrder(), filter.decisionInputs()));
             this.postFilters.forEach(filter ->
-                logger.debug("后置过滤器: {} (order: {})", filter.name(), filter.getOrder()));
+                logger.debug("后置过滤器: {} (order: {}, inputs: {})", filter.name(), filter.getOrder(), filter.decisionInputs()));
         }
     }
 
+    /**
+     * 清除缓存的过滤器结果，过滤器依赖的配置变化后调用
+     */
+    public void clearCache() {
+        preFilterSegments.forEach(FilterSegment::clear);
+        requestPostFilterSegments.forEach(FilterSegment::clear);
+    }
+
     /**
      * 执行前置过滤器链
      *
@@ -58,23 +93,68 @@ public class FilterManager {
             return false;
         }
 
-        for (PreFilter filter : preFilters) {
-            try {
-                if (filter.shouldSkipLogging(joinPoint, request)) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("前置过滤器 {} 跳过日志记录", filter.name());
-                    }
-                    return true;
-                }
-            } catch (Exception e) {
-                logger.warn("前置过滤器 {} 执行异常: {}", filter.name(), e.getMessage(), e);
-                // 继续执行下一个过滤器
+        for (int i = 0, size = preFilterSegments.size(); i < size; i++) {
+            FilterSegment<PreFilter> segment = preFilterSegments.get(i);
+            String routeKey = segment.routeKey(request);
+            Boolean verdict = segment.cachedVerdict(joinPoint, routeKey);
+            if (verdict == null) {
+                verdict = runPreFilters(segment.filters, joinPoint, request);
+                segment.cacheVerdict(joinPoint, routeKey, verdict);
+            }
+            if (verdict) {
+                return true;
             }
         }
+        return false;
+    }
 
+    /**
+     * 在Controller方法执行前，执行不依赖执行结果的后置过滤器
+     *
+     * @param joinPoint 切点信息
+     * @param request HTTP请求对象
+     * @return true表示应该跳过日志记录，false表示继续处理
+     */
+    public boolean shouldSkipLoggingByRequestPostFilters(ProceedingJoinPoint joinPoint, HttpServletRequest request) {
+        for (int i = 0, size = requestPostFilterSegments.size(); i < size; i++) {
+            FilterSegment<PostFilter> segment = requestPostFilterSegments.get(i);
+            String routeKey = segment.routeKey(request);
+            Boolean verdict = segment.cachedVerdict(joinPoint, routeKey);
+            if (verdict == null) {
+                verdict = runPostFilters(segment.filters, joinPoint, request, null, null, null, null, 0);
+                segment.cacheVerdict(joinPoint, routeKey, verdict);
+            }
+            if (verdict) {
+                return true;
+            }
+        }
         return false;
     }
 
+    /**
+     * 在Controller方法执行后，执行依赖执行结果的后置过滤器。
+     * 与 {@link #shouldSkipLoggingByRequestPostFilters} 配合使用，两者合起来等价于完整的后置过滤器链。
+     *
+     * @param joinPoint 切点信息
+     * @param request HTTP请求对象
+     * @param response HTTP响应对象
+     * @param result 方法执行结果
+     * @param exception 方法执行异常
+     * @param loggingDataContext 日志上下文
+     * @param processingTimeMs 处理耗时
+     * @return true表示应该跳过日志记录，false表示继续处理
+     */
+    public boolean shouldSkipLoggingByResponsePostFilters(ProceedingJoinPoint joinPoint,
+                                                         HttpServletRequest request,
+                                                         HttpServletResponse response,
+                                                         Object result,
+                                                         Throwable exception,
+                                                         ApiLoggingDataContext loggingDataContext,
+                                                         long processingTimeMs) {
+        return runPostFilters(responsePostFilters, joinPoint, request, response, result,
+                exception, loggingDataContext, processingTimeMs);
+    }
+
     /**
      * 执行后置过滤器链
      *
@@ -98,7 +178,41 @@ public class FilterManager {
             return false;
         }
 
-        for (PostFilter filter : postFilters) {
+        return shouldSkipLoggingByRequestPostFilters(joinPoint, request)
+                || shouldSkipLoggingByResponsePostFilters(joinPoint, request, response, result,
+                exception, loggingDataContext, processingTimeMs);
+    }
+
+    private boolean runPreFilters(List<PreFilter> filters, ProceedingJoinPoint joinPoint, HttpServletRequest request) {
+        // 按下标遍历，避免每个请求创建迭代器
+        for (int i = 0, size = filters.size(); i < size; i++) {
+            PreFilter filter = filters.get(i);
+            try {
+                if (filter.shouldSkipLogging(joinPoint, request)) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("前置过滤器 {} 跳过日志记录", filter.name());
+                    }
+                    return true;
+                }
+            } catch (Exception e) {
+                logger.warn("前置过滤器 {} 执行异常: {}", filter.name(), e.getMessage(), e);
+                // 继续执行下一个过滤器
+            }
+        }
+
+        return false;
+    }
+
+    private boolean runPostFilters(List<PostFilter> filters,
+                                   ProceedingJoinPoint joinPoint,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response,
+                                   Object result,
+                                   Throwable exception,
+                                   ApiLoggingDataContext loggingDataContext,
+                                   long processingTimeMs) {
+        for (int i = 0, size = filters.size(); i < size; i++) {
+            PostFilter filter = filters.get(i);
             try {
                 if (filter.shouldSkipLogging(joinPoint, request, response, result,
                         exception, loggingDataContext, processingTimeMs)) {
@@ -116,6 +230,53 @@ public class FilterManager {
         return false;
     }
 
+    /**
+     * 是否只依赖Controller方法和路由模板
+     */
+    private static boolean isHandlerOnly(Filter filter) {
+        Set<FilterInput> inputs = filter.decisionInputs();
+        return inputs != null && inputs.stream()
+                .allMatch(input -> input == FilterInput.HANDLER || input == FilterInput.ROUTE);
+    }
+
+    private static boolean dependsOnRoute(Filter filter) {
+        Set<FilterInput> inputs = filter.decisionInputs();
+        return inputs != null && inputs.contains(FilterInput.ROUTE);
+    }
+
+    /**
+     * 是否依赖执行结果，未声明时按依赖处理
+     */
+    private static boolean dependsOnResponse(Filter filter) {
+        Set<FilterInput> inputs = filter.decisionInputs();
+        return inputs == null || inputs.contains(FilterInput.RESPONSE);
+    }
+
+    /**
+     * 将排好序的过滤器按是否可缓存切分为相邻的段，段的顺序与过滤器顺序一致
+     */
+    private static <T extends Filter> List<FilterSegment<T>> segments(List<T> filters) {
+        List<FilterSegment<T>> segments = new ArrayList<>();
+        List<T> current = new ArrayList<>();
+        boolean currentCacheable = false;
+        for (T filter : filters) {
+            boolean cacheable = isHandlerOnly(filter);
+            if (!current.isEmpty() && cacheable != currentCacheable) {
+                segments.add(new FilterSegment<>(current, currentCacheable));
+                current = new ArrayList<>();
+            }
+            current.add(filter);
+            currentCacheable = cacheable;
+        }
+        if (!current.isEmpty()) {
+            segments.add(new FilterSegment<>(current, currentCacheable));
+        }
+        return segments;
+    }
+
+    private static <T extends Filter> List<T> select(List<T> filters, Predicate<T> predicate) {
+        return filters.stream().filter(predicate).collect(Collectors.toList());
+    }
 
     /**
      * 按优先级排序过滤器
@@ -130,4 +291,59 @@ public class FilterManager {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 按顺序相邻的一段过滤器，只依赖Controller方法和路由模板时整段的结果被缓存
+     */
+    private static final class FilterSegment<T extends Filter> {
+        private final List<T> filters;
+        private final boolean cacheable;
+        private final boolean useRoute;
+
+        /**
+         * 按 Controller方法 -> 路由模板 两级缓存的结果，不可缓存的段为 null
+         */
+        private final ConcurrentMap<HandlerDescriptor, ConcurrentMap<String, Boolean>> verdicts;
+
+        private FilterSegment(List<T> filters, boolean cacheable) {
+            this.filters = filters;
+            this.cacheable = cacheable;
+            this.useRoute = cacheable && filters.stream().anyMatch(FilterManager::dependsOnRoute);
+            this.verdicts = cacheable ? new ConcurrentHashMap<>() : null;
+        }
+
+        /**
+         * 缓存key中的路由部分，过滤器不依赖路由时所有路由共用一个结果
+         *
+         * @return 路由模板，不可缓存或依赖路由但请求没有路由模板时返回 null
+         */
+        private String routeKey(HttpServletRequest request) {
+            if (!cacheable) {
+                return null;
+            }
+            return useRoute ? RouteRegistry.resolveRoute(request) : ANY_ROUTE;
+        }
+
+        private Boolean cachedVerdict(ProceedingJoinPoint joinPoint, String routeKey) {
+            if (routeKey == null) {
+                return null;
+            }
+            ConcurrentMap<String, Boolean> routeVerdicts = verdicts.get(HandlerDescriptor.of(joinPoint));
+            return routeVerdicts != null ? routeVerdicts.get(routeKey) : null;
+        }
+
+        private void cacheVerdict(ProceedingJoinPoint joinPoint, String routeKey, boolean verdict) {
+            if (routeKey == null) {
+                return;
+            }
+            verdicts.computeIfAbsent(HandlerDescriptor.of(joinPoint), d -> new ConcurrentHashMap<>())
+                    .putIfAbsent(routeKey, verdict);
+        }
+
+        private void clear() {
+            if (verdicts != null) {
+                verdicts.clear();
+            }
+        }
+    }
+
 }
@@ -1,11 +1,14 @@
 package com.github.mrbox.apilogging.filter.impl;
 
+import com.github.mrbox.apilogging.filter.FilterInput;
 import com.github.mrbox.apilogging.filter.PostFilter;
 import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
 import org.aspectj.lang.ProceedingJoinPoint;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * 基于异常的后置过滤器实现。
@@ -27,4 +30,8 @@ public class ExceptionPostFilter implements PostFilter {
         return exception == null;
     }
 
+    @Override
+    public Set<FilterInput> decisionInputs() {
+        return EnumSet.of(FilterInput.RESPONSE);
+    }
 }
@@ -1,5 +1,6 @@
 package com.github.mrbox.apilogging.filter.impl;
 
+import com.github.mrbox.apilogging.filter.FilterInput;
 import com.github.mrbox.apilogging.filter.PostFilter;
 import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -8,6 +9,7 @@ import org.springframework.util.CollectionUtils;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
 
 /**
@@ -75,4 +77,9 @@ public class MethodNamePostFilter implements PostFilter {
     public int getOrder() {
         return -80; // 高优先级
     }
+
+    @Override
+    public Set<FilterInput> decisionInputs() {
+        return EnumSet.of(FilterInput.HANDLER);
+    }
 }
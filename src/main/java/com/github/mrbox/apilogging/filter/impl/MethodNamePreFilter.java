@@ -1,11 +1,13 @@
 package com.github.mrbox.apilogging.filter.impl;
 
+import com.github.mrbox.apilogging.filter.FilterInput;
 import com.github.mrbox.apilogging.filter.PreFilter;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.springframework.util.CollectionUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
 
 /**
@@ -67,4 +69,9 @@ public class MethodNamePreFilter implements PreFilter {
     public int getOrder() {
         return -80; // 高优先级
     }
+
+    @Override
+    public Set<FilterInput> decisionInputs() {
+        return EnumSet.of(FilterInput.HANDLER);
+    }
 }
@@ -1,11 +1,14 @@
 package com.github.mrbox.apilogging.filter.impl;
 
+import com.github.mrbox.apilogging.filter.FilterInput;
 import com.github.mrbox.apilogging.filter.PostFilter;
 import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
 import org.aspectj.lang.ProceedingJoinPoint;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * 基于处理时间的后置过滤器实现。
@@ -64,4 +67,9 @@ public class ProcessingTimePostFilter implements PostFilter {
     public int getOrder() {
         return 10; // 较低优先级，让其他过滤器先执行
     }
+
+    @Override
+    public Set<FilterInput> decisionInputs() {
+        return EnumSet.of(FilterInput.RESPONSE);
+    }
 }
@@ -1,5 +1,6 @@
 package com.github.mrbox.apilogging.filter.impl;
 
+import com.github.mrbox.apilogging.filter.FilterInput;
 import com.github.mrbox.apilogging.filter.PostFilter;
 import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -7,7 +8,9 @@ import org.springframework.util.StringUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 基于请求头的后置过滤器实现。
@@ -71,4 +74,9 @@ public class RequestHeaderPostFilter implements PostFilter {
     public int getOrder() {
         return -90; // 高优先级
     }
+
+    @Override
+    public Set<FilterInput> decisionInputs() {
+        return EnumSet.of(FilterInput.HEADER);
+    }
 }
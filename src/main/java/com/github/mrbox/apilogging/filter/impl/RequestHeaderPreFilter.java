@@ -1,11 +1,14 @@
 package com.github.mrbox.apilogging.filter.impl;
 
+import com.github.mrbox.apilogging.filter.FilterInput;
 import com.github.mrbox.apilogging.filter.PreFilter;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.springframework.util.StringUtils;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 基于请求头的前置过滤器实现。
@@ -63,4 +66,9 @@ public class RequestHeaderPreFilter implements PreFilter {
     public int getOrder() {
         return -90; // 高优先级
     }
+
+    @Override
+    public Set<FilterInput> decisionInputs() {
+        return EnumSet.of(FilterInput.HEADER);
+    }
 }
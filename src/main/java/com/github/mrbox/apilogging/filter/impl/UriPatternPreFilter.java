@@ -1,18 +1,24 @@
 package com.github.mrbox.apilogging.filter.impl;
 
+import com.github.mrbox.apilogging.filter.FilterInput;
 import com.github.mrbox.apilogging.filter.PreFilter;
+import com.github.mrbox.apilogging.handler.RouteRegistry;
+import com.github.mrbox.apilogging.pattern.PathPatternIndex;
+import com.github.mrbox.apilogging.pattern.RouteMatchCache;
 import org.aspectj.lang.ProceedingJoinPoint;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.util.CollectionUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
 
 /**
  * 基于URI模式的前置过滤器实现。
  *
- * <p>支持使用Ant风格的路径模式来匹配需要跳过日志记录的URI。</p>
+ * <p>支持使用Ant风格的路径模式来匹配需要跳过日志记录的URI。
+ * 请求命中Controller映射时先匹配路由模板（如 /orders/{id}），结果按路由缓存；路由模板未命中或没有路由模板时
+ * 匹配原始请求URI（含context-path）。只匹配路由模板时，过滤结果可以按 Controller方法 + 路由模板 缓存。</p>
  *
  * <p>使用场景：</p>
  * <ul>
@@ -26,7 +32,8 @@ import java.util.Set;
 public class UriPatternPreFilter implements PreFilter {
 
     private final Set<String> excludePatterns;
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final RouteMatchCache excludeRoutes;
+    private final boolean routeTemplateOnly;
 
     /**
      * 构造函数
@@ -34,7 +41,19 @@ public class UriPatternPreFilter implements PreFilter {
      * @param excludePatterns 需要排除的URI模式列表
      */
     public UriPatternPreFilter(Set<String> excludePatterns) {
+        this(excludePatterns, false);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param excludePatterns   需要排除的URI模式列表
+     * @param routeTemplateOnly 命中Controller映射的请求是否只匹配路由模板
+     */
+    public UriPatternPreFilter(Set<String> excludePatterns, boolean routeTemplateOnly) {
         this.excludePatterns = excludePatterns != null ? excludePatterns : Collections.emptySet();
+        this.excludeRoutes = new RouteMatchCache(PathPatternIndex.compile(this.excludePatterns));
+        this.routeTemplateOnly = routeTemplateOnly;
     }
 
     @Override
@@ -43,23 +62,17 @@ public class UriPatternPreFilter implements PreFilter {
             return false;
         }
 
-        String requestUri = request.getRequestURI();
-        if (requestUri == null) {
-            return false;
-        }
-
-        // 检查是否匹配任何排除模式
-        for (String pattern : excludePatterns) {
-            if (pathMatcher.match(pattern, requestUri)) {
-                return true;
-            }
-        }
-
-        return false;
+        // 优先匹配路由模板，结果按路由缓存，未命中时匹配原始URI
+        return excludeRoutes.matches(RouteRegistry.resolveRoute(request), request.getRequestURI(), routeTemplateOnly);
     }
 
     @Override
     public int getOrder() {
         return -100; // 高优先级，尽早过滤
     }
+
+    @Override
+    public Set<FilterInput> decisionInputs() {
+        return routeTemplateOnly ? EnumSet.of(FilterInput.ROUTE) : EnumSet.of(FilterInput.ROUTE, FilterInput.URI);
+    }
 }
@@ -0,0 +1,441 @@
+package com.github.mrbox.apilogging.formatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     有长度上限的序列化输出，超出上限时抛出异常中止 Jackson 的序列化，
+ *     大对象的序列化开销受 maxPayloadLength 限制，而不是随对象大小增长。
+ *
+ *     中止时根据序列化进度估算完整的长度：
+ *     - 存在已知元素个数的数组时，找到最外层的数组，按已写出的元素比例推算
+ *     - 在字符串中截断时，为字符串开始的位置加上字符串的完整长度；顶层值为字符串时即为完整长度
+ *     - 其他情况（对象、字符串之后还有其他字段）无法推算剩余部分，只给出已知的最小长度
+ *
+ *     截断的内容由 {@link #complete} 补全为合法的 JSON。
+ * </pre>
+ *
+ * @author Zwk
+ */
+final class BoundedJsonWriter extends Writer {
+
+    /**
+     * 补全截断的 JSON 时，当前容器中下一个需要的内容
+     */
+    private static final int EXPECT_KEY = 0;
+    private static final int EXPECT_COLON = 1;
+    private static final int EXPECT_VALUE = 2;
+    private static final int AFTER_VALUE = 3;
+
+    private final StringBuilder buffer;
+    private final int limit;
+    private long written;
+    private boolean exceeded;
+    /**
+     * 在字符串中截断时，字符串结束的位置，否则为 -1
+     */
+    private long cutStringEnd = -1;
+    private boolean cutLowerBound;
+
+    private BoundedJsonWriter(int limit) {
+        this.limit = limit;
+        this.buffer = new StringBuilder(Math.min(limit, 1024));
+    }
+
+    /**
+     * 按长度上限序列化对象
+     *
+     * @param objectWriter 序列化使用的 ObjectWriter
+     * @param value        需要序列化的对象
+     * @param limit        最大长度
+     * @return 序列化结果
+     * @throws IOException 序列化失败
+     */
+    static Result write(ObjectWriter objectWriter, Object value, int limit) throws IOException {
+        BoundedJsonWriter writer = new BoundedJsonWriter(limit);
+        JsonGenerator generator = writer.new StringTrackingGenerator(objectWriter.getFactory().createGenerator(writer));
+        long estimatedLength = -1;
+        boolean lowerBound = false;
+        try {
+            objectWriter.writeValue(generator, value);
+        } catch (IOException | RuntimeException e) {
+            if (!writer.exceeded) {
+                throw e;
+            }
+            JsonStreamContext context = generator.getOutputContext();
+            estimatedLength = writer.estimateByArrays(context);
+            if (estimatedLength < 0) {
+                estimatedLength = Math.max(writer.written + Math.max(0, generator.getOutputBuffered()), writer.cutStringEnd);
+                lowerBound = writer.cutStringEnd < 0 || writer.cutLowerBound || !context.inRoot();
+            }
+        } finally {
+            // 超出上限后输出被丢弃，关闭生成器不会再次抛出异常
+            generator.close();
+        }
+        return new Result(writer.buffer.toString(), writer.exceeded, estimatedLength, lowerBound);
+    }
+
+    /**
+     * 按长度上限预先序列化为 {@link RawValue}，截断时保留估算的完整长度，再次按长度上限序列化时使用
+     *
+     * @param objectWriter 序列化使用的 ObjectWriter
+     * @param value        需要序列化的对象
+     * @param limit        最大长度
+     * @return 序列化结果
+     * @throws IOException 序列化失败
+     */
+    static RawValue writeRaw(ObjectWriter objectWriter, Object value, int limit) throws IOException {
+        Result result = write(objectWriter, value, limit);
+        return result.isTruncated()
+                ? new TruncatedRawValue(result.getContent(), result.getEstimatedLength(), result.isLowerBound())
+                : new RawValue(result.getContent());
+    }
+
+    /**
+     * <pre>
+     *     把在任意位置截断的 JSON 补全为合法的 JSON：
+     *     - 在字符串值中截断时，把标记追加到字符串末尾，不拆分转义序列和代理对
+     *     - 丢弃未写完的字段名、数字和字面量
+     *     - 在数组中把标记作为下一个元素，在对象中作为 "..." 字段的值，缺少的值同样用标记补上
+     *     - 依次闭合外层的对象和数组
+     * </pre>
+     *
+     * @param content 截断的 JSON
+     * @param marker  截断标记
+     * @return 合法的 JSON
+     */
+    static String complete(String content, String marker) {
+        StringBuilder result = new StringBuilder(content.length() + marker.length() + 16);
+        char[] containers = new char[16];
+        int depth = 0;
+        int expect = EXPECT_VALUE;
+        int tokenStart = -1;
+        boolean inString = false;
+        boolean key = false;
+        int escapeStart = -1;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (inString) {
+                if (escapeStart >= 0) {
+                    // 转义序列为反斜杠加一个字符，或反斜杠加 u 和四位十六进制数
+                    if (content.charAt(escapeStart + 1) != 'u' || i - escapeStart == 5) {
+                        escapeStart = -1;
+                    }
+                } else if (c == '\\') {
+                    escapeStart = i;
+                } else if (c == '"') {
+                    inString = false;
+                    tokenStart = -1;
+                    expect = key ? EXPECT_COLON : AFTER_VALUE;
+                }
+                continue;
+            }
+            if (tokenStart >= 0 && isScalarEnd(c)) {
+                tokenStart = -1;
+                expect = AFTER_VALUE;
+            }
+            switch (c) {
+                case '"':
+                    inString = true;
+                    key = expect == EXPECT_KEY;
+                    tokenStart = i;
+                    break;
+                case '{':
+                case '[':
+                    if (depth == containers.length) {
+                        containers = Arrays.copyOf(containers, depth * 2);
+                    }
+                    containers[depth++] = c;
+                    expect = c == '{' ? EXPECT_KEY : EXPECT_VALUE;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    expect = AFTER_VALUE;
+                    break;
+                case ':':
+                    expect = EXPECT_VALUE;
+                    break;
+                case ',':
+                    expect = depth > 0 && containers[depth - 1] == '{' ? EXPECT_KEY : EXPECT_VALUE;
+                    break;
+                default:
+                    if (tokenStart < 0 && !Character.isWhitespace(c)) {
+                        tokenStart = i;
+                    }
+            }
+        }
+
+        String quotedMarker = new String(JsonStringEncoder.getInstance().quoteAsString(marker));
+        if (inString && !key) {
+            int end = escapeStart >= 0 ? escapeStart : content.length();
+            if (end > tokenStart + 1 && Character.isHighSurrogate(content.charAt(end - 1))) {
+                end--;
+            }
+            result.append(content, 0, end).append(quotedMarker).append('"');
+        } else {
+            // 未写完的字段名、数字或字面量
+            result.append(content, 0, tokenStart >= 0 ? tokenStart : content.length());
+            if (tokenStart >= 0 && !inString) {
+                expect = EXPECT_VALUE;
+            }
+            boolean inObject = depth > 0 && containers[depth - 1] == '{';
+            if (expect == AFTER_VALUE && depth > 0) {
+                result.append(',');
+                expect = inObject ? EXPECT_KEY : EXPECT_VALUE;
+            }
+            if (expect == EXPECT_KEY) {
+                result.append("\"...\"");
+                expect = EXPECT_COLON;
+            }
+            if (expect == EXPECT_COLON) {
+                result.append(':');
+                expect = EXPECT_VALUE;
+            }
+            if (expect == EXPECT_VALUE) {
+                result.append('"').append(quotedMarker).append('"');
+            }
+        }
+        while (depth > 0) {
+            result.append(containers[--depth] == '{' ? '}' : ']');
+        }
+        return result.toString();
+    }
+
+    private static boolean isScalarEnd(char c) {
+        return c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        written += len;
+        if (exceeded) {
+            return;
+        }
+        int remaining = limit - buffer.length();
+        if (len <= remaining) {
+            buffer.append(cbuf, off, len);
+            return;
+        }
+        buffer.append(cbuf, off, remaining);
+        exceeded = true;
+        throw new LimitExceededException();
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        written += len;
+        if (exceeded) {
+            return;
+        }
+        int remaining = limit - buffer.length();
+        if (len <= remaining) {
+            buffer.append(str, off, off + len);
+            return;
+        }
+        buffer.append(str, off, off + remaining);
+        exceeded = true;
+        throw new LimitExceededException();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return 按已知元素个数的数组估算的完整长度，无法估算时返回 -1
+     */
+    private long estimateByArrays(JsonStreamContext context) {
+        long estimated = -1;
+        for (JsonStreamContext current = context; current != null; current = current.getParent()) {
+            if (!current.inArray()) {
+                continue;
+            }
+            int size = sizeOf(current.getCurrentValue());
+            int started = current.getEntryCount();
+            if (size > started && started > 0) {
+                // 外层数组的估算覆盖内层数组的估算
+                estimated = written * size / started;
+            }
+        }
+        return estimated;
+    }
+
+    private static int sizeOf(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        }
+        if (value != null && value.getClass().isArray()) {
+            return Array.getLength(value);
+        }
+        return -1;
+    }
+
+    /**
+     * 记录截断发生在哪个字符串中：写出字符串前的位置为已写出的字符数加上生成器中缓冲的字符数
+     */
+    private final class StringTrackingGenerator extends JsonGeneratorDelegate {
+        private StringTrackingGenerator(JsonGenerator delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void writeString(String text) throws IOException {
+            long start = position();
+            try {
+                super.writeString(text);
+            } catch (IOException e) {
+                // 两个引号，不计转义字符
+                onCut(start, (text != null ? text.length() : 0) + 2, false);
+                throw e;
+            }
+        }
+
+        @Override
+        public void writeString(char[] text, int offset, int len) throws IOException {
+            long start = position();
+            try {
+                super.writeString(text, offset, len);
+            } catch (IOException e) {
+                onCut(start, len + 2, false);
+                throw e;
+            }
+        }
+
+        /**
+         * 预先序列化的内容本身已超出上限，在上限之前开始写出时截断一定发生在其中，生成器缓冲输出时异常可能在之后才抛出
+         */
+        private void writeTruncatedRaw(TruncatedRawValue raw) throws IOException {
+            long start = position();
+            boolean known = raw.estimatedLength > 0;
+            try {
+                writeRawValue(raw.content);
+            } finally {
+                recordCut(start, known ? raw.estimatedLength : raw.content.length(), !known || raw.lowerBound);
+            }
+        }
+
+        private long position() {
+            return written + Math.max(0, delegate.getOutputBuffered());
+        }
+
+        /**
+         * @param start      写出值之前的位置，值之前还有一个分隔符（对象中的冒号，数组中第一个元素之后的逗号）
+         * @param length     值的完整长度
+         * @param lowerBound 值的长度是否只是最小长度
+         */
+        private void onCut(long start, long length, boolean lowerBound) {
+            if (exceeded) {
+                recordCut(start, length, lowerBound);
+            }
+        }
+
+        private void recordCut(long start, long length, boolean lowerBound) {
+            // 值开始的位置已超出上限时，截断发生在之前的内容中
+            if (cutStringEnd < 0 && start < limit) {
+                JsonStreamContext context = getOutputContext();
+                int separator = context.inObject() || (context.inArray() && context.getCurrentIndex() > 0) ? 1 : 0;
+                cutStringEnd = start + separator + length;
+                cutLowerBound = lowerBound;
+            }
+        }
+    }
+
+    /**
+     * 预先序列化时被截断的结果，再次序列化时在同样的位置截断，保留第一次估算的完整长度
+     */
+    private static final class TruncatedRawValue extends RawValue {
+        private final String content;
+        private final long estimatedLength;
+        private final boolean lowerBound;
+
+        private TruncatedRawValue(String content, long estimatedLength, boolean lowerBound) {
+            super(content);
+            this.content = content;
+            this.estimatedLength = estimatedLength;
+            this.lowerBound = lowerBound;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            if (gen instanceof StringTrackingGenerator) {
+                ((StringTrackingGenerator) gen).writeTruncatedRaw(this);
+            } else {
+                super.serialize(gen, serializers);
+            }
+        }
+    }
+
+    /**
+     * 超出长度上限时中止序列化的异常，不需要堆栈
+     */
+    private static final class LimitExceededException extends IOException {
+        private LimitExceededException() {
+            super("payload length limit exceeded");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * 有长度上限的序列化结果
+     */
+    static final class Result {
+        private final String content;
+        private final boolean truncated;
+        private final long estimatedLength;
+        private final boolean lowerBound;
+
+        private Result(String content, boolean truncated, long estimatedLength, boolean lowerBound) {
+            this.content = content;
+            this.truncated = truncated;
+            this.estimatedLength = estimatedLength;
+            this.lowerBound = lowerBound;
+        }
+
+        String getContent() {
+            return content;
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * @return 估算的完整长度 (字符数)，无法估算时为 -1
+         */
+        long getEstimatedLength() {
+            return estimatedLength;
+        }
+
+        /**
+         * @return 估算的长度是否只是已知的最小长度，完整长度可能更大
+         */
+        boolean isLowerBound() {
+            return lowerBound;
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.github.mrbox.apilogging.formatter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
 import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.servlet.CapturingRequestWrapper;
 import org.aspectj.lang.ProceedingJoinPoint;
-import org.aspectj.lang.reflect.MethodSignature;
-import org.springframework.core.DefaultParameterNameDiscoverer;
-import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.io.InputStreamSource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
@@ -19,7 +24,6 @@ import java.io.*;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 默认的日志内容格式化器实现。
@@ -29,9 +33,27 @@ import java.util.stream.Collectors;
 public class DefaultLogContentFormatter implements LogContentFormatter {
 
     private final ObjectMapper objectMapper;
-    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
     private static final String UNKNOWN_IP = "unknown";
 
+    /**
+     * 按结构截断时使用的 ObjectMapper，首次使用时从 objectMapper 复制并注册 {@link StructuredTruncationModule}
+     */
+    private volatile ObjectMapper truncatingObjectMapper;
+
+    /**
+     * 逐帧格式化异常堆栈，按堆栈缓存格式化结果
+     */
+    private final ExceptionStackFormatter exceptionStackFormatter = new ExceptionStackFormatter();
+
+    /**
+     * 可安全记录完整参数的请求类型，前缀匹配、不区分大小写
+     */
+    private static final String[] SAFE_CONTENT_TYPES = {
+            "application/json",
+            "application/x-www-form-urlencoded",
+            "text/plain",
+            "multipart/form-data"};
+
     public DefaultLogContentFormatter(ObjectMapper objectMapper) {
         this.objectMapper = (objectMapper != null) ? objectMapper : new ObjectMapper();
     }
@@ -51,6 +73,59 @@ public class DefaultLogContentFormatter implements LogContentFormatter {
         return str.substring(0, maxLength) + "...[已截断]";
     }
 
+    /**
+     * 按最大长度序列化对象，写出的内容达到最大长度时即中止序列化，不再完整序列化大对象后再截断。
+     *
+     * @param value     需要序列化的对象
+     * @param maxLength 最大长度，小于 0 时不限制
+     * @return 序列化结果，超出最大长度时补全为合法的 JSON 并写入截断标记，可以估算时标记中附加估算的完整长度
+     * @throws IOException 序列化失败
+     */
+    protected String writeValueTruncated(Object value, int maxLength) throws IOException {
+        return writeValueTruncated(objectMapper.writer(), value, maxLength);
+    }
+
+    /**
+     * 使用指定的 ObjectWriter 按最大长度序列化对象
+     *
+     * @see #writeValueTruncated(Object, int)
+     */
+    protected String writeValueTruncated(ObjectWriter writer, Object value, int maxLength) throws IOException {
+        if (maxLength < 0) {
+            return writer.writeValueAsString(value);
+        }
+        BoundedJsonWriter.Result result = BoundedJsonWriter.write(writer, value, maxLength);
+        if (!result.isTruncated()) {
+            return result.getContent();
+        }
+        String marker = result.getEstimatedLength() > 0
+                ? (result.isLowerBound() ? "...[已截断, 原始长度>" : "...[已截断, 原始长度约") + result.getEstimatedLength() + "]"
+                : "...[已截断]";
+        return BoundedJsonWriter.complete(result.getContent(), marker);
+    }
+
+    /**
+     * 获取序列化参数或返回值的 ObjectWriter，启用按结构截断时带有截断上限
+     *
+     * @param properties  日志配置属性
+     * @param depthOffset 不计入深度的外层包装层数
+     * @return ObjectWriter
+     */
+    protected ObjectWriter payloadWriter(ApiLoggingProperties properties, int depthOffset) {
+        ApiLoggingProperties.Truncation truncation = properties.getTruncation();
+        if (truncation == null || !truncation.isEnabled()) {
+            return objectMapper.writer();
+        }
+        ObjectMapper mapper = this.truncatingObjectMapper;
+        if (mapper == null) {
+            mapper = objectMapper.copy().registerModule(new StructuredTruncationModule());
+            this.truncatingObjectMapper = mapper;
+        }
+        return mapper.writer().withAttribute(StructuredTruncationModule.LIMITS, new StructuredTruncationModule.Limits(
+                truncation.getMaxDepth(), truncation.getMaxCollectionElements(), truncation.getMaxStringLength(),
+                depthOffset));
+    }
+
     /**
      * 格式化方法参数。
      *
@@ -62,76 +137,176 @@ public class DefaultLogContentFormatter implements LogContentFormatter {
     @Override
     public String formatArguments(ProceedingJoinPoint joinPoint, HttpServletRequest request,
             ApiLoggingProperties properties) {
+        return formatCapturedArguments(collectArguments(joinPoint, request, properties, false), properties);
+    }
+
+    /**
+     * 采集方法参数快照，复杂类型参数按 {@link SnapshotStrategy} 处理。
+     */
+    @Override
+    public PayloadSnapshot captureArguments(ProceedingJoinPoint joinPoint, HttpServletRequest request,
+            ApiLoggingProperties properties) {
+        return collectArguments(joinPoint, request, properties, true);
+    }
+
+    @Override
+    public String formatCapturedArguments(PayloadSnapshot snapshot, ApiLoggingProperties properties) {
+        if (snapshot == null || snapshot.isFormatted()) {
+            return snapshot != null ? snapshot.getContent() : null;
+        }
+        try {
+            // 参数按参数名包装在 Map 中，包装层不计入深度
+            return writeValueTruncated(payloadWriter(properties, 1), snapshot.getValue(), properties.getMaxPayloadLength());
+        } catch (Exception e) {
+            return "[参数序列化错误: " + e.getMessage() + "]";
+        }
+    }
+
+    /**
+     * 整理需要记录的方法参数
+     *
+     * @param snapshot 是否对复杂类型参数做快照
+     * @return 提示信息或参数名到参数值的映射
+     */
+    private PayloadSnapshot collectArguments(ProceedingJoinPoint joinPoint, HttpServletRequest request,
+            ApiLoggingProperties properties, boolean snapshot) {
         if (properties.getMaxPayloadLength() == 0)
-            return "[已忽略]";
+            return PayloadSnapshot.formatted("[已忽略]");
+
+        CompiledApiLoggingConfig config = properties.compiled();
 
         // 检查内容类型是否在排除列表中
-        if (request != null && properties.getExcludedArgumentOnContentTypes() != null
-                && !properties.getExcludedArgumentOnContentTypes().isEmpty()) {
+        if (request != null) {
             String contentType = request.getContentType();
-            if (contentType != null) {
-                String finalContentType = contentType.toLowerCase();
-                for (String excluded : properties.getExcludedArgumentOnContentTypes()) {
-                    if (finalContentType.startsWith(excluded.toLowerCase())) {
-                        return "[忽略Content-Type: " + contentType + "]";
-                    }
-                }
+            if (config.isExcludedArgumentContentType(contentType)) {
+                return PayloadSnapshot.formatted("[忽略Content-Type: " + contentType + "]");
             }
         }
 
+        HandlerDescriptor descriptor = HandlerDescriptor.of(joinPoint);
+        boolean[] sensitiveFlags = descriptor.getSensitiveFlags(config.getSensitiveArgNames());
+
+        // 已采集到原始请求体时，请求体参数直接记录原始内容，不再序列化；其他参数照常处理
+        int bodyIndex = descriptor.getRequestBodyIndex();
+        Object capturedBody = null;
+        if (bodyIndex >= 0 && !sensitiveFlags[bodyIndex] && properties.getRequestCapture().isEnabled()) {
+            capturedBody = capturedRequestBody(request);
+        }
+
         // 检查是否是安全的内容类型
         boolean isSafeContentType = isSafeContentType(request, properties);
 
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         Object[] args = joinPoint.getArgs();
-        String[] paramNames = parameterNameDiscoverer.getParameterNames(signature.getMethod());
+        String[] paramNames = descriptor.getParameterNames();
+        HandlerDescriptor.ArgumentStrategy[] strategies = descriptor.getArgumentStrategies();
 
         Map<String, Object> argsMap = new HashMap<>();
         for (int i = 0; i < args.length; i++) {
-            String paramName = (paramNames != null && paramNames.length > i) ? paramNames[i] : "arg" + i;
+            String paramName = paramNames[i];
 
-            // 下面if判断逻辑的顺序不能改变
-            // 优先处理敏感参数
-            if (properties.getSensitive().getArgNames().contains(paramName)) {
-                // 敏感参数总是掩码处理，无论内容类型
+            // 敏感参数总是掩码处理，无论内容类型
+            if (sensitiveFlags[i]) {
                 argsMap.put(paramName, properties.getSensitive().getMask());
-            } else if (args[i] instanceof ServletRequest || args[i] instanceof ServletResponse ||
-                    args[i] instanceof InputStream || args[i] instanceof OutputStream ||
-                    args[i] instanceof org.springframework.ui.Model
-                    || args[i] instanceof org.springframework.validation.Errors) {
-                // 这些类型总是排除
-                argsMap.put(paramName, "[忽略类型: " + args[i].getClass().getSimpleName() + "]");
-            } else if (args[i] instanceof MultipartFile) {
-                // 文件类型特殊处理
-                try {
-                    MultipartFile multipartFile = (MultipartFile) args[i];
-                    Map<String, Object> fileInfo = new HashMap<>();
-                    fileInfo.put("fileName", multipartFile.getOriginalFilename());
-                    fileInfo.put("contentType", multipartFile.getContentType());
-                    fileInfo.put("size", multipartFile.getSize());
-                    argsMap.put(paramName, fileInfo);
-                } catch (Exception e) {
-                    argsMap.put(paramName, "[文件信息提取失败: " + e.getMessage() + "]");
-                }
-            } else if (isSafeContentType || isSimpleValueType(args[i])) {
-                // 安全内容类型的请求或简单值类型记录完整内容
-                argsMap.put(paramName, args[i]);
-            } else {
-                // 其他类型只记录类型信息
-                String typeName = args[i] != null ? args[i].getClass().getName() : "null";
-                argsMap.put(paramName, "[忽略复杂类型: " + typeName + "]");
+                continue;
+            }
+
+            if (i == bodyIndex && capturedBody != null) {
+                argsMap.put(paramName, capturedBody);
+                continue;
             }
+
+            Object arg = args[i];
+            switch (strategies[i]) {
+                case IGNORED:
+                    argsMap.put(paramName, arg == null ? null : "[忽略类型: " + arg.getClass().getSimpleName() + "]");
+                    break;
+                case MULTIPART:
+                    argsMap.put(paramName, arg == null ? null : formatMultipartFile((MultipartFile) arg));
+                    break;
+                case SIMPLE_VALUE:
+                    // 声明类型的值不可变，无需快照；是否记录完整内容仍由可覆盖的 isSimpleValueType 判断
+                    argsMap.put(paramName, isSafeContentType || isSimpleValueType(arg)
+                            ? arg : formatArgument(arg, isSafeContentType));
+                    break;
+                case RUNTIME:
+                default:
+                    Object value = formatArgument(arg, isSafeContentType);
+                    argsMap.put(paramName, snapshot && value == arg ? snapshotValue(arg, properties) : value);
+                    break;
+            }
+        }
+        return PayloadSnapshot.deferred(argsMap);
+    }
+
+    /**
+     * 获取 {@link CapturingRequestWrapper} 采集到的原始请求体，作为请求体参数记录的值。
+     * 完整采集的 JSON 请求体按原样嵌入参数的 JSON 中，其他请求体作为字符串记录。
+     *
+     * @param request 当前请求
+     * @return 请求体参数的值，未采集时返回 null
+     */
+    protected Object capturedRequestBody(HttpServletRequest request) {
+        CapturingRequestWrapper wrapper = CapturingRequestWrapper.get(request);
+        if (wrapper == null) {
+            return null;
+        }
+        String body = wrapper.getCapturedBody();
+        if (body == null) {
+            return null;
+        }
+        String contentType = wrapper.getContentType();
+        if (wrapper.isCaptureComplete() && contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            return new RawValue(body);
+        }
+        return body;
+    }
+
+    /**
+     * 根据参数的实际类型格式化单个参数，用于声明类型无法预先确定处理方式的参数。
+     *
+     * @param arg               参数值
+     * @param isSafeContentType 是否安全的请求类型
+     * @return 记录到日志中的参数值
+     */
+    protected Object formatArgument(Object arg, boolean isSafeContentType) {
+        // 下面if判断逻辑的顺序不能改变
+        if (arg instanceof ServletRequest || arg instanceof ServletResponse ||
+                arg instanceof InputStream || arg instanceof OutputStream ||
+                arg instanceof org.springframework.ui.Model
+                || arg instanceof org.springframework.validation.Errors) {
+            // 这些类型总是排除
+            return "[忽略类型: " + arg.getClass().getSimpleName() + "]";
+        } else if (arg instanceof MultipartFile) {
+            // 文件类型特殊处理
+            return formatMultipartFile((MultipartFile) arg);
+        } else if (isSafeContentType || isSimpleValueType(arg)) {
+            // 安全内容类型的请求或简单值类型记录完整内容
+            return arg;
+        } else {
+            // 其他类型只记录类型信息
+            String typeName = arg != null ? arg.getClass().getName() : "null";
+            return "[忽略复杂类型: " + typeName + "]";
         }
+    }
 
+    /**
+     * 提取上传文件的基本信息
+     *
+     * @param multipartFile 上传文件
+     * @return 文件信息
+     */
+    protected Object formatMultipartFile(MultipartFile multipartFile) {
         try {
-            String jsonArgs = objectMapper.writeValueAsString(argsMap);
-            return truncate(jsonArgs, properties.getMaxPayloadLength());
+            Map<String, Object> fileInfo = new HashMap<>();
+            fileInfo.put("fileName", multipartFile.getOriginalFilename());
+            fileInfo.put("contentType", multipartFile.getContentType());
+            fileInfo.put("size", multipartFile.getSize());
+            return fileInfo;
         } catch (Exception e) {
-            return "[参数序列化错误: " + e.getMessage() + "]";
+            return "[文件信息提取失败: " + e.getMessage() + "]";
         }
     }
 
-
     /**
      * 格式化请求参数 (查询字符串)。
      *
@@ -148,6 +323,10 @@ public class DefaultLogContentFormatter implements LogContentFormatter {
         if (queryString == null || queryString.isEmpty()) {
             return null;
         }
+        // 不含编码字符的查询参数无需解码，URLDecoder 即使不修改内容也会分配缓冲区
+        if (queryString.indexOf('%') < 0 && queryString.indexOf('+') < 0) {
+            return truncate(queryString, properties.getMaxPayloadLength());
+        }
         try {
             return truncate(URLDecoder.decode(queryString, StandardCharsets.UTF_8.name()), properties.getMaxPayloadLength());
         } catch (UnsupportedEncodingException e) {
@@ -165,36 +344,113 @@ public class DefaultLogContentFormatter implements LogContentFormatter {
      */
     @Override
     public String formatReturnValue(Object returnValue, LogMode mode, ApiLoggingProperties properties) {
+        return formatCapturedReturnValue(collectReturnValue(returnValue, mode, properties, false), properties);
+    }
+
+    /**
+     * 采集返回值快照，复杂类型返回值按 {@link SnapshotStrategy} 处理。
+     */
+    @Override
+    public PayloadSnapshot captureReturnValue(Object returnValue, LogMode mode, ApiLoggingProperties properties) {
+        return collectReturnValue(returnValue, mode, properties, true);
+    }
+
+    @Override
+    public String formatCapturedReturnValue(PayloadSnapshot snapshot, ApiLoggingProperties properties) {
+        if (snapshot == null || snapshot.isFormatted()) {
+            return snapshot != null ? snapshot.getContent() : null;
+        }
+        try {
+            return writeValueTruncated(payloadWriter(properties, 0), snapshot.getValue(), properties.getMaxPayloadLength());
+        } catch (Exception e) {
+            return "[返回值序列化错误: " + e.getMessage() + "]";
+        }
+    }
+
+    /**
+     * 整理需要记录的返回值
+     *
+     * @param snapshot 是否对复杂类型返回值做快照
+     * @return 提示信息或需要序列化的返回值
+     */
+    private PayloadSnapshot collectReturnValue(Object returnValue, LogMode mode, ApiLoggingProperties properties,
+            boolean snapshot) {
         if (!LogMode.DETAILED.equals(mode) || returnValue == null) {
-            return null;
+            return PayloadSnapshot.formatted(null);
         }
         if (properties.getMaxPayloadLength() == 0)
-            return "[已忽略]";
+            return PayloadSnapshot.formatted("[已忽略]");
 
         Object valueToLog = returnValue;
+        if (isStreamingBody(returnValue)) {
+            return PayloadSnapshot.formatted("[流式响应:" + returnValue.getClass().getSimpleName() + "]");
+        }
         if (returnValue instanceof ResponseEntity) {
             valueToLog = ((ResponseEntity<?>) returnValue).getBody();
             if (valueToLog == null) {
-                return "[ResponseEntity的body为空]";
+                return PayloadSnapshot.formatted("[ResponseEntity的body为空]");
             }
 
             if (valueToLog instanceof InputStreamSource) {
-                return "[ResponseEntity包含InputStreamSource类型的body]";
+                return PayloadSnapshot.formatted("[ResponseEntity包含InputStreamSource类型的body]");
+            }
+            if (isStreamingBody(valueToLog)) {
+                return PayloadSnapshot.formatted("[流式响应:" + valueToLog.getClass().getSimpleName() + "]");
             }
         } else if (returnValue instanceof ModelAndView) {
-            return "[忽略类型:ModelAndView]";
+            return PayloadSnapshot.formatted("[忽略类型:ModelAndView]");
         }
 
+        return PayloadSnapshot.deferred(snapshot ? snapshotValue(valueToLog, properties) : valueToLog);
+    }
+
+    /**
+     * 流式响应的内容边处理边写出，不做序列化
+     */
+    private static boolean isStreamingBody(Object value) {
+        return value instanceof StreamingResponseBody || value instanceof ResponseBodyEmitter;
+    }
+
+    /**
+     * 按配置的快照方式在请求线程中处理复杂类型对象，使后台线程格式化时不受对象后续修改的影响。
+     *
+     * @param value      参数或返回值
+     * @param properties 日志配置属性
+     * @return 快照对象
+     */
+    protected Object snapshotValue(Object value, ApiLoggingProperties properties) {
+        if (isSimpleValueType(value)) {
+            return value;
+        }
         try {
-            String jsonReturn = objectMapper.writeValueAsString(valueToLog);
-            return truncate(jsonReturn, properties.getMaxPayloadLength());
+            switch (properties.compiled().resolveSnapshotStrategy(value.getClass())) {
+                case DEEP_COPY:
+                    if (properties.getTruncation().isEnabled()) {
+                        // 按结构截断时只复制需要记录的部分
+                        TokenBuffer buffer = new TokenBuffer(objectMapper, false);
+                        payloadWriter(properties, 0).writeValue(buffer, value);
+                        return buffer;
+                    }
+                    return objectMapper.valueToTree(value);
+                case SERIALIZE:
+                    // 多保留一个字符，保证外层结果仍会触发截断，截断后与直接序列化的结果一致
+                    ObjectWriter writer = payloadWriter(properties, 0);
+                    int maxLength = properties.getMaxPayloadLength();
+                    return maxLength > 0
+                            ? BoundedJsonWriter.writeRaw(writer, value, maxLength + 1)
+                            : new RawValue(writer.writeValueAsString(value));
+                case REFERENCE:
+                default:
+                    return value;
+            }
         } catch (Exception e) {
-            return "[返回值序列化错误: " + e.getMessage() + "]";
+            return "[序列化错误: " + e.getMessage() + "]";
         }
     }
 
     /**
      * 格式化异常信息。
+     * 记录堆栈时沿 cause 链逐帧输出，总行数受 maxLines 限制，见 {@link ExceptionStackFormatter}。
      *
      * @param throwable  捕获到的异常
      * @param mode       当前的日志模式 (DETAILED 或 SIMPLE)
@@ -203,36 +459,12 @@ public class DefaultLogContentFormatter implements LogContentFormatter {
      */
     @Override
     public String formatException(Throwable throwable, LogMode mode, ApiLoggingProperties properties) {
-        String message = throwable.getClass().getName() + ": " + throwable.getMessage();
         if (mode == LogMode.DETAILED || properties.getExceptionStack().isEnabled()) {
-            StringWriter sw = new StringWriter();
-            throwable.printStackTrace(new PrintWriter(sw));
-            String[] lines = sw.toString().split(System.lineSeparator());
-            StringBuilder stackTraceBuilder = new StringBuilder("\n");
-
-            String packagePrefix = properties.getExceptionStack().getPackagePrefix();
-            int maxLines = properties.getExceptionStack().getMaxLines();
-            boolean foundPackagePrefix = false;
-
-            int maxLoop = Math.min(lines.length, maxLines);
-
-            for (int i = 1; i < maxLoop; i++) {
-                String line = lines[i];
-                stackTraceBuilder.append(line).append("\n");
-
-                // 如果找到了包名前缀，开始计数后续行数
-                if (!foundPackagePrefix && packagePrefix != null && !packagePrefix.isEmpty()
-                    && line.contains("at " + packagePrefix)) {
-
-                    foundPackagePrefix = true;
-                    // 找到包名，最多再打印2行
-                    maxLoop = Math.min(maxLoop, i + 1 + 2);
-                }
-            }
-
-            message += stackTraceBuilder.toString();
+            ApiLoggingProperties.ExceptionStack exceptionStack = properties.getExceptionStack();
+            return exceptionStackFormatter.format(throwable, exceptionStack.getPackagePrefix(),
+                    exceptionStack.getMaxLines());
         }
-        return message;
+        return throwable.getClass().getName() + ": " + throwable.getMessage();
     }
 
     /**
@@ -248,12 +480,11 @@ public class DefaultLogContentFormatter implements LogContentFormatter {
             return Collections.emptyMap();
         Map<String, String> headers = new HashMap<>();
         Enumeration<String> headerNames = request.getHeaderNames();
-        Set<String> sensitiveHeadersLower = properties.getSensitive().getRequestHeaders().stream()
-                .map(String::toLowerCase).collect(Collectors.toSet());
+        CompiledApiLoggingConfig config = properties.compiled();
 
         while (headerNames.hasMoreElements()) {
             String headerName = headerNames.nextElement();
-            if (sensitiveHeadersLower.contains(headerName.toLowerCase())) {
+            if (config.isSensitiveHeader(headerName)) {
                 headers.put(headerName, properties.getSensitive().getMask());
             } else {
                 headers.put(headerName, request.getHeader(headerName));
@@ -331,13 +562,15 @@ public class DefaultLogContentFormatter implements LogContentFormatter {
             return false;
         }
 
-        HashSet<String> safeTypes = new HashSet<>(Arrays.asList(
-                "application/json",
-                "application/x-www-form-urlencoded",
-                "text/plain",
-                "multipart/form-data"));
-
         String contentType = request.getContentType();
-        return contentType != null && safeTypes.stream().anyMatch(s -> contentType.toLowerCase().startsWith(s));
+        if (contentType == null) {
+            return false;
+        }
+        for (String safeType : SAFE_CONTENT_TYPES) {
+            if (contentType.regionMatches(true, 0, safeType, 0, safeType.length())) {
+                return true;
+            }
+        }
+        return false;
     }
 }
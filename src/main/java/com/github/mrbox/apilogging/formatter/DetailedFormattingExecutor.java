@@ -0,0 +1,140 @@
+package com.github.mrbox.apilogging.formatter;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ *     详细日志的后台格式化线程池，将参数、返回值、异常的序列化从请求线程转移到后台线程。
+ *
+ *     线程池和等待队列都是有界的，队列已满或线程池已关闭时 {@link #execute(Runnable, Runnable)} 返回 false，
+ *     由调用方在请求线程中直接格式化。后台线程的格式化耗时（不含发布）即为节省的请求线程耗时。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class DetailedFormattingExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DetailedFormattingExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final long shutdownTimeoutMs;
+
+    private final LongAdder offloadedCount = new LongAdder();
+    private final LongAdder inlineCount = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+
+    public DetailedFormattingExecutor(ApiLoggingProperties.Offload config) {
+        int threads = Math.max(1, config.getThreads());
+        int queueCapacity = Math.max(1, config.getQueueCapacity());
+        this.shutdownTimeoutMs = config.getShutdownTimeoutMs();
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "api-logging-format-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        logger.debug("初始化详细日志格式化线程池 - 线程数: {}, 队列容量: {}", threads, queueCapacity);
+    }
+
+    /**
+     * 提交格式化任务到后台线程
+     *
+     * @param formatting 格式化并发布日志的任务
+     * @return 是否提交成功，返回 false 时调用方需要在当前线程执行
+     * @see #execute(Runnable, Runnable)
+     */
+    public boolean execute(Runnable formatting) {
+        return execute(formatting, null);
+    }
+
+    /**
+     * 提交格式化任务到后台线程，格式化完成后在同一线程中发布。
+     * 节省的请求线程耗时只统计格式化部分，发布耗时取决于发布器，不计入其中。
+     *
+     * @param formatting 格式化日志的任务
+     * @param publishing 发布日志的任务，可以为 null
+     * @return 是否提交成功，返回 false 时调用方需要在当前线程依次执行两个任务
+     */
+    public boolean execute(Runnable formatting, Runnable publishing) {
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    formatting.run();
+                } finally {
+                    savedNanos.add(System.nanoTime() - start);
+                    offloadedCount.increment();
+                }
+                if (publishing != null) {
+                    publishing.run();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inlineCount.increment();
+            return false;
+        }
+    }
+
+    /**
+     * @return 已在后台线程完成格式化的日志数
+     */
+    public long getOffloadedCount() {
+        return offloadedCount.sum();
+    }
+
+    /**
+     * @return 因线程池饱和或已关闭而在请求线程中格式化的日志数
+     */
+    public long getInlineCount() {
+        return inlineCount.sum();
+    }
+
+    /**
+     * @return 后台线程累计的格式化耗时，即节省的请求线程耗时（毫秒）
+     */
+    public long getSavedRequestThreadTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(savedNanos.sum());
+    }
+
+    /**
+     * @return 当前等待格式化的日志数
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 停止接收新任务，并在超时时间内等待已提交的任务完成。
+     */
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("详细日志格式化线程池关闭超时，仍有 {} 条日志未输出", executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("详细日志格式化线程池已关闭 - 后台格式化: {} 条, 请求线程格式化: {} 条, 节省请求线程耗时: {} ms",
+                getOffloadedCount(), getInlineCount(), getSavedRequestThreadTimeMs());
+    }
+}
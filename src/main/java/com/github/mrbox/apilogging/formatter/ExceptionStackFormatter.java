@@ -0,0 +1,246 @@
+package com.github.mrbox.apilogging.formatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *     按 StackTraceElement 逐帧格式化异常堆栈，边遍历边应用 maxLines 和 packagePrefix 规则，不再完整输出后再截取：
+ *      - 第一行为 "异常类名: 异常信息"，之后最多 maxLines - 1 行，包括堆栈帧和 "Caused by: " 行
+ *      - 沿 cause 链输出，为后续的 "Caused by: " 行预留行数，根因不会因为外层堆栈过长被截掉；
+ *        行数不足以容纳全部 cause 时优先保留最内层的根因
+ *      - cause 只输出与外层堆栈不同的帧，与 printStackTrace 省略 "... n more" 的部分一致
+ *      - 每一层匹配到 packagePrefix 的帧后，该层最多再输出 2 帧
+ *
+ *     按 异常类型 + 全部堆栈帧（含 cause 链）缓存每一层要输出的帧，相同位置抛出的异常只格式化一次，
+ *     异常信息可能包含请求相关的内容，不参与缓存，每次按当前异常拼接。
+ *     缓存键的哈希只计算每层的异常类型、帧数和栈顶的少量帧，哈希相同时才逐帧比较全部堆栈。
+ * </pre>
+ *
+ * @author Zwk
+ */
+final class ExceptionStackFormatter {
+
+    /**
+     * 缓存的堆栈数上限，异常抛出位置基本固定，超出后不再缓存新的堆栈
+     */
+    private static final int MAX_CACHED_TRACES = 1024;
+
+    /**
+     * 沿 cause 链最多输出的层数
+     */
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    /**
+     * 匹配到包名前缀后每层最多再输出的帧数
+     */
+    private static final int FRAMES_AFTER_PACKAGE_PREFIX = 2;
+
+    /**
+     * 缓存键的哈希中每层参与计算的栈顶帧数，抛出位置相同但调用路径不同的堆栈在比较全部帧时区分
+     */
+    private static final int HASHED_FRAMES = 8;
+
+    private static final String CAUSED_BY = "Caused by: ";
+
+    private final ConcurrentMap<TraceKey, FormattedTrace> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 格式化异常堆栈
+     *
+     * @param throwable     异常
+     * @param packagePrefix 项目包名前缀，为空时不按包名截取
+     * @param maxLines      最大行数，包含第一行的异常信息
+     * @return 格式化后的异常堆栈，以换行结尾
+     */
+    String format(Throwable throwable, String packagePrefix, int maxLines) {
+        List<Throwable> chain = causeChain(throwable);
+        // getStackTrace 每次返回副本，每层只取一次，缓存键和格式化共用
+        StackTraceElement[][] frames = new StackTraceElement[chain.size()][];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = chain.get(i).getStackTrace();
+        }
+        String prefix = packagePrefix != null ? packagePrefix : "";
+        TraceKey key = new TraceKey(chain, frames, prefix, maxLines);
+        FormattedTrace trace = cache.get(key);
+        if (trace == null) {
+            trace = FormattedTrace.build(frames, prefix, maxLines);
+            if (cache.size() < MAX_CACHED_TRACES) {
+                cache.putIfAbsent(key, trace);
+            }
+        }
+        return trace.render(throwable, chain);
+    }
+
+    /**
+     * @return 缓存的堆栈数
+     */
+    int cachedTraceCount() {
+        return cache.size();
+    }
+
+    private static List<Throwable> causeChain(Throwable throwable) {
+        List<Throwable> chain = new ArrayList<>(2);
+        for (Throwable current = throwable; current != null && chain.size() < MAX_CAUSE_DEPTH;
+             current = current.getCause()) {
+            // 按引用判断，cause 链中有环时停止
+            for (Throwable seen : chain) {
+                if (seen == current) {
+                    return chain;
+                }
+            }
+            chain.add(current);
+        }
+        return chain;
+    }
+
+    /**
+     * 缓存键：cause 链中每一层的异常类型和堆栈帧，以及影响输出的配置。
+     * 哈希只包含每层的异常类型、帧数和栈顶 {@link #HASHED_FRAMES} 帧，全部帧只在哈希相同时比较
+     */
+    private static final class TraceKey {
+        private final Class<?>[] types;
+        private final StackTraceElement[][] frames;
+        private final String packagePrefix;
+        private final int maxLines;
+        private final int hash;
+
+        private TraceKey(List<Throwable> chain, StackTraceElement[][] frames, String packagePrefix, int maxLines) {
+            this.types = new Class<?>[chain.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = chain.get(i).getClass();
+            }
+            this.frames = frames;
+            this.packagePrefix = packagePrefix;
+            this.maxLines = maxLines;
+            int h = Arrays.hashCode(types);
+            for (StackTraceElement[] trace : frames) {
+                h = 31 * h + trace.length;
+                for (int f = 0, n = Math.min(trace.length, HASHED_FRAMES); f < n; f++) {
+                    h = 31 * h + trace[f].hashCode();
+                }
+            }
+            h = 31 * h + packagePrefix.hashCode();
+            this.hash = 31 * h + maxLines;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TraceKey)) {
+                return false;
+            }
+            TraceKey other = (TraceKey) o;
+            return hash == other.hash && maxLines == other.maxLines
+                    && packagePrefix.equals(other.packagePrefix)
+                    && Arrays.equals(types, other.types)
+                    && sameFrames(frames, other.frames);
+        }
+
+        /**
+         * 逐层比较堆栈帧，任一层帧数不同时不再逐帧比较
+         */
+        private static boolean sameFrames(StackTraceElement[][] a, StackTraceElement[][] b) {
+            if (a.length != b.length) {
+                return false;
+            }
+            for (int i = 0; i < a.length; i++) {
+                if (a[i].length != b[i].length) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < a.length; i++) {
+                if (!Arrays.equals(a[i], b[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 已格式化的堆栈：输出的 cause 层下标和每层的堆栈帧文本，不含异常信息
+     */
+    private static final class FormattedTrace {
+        private final int[] levels;
+        private final String[] frameText;
+
+        private FormattedTrace(int[] levels, String[] frameText) {
+            this.levels = levels;
+            this.frameText = frameText;
+        }
+
+        static FormattedTrace build(StackTraceElement[][] frames, String packagePrefix, int maxLines) {
+            int budget = Math.max(maxLines - 1, 0);
+            // 输出的层：最外层，以及行数允许时尽量多的最内层 cause
+            int causes = Math.min(frames.length - 1, budget);
+            int[] levels = new int[causes + 1];
+            for (int i = 1; i <= causes; i++) {
+                levels[i] = frames.length - 1 - causes + i;
+            }
+
+            String[] frameText = new String[levels.length];
+            int remaining = budget - causes;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < levels.length; i++) {
+                int level = levels[i];
+                StackTraceElement[] trace = frames[level];
+                int unique = level == 0 ? trace.length : uniqueFrames(trace, frames[level - 1]);
+                // 外层输出帧时为内层的每个 cause 至少留出一帧，根因使用剩余的全部行数
+                int limit = remaining - (levels.length - 1 - i);
+                sb.setLength(0);
+                int printed = 0;
+                int afterPrefix = -1;
+                for (int f = 0; f < unique && printed < limit; f++) {
+                    StackTraceElement element = trace[f];
+                    sb.append("\tat ").append(element).append('\n');
+                    printed++;
+                    if (afterPrefix >= 0) {
+                        if (++afterPrefix >= FRAMES_AFTER_PACKAGE_PREFIX) {
+                            break;
+                        }
+                    } else if (!packagePrefix.isEmpty() && element.getClassName().startsWith(packagePrefix)) {
+                        afterPrefix = 0;
+                    }
+                }
+                remaining -= printed;
+                frameText[i] = sb.toString();
+            }
+            return new FormattedTrace(levels, frameText);
+        }
+
+        /**
+         * @return cause 中与外层堆栈不同的帧数，从栈底开始比较
+         */
+        private static int uniqueFrames(StackTraceElement[] trace, StackTraceElement[] enclosing) {
+            int m = trace.length - 1;
+            int n = enclosing.length - 1;
+            while (m >= 0 && n >= 0 && trace[m].equals(enclosing[n])) {
+                m--;
+                n--;
+            }
+            return m + 1;
+        }
+
+        String render(Throwable throwable, List<Throwable> chain) {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append(throwable.getClass().getName()).append(": ").append(throwable.getMessage()).append('\n');
+            sb.append(frameText[0]);
+            for (int i = 1; i < levels.length; i++) {
+                sb.append(CAUSED_BY).append(chain.get(levels[i])).append('\n');
+                sb.append(frameText[i]);
+            }
+            return sb.toString();
+        }
+    }
+}
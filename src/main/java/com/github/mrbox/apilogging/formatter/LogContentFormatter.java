@@ -72,6 +72,55 @@ public interface LogContentFormatter {
      */
     Map<String, String> formatRequestHeaders(HttpServletRequest request, ApiLoggingProperties properties);
 
+    /**
+     * 在请求线程中采集方法参数的快照，快照由 {@link #formatCapturedArguments} 在后台线程中格式化。
+     * 默认实现直接在请求线程中完成格式化。
+     *
+     * @param joinPoint AOP连接点，可以访问方法签名和参数
+     * @param request 当前的HttpServletRequest
+     * @param properties 日志配置属性
+     * @return 参数快照
+     */
+    default PayloadSnapshot captureArguments(ProceedingJoinPoint joinPoint, HttpServletRequest request,
+                                             ApiLoggingProperties properties) {
+        return PayloadSnapshot.formatted(formatArguments(joinPoint, request, properties));
+    }
+
+    /**
+     * 将 {@link #captureArguments} 采集的快照格式化为参数字符串，可能在非请求线程中调用。
+     *
+     * @param snapshot 参数快照
+     * @param properties 日志配置属性
+     * @return 格式化后的参数字符串
+     */
+    default String formatCapturedArguments(PayloadSnapshot snapshot, ApiLoggingProperties properties) {
+        return snapshot != null ? snapshot.getContent() : null;
+    }
+
+    /**
+     * 在请求线程中采集返回值的快照，快照由 {@link #formatCapturedReturnValue} 在后台线程中格式化。
+     * 默认实现直接在请求线程中完成格式化。
+     *
+     * @param returnValue 方法的原始返回值
+     * @param mode 当前的日志模式 (DETAILED 或 SIMPLE)
+     * @param properties 日志配置属性
+     * @return 返回值快照
+     */
+    default PayloadSnapshot captureReturnValue(Object returnValue, LogMode mode, ApiLoggingProperties properties) {
+        return PayloadSnapshot.formatted(formatReturnValue(returnValue, mode, properties));
+    }
+
+    /**
+     * 将 {@link #captureReturnValue} 采集的快照格式化为返回值字符串，可能在非请求线程中调用。
+     *
+     * @param snapshot 返回值快照
+     * @param properties 日志配置属性
+     * @return 格式化后的返回值字符串
+     */
+    default String formatCapturedReturnValue(PayloadSnapshot snapshot, ApiLoggingProperties properties) {
+        return snapshot != null ? snapshot.getContent() : null;
+    }
+
     /**
      * 格式化客户端IP地址。
      *
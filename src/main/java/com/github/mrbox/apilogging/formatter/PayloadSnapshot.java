@@ -0,0 +1,62 @@
+package com.github.mrbox.apilogging.formatter;
+
+/**
+ * <pre>
+ *     在请求线程中采集的参数或返回值快照，由 {@link LogContentFormatter} 在其他线程中格式化为日志内容。
+ *
+ *     快照要么已经是最终的日志内容（如 "[已忽略]" 等提示信息），要么是待序列化的对象。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class PayloadSnapshot {
+
+    private static final PayloadSnapshot EMPTY = new PayloadSnapshot(true, null, null);
+
+    private final boolean formatted;
+    private final String content;
+    private final Object value;
+
+    private PayloadSnapshot(boolean formatted, String content, Object value) {
+        this.formatted = formatted;
+        this.content = content;
+        this.value = value;
+    }
+
+    /**
+     * @param content 最终的日志内容
+     * @return 无需再格式化的快照
+     */
+    public static PayloadSnapshot formatted(String content) {
+        return content == null ? EMPTY : new PayloadSnapshot(true, content, null);
+    }
+
+    /**
+     * @param value 待序列化的对象
+     * @return 需要序列化的快照
+     */
+    public static PayloadSnapshot deferred(Object value) {
+        return new PayloadSnapshot(false, null, value);
+    }
+
+    /**
+     * @return 是否已经是最终的日志内容
+     */
+    public boolean isFormatted() {
+        return formatted;
+    }
+
+    /**
+     * @return 最终的日志内容，仅当 {@link #isFormatted()} 为 true 时有效
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return 待序列化的对象，仅当 {@link #isFormatted()} 为 false 时有效
+     */
+    public Object getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.mrbox.apilogging.formatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * <pre>
+ *     将 Spring Data 的 Page、Slice 输出为分页摘要：页码、页大小、本页元素数、是否有下一页，Page 另有总元素数和总页数，
+ *     内容列表按元素个数截断。只在引入 spring-data-commons 时由 {@link StructuredTruncationModule} 使用。
+ * </pre>
+ *
+ * @author Zwk
+ */
+final class SliceSummarySerializer extends JsonSerializer<Slice<?>> {
+
+    static boolean supports(Class<?> type) {
+        return Slice.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void serialize(Slice<?> value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (StructuredTruncationModule.writeDepthSummary(value, gen, provider)) {
+            return;
+        }
+        gen.writeStartObject(value);
+        writeFields(value, gen, provider);
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(Slice<?> value, JsonGenerator gen, SerializerProvider provider,
+            TypeSerializer typeSer) throws IOException {
+        if (StructuredTruncationModule.writeDepthSummary(value, gen, provider)) {
+            return;
+        }
+        WritableTypeId typeId = typeSer.writeTypePrefix(gen, typeSer.typeId(value, JsonToken.START_OBJECT));
+        writeFields(value, gen, provider);
+        typeSer.writeTypeSuffix(gen, typeId);
+    }
+
+    private static void writeFields(Slice<?> value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeFieldName("content");
+        List<?> content = value.getContent();
+        StructuredTruncationModule.writeElements(content, content.iterator(), content.size(), gen, provider);
+        gen.writeNumberField("number", value.getNumber());
+        gen.writeNumberField("size", value.getSize());
+        gen.writeNumberField("numberOfElements", value.getNumberOfElements());
+        gen.writeBooleanField("hasNext", value.hasNext());
+        if (value instanceof Page) {
+            gen.writeNumberField("totalElements", ((Page<?>) value).getTotalElements());
+            gen.writeNumberField("totalPages", ((Page<?>) value).getTotalPages());
+        }
+    }
+}
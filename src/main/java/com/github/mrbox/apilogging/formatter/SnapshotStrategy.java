@@ -0,0 +1,22 @@
+package com.github.mrbox.apilogging.formatter;
+
+/**
+ * 异步格式化详细日志时，参数和返回值在请求线程中的快照方式
+ *
+ * @author Zwk
+ * @see DetailedFormattingExecutor
+ */
+public enum SnapshotStrategy {
+    /**
+     * 直接引用原对象，请求线程没有额外开销。只适用于请求结束后不会再被修改的对象，否则后台线程可能记录修改后的内容
+     */
+    REFERENCE,
+    /**
+     * 在请求线程中将对象深拷贝为Json树，后台线程序列化拷贝后的结果。默认的快照方式
+     */
+    DEEP_COPY,
+    /**
+     * 在请求线程中直接序列化为Json字符串（按最大长度截断），适用于懒加载代理等只能在请求线程中访问的对象
+     */
+    SERIALIZE
+}
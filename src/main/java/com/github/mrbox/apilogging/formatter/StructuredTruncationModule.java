@@ -0,0 +1,447 @@
+package com.github.mrbox.apilogging.formatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.ArraySerializerBase;
+import com.fasterxml.jackson.databind.ser.std.AsArraySerializerBase;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.ser.std.MapSerializer;
+import com.fasterxml.jackson.databind.ser.std.StaticListSerializerBase;
+import com.fasterxml.jackson.databind.type.ArrayType;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.databind.type.MapType;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * <pre>
+ *     按结构截断参数和返回值的 Jackson 模块，输出仍是合法的 JSON：
+ *      - 嵌套超过最大深度的对象、集合输出为 "[超出最大深度: 类名]"
+ *      - 集合、数组只输出前 N 个元素，之后追加 "...+M more"；Map 只输出前 N 个键值对，之后追加 "...": "+M more"
+ *      - 超过最大长度的字符串截断，并追加 "...+M more"
+ *      - Spring Data 的 Page、Slice 输出为分页摘要，内容列表同样按元素个数截断
+ *
+ *     集合、数组、Map 仍由 Jackson 原有的序列化器输出，类型信息、属性上的注解 (contentUsing、@JsonFormat、
+ *     @JsonInclude 等) 和 ORDER_MAP_ENTRIES_BY_KEYS 照常生效；超出元素个数时把前 N 个元素交给原有的序列化器，
+ *     并在容器结束前追加剩余个数。自定义的容器序列化器只检查深度，不截断元素。
+ *
+ *     只遍历需要输出的部分，开销随记录的内容增长，与完整对象的大小无关。
+ *     截断上限通过 ObjectWriter 的属性 {@link #LIMITS} 传入，未设置时不截断。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class StructuredTruncationModule extends SimpleModule {
+
+    /**
+     * 保存 {@link Limits} 的 ObjectWriter 属性名
+     */
+    public static final String LIMITS = StructuredTruncationModule.class.getName() + ".LIMITS";
+
+    private static final boolean SPRING_DATA_PRESENT = ClassUtils.isPresent(
+            "org.springframework.data.domain.Slice", StructuredTruncationModule.class.getClassLoader());
+
+    public StructuredTruncationModule() {
+        super("ApiLoggingStructuredTruncation");
+        setSerializerModifier(new TruncationSerializerModifier());
+    }
+
+    /**
+     * 截断上限，小于等于 0 表示不限制
+     */
+    public static final class Limits {
+        private final int maxDepth;
+        private final int maxCollectionElements;
+        private final int maxStringLength;
+        private final int depthOffset;
+
+        /**
+         * @param maxDepth              最大嵌套深度
+         * @param maxCollectionElements 集合、数组、Map 最多输出的元素个数
+         * @param maxStringLength       字符串最大长度
+         * @param depthOffset           不计入深度的外层包装层数，例如按参数名包装参数的 Map 为 1
+         */
+        public Limits(int maxDepth, int maxCollectionElements, int maxStringLength, int depthOffset) {
+            this.maxDepth = maxDepth;
+            this.maxCollectionElements = maxCollectionElements;
+            this.maxStringLength = maxStringLength;
+            this.depthOffset = depthOffset;
+        }
+    }
+
+    private static Limits limits(SerializerProvider provider) {
+        Object limits = provider.getAttribute(LIMITS);
+        return limits instanceof Limits ? (Limits) limits : null;
+    }
+
+    /**
+     * @return 即将写出的容器所在的层级，从 1 开始，外层包装的层级小于等于 0
+     */
+    private static int levelOf(JsonGenerator gen, Limits limits) {
+        int level = 1 - limits.depthOffset;
+        for (JsonStreamContext context = gen.getOutputContext(); context != null && !context.inRoot();
+                context = context.getParent()) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * 超出最大深度时写出摘要
+     *
+     * @return 是否已写出摘要
+     */
+    private static boolean writeDepthSummary(Object value, JsonGenerator gen, Limits limits) throws IOException {
+        if (limits == null || limits.maxDepth <= 0 || levelOf(gen, limits) <= limits.maxDepth) {
+            return false;
+        }
+        gen.writeString("[超出最大深度: " + value.getClass().getSimpleName() + "]");
+        return true;
+    }
+
+    static boolean writeDepthSummary(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        return writeDepthSummary(value, gen, limits(provider));
+    }
+
+    /**
+     * @return 当前层级的容器最多输出的元素个数，不限制时返回 Integer.MAX_VALUE
+     */
+    private static int elementLimit(JsonGenerator gen, Limits limits) {
+        if (limits == null || limits.maxCollectionElements <= 0 || levelOf(gen, limits) <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        return limits.maxCollectionElements;
+    }
+
+    private static String more(int remaining) {
+        return "...+" + remaining + " more";
+    }
+
+    /**
+     * 写出按元素个数截断的数组，供集合和分页内容共用
+     */
+    static void writeElements(Object container, Iterator<?> elements, int size, JsonGenerator gen,
+            SerializerProvider provider) throws IOException {
+        int limit = elementLimit(gen, limits(provider));
+        gen.writeStartArray(container, Math.min(size, limit));
+        int written = 0;
+        while (elements.hasNext() && written < limit) {
+            provider.defaultSerializeValue(elements.next(), gen);
+            written++;
+        }
+        if (size > written) {
+            gen.writeString(more(size - written));
+        }
+        gen.writeEndArray();
+    }
+
+    private static final class TruncationSerializerModifier extends BeanSerializerModifier {
+
+        @Override
+        public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                JsonSerializer<?> serializer) {
+            Class<?> beanClass = beanDesc.getBeanClass();
+            if (beanClass == String.class) {
+                return new StringSerializer();
+            }
+            if (SPRING_DATA_PRESENT && SliceSummarySerializer.supports(beanClass)) {
+                return new SliceSummarySerializer();
+            }
+            if (serializer instanceof BeanSerializerBase) {
+                return new DepthLimitedSerializer(serializer);
+            }
+            return serializer;
+        }
+
+        @Override
+        public JsonSerializer<?> modifyCollectionSerializer(SerializationConfig config, CollectionType valueType,
+                BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            return serializer instanceof AsArraySerializerBase || serializer instanceof StaticListSerializerBase
+                    ? new ElementLimitedSerializer(serializer)
+                    : new DepthLimitedSerializer(serializer);
+        }
+
+        @Override
+        public JsonSerializer<?> modifyMapSerializer(SerializationConfig config, MapType valueType,
+                BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            return serializer instanceof MapSerializer
+                    ? new ElementLimitedSerializer(serializer)
+                    : new DepthLimitedSerializer(serializer);
+        }
+
+        @Override
+        public JsonSerializer<?> modifyArraySerializer(SerializationConfig config, ArrayType valueType,
+                BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            // 基本类型数组 (如 byte[] 输出为 Base64) 保持原样
+            if (valueType.getContentType().isPrimitive()) {
+                return serializer;
+            }
+            return serializer instanceof ArraySerializerBase
+                    ? new ElementLimitedSerializer(serializer)
+                    : new DepthLimitedSerializer(serializer);
+        }
+    }
+
+    /**
+     * 检查深度后委托给原有的序列化器
+     */
+    private static class DepthLimitedSerializer extends JsonSerializer<Object>
+            implements ContextualSerializer, ResolvableSerializer {
+
+        final JsonSerializer<Object> delegate;
+
+        @SuppressWarnings("unchecked")
+        DepthLimitedSerializer(JsonSerializer<?> delegate) {
+            this.delegate = (JsonSerializer<Object>) delegate;
+        }
+
+        /**
+         * @return 包装按属性上下文创建的序列化器
+         */
+        DepthLimitedSerializer withDelegate(JsonSerializer<?> delegate) {
+            return new DepthLimitedSerializer(delegate);
+        }
+
+        /**
+         * 未超出最大深度时写出，typeSer 为 null 时不写出类型信息
+         */
+        void write(Object value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+                throws IOException {
+            if (typeSer == null) {
+                delegate.serialize(value, gen, provider);
+            } else {
+                delegate.serializeWithType(value, gen, provider, typeSer);
+            }
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (!writeDepthSummary(value, gen, limits(provider))) {
+                write(value, gen, provider, null);
+            }
+        }
+
+        @Override
+        public void serializeWithType(Object value, JsonGenerator gen, SerializerProvider provider,
+                TypeSerializer typeSer) throws IOException {
+            if (!writeDepthSummary(value, gen, limits(provider))) {
+                write(value, gen, provider, typeSer);
+            }
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+                throws JsonMappingException {
+            if (delegate instanceof ContextualSerializer) {
+                JsonSerializer<?> contextual = ((ContextualSerializer) delegate).createContextual(provider, property);
+                return contextual == delegate ? this : withDelegate(contextual);
+            }
+            return this;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) delegate).resolve(provider);
+            }
+        }
+
+        @Override
+        public JsonSerializer<Object> unwrappingSerializer(NameTransformer unwrapper) {
+            // 展开的属性属于外层对象，不再单独检查深度
+            return delegate.unwrappingSerializer(unwrapper);
+        }
+
+        @Override
+        public boolean usesObjectId() {
+            return delegate.usesObjectId();
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, Object value) {
+            return delegate.isEmpty(provider, value);
+        }
+
+        @Override
+        public Class<Object> handledType() {
+            return delegate.handledType();
+        }
+    }
+
+    /**
+     * 委托给 Jackson 原有的集合、数组、Map 序列化器，超出元素个数时只把前 N 个元素交给原有的序列化器
+     */
+    private static final class ElementLimitedSerializer extends DepthLimitedSerializer {
+
+        ElementLimitedSerializer(JsonSerializer<?> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        DepthLimitedSerializer withDelegate(JsonSerializer<?> delegate) {
+            return new ElementLimitedSerializer(delegate);
+        }
+
+        @Override
+        void write(Object value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+                throws IOException {
+            int size = sizeOf(value);
+            int limit = elementLimit(gen, limits(provider));
+            if (size <= limit) {
+                super.write(value, gen, provider, typeSer);
+                return;
+            }
+            Object head = head(value, limit, provider);
+            super.write(head, new MoreMarkingGenerator(gen, head, size - limit), provider, typeSer);
+        }
+
+        private static int sizeOf(Object value) {
+            if (value instanceof Collection) {
+                return ((Collection<?>) value).size();
+            }
+            if (value instanceof Map) {
+                return ((Map<?, ?>) value).size();
+            }
+            return ((Object[]) value).length;
+        }
+
+        /**
+         * @return 只包含前 limit 个元素的副本，与原容器的类型兼容原有的序列化器
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Object head(Object value, int limit, SerializerProvider provider) {
+            if (value instanceof Object[]) {
+                return Arrays.copyOf((Object[]) value, limit);
+            }
+            if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                if (provider.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS) && !(map instanceof SortedMap)) {
+                    // 原有的序列化器会按键排序，截断前同样排序，输出排在前面的键
+                    try {
+                        map = new TreeMap<>(map);
+                    } catch (ClassCastException | NullPointerException e) {
+                        // 键不可比较或存在 null 键时按原有顺序截断
+                    }
+                }
+                Map<Object, Object> head = new LinkedHashMap<>(limit * 4 / 3 + 1);
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (head.size() >= limit) {
+                        break;
+                    }
+                    head.put(entry.getKey(), entry.getValue());
+                }
+                return head;
+            }
+            List<Object> head = new ArrayList<>(limit);
+            Iterator<?> elements = ((Collection<?>) value).iterator();
+            while (elements.hasNext() && head.size() < limit) {
+                head.add(elements.next());
+            }
+            return value instanceof EnumSet && !head.isEmpty() ? EnumSet.copyOf((Collection) head) : head;
+        }
+    }
+
+    /**
+     * 原有的序列化器结束截断后的容器之前，追加剩余元素的个数。
+     * 按生成器上下文中的当前值找到容器本身，类型信息的包装数组、嵌套的容器不受影响
+     */
+    private static final class MoreMarkingGenerator extends JsonGeneratorDelegate {
+        private final Object container;
+        private final int remaining;
+        private boolean marked;
+
+        MoreMarkingGenerator(JsonGenerator delegate, Object container, int remaining) {
+            super(delegate);
+            this.container = container;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public WritableTypeId writeTypePrefix(WritableTypeId typeIdDef) throws IOException {
+            WritableTypeId written = super.writeTypePrefix(typeIdDef);
+            if (typeIdDef.forValue == container) {
+                // 类型信息以包装数组写出时，容器本身的上下文在包装之内
+                delegate.setCurrentValue(container);
+            }
+            return written;
+        }
+
+        @Override
+        public void writeEndArray() throws IOException {
+            if (!(container instanceof Map) && isContainerEnd()) {
+                delegate.writeString(more(remaining));
+            }
+            super.writeEndArray();
+        }
+
+        @Override
+        public void writeEndObject() throws IOException {
+            if (container instanceof Map && isContainerEnd()) {
+                delegate.writeFieldName("...");
+                delegate.writeString("+" + remaining + " more");
+            }
+            super.writeEndObject();
+        }
+
+        private boolean isContainerEnd() {
+            if (marked || delegate.getOutputContext().getCurrentValue() != container) {
+                return false;
+            }
+            marked = true;
+            return true;
+        }
+    }
+
+    private static final class StringSerializer extends JsonSerializer<String> {
+
+        @Override
+        public void serialize(String value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            Limits limits = limits(provider);
+            int maxLength = limits != null ? limits.maxStringLength : 0;
+            if (maxLength <= 0 || value.length() <= maxLength) {
+                gen.writeString(value);
+                return;
+            }
+            // 不拆分代理对
+            int end = Character.isHighSurrogate(value.charAt(maxLength - 1)) ? maxLength - 1 : maxLength;
+            gen.writeString(value.substring(0, end) + more(value.length() - end));
+        }
+
+        @Override
+        public void serializeWithType(String value, JsonGenerator gen, SerializerProvider provider,
+                TypeSerializer typeSer) throws IOException {
+            serialize(value, gen, provider);
+        }
+
+        @Override
+        public Class<String> handledType() {
+            return String.class;
+        }
+    }
+}
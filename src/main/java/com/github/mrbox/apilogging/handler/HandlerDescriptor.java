@@ -0,0 +1,218 @@
+package com.github.mrbox.apilogging.handler;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *     Controller方法的日志描述信息，每个 Controller类 + 方法 只解析一次。
+ *
+ *     包含日志中使用的 "类名#方法名"、参数名称、每个参数的处理策略、请求体参数的下标，
+ *     以及按敏感参数配置计算出的脱敏参数下标，请求处理时只需按下标读取预先计算好的数组。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class HandlerDescriptor {
+
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    /**
+     * 按目标类分组缓存，查找时无需构造组合key
+     */
+    private static final ClassValue<ConcurrentMap<Method, HandlerDescriptor>> CACHE =
+            new ClassValue<ConcurrentMap<Method, HandlerDescriptor>>() {
+                @Override
+                protected ConcurrentMap<Method, HandlerDescriptor> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private final Class<?> targetClass;
+    private final Method method;
+    private final String handlerName;
+    private final String[] parameterNames;
+    private final ArgumentStrategy[] argumentStrategies;
+    private final int requestBodyIndex;
+
+    /**
+     * 最近一次计算的脱敏参数标记，配置变化时重新计算
+     */
+    private volatile SensitiveFlags sensitiveFlags;
+
+    private HandlerDescriptor(Class<?> targetClass, Method method) {
+        this.targetClass = targetClass;
+        this.method = method;
+        this.handlerName = targetClass.getSimpleName() + "#" + method.getName();
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        String[] discoveredNames = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+        this.parameterNames = new String[parameterTypes.length];
+        this.argumentStrategies = new ArgumentStrategy[parameterTypes.length];
+        int bodyIndex = -1;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterNames[i] = (discoveredNames != null && discoveredNames.length > i) ? discoveredNames[i] : "arg" + i;
+            argumentStrategies[i] = ArgumentStrategy.resolve(parameterTypes[i]);
+            if (bodyIndex < 0 && new MethodParameter(method, i).hasParameterAnnotation(RequestBody.class)) {
+                bodyIndex = i;
+            }
+        }
+        this.requestBodyIndex = bodyIndex;
+    }
+
+    /**
+     * 获取切点对应的描述信息
+     *
+     * @param joinPoint 切点信息
+     * @return 描述信息
+     */
+    public static HandlerDescriptor of(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object target = joinPoint.getTarget();
+        return of(target != null ? target.getClass() : method.getDeclaringClass(), method);
+    }
+
+    /**
+     * 获取目标类中指定方法的描述信息
+     *
+     * @param targetClass Controller类
+     * @param method      Controller方法
+     * @return 描述信息
+     */
+    public static HandlerDescriptor of(Class<?> targetClass, Method method) {
+        ConcurrentMap<Method, HandlerDescriptor> descriptors = CACHE.get(targetClass);
+        HandlerDescriptor descriptor = descriptors.get(method);
+        if (descriptor == null) {
+            descriptor = descriptors.computeIfAbsent(method, m -> new HandlerDescriptor(targetClass, m));
+        }
+        return descriptor;
+    }
+
+    /**
+     * 获取参数是否需要脱敏的标记，下标与方法参数一一对应。
+     * 仅在敏感参数配置变化时重新计算，配置是否变化按集合引用判断。
+     *
+     * @param sensitiveArgNames 敏感参数名称，应传入 {@link com.github.mrbox.apilogging.config.CompiledApiLoggingConfig#getSensitiveArgNames()}，
+     *                          该集合不可修改，配置刷新时整体替换
+     * @return 脱敏标记数组，调用方不应修改
+     */
+    public boolean[] getSensitiveFlags(Set<String> sensitiveArgNames) {
+        SensitiveFlags flags = this.sensitiveFlags;
+        if (flags == null || !flags.isComputedFrom(sensitiveArgNames)) {
+            flags = new SensitiveFlags(sensitiveArgNames, parameterNames);
+            this.sensitiveFlags = flags;
+        }
+        return flags.flags;
+    }
+
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return Controller类名#方法名
+     */
+    public String getHandlerName() {
+        return handlerName;
+    }
+
+    /**
+     * @return 参数名称，无法获取时为 arg0、arg1 ...，调用方不应修改
+     */
+    public String[] getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * @return 参数处理策略，调用方不应修改
+     */
+    public ArgumentStrategy[] getArgumentStrategies() {
+        return argumentStrategies;
+    }
+
+    /**
+     * @return 标注了 {@link RequestBody} 的参数下标，没有时为 -1
+     */
+    public int getRequestBodyIndex() {
+        return requestBodyIndex;
+    }
+
+    /**
+     * 参数的处理策略，根据参数声明类型预先确定
+     */
+    public enum ArgumentStrategy {
+        /**
+         * 请求、响应、流、Model、Errors 等类型，总是忽略
+         */
+        IGNORED,
+        /**
+         * 上传文件，只记录文件信息
+         */
+        MULTIPART,
+        /**
+         * 简单值类型，值不可变无需快照，是否记录完整内容仍由格式化器判断
+         */
+        SIMPLE_VALUE,
+        /**
+         * 声明类型无法确定处理方式，需根据实际参数值判断
+         */
+        RUNTIME;
+
+        static ArgumentStrategy resolve(Class<?> type) {
+            if (ServletRequest.class.isAssignableFrom(type) || ServletResponse.class.isAssignableFrom(type)
+                    || InputStream.class.isAssignableFrom(type) || OutputStream.class.isAssignableFrom(type)
+                    || org.springframework.ui.Model.class.isAssignableFrom(type)
+                    || org.springframework.validation.Errors.class.isAssignableFrom(type)) {
+                return IGNORED;
+            }
+            if (MultipartFile.class.isAssignableFrom(type)) {
+                return MULTIPART;
+            }
+            if (type.isPrimitive() || type == String.class || type == Boolean.class || type == Character.class
+                    || Number.class.isAssignableFrom(type)) {
+                return SIMPLE_VALUE;
+            }
+            return RUNTIME;
+        }
+    }
+
+    private static final class SensitiveFlags {
+        private final Set<String> source;
+        private final boolean[] flags;
+
+        private SensitiveFlags(Set<String> source, String[] parameterNames) {
+            this.source = source;
+            this.flags = new boolean[parameterNames.length];
+            if (source != null) {
+                for (int i = 0; i < parameterNames.length; i++) {
+                    flags[i] = source.contains(parameterNames[i]);
+                }
+            }
+        }
+
+        /**
+         * 编译后的配置中敏感参数集合不可修改，配置刷新时生成新的集合，比较引用即可
+         */
+        private boolean isComputedFrom(Set<String> other) {
+            return source == other;
+        }
+    }
+}
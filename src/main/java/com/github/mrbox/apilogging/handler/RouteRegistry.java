@@ -0,0 +1,90 @@
+package com.github.mrbox.apilogging.handler;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>
+ *     应用中全部路由模板的注册表。
+ *
+ *     Spring MVC 在匹配到Controller方法后，会将命中的路由模板（如 /orders/{id}）写入请求属性
+ *     {@link HandlerMapping#BEST_MATCHING_PATTERN_ATTRIBUTE}，{@link #resolveRoute} 读取该属性作为请求的路由。
+ *     与原始URI不同，路由模板的数量是有限的，可以作为模式匹配、过滤器缓存以及按路由统计的key。
+ *
+ *     容器刷新后从 {@link RequestMappingInfoHandlerMapping} 收集全部路由模板，
+ *     并预先计算当前配置快照中强制详细日志模式对这些路由的匹配结果。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class RouteRegistry implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteRegistry.class);
+
+    private final ApiLoggingProperties properties;
+
+    private volatile Set<String> routes = Collections.emptySet();
+
+    public RouteRegistry(ApiLoggingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 获取请求命中的路由模板
+     *
+     * @param request 当前请求
+     * @return 路由模板，请求未经过 Spring MVC 的Controller映射时返回 null
+     */
+    public static String resolveRoute(HttpServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : null;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        Set<String> collectedRoutes = new LinkedHashSet<>();
+        Map<String, RequestMappingInfoHandlerMapping> handlerMappings =
+                event.getApplicationContext().getBeansOfType(RequestMappingInfoHandlerMapping.class);
+        for (RequestMappingInfoHandlerMapping handlerMapping : handlerMappings.values()) {
+            for (RequestMappingInfo mappingInfo : handlerMapping.getHandlerMethods().keySet()) {
+                collectedRoutes.addAll(mappingInfo.getPatternValues());
+            }
+        }
+        this.routes = Collections.unmodifiableSet(collectedRoutes);
+
+        warmUp();
+        logger.debug("收集路由模板 {} 个", collectedRoutes.size());
+    }
+
+    /**
+     * 预先计算当前配置快照对全部路由模板的匹配结果，配置刷新后调用
+     */
+    public void warmUp() {
+        CompiledApiLoggingConfig compiled = properties.compiled();
+        compiled.getForceDetailedRoutes().warmUp(routes);
+        compiled.getRollupRoutes().warmUp(routes);
+    }
+
+    /**
+     * @return 全部路由模板
+     */
+    public Set<String> getRoutes() {
+        return routes;
+    }
+}
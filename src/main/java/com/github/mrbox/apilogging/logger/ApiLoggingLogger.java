@@ -16,4 +16,17 @@ public interface ApiLoggingLogger {
      */
     void publish(SimpleLogRecord logRecord);
 
+    /**
+     * <pre>
+     * publish 返回后是否不再持有记录对象的引用。
+     * 返回 true 时，调用方可以在 publish 返回后复用同一个记录对象，精简日志不再为每个请求分配新的记录。
+     * 在 publish 中同步序列化记录的实现可以返回 true；将记录保存到集合或交给其他线程的实现必须返回 false。
+     * </pre>
+     *
+     * @return 是否支持复用记录对象，默认为 false
+     */
+    default boolean supportsRecordReuse() {
+        return false;
+    }
+
 }
@@ -0,0 +1,335 @@
+package com.github.mrbox.apilogging.logger;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.DetailedLogRecord;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <pre>
+ *     异步发布日志记录的装饰器，将序列化和日志输出从请求线程转移到后台消费线程。
+ *
+ *     内部使用容量为2的幂的有界环形队列，槽位在启动时预分配，
+ *     支持多个请求线程并发写入、一个或多个消费线程并发读取。
+ *     队列已满时按 {@link AsyncOverflowPolicy} 处理，关闭时会在超时时间内尽量清空队列。
+ *
+ *     被包装的发布器支持复用记录时，精简日志记录复制到槽位自有的记录对象中，
+ *     请求线程可以立即复用自己的记录；槽位在消费线程发布完成后才会被再次写入。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class AsyncApiLoggingLogger implements ApiLoggingLogger, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncApiLoggingLogger.class);
+
+    /**
+     * 消费线程空闲时的最大休眠时间
+     */
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 阻塞策略下请求线程每次等待空闲槽位的休眠时间
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final ApiLoggingLogger delegate;
+    private final AsyncOverflowPolicy overflowPolicy;
+    private final long shutdownTimeoutMs;
+    private final boolean slotOwnedRecords;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong producerSequence = new AtomicLong();
+    private final AtomicLong consumerSequence = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final LongAdder publishedCount = new LongAdder();
+
+    private final Thread[] consumers;
+    private volatile boolean running = true;
+
+    public AsyncApiLoggingLogger(ApiLoggingLogger delegate, ApiLoggingProperties.Async config) {
+        this.delegate = delegate;
+        this.overflowPolicy = config.getOverflowPolicy() != null
+                ? config.getOverflowPolicy() : AsyncOverflowPolicy.DROP_SIMPLE_KEEP_ERRORS;
+        this.shutdownTimeoutMs = config.getShutdownTimeoutMs();
+        this.slotOwnedRecords = delegate.supportsRecordReuse();
+
+        int capacity = capacityFor(config.getBufferSize());
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = capacity - 1;
+
+        int threads = Math.max(1, config.getConsumerThreads());
+        this.consumers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            Thread consumer = new Thread(this::consumeLoop, "api-logging-async-" + i);
+            consumer.setDaemon(true);
+            consumers[i] = consumer;
+        }
+        for (Thread consumer : consumers) {
+            consumer.start();
+        }
+
+        logger.debug("初始化异步日志发布器 - 队列容量: {}, 消费线程: {}, 溢出策略: {}", capacity, threads, overflowPolicy);
+    }
+
+    /**
+     * 将日志记录放入异步队列，队列已满时按溢出策略处理。
+     * 发布器关闭后退化为在当前线程同步发布。
+     *
+     * @param logRecord 要发布的日志记录
+     */
+    @Override
+    public void publish(SimpleLogRecord logRecord) {
+        if (logRecord == null) {
+            return;
+        }
+        if (!running) {
+            publishDirectly(logRecord);
+            return;
+        }
+        if (offer(logRecord)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                offerBlocking(logRecord);
+                break;
+            case DROP_SIMPLE_KEEP_ERRORS:
+                if (isImportant(logRecord)) {
+                    offerBlocking(logRecord);
+                } else {
+                    drop();
+                }
+                break;
+            case DROP_NEWEST:
+            default:
+                drop();
+                break;
+        }
+    }
+
+    /**
+     * 被包装的发布器支持复用记录时，精简日志记录在入队时复制到槽位中，不持有调用方的记录
+     */
+    @Override
+    public boolean supportsRecordReuse() {
+        return slotOwnedRecords;
+    }
+
+    /**
+     * @return 因队列已满被丢弃的日志记录数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return 已由消费线程发布的日志记录数
+     */
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    /**
+     * @return 当前队列中等待发布的日志记录数（近似值）
+     */
+    public int getQueueDepth() {
+        long depth = producerSequence.get() - consumerSequence.get();
+        return (int) Math.max(0, Math.min(depth, slots.length));
+    }
+
+    /**
+     * @return 队列容量
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * 停止接收新记录，并在超时时间内等待消费线程清空队列。
+     */
+    @Override
+    public void destroy() {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        for (Thread consumer : consumers) {
+            LockSupport.unpark(consumer);
+        }
+        try {
+            for (Thread consumer : consumers) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs > 0) {
+                    consumer.join(remainingMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 关闭瞬间仍可能有请求线程写入，消费线程退出后由当前线程兜底清空
+        while (System.nanoTime() < deadline && consumeOne()) {
+            publishedCount.increment();
+        }
+
+        int remaining = getQueueDepth();
+        if (remaining > 0) {
+            logger.warn("异步日志发布器关闭超时，仍有 {} 条日志未输出", remaining);
+        }
+        if (droppedCount.get() > 0) {
+            logger.warn("异步日志发布器已关闭，累计丢弃日志 {} 条", droppedCount.get());
+        }
+    }
+
+    private void consumeLoop() {
+        long idleParkNanos = 0;
+        while (running || producerSequence.get() != consumerSequence.get()) {
+            if (consumeOne()) {
+                idleParkNanos = 0;
+                publishedCount.increment();
+                continue;
+            }
+            if (!running) {
+                // 已有生产者占用槽位但尚未写入完成，短暂让出CPU等待
+                Thread.yield();
+                continue;
+            }
+            idleParkNanos = idleParkNanos == 0 ? 1000 : Math.min(idleParkNanos << 1, MAX_IDLE_PARK_NANOS);
+            LockSupport.parkNanos(this, idleParkNanos);
+        }
+    }
+
+    private void publishDirectly(SimpleLogRecord logRecord) {
+        try {
+            delegate.publish(logRecord);
+        } catch (Throwable e) {
+            logger.error("异步日志发布失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void offerBlocking(SimpleLogRecord logRecord) {
+        while (!offer(logRecord)) {
+            if (!running) {
+                publishDirectly(logRecord);
+                return;
+            }
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+        }
+    }
+
+    private void drop() {
+        long dropped = droppedCount.incrementAndGet();
+        if (dropped == 1 || dropped % 10000 == 0) {
+            logger.warn("异步日志队列已满，累计丢弃日志 {} 条，当前队列容量: {}", dropped, slots.length);
+        }
+    }
+
+    /**
+     * 错误日志和详细模式日志优先保留
+     */
+    private static boolean isImportant(SimpleLogRecord logRecord) {
+        return (logRecord.getErrorIndicator() != null && !logRecord.getErrorIndicator().isEmpty())
+                || logRecord instanceof DetailedLogRecord;
+    }
+
+    /**
+     * 多生产者写入：通过CAS占用槽位，写入完成后发布槽位序号
+     */
+    private boolean offer(SimpleLogRecord logRecord) {
+        long position = producerSequence.get();
+        for (; ; ) {
+            Slot slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (producerSequence.compareAndSet(position, position + 1)) {
+                    slot.logRecord = slotOwnedRecords && logRecord.getClass() == SimpleLogRecord.class
+                            ? slot.ownedRecord().copyFrom(logRecord) : logRecord;
+                    slot.sequence = position + 1;
+                    return true;
+                }
+                position = producerSequence.get();
+            } else if (difference < 0) {
+                // 槽位尚未被消费，队列已满
+                return false;
+            } else {
+                position = producerSequence.get();
+            }
+        }
+    }
+
+    /**
+     * 多消费者读取：通过CAS占用槽位，发布完成后才将槽位序号推进一圈以便复用，
+     * 保证槽位自有的记录在发布期间不会被生产者覆盖
+     *
+     * @return 是否发布了一条记录，队列为空时返回 false
+     */
+    private boolean consumeOne() {
+        long position = consumerSequence.get();
+        for (; ; ) {
+            Slot slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - (position + 1);
+            if (difference == 0) {
+                if (consumerSequence.compareAndSet(position, position + 1)) {
+                    SimpleLogRecord logRecord = slot.logRecord;
+                    slot.logRecord = null;
+                    try {
+                        publishDirectly(logRecord);
+                    } finally {
+                        slot.sequence = position + slots.length;
+                    }
+                    return true;
+                }
+                position = consumerSequence.get();
+            } else if (difference < 0) {
+                // 队列为空或槽位尚未写入完成
+                return false;
+            } else {
+                position = consumerSequence.get();
+            }
+        }
+    }
+
+    private static int capacityFor(int bufferSize) {
+        int size = Math.max(2, Math.min(bufferSize, 1 << 30));
+        int capacity = Integer.highestOneBit(size);
+        return capacity == size ? capacity : capacity << 1;
+    }
+
+    /**
+     * 预分配的队列槽位，sequence 用于标识槽位当前可写或可读
+     */
+    private static final class Slot {
+        private volatile long sequence;
+        private SimpleLogRecord logRecord;
+
+        /**
+         * 槽位自有的精简日志记录，首次使用时创建，之后随槽位循环复用
+         */
+        private SimpleLogRecord ownedRecord;
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+
+        private SimpleLogRecord ownedRecord() {
+            SimpleLogRecord record = this.ownedRecord;
+            if (record == null) {
+                record = new SimpleLogRecord();
+                this.ownedRecord = record;
+            }
+            return record;
+        }
+    }
+}
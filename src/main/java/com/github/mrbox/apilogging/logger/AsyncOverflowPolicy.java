@@ -0,0 +1,22 @@
+package com.github.mrbox.apilogging.logger;
+
+/**
+ * 异步发布队列已满时的处理策略
+ *
+ * @author Zwk
+ * @see AsyncApiLoggingLogger
+ */
+public enum AsyncOverflowPolicy {
+    /**
+     * 阻塞请求线程，直到队列有空闲槽位
+     */
+    BLOCK,
+    /**
+     * 直接丢弃当前（最新）的日志记录
+     */
+    DROP_NEWEST,
+    /**
+     * 丢弃精简日志，带错误指示或详细模式的日志仍然阻塞等待写入
+     */
+    DROP_SIMPLE_KEEP_ERRORS
+}
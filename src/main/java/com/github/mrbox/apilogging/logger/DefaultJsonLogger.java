@@ -2,6 +2,7 @@ package com.github.mrbox.apilogging.logger;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.mrbox.apilogging.ApiLoggingAspect;
+import com.github.mrbox.apilogging.metrics.ApiLoggingMetrics;
 import com.github.mrbox.apilogging.model.DetailedLogRecord;
 import com.github.mrbox.apilogging.model.SimpleLogRecord;
 import org.slf4j.Logger;
@@ -9,7 +10,11 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * 使用 SLF4J 将日志对象以 JSON 格式发布的实现
+ * <pre>
+ * 使用 SLF4J 将日志对象以 JSON 格式发布的实现。
+ * SimpleLogRecord、DetailedLogRecord 由 {@link JsonLogRecordEncoder} 流式编码，
+ * ObjectMapper 的配置导致输出不一致时，以及自定义的记录子类，仍使用 ObjectMapper 序列化。
+ * </pre>
  * @author Zwk
  */
 public class DefaultJsonLogger implements ApiLoggingLogger {
@@ -17,9 +22,26 @@ public class DefaultJsonLogger implements ApiLoggingLogger {
     private static final Logger logger = LoggerFactory.getLogger(ApiLoggingAspect.class);
 
     private final ObjectMapper objectMapper;
+    private final JsonLogRecordEncoder encoder;
+    private final ApiLoggingMetrics metrics;
 
     public DefaultJsonLogger(ObjectMapper objectMapper) {
+        this(objectMapper, null);
+    }
+
+    /**
+     * @param metrics 记录序列化字节数的指标，为 null 时不记录
+     */
+    public DefaultJsonLogger(ObjectMapper objectMapper, ApiLoggingMetrics metrics) {
+        this.metrics = metrics;
         this.objectMapper = (objectMapper != null) ? objectMapper : new ObjectMapper();
+        JsonLogRecordEncoder recordEncoder = new JsonLogRecordEncoder();
+        if (recordEncoder.isCompatibleWith(this.objectMapper)) {
+            this.encoder = recordEncoder;
+        } else {
+            this.encoder = null;
+            logger.info("api-logging ObjectMapper 的配置改变了日志记录的序列化结果, 使用 ObjectMapper 序列化日志记录");
+        }
     }
 
     /**
@@ -34,7 +56,18 @@ public class DefaultJsonLogger implements ApiLoggingLogger {
         }
 
         try {
-            String jsonLog = objectMapper.writeValueAsString(record);
+            String jsonLog;
+            if (encoder != null && encoder.supports(record)) {
+                jsonLog = encoder.encodeToString(record);
+                if (metrics != null) {
+                    metrics.recordSerializedBytes(encoder.lastEncodedLength());
+                }
+            } else {
+                jsonLog = objectMapper.writeValueAsString(record);
+                if (metrics != null) {
+                    metrics.recordSerializedBytes(utf8Length(jsonLog));
+                }
+            }
             if (record.getErrorIndicator() != null && !record.getErrorIndicator().isEmpty()) {
                 // 如果有错误指示，则使用错误日志记录器
                 logger.error("{}", jsonLog);
@@ -48,4 +81,36 @@ public class DefaultJsonLogger implements ApiLoggingLogger {
             logger.error("LogRecord 序列话异常. record: {}, error: {}", record, e.getMessage());
         }
     }
+
+    /**
+     * 计算 UTF-8 编码后的字节数，不创建字节数组。仅用于 ObjectMapper 序列化的记录，编码器直接给出字节数
+     */
+    static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // 代理对共 4 个字节
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 记录在 publish 中同步序列化，不持有引用
+     */
+    @Override
+    public boolean supportsRecordReuse() {
+        return true;
+    }
 }
@@ -0,0 +1,417 @@
+package com.github.mrbox.apilogging.logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.model.DetailedLogRecord;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     日志记录的流式 JSON 编码器，按字段顺序直接写出已知字段，不经过 Bean 内省和反射，也不创建 JsonGenerator。
+ *
+ *     - 输出与默认配置的 ObjectMapper 序列化 {@link SimpleLogRecord}、{@link DetailedLogRecord} 的结果一致（字段顺序、空值省略、转义规则）
+ *     - 每个线程持有一个可复用的 UTF-8 字节缓冲区，字段名预先编码，编码时只分配最终的字符串
+ *     - 编码的同时得到 UTF-8 字节数，见 {@link #lastEncodedLength()}，统计日志大小时无需重新计算字符串的编码长度
+ *
+ *     只支持 SimpleLogRecord、DetailedLogRecord 本身，子类新增的字段无法识别，应使用 ObjectMapper 序列化，见 {@link #supports(SimpleLogRecord)}。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class JsonLogRecordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonLogRecordEncoder.class);
+
+    /**
+     * 编码后保留的缓冲区上限，超过时丢弃，避免偶发的大日志长期占用线程内存
+     */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final int INITIAL_BUFFER = 1024;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 与 Jackson 一致的转义表：0 不转义，-1 使用 \\u00XX 形式，其他为短转义字符
+     */
+    private static final int[] ESCAPES = new int[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = -1;
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    /**
+     * 预先编码的字段名 ("name":)
+     */
+    private static final byte[] LOG_MODE = fieldName("logMode");
+    private static final byte[] CLIENT_IP = fieldName("clientIp");
+    private static final byte[] REQUEST_TIMESTAMP = fieldName("requestTimestamp");
+    private static final byte[] URI = fieldName("uri");
+    private static final byte[] ROUTE = fieldName("route");
+    private static final byte[] TRACE_ID = fieldName("traceId");
+    private static final byte[] SPAN_ID = fieldName("spanId");
+    private static final byte[] CONTROLLER_HANDLER = fieldName("controllerHandler");
+    private static final byte[] PROCESSING_TIME_MS = fieldName("processingTimeMs");
+    private static final byte[] STATUS_CODE = fieldName("statusCode");
+    private static final byte[] ERROR_INDICATOR = fieldName("errorIndicator");
+    private static final byte[] EXCEPTION_STACKTRACE = fieldName("exceptionStacktrace");
+    private static final byte[] EXCEPTION_FINGERPRINT = fieldName("exceptionFingerprint");
+    private static final byte[] SAMPLE_WEIGHT = fieldName("sampleWeight");
+    private static final byte[] STREAM_STATUS = fieldName("streamStatus");
+    private static final byte[] STREAM_BYTES = fieldName("streamBytes");
+    private static final byte[] STREAM_EVENTS = fieldName("streamEvents");
+    private static final byte[] TIME_TO_FIRST_BYTE_MS = fieldName("timeToFirstByteMs");
+    private static final byte[] REQUEST_HEADER = fieldName("requestHeader");
+    private static final byte[] REQUEST_PARAMS = fieldName("requestParams");
+    private static final byte[] REQUEST_BYTES = fieldName("requestBytes");
+    private static final byte[] RESPONSE_DATA = fieldName("responseData");
+    private static final byte[] RESPONSE_BYTES = fieldName("responseBytes");
+
+    private final ThreadLocal<Utf8JsonBuffer> buffers = ThreadLocal.withInitial(Utf8JsonBuffer::new);
+
+    /**
+     * 判断编码器与给定 ObjectMapper 的序列化结果是否一致。
+     * ObjectMapper 配置了命名策略、缩进输出、Map 排序、非ASCII字符转义等影响输出的特性时返回 false，此时应继续使用 ObjectMapper。
+     *
+     * @param objectMapper 要比较的 ObjectMapper
+     * @return 序列化结果是否一致
+     */
+    public boolean isCompatibleWith(ObjectMapper objectMapper) {
+        try {
+            for (SimpleLogRecord probe : probeRecords()) {
+                if (!objectMapper.writeValueAsString(probe).equals(encodeToString(probe))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            logger.debug("api-logging JSON编码器兼容性检查失败, 使用 ObjectMapper 序列化: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param record 日志记录
+     * @return 是否可以由编码器序列化，仅支持 SimpleLogRecord、DetailedLogRecord 本身
+     */
+    public boolean supports(SimpleLogRecord record) {
+        Class<?> type = record.getClass();
+        return type == SimpleLogRecord.class || type == DetailedLogRecord.class;
+    }
+
+    /**
+     * 将记录编码为 JSON 字符串
+     *
+     * @param record 日志记录
+     * @return JSON 字符串
+     */
+    public String encodeToString(SimpleLogRecord record) {
+        Utf8JsonBuffer buffer = encode(record);
+        try {
+            return new String(buffer.bytes, 0, buffer.size, StandardCharsets.UTF_8);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * @return 当前线程最近一次 {@link #encodeToString(SimpleLogRecord)} 输出的 UTF-8 字节数
+     */
+    public int lastEncodedLength() {
+        return buffers.get().lastLength;
+    }
+
+    private Utf8JsonBuffer encode(SimpleLogRecord record) {
+        Utf8JsonBuffer buffer = buffers.get();
+        buffer.size = 0;
+        buffer.writeByte('{');
+        writeSimpleFields(buffer, record);
+        if (record instanceof DetailedLogRecord) {
+            writeDetailedFields(buffer, (DetailedLogRecord) record);
+        }
+        buffer.writeByte('}');
+        return buffer;
+    }
+
+    /**
+     * 字段顺序与 Jackson 按声明顺序序列化的结果一致，requestTimestamp 为基本类型，总是输出
+     */
+    private static void writeSimpleFields(Utf8JsonBuffer buffer, SimpleLogRecord record) {
+        writeString(buffer, LOG_MODE, record.getLogMode());
+        writeString(buffer, CLIENT_IP, record.getClientIp());
+        buffer.writeFieldName(REQUEST_TIMESTAMP);
+        buffer.writeLong(record.getRequestTimestamp());
+        String uriPath = record.uriPath();
+        if (uriPath != null) {
+            // 路径和查询参数分开保存，在这里直接拼接写出，不生成完整URI的字符串
+            buffer.writeFieldName(URI);
+            buffer.writeByte('"');
+            buffer.writeEscaped(uriPath);
+            if (record.uriQuery() != null) {
+                buffer.writeByte('?');
+                buffer.writeEscaped(record.uriQuery());
+            }
+            buffer.writeByte('"');
+        }
+        writeString(buffer, ROUTE, record.getRoute());
+        writeString(buffer, TRACE_ID, record.getTraceId());
+        writeString(buffer, SPAN_ID, record.getSpanId());
+        writeString(buffer, CONTROLLER_HANDLER, record.getControllerHandler());
+        if (record.processingTimeMsValue() != SimpleLogRecord.UNSET) {
+            buffer.writeFieldName(PROCESSING_TIME_MS);
+            buffer.writeLong(record.processingTimeMsValue());
+        }
+        if (record.statusCodeValue() != SimpleLogRecord.UNSET) {
+            buffer.writeFieldName(STATUS_CODE);
+            buffer.writeLong(record.statusCodeValue());
+        }
+        writeString(buffer, ERROR_INDICATOR, record.getErrorIndicator());
+        writeString(buffer, EXCEPTION_STACKTRACE, record.getExceptionStacktrace());
+        writeString(buffer, EXCEPTION_FINGERPRINT, record.getExceptionFingerprint());
+        if (record.sampleWeightValue() != SimpleLogRecord.UNSET) {
+            buffer.writeFieldName(SAMPLE_WEIGHT);
+            buffer.writeDouble(record.sampleWeightValue());
+        }
+        writeString(buffer, STREAM_STATUS, record.getStreamStatus());
+        writeLong(buffer, STREAM_BYTES, record.getStreamBytes());
+        writeLong(buffer, STREAM_EVENTS, record.getStreamEvents());
+        writeLong(buffer, TIME_TO_FIRST_BYTE_MS, record.getTimeToFirstByteMs());
+    }
+
+    private static void writeDetailedFields(Utf8JsonBuffer buffer, DetailedLogRecord record) {
+        Map<String, String> requestHeader = record.getRequestHeader();
+        if (requestHeader != null) {
+            buffer.writeFieldName(REQUEST_HEADER);
+            buffer.writeByte('{');
+            boolean first = true;
+            for (Map.Entry<String, String> entry : requestHeader.entrySet()) {
+                if (!first) {
+                    buffer.writeByte(',');
+                }
+                first = false;
+                buffer.writeQuoted(entry.getKey());
+                buffer.writeByte(':');
+                if (entry.getValue() != null) {
+                    buffer.writeQuoted(entry.getValue());
+                } else {
+                    buffer.writeAscii("null");
+                }
+            }
+            buffer.writeByte('}');
+        }
+        writeString(buffer, REQUEST_PARAMS, record.getRequestParams());
+        writeLong(buffer, REQUEST_BYTES, record.getRequestBytes());
+        writeString(buffer, RESPONSE_DATA, record.getResponseData());
+        writeLong(buffer, RESPONSE_BYTES, record.getResponseBytes());
+    }
+
+    private static void writeString(Utf8JsonBuffer buffer, byte[] name, String value) {
+        if (value != null) {
+            buffer.writeFieldName(name);
+            buffer.writeQuoted(value);
+        }
+    }
+
+    private static void writeLong(Utf8JsonBuffer buffer, byte[] name, Long value) {
+        if (value != null) {
+            buffer.writeFieldName(name);
+            buffer.writeLong(value);
+        }
+    }
+
+    private static byte[] fieldName(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 覆盖全部字段、需要转义的字符和多个请求头的探测记录
+     */
+    private static SimpleLogRecord[] probeRecords() {
+        SimpleLogRecord simple = new SimpleLogRecord(1700000000000L, "/probe?q=\"a\"", "ProbeController#get", "SIMPLE");
+        simple.setClientIp("127.0.0.1");
+        simple.setRoute("/probe/{id}");
+        simple.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        simple.setSpanId("00f067aa0ba902b7");
+        simple.setProcessingTimeMs(12L);
+        simple.setStatusCode(200);
+        simple.setSampleWeight(2.5D);
+        simple.setStreamStatus("COMPLETED");
+        simple.setStreamBytes(21L);
+        simple.setStreamEvents(3L);
+        simple.setTimeToFirstByteMs(4L);
+
+        DetailedLogRecord detailed = new DetailedLogRecord();
+        detailed.copyFrom(simple);
+        detailed.setLogMode("DETAILED");
+        detailed.setErrorIndicator("ERROR:IllegalStateException");
+        detailed.setExceptionStacktrace("java.lang.IllegalStateException: 异常\n\tat Probe.get(Probe.java:1)");
+        detailed.setExceptionFingerprint("9f86d081884c7d65");
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("x-b", "2");
+        headers.put("x-a", "<1>");
+        detailed.setRequestHeader(headers);
+        detailed.setRequestParams("{\"id\":\"\\u0001\"}\u0001\u001f\\/");
+        detailed.setRequestBytes(18L);
+        detailed.setResponseData("\"ok\"");
+        detailed.setResponseBytes(4L);
+        return new SimpleLogRecord[]{new SimpleLogRecord(), simple, detailed};
+    }
+
+    /**
+     * 线程持有的 UTF-8 JSON 字节缓冲区，不做同步
+     */
+    private static final class Utf8JsonBuffer {
+        private byte[] bytes = new byte[INITIAL_BUFFER];
+        private int size;
+        private int lastLength;
+
+        void writeByte(char b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        /**
+         * 写出字段名，除对象的第一个字段外先写出逗号
+         */
+        void writeFieldName(byte[] name) {
+            ensureCapacity(name.length + 1);
+            if (bytes[size - 1] != '{') {
+                bytes[size++] = ',';
+            }
+            System.arraycopy(name, 0, bytes, size, name.length);
+            size += name.length;
+        }
+
+        void writeAscii(String value) {
+            int length = value.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                bytes[size++] = (byte) value.charAt(i);
+            }
+        }
+
+        void writeLong(long value) {
+            if (value < 0) {
+                if (value == Long.MIN_VALUE) {
+                    writeAscii(Long.toString(value));
+                    return;
+                }
+                writeByte('-');
+                value = -value;
+            }
+            // 从低位向高位直接写入缓冲区，不创建字符串
+            int digits = 1;
+            for (long v = value / 10; v != 0; v /= 10) {
+                digits++;
+            }
+            ensureCapacity(digits);
+            int pos = size + digits;
+            size = pos;
+            do {
+                bytes[--pos] = (byte) ('0' + (int) (value % 10));
+                value /= 10;
+            } while (value != 0);
+        }
+
+        void writeDouble(double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                // Jackson 默认将非有限数值输出为字符串
+                writeByte('"');
+                writeAscii(Double.toString(value));
+                writeByte('"');
+            } else {
+                writeAscii(Double.toString(value));
+            }
+        }
+
+        /**
+         * 写出带引号的字符串，按 Jackson 的默认规则转义，非ASCII字符按 UTF-8 编码
+         */
+        void writeQuoted(String value) {
+            writeByte('"');
+            writeEscaped(value);
+            writeByte('"');
+        }
+
+        /**
+         * 写出转义后的字符串内容，不带引号
+         */
+        void writeEscaped(String value) {
+            int length = value.length();
+            ensureCapacity(length + 1);
+            byte[] out = bytes;
+            int pos = size;
+            for (int i = 0; i < length; i++) {
+                // 每个字符最多占 6 个字节 (\\u00XX)，另预留一个字节
+                if (pos + 7 > out.length) {
+                    size = pos;
+                    ensureCapacity(Math.max(7, length - i));
+                    out = bytes;
+                }
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    int escape = ESCAPES[c];
+                    if (escape == 0) {
+                        out[pos++] = (byte) c;
+                    } else if (escape > 0) {
+                        out[pos++] = '\\';
+                        out[pos++] = (byte) escape;
+                    } else {
+                        out[pos++] = '\\';
+                        out[pos++] = 'u';
+                        out[pos++] = '0';
+                        out[pos++] = '0';
+                        out[pos++] = HEX[c >> 4];
+                        out[pos++] = HEX[c & 0xF];
+                    }
+                } else if (c < 0x800) {
+                    out[pos++] = (byte) (0xC0 | (c >> 6));
+                    out[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // 不成对的代理字符无法编码为 UTF-8，与 String.getBytes 一致替换为 '?'
+                    out[pos++] = '?';
+                } else {
+                    out[pos++] = (byte) (0xE0 | (c >> 12));
+                    out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    out[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            size = pos;
+        }
+
+        private void ensureCapacity(int additional) {
+            int required = size + additional;
+            if (required > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length << 1));
+            }
+        }
+
+        void release() {
+            lastLength = size;
+            if (bytes.length > MAX_RETAINED_BUFFER) {
+                bytes = new byte[INITIAL_BUFFER];
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.mrbox.apilogging.metrics;
+
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+
+/**
+ * <pre>
+ *     日志组件的指标记录接口，不依赖具体的指标库，未启用指标时切面中为 null。
+ *     所有方法都在请求线程或发布线程中调用，实现应只做计数和计时，不应抛出异常。
+ * </pre>
+ *
+ * @author Zwk
+ * @see MicrometerApiLoggingMetrics
+ */
+public interface ApiLoggingMetrics {
+
+    /**
+     * 记录一次请求的处理耗时
+     *
+     * @param handler          Controller方法
+     * @param statusCode       HTTP响应状态码，未知时为 {@link com.github.mrbox.apilogging.model.SimpleLogRecord#UNSET}
+     * @param processingTimeMs 处理耗时 (毫秒)
+     */
+    void recordRequest(HandlerDescriptor handler, int statusCode, long processingTimeMs);
+
+    /**
+     * 记录日志组件某一阶段的耗时
+     *
+     * @param stage 阶段
+     * @param nanos 耗时 (纳秒)
+     */
+    void recordStage(Stage stage, long nanos);
+
+    /**
+     * 记录日志组件在一个请求的请求线程中各阶段耗时之和
+     *
+     * @param handler Controller方法
+     * @param nanos   耗时 (纳秒)
+     */
+    default void recordOverhead(HandlerDescriptor handler, long nanos) {
+    }
+
+    /**
+     * 记录一条日志的处理结果
+     *
+     * @param outcome 处理结果
+     */
+    void recordOutcome(Outcome outcome);
+
+    /**
+     * 记录一条日志序列化后的字节数
+     *
+     * @param bytes UTF-8 字节数
+     */
+    void recordSerializedBytes(int bytes);
+
+    /**
+     * 日志组件的处理阶段
+     */
+    enum Stage {
+        /**
+         * 强制详细日志的URI模式匹配
+         */
+        URI_PATTERN,
+        /**
+         * 详细日志触发器，方法执行前后两次判断分别记录
+         */
+        TRIGGER,
+        /**
+         * 前置过滤器
+         */
+        PRE_FILTER,
+        /**
+         * 后置过滤器，方法执行前后两次判断分别记录
+         */
+        POST_FILTER,
+        /**
+         * 获取客户端IP
+         */
+        CLIENT_IP,
+        /**
+         * 格式化请求头
+         */
+        REQUEST_HEADERS,
+        /**
+         * 采集和格式化请求参数，包括后台格式化线程中的耗时
+         */
+        ARGUMENTS,
+        /**
+         * 格式化返回值，包括后台格式化线程中的耗时
+         */
+        RETURN_VALUE,
+        /**
+         * 格式化异常，包括后台格式化线程中的耗时
+         */
+        EXCEPTION,
+        /**
+         * 将工作记录转换为精简记录
+         */
+        RECORD_CONVERSION,
+        /**
+         * 调用发布器发布日志
+         */
+        PUBLISH
+    }
+
+    /**
+     * 日志的处理结果
+     */
+    enum Outcome {
+        /**
+         * 已发布
+         */
+        PUBLISHED,
+        /**
+         * 被前置过滤器或后置过滤器跳过
+         */
+        FILTERED,
+        /**
+         * 被采样丢弃
+         */
+        SAMPLED_OUT,
+        /**
+         * 累加到按路由的汇总中，不逐条发布
+         */
+        ROLLED_UP
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.mrbox.apilogging.metrics;
+
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+
+import java.util.List;
+
+/**
+ * 同时启用多个指标实现（如 Micrometer 指标和自身开销分析）时，依次调用每个实现
+ *
+ * @author Zwk
+ */
+public final class CompositeApiLoggingMetrics implements ApiLoggingMetrics {
+
+    private final ApiLoggingMetrics[] delegates;
+
+    private CompositeApiLoggingMetrics(List<ApiLoggingMetrics> delegates) {
+        this.delegates = delegates.toArray(new ApiLoggingMetrics[0]);
+    }
+
+    /**
+     * 组合指标实现
+     *
+     * @param metrics 指标实现
+     * @return 没有实现时返回 null，只有一个实现时直接返回该实现
+     */
+    public static ApiLoggingMetrics of(List<ApiLoggingMetrics> metrics) {
+        if (metrics == null || metrics.isEmpty()) {
+            return null;
+        }
+        return metrics.size() == 1 ? metrics.get(0) : new CompositeApiLoggingMetrics(metrics);
+    }
+
+    @Override
+    public void recordRequest(HandlerDescriptor handler, int statusCode, long processingTimeMs) {
+        for (ApiLoggingMetrics delegate : delegates) {
+            delegate.recordRequest(handler, statusCode, processingTimeMs);
+        }
+    }
+
+    @Override
+    public void recordStage(Stage stage, long nanos) {
+        for (ApiLoggingMetrics delegate : delegates) {
+            delegate.recordStage(stage, nanos);
+        }
+    }
+
+    @Override
+    public void recordOverhead(HandlerDescriptor handler, long nanos) {
+        for (ApiLoggingMetrics delegate : delegates) {
+            delegate.recordOverhead(handler, nanos);
+        }
+    }
+
+    @Override
+    public void recordOutcome(Outcome outcome) {
+        for (ApiLoggingMetrics delegate : delegates) {
+            delegate.recordOutcome(outcome);
+        }
+    }
+
+    @Override
+    public void recordSerializedBytes(int bytes) {
+        for (ApiLoggingMetrics delegate : delegates) {
+            delegate.recordSerializedBytes(bytes);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.mrbox.apilogging.metrics;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+import com.github.mrbox.apilogging.logger.AsyncApiLoggingLogger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <pre>
+ *     基于 Micrometer 的指标实现：
+ *      - api.logging.requests：按 Controller方法 (handler) 和状态码类别 (status: 2xx、4xx ...) 的请求耗时，
+ *        标签取值只有方法数 x 状态码类别数，不使用原始URI
+ *      - api.logging.stage：日志组件各阶段 (stage: uri_pattern、trigger、pre_filter、post_filter、client_ip、
+ *        request_headers、arguments、return_value、exception、record_conversion、publish) 的耗时
+ *      - api.logging.records：日志的处理结果 (outcome: published、filtered、sampled_out、rolled_up)
+ *      - api.logging.serialized：每条日志序列化后的字节数
+ *      - api.logging.async.dropped、api.logging.async.queue.depth：启用异步发布时队列丢弃的记录数和队列深度
+ *
+ *     全部指标在创建时或容器刷新后预先注册，请求处理时直接使用持有的指标对象：
+ *     Controller方法的耗时指标按 {@link HandlerDescriptor} 缓存在本实例中，2xx、4xx、5xx 在容器刷新后为每个方法预先注册，
+ *     其他状态码类别在第一次出现时注册。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class MicrometerApiLoggingMetrics implements ApiLoggingMetrics, ApplicationListener<ContextRefreshedEvent> {
+
+    static final String REQUESTS = "api.logging.requests";
+    static final String STAGE = "api.logging.stage";
+    static final String RECORDS = "api.logging.records";
+    static final String SERIALIZED = "api.logging.serialized";
+
+    private static final String[] STATUS_FAMILIES = {"1xx", "2xx", "3xx", "4xx", "5xx", "unknown"};
+    private static final int UNKNOWN_FAMILY = STATUS_FAMILIES.length - 1;
+    private static final int[] PRE_REGISTERED_FAMILIES = {1, 3, 4};
+
+    private final MeterRegistry registry;
+    private final ApiLoggingProperties properties;
+    private final Timer[] stageTimers;
+    private final Counter[] outcomeCounters;
+    private final DistributionSummary serializedBytes;
+    private final AtomicBoolean contextBound = new AtomicBoolean();
+
+    /**
+     * 按Controller方法缓存的耗时指标，描述信息全局唯一，按引用查找
+     */
+    private final ConcurrentMap<HandlerDescriptor, RouteTimers> routeTimers = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry   指标注册表
+     * @param properties 日志配置属性
+     */
+    public MicrometerApiLoggingMetrics(MeterRegistry registry, ApiLoggingProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+
+        Stage[] stages = Stage.values();
+        this.stageTimers = new Timer[stages.length];
+        for (Stage stage : stages) {
+            stageTimers[stage.ordinal()] = Timer.builder(STAGE)
+                    .description("API日志组件各阶段的耗时")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        Outcome[] outcomes = Outcome.values();
+        this.outcomeCounters = new Counter[outcomes.length];
+        for (Outcome outcome : outcomes) {
+            outcomeCounters[outcome.ordinal()] = Counter.builder(RECORDS)
+                    .description("API日志的处理结果")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        this.serializedBytes = DistributionSummary.builder(SERIALIZED)
+                .description("API日志序列化后的字节数")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void recordRequest(HandlerDescriptor handler, int statusCode, long processingTimeMs) {
+        if (!properties.current().getMetrics().isRouteTimers() || handler == null || processingTimeMs < 0) {
+            return;
+        }
+        routeTimers(handler).timer(statusFamily(statusCode)).record(processingTimeMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recordStage(Stage stage, long nanos) {
+        stageTimers[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordOutcome(Outcome outcome) {
+        outcomeCounters[outcome.ordinal()].increment();
+    }
+
+    @Override
+    public void recordSerializedBytes(int bytes) {
+        serializedBytes.record(bytes);
+    }
+
+    /**
+     * 容器刷新后为全部Controller方法预先注册耗时指标，并注册异步发布队列的指标
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!contextBound.compareAndSet(false, true)) {
+            return;
+        }
+        if (properties.current().getMetrics().isRouteTimers()) {
+            for (RequestMappingInfoHandlerMapping handlerMapping : event.getApplicationContext()
+                    .getBeansOfType(RequestMappingInfoHandlerMapping.class).values()) {
+                for (HandlerMethod handlerMethod : handlerMapping.getHandlerMethods().values()) {
+                    RouteTimers timers = routeTimers(HandlerDescriptor.of(handlerMethod.getBeanType(),
+                            handlerMethod.getMethod()));
+                    for (int family : PRE_REGISTERED_FAMILIES) {
+                        timers.timer(family);
+                    }
+                }
+            }
+        }
+        event.getApplicationContext().getBeanProvider(AsyncApiLoggingLogger.class).ifAvailable(this::bindAsyncLogger);
+    }
+
+    private void bindAsyncLogger(AsyncApiLoggingLogger asyncLogger) {
+        FunctionCounter.builder("api.logging.async.dropped", asyncLogger, AsyncApiLoggingLogger::getDroppedCount)
+                .description("异步发布队列已满时丢弃的日志数")
+                .register(registry);
+        Gauge.builder("api.logging.async.queue.depth", asyncLogger, AsyncApiLoggingLogger::getQueueDepth)
+                .description("异步发布队列中等待发布的日志数")
+                .register(registry);
+    }
+
+    /**
+     * @return 已缓存耗时指标的Controller方法数
+     */
+    int cachedRouteCount() {
+        return routeTimers.size();
+    }
+
+    private RouteTimers routeTimers(HandlerDescriptor handler) {
+        RouteTimers timers = routeTimers.get(handler);
+        if (timers == null) {
+            timers = routeTimers.computeIfAbsent(handler, h -> new RouteTimers(h.getHandlerName()));
+        }
+        return timers;
+    }
+
+    private static int statusFamily(int statusCode) {
+        int family = statusCode / 100;
+        return family >= 1 && family <= 5 ? family - 1 : UNKNOWN_FAMILY;
+    }
+
+    /**
+     * 单个Controller方法按状态码类别的耗时指标
+     */
+    private final class RouteTimers {
+        private final String handlerName;
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(STATUS_FAMILIES.length);
+
+        private RouteTimers(String handlerName) {
+            this.handlerName = handlerName;
+        }
+
+        private Timer timer(int family) {
+            Timer timer = timers.get(family);
+            if (timer == null) {
+                timer = Timer.builder(REQUESTS)
+                        .description("按Controller方法和状态码类别的请求处理耗时")
+                        .tag("handler", handlerName)
+                        .tag("status", STATUS_FAMILIES[family])
+                        .register(registry);
+                timers.set(family, timer);
+            }
+            return timer;
+        }
+    }
+}
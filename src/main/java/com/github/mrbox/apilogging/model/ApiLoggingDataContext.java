@@ -21,7 +21,29 @@ public class ApiLoggingDataContext {
      */
     private Object proceedResult;
 
+    /**
+     * 异常指纹，启用异常去重且请求有异常时设置
+     */
+    private String exceptionFingerprint;
+
+    /**
+     * 同一指纹的异常在当前窗口内已记录过足够多的完整堆栈，本次只记录指纹
+     */
+    private boolean exceptionSuppressed;
+
     public ApiLoggingDataContext(LogMode defaultMode) {
         this.effectiveLogMode = defaultMode;
     }
+
+    /**
+     * 重置上下文，供复用的上下文在下一次请求前调用
+     *
+     * @param defaultMode 默认日志模式
+     */
+    public void reset(LogMode defaultMode) {
+        this.effectiveLogMode = defaultMode;
+        this.proceedResult = null;
+        this.exceptionFingerprint = null;
+        this.exceptionSuppressed = false;
+    }
 }
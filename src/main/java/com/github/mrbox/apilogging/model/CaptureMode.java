@@ -0,0 +1,19 @@
+package com.github.mrbox.apilogging.model;
+
+/**
+ * 定义请求头和请求参数的采集时机
+ * @author Zwk
+ */
+public enum CaptureMode {
+    /**
+     * 延迟采集: 方法执行前只保留请求和参数的引用，确定最终日志模式为详细模式且未被过滤后才格式化。
+     * 精简日志和被过滤的请求不产生任何请求头、参数的序列化开销。
+     * 如果Controller方法会修改入参对象，日志中记录的是修改后的参数值。
+     */
+    LAZY,
+    /**
+     * 立即采集: 方法执行前即格式化请求头和请求参数，保证记录的是入参的原始快照，
+     * 代价是精简日志同样需要承担参数的序列化开销。
+     */
+    EAGER
+}
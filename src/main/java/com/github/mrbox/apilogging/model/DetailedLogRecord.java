@@ -22,5 +22,17 @@ import java.util.Map;
 public class DetailedLogRecord extends SimpleLogRecord {
     private Map<String, String> requestHeader; // 请求头
     private String requestParams; // 请求参数
+    private Long requestBytes; // 应用读取的请求体字节数，采集原始请求体时记录
     private String responseData; // 返回参数
+    private Long responseBytes; // 响应实际写出的字节数，从响应输出流采集返回值时记录
+
+    @Override
+    public void reset() {
+        super.reset();
+        this.requestHeader = null;
+        this.requestParams = null;
+        this.requestBytes = null;
+        this.responseData = null;
+        this.responseBytes = null;
+    }
 }
@@ -0,0 +1,28 @@
+package com.github.mrbox.apilogging.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 重复异常的汇总记录，每个去重窗口结束时按异常指纹发布，logMode 为 EXCEPTION_SUMMARY，requestTimestamp 为窗口开始时间。
+ *
+ * @author Zwk
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExceptionSummaryRecord extends SimpleLogRecord {
+
+    public static final String LOG_MODE = "EXCEPTION_SUMMARY";
+
+    private String exceptionType; // 异常类名
+    private String topFrame; // 栈顶帧
+    private long occurrences; // 窗口内的异常次数
+    private long suppressedCount; // 窗口内只记录指纹、未记录完整堆栈的次数
+    private long windowMs; // 窗口长度 (毫秒)
+}
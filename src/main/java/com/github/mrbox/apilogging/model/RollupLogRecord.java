@@ -0,0 +1,37 @@
+package com.github.mrbox.apilogging.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * 路由的汇总记录，每个汇总周期结束时按路由发布，logMode 为 ROLLUP，requestTimestamp 为周期开始时间，
+ * route、controllerHandler 为汇总的路由。
+ *
+ * @author Zwk
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RollupLogRecord extends SimpleLogRecord {
+
+    public static final String LOG_MODE = "ROLLUP";
+
+    private long windowMs; // 周期长度 (毫秒)
+    private long requestCount; // 周期内的请求数，包括逐条发布的错误和详细日志
+    private long errorCount; // 带有错误指示的请求数
+    private Map<String, Long> statusCounts; // 按状态码类别的请求数 (例如: "2xx": 120, "5xx": 3)
+    private long latencyMinMs; // 最小耗时
+    private long latencyMaxMs; // 最大耗时
+    private long latencySumMs; // 耗时总和
+    private long latencyP50Ms; // 耗时中位数
+    private long latencyP90Ms; // 耗时 P90
+    private long latencyP99Ms; // 耗时 P99
+    private String latencySketch; // 可合并的耗时直方图，见 LatencySketch#fromBase64
+}
@@ -2,8 +2,11 @@
 package com.github.mrbox.apilogging.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 /**
  * 日志精简模式的记录对象，含基本的请求信息。
@@ -14,15 +17,33 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class SimpleLogRecord {
+
+    /**
+     * 耗时、状态码、采样权重未设置时的取值，序列化时不输出
+     */
+    public static final int UNSET = -1;
+
     private String logMode;         // 日志模式 (SIMPLE 或 DETAILED)
     private String clientIp;        // 客户端ip
     private long requestTimestamp;  // 请求时间戳 (毫秒数)
-    private String uri;             // 请求URI
+    private String uri;             // 请求URI，分开设置查询参数时不含查询参数
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String uriQuery;        // 分开设置的查询参数，输出时拼接到 uri 之后
+    private String route;           // 路由模板 (例如: /orders/{id})
+    private String traceId;         // 链路追踪ID
+    private String spanId;          // 上游的spanId
     private String controllerHandler; // Controller类名#方法名
-    private Long processingTimeMs;  // 请求处理耗时 (毫秒)
-    private Integer statusCode;     // HTTP响应状态码
+    private long processingTimeMs = UNSET;  // 请求处理耗时 (毫秒)，以基本类型保存，未设置时为 UNSET
+    private int statusCode = UNSET;         // HTTP响应状态码，以基本类型保存，未设置时为 UNSET
     private String errorIndicator;  // 错误指示 (例如: "WARN:BusinessRuleException", "ERROR:NullPointerException", 或 null)
     private String exceptionStacktrace; // 异常堆栈信息
+    private String exceptionFingerprint; // 异常指纹 (异常类型+栈顶帧的哈希)，启用异常去重时记录
+    private double sampleWeight = UNSET;    // 采样权重，该记录代表的请求数，以基本类型保存，未启用采样时为 UNSET
+    private String streamStatus;    // 流式响应的结束状态 (COMPLETED、CANCELLED、TIMEOUT、ERROR)，非流式响应为空
+    private Long streamBytes;       // 流式响应写出的字节数
+    private Long streamEvents;      // 流式响应写出的事件数 (SSE为事件数，其他为数据块数)
+    private Long timeToFirstByteMs; // 流式响应写出第一个字节的耗时 (毫秒)
 
 
     public SimpleLogRecord(long requestTimestamp, String uri, String controllerHandler, String logMode) {
@@ -31,4 +52,182 @@ public class SimpleLogRecord {
         this.controllerHandler = controllerHandler;
         this.logMode = logMode;
     }
+
+    /**
+     * @return 请求URI，分开设置了查询参数时为 路径?查询参数
+     */
+    public String getUri() {
+        return uri != null && uriQuery != null ? uri + "?" + uriQuery : uri;
+    }
+
+    /**
+     * @param uri 完整的请求URI
+     */
+    public void setUri(String uri) {
+        this.uri = uri;
+        this.uriQuery = null;
+    }
+
+    /**
+     * 分别设置请求路径和查询参数，读取或序列化时才拼接，请求线程中不生成拼接后的字符串
+     *
+     * @param path  请求路径
+     * @param query 查询参数，为空时不拼接
+     */
+    public void setUri(String path, String query) {
+        this.uri = path;
+        this.uriQuery = query != null && !query.isEmpty() ? query : null;
+    }
+
+    /**
+     * @return 请求路径，通过 {@link #setUri(String)} 设置时为完整的请求URI
+     */
+    public String uriPath() {
+        return uri;
+    }
+
+    /**
+     * @return 分开设置的查询参数，没有时为 null
+     */
+    public String uriQuery() {
+        return uriQuery;
+    }
+
+    /**
+     * @return 请求处理耗时 (毫秒)，未设置时为 null
+     */
+    public Long getProcessingTimeMs() {
+        return processingTimeMs != UNSET ? processingTimeMs : null;
+    }
+
+    /**
+     * @param processingTimeMs 请求处理耗时 (毫秒)，基本类型参数，请求线程中不产生装箱
+     */
+    public void setProcessingTimeMs(long processingTimeMs) {
+        this.processingTimeMs = processingTimeMs;
+    }
+
+    /**
+     * @param processingTimeMs 请求处理耗时 (毫秒)，null 表示未设置
+     */
+    public void setProcessingTimeMs(Long processingTimeMs) {
+        this.processingTimeMs = processingTimeMs != null ? processingTimeMs : UNSET;
+    }
+
+    /**
+     * @return HTTP响应状态码，未设置时为 null
+     */
+    public Integer getStatusCode() {
+        return statusCode != UNSET ? statusCode : null;
+    }
+
+    /**
+     * @param statusCode HTTP响应状态码，{@link #UNSET} 表示未知
+     */
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @param statusCode HTTP响应状态码，null 表示未知
+     */
+    public void setStatusCode(Integer statusCode) {
+        this.statusCode = statusCode != null ? statusCode : UNSET;
+    }
+
+    /**
+     * @return 采样权重，未启用采样时为 null
+     */
+    public Double getSampleWeight() {
+        return sampleWeight != UNSET ? sampleWeight : null;
+    }
+
+    /**
+     * @param sampleWeight 采样权重，基本类型参数，请求线程中不产生装箱
+     */
+    public void setSampleWeight(double sampleWeight) {
+        this.sampleWeight = sampleWeight;
+    }
+
+    /**
+     * @param sampleWeight 采样权重，null 表示未启用采样
+     */
+    public void setSampleWeight(Double sampleWeight) {
+        this.sampleWeight = sampleWeight != null ? sampleWeight : UNSET;
+    }
+
+    /**
+     * @return 采样权重，未设置时为 {@link #UNSET}，读取时不产生装箱
+     */
+    public double sampleWeightValue() {
+        return sampleWeight;
+    }
+
+    /**
+     * @return 请求处理耗时 (毫秒)，未设置时为 {@link #UNSET}，读取时不产生装箱
+     */
+    public long processingTimeMsValue() {
+        return processingTimeMs;
+    }
+
+    /**
+     * @return HTTP响应状态码，未设置时为 {@link #UNSET}，读取时不产生装箱
+     */
+    public int statusCodeValue() {
+        return statusCode;
+    }
+
+    /**
+     * 复制另一条记录的精简日志字段，用于将工作记录转换为复用的精简记录
+     *
+     * @param source 来源记录
+     * @return 当前记录
+     */
+    public SimpleLogRecord copyFrom(SimpleLogRecord source) {
+        this.logMode = source.logMode;
+        this.clientIp = source.clientIp;
+        this.requestTimestamp = source.requestTimestamp;
+        this.uri = source.uri;
+        this.uriQuery = source.uriQuery;
+        this.route = source.route;
+        this.traceId = source.traceId;
+        this.spanId = source.spanId;
+        this.controllerHandler = source.controllerHandler;
+        this.processingTimeMs = source.processingTimeMs;
+        this.statusCode = source.statusCode;
+        this.errorIndicator = source.errorIndicator;
+        this.exceptionStacktrace = source.exceptionStacktrace;
+        this.exceptionFingerprint = source.exceptionFingerprint;
+        this.sampleWeight = source.sampleWeight;
+        this.streamStatus = source.streamStatus;
+        this.streamBytes = source.streamBytes;
+        this.streamEvents = source.streamEvents;
+        this.timeToFirstByteMs = source.timeToFirstByteMs;
+        return this;
+    }
+
+    /**
+     * 清空全部字段，供复用的记录在下一次请求前调用
+     */
+    public void reset() {
+        this.logMode = null;
+        this.clientIp = null;
+        this.requestTimestamp = 0L;
+        this.uri = null;
+        this.uriQuery = null;
+        this.route = null;
+        this.traceId = null;
+        this.spanId = null;
+        this.controllerHandler = null;
+        this.processingTimeMs = UNSET;
+        this.statusCode = UNSET;
+        this.errorIndicator = null;
+        this.exceptionStacktrace = null;
+        this.exceptionFingerprint = null;
+        this.sampleWeight = UNSET;
+        this.streamStatus = null;
+        this.streamBytes = null;
+        this.streamEvents = null;
+        this.timeToFirstByteMs = null;
+    }
 }
@@ -0,0 +1,274 @@
+package com.github.mrbox.apilogging.pattern;
+
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <pre>
+ *     编译后的Ant风格路径模式索引，语义与 {@link org.springframework.util.AntPathMatcher} 默认配置一致。
+ *
+ *     所有模式按路径段组织为一棵前缀树：普通段按字符串精确查找，含 ?、*、{变量} 的段编译为正则，
+ *     ** 段可匹配零个或多个路径段。匹配时请求路径只拆分一次，一次遍历即可判断是否命中任一模式，
+ *     开销与路径段数相关，而不再随模式数量线性增长。
+ *
+ *     实例创建后不可变，可在多线程间共享。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class PathPatternIndex {
+
+    private static final String PATH_SEPARATOR = "/";
+    private static final String DOUBLE_WILDCARD = "**";
+    private static final String SINGLE_WILDCARD = "*";
+
+    /**
+     * 与 AntPathMatcher.AntPathStringMatcher 一致的通配符识别规则
+     */
+    private static final Pattern GLOB_PATTERN = Pattern.compile("\\?|\\*|\\{((?:\\{[^/]+?\\}|[^/{}]|\\\\[{}])+?)\\}");
+    private static final String DEFAULT_VARIABLE_PATTERN = "((?s).*)";
+
+    private static final PathPatternIndex EMPTY = new PathPatternIndex(Collections.emptyList());
+
+    private final List<String> patterns;
+    private final boolean empty;
+
+    /**
+     * 以 / 开头的模式
+     */
+    private final Node absoluteRoot = new Node(false);
+
+    /**
+     * 不以 / 开头的模式
+     */
+    private final Node relativeRoot = new Node(false);
+
+    private PathPatternIndex(Collection<String> patterns) {
+        boolean compiled = false;
+        for (String pattern : new LinkedHashSet<>(patterns)) {
+            if (pattern != null) {
+                add(pattern);
+                compiled = true;
+            }
+        }
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+        this.empty = !compiled;
+    }
+
+    /**
+     * 编译路径模式
+     *
+     * @param patterns Ant风格的路径模式，可以为null
+     * @return 模式索引
+     */
+    public static PathPatternIndex compile(Collection<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return EMPTY;
+        }
+        return new PathPatternIndex(patterns);
+    }
+
+    /**
+     * @return 是否不包含任何模式
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @return 编译时传入的模式列表
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * 判断路径是否匹配任一模式
+     *
+     * @param path 请求路径
+     * @return 是否匹配
+     */
+    public boolean matches(String path) {
+        if (path == null || empty) {
+            return false;
+        }
+        Node root = path.startsWith(PATH_SEPARATOR) ? absoluteRoot : relativeRoot;
+        String[] segments = StringUtils.tokenizeToStringArray(path, PATH_SEPARATOR, false, true);
+        return matches(root, segments, 0, path.endsWith(PATH_SEPARATOR));
+    }
+
+    private boolean matches(Node node, String[] segments, int index, boolean pathEndsWithSeparator) {
+        if (index == segments.length) {
+            for (Terminal terminal : node.terminals) {
+                if (terminal.acceptsExhaustedPath(pathEndsWithSeparator)) {
+                    return true;
+                }
+            }
+            // 与AntPathMatcher一致：路径以 / 结尾时，模式末尾单独的 * 可匹配空段
+            if (pathEndsWithSeparator && node.singleWildcardChild != null) {
+                for (Terminal terminal : node.singleWildcardChild.terminals) {
+                    if (!terminal.hasDoubleWildcard) {
+                        return true;
+                    }
+                }
+            }
+            return node.doubleWildcardChild != null
+                    && matches(node.doubleWildcardChild, segments, index, pathEndsWithSeparator);
+        }
+
+        String segment = segments[index];
+
+        // ** 节点可以继续消费路径段
+        if (node.doubleWildcard && matches(node, segments, index + 1, pathEndsWithSeparator)) {
+            return true;
+        }
+
+        Node literalChild = node.literalChildren.get(segment);
+        if (literalChild != null && matches(literalChild, segments, index + 1, pathEndsWithSeparator)) {
+            return true;
+        }
+
+        for (WildcardEdge edge : node.wildcardChildren) {
+            if (edge.matcher.matcher(segment).matches()
+                    && matches(edge.child, segments, index + 1, pathEndsWithSeparator)) {
+                return true;
+            }
+        }
+
+        return node.doubleWildcardChild != null
+                && matches(node.doubleWildcardChild, segments, index, pathEndsWithSeparator);
+    }
+
+    private void add(String pattern) {
+        String[] segments = StringUtils.tokenizeToStringArray(pattern, PATH_SEPARATOR, false, true);
+        boolean hasDoubleWildcard = false;
+        Node node = pattern.startsWith(PATH_SEPARATOR) ? absoluteRoot : relativeRoot;
+        for (String segment : segments) {
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                hasDoubleWildcard = true;
+                if (node.doubleWildcardChild == null) {
+                    node.doubleWildcardChild = new Node(true);
+                }
+                node = node.doubleWildcardChild;
+                continue;
+            }
+
+            Pattern matcher = compileSegment(segment);
+            if (matcher == null) {
+                node = node.literalChildren.computeIfAbsent(segment, s -> new Node(false));
+                continue;
+            }
+
+            WildcardEdge existing = null;
+            for (WildcardEdge edge : node.wildcardChildren) {
+                if (edge.segment.equals(segment)) {
+                    existing = edge;
+                    break;
+                }
+            }
+            if (existing == null) {
+                existing = new WildcardEdge(segment, matcher, new Node(false));
+                node.wildcardChildren.add(existing);
+                if (SINGLE_WILDCARD.equals(segment)) {
+                    node.singleWildcardChild = existing.child;
+                }
+            }
+            node = existing.child;
+        }
+
+        node.terminals.add(new Terminal(hasDoubleWildcard, pattern.endsWith(PATH_SEPARATOR)));
+    }
+
+    /**
+     * 将含通配符的路径段编译为正则，普通段返回null
+     */
+    private static Pattern compileSegment(String segment) {
+        StringBuilder patternBuilder = new StringBuilder();
+        Matcher matcher = GLOB_PATTERN.matcher(segment);
+        int end = 0;
+        while (matcher.find()) {
+            patternBuilder.append(quote(segment, end, matcher.start()));
+            String match = matcher.group();
+            if ("?".equals(match)) {
+                patternBuilder.append('.');
+            } else if (SINGLE_WILDCARD.equals(match)) {
+                patternBuilder.append(".*");
+            } else if (match.startsWith("{") && match.endsWith("}")) {
+                int colonIdx = match.indexOf(':');
+                if (colonIdx == -1) {
+                    patternBuilder.append(DEFAULT_VARIABLE_PATTERN);
+                } else {
+                    patternBuilder.append('(').append(match, colonIdx + 1, match.length() - 1).append(')');
+                }
+            }
+            end = matcher.end();
+        }
+        if (end == 0) {
+            return null;
+        }
+        patternBuilder.append(quote(segment, end, segment.length()));
+        return Pattern.compile(patternBuilder.toString(), Pattern.DOTALL);
+    }
+
+    private static String quote(String s, int start, int end) {
+        if (start == end) {
+            return "";
+        }
+        return Pattern.quote(s.substring(start, end));
+    }
+
+    private static final class Node {
+        private final boolean doubleWildcard;
+        private final Map<String, Node> literalChildren = new HashMap<>();
+        private final List<WildcardEdge> wildcardChildren = new ArrayList<>();
+        private final List<Terminal> terminals = new ArrayList<>(1);
+        private Node doubleWildcardChild;
+        private Node singleWildcardChild;
+
+        private Node(boolean doubleWildcard) {
+            this.doubleWildcard = doubleWildcard;
+        }
+    }
+
+    private static final class WildcardEdge {
+        private final String segment;
+        private final Pattern matcher;
+        private final Node child;
+
+        private WildcardEdge(String segment, Pattern matcher, Node child) {
+            this.segment = segment;
+            this.matcher = matcher;
+            this.child = child;
+        }
+    }
+
+    /**
+     * 在当前节点结束的模式
+     */
+    private static final class Terminal {
+        private final boolean hasDoubleWildcard;
+        private final boolean endsWithSeparator;
+
+        private Terminal(boolean hasDoubleWildcard, boolean endsWithSeparator) {
+            this.hasDoubleWildcard = hasDoubleWildcard;
+            this.endsWithSeparator = endsWithSeparator;
+        }
+
+        /**
+         * 路径全部匹配完时是否接受，与AntPathMatcher对末尾 / 的处理一致：
+         * 含 ** 的模式忽略末尾 /，其余模式要求两者是否以 / 结尾相同
+         */
+        private boolean acceptsExhaustedPath(boolean pathEndsWithSeparator) {
+            return hasDoubleWildcard || endsWithSeparator == pathEndsWithSeparator;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.mrbox.apilogging.pattern;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *     按路由模板缓存 {@link PathPatternIndex} 的匹配结果。
+ *
+ *     路由模板（如 /orders/{id}）的数量在应用启动后基本固定，每个路由只需匹配一次，
+ *     之后同一路由的请求只需一次哈希查找。启动时可通过 {@link #warmUp} 预先计算已知路由的结果。
+ *     原始请求URI的取值不可枚举，不应使用本缓存。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class RouteMatchCache {
+
+    /**
+     * 缓存路由数上限，防止误用为原始URI缓存时无限增长
+     */
+    private static final int MAX_CACHED_ROUTES = 4096;
+
+    private final PathPatternIndex index;
+    private final ConcurrentMap<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    public RouteMatchCache(PathPatternIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * @param route 路由模板
+     * @return 路由模板是否匹配任一模式
+     */
+    public boolean matches(String route) {
+        if (index.isEmpty() || route == null) {
+            return false;
+        }
+        Boolean verdict = verdicts.get(route);
+        if (verdict == null) {
+            verdict = index.matches(route);
+            if (verdicts.size() < MAX_CACHED_ROUTES) {
+                verdicts.putIfAbsent(route, verdict);
+            }
+        }
+        return verdict;
+    }
+
+    /**
+     * 先匹配路由模板，未命中时再匹配原始请求URI，原始URI的匹配结果不缓存
+     *
+     * @param route             路由模板，请求未命中Controller映射时为 null
+     * @param uri               原始请求URI
+     * @param routeTemplateOnly 有路由模板时是否只匹配路由模板
+     * @return 是否匹配任一模式
+     */
+    public boolean matches(String route, String uri, boolean routeTemplateOnly) {
+        if (index.isEmpty()) {
+            return false;
+        }
+        if (route != null) {
+            if (matches(route)) {
+                return true;
+            }
+            if (routeTemplateOnly) {
+                return false;
+            }
+        }
+        return uri != null && index.matches(uri);
+    }
+
+    /**
+     * 预先计算路由模板的匹配结果
+     *
+     * @param routes 已知的路由模板
+     */
+    public void warmUp(Collection<String> routes) {
+        if (index.isEmpty() || routes == null) {
+            return;
+        }
+        for (String route : routes) {
+            matches(route);
+        }
+    }
+
+    /**
+     * @return 模式索引
+     */
+    public PathPatternIndex getIndex() {
+        return index;
+    }
+}
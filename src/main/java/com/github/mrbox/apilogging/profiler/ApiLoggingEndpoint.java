@@ -0,0 +1,35 @@
+package com.github.mrbox.apilogging.profiler;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * <pre>
+ *     日志组件自身开销的 actuator 端点：
+ *      - GET    /actuator/apilogging 查看各阶段和各Controller方法的开销
+ *      - DELETE /actuator/apilogging 清空已记录的开销
+ *     需要在 management.endpoints.web.exposure.include 中加入 apilogging 才能通过 HTTP 访问。
+ * </pre>
+ *
+ * @author Zwk
+ */
+@Endpoint(id = "apilogging")
+public class ApiLoggingEndpoint {
+
+    private final OverheadProfiler overheadProfiler;
+
+    public ApiLoggingEndpoint(OverheadProfiler overheadProfiler) {
+        this.overheadProfiler = overheadProfiler;
+    }
+
+    @ReadOperation
+    public OverheadProfiler.OverheadReport overhead() {
+        return overheadProfiler.report();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        overheadProfiler.reset();
+    }
+}
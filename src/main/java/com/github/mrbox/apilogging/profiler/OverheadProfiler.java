@@ -0,0 +1,145 @@
+package com.github.mrbox.apilogging.profiler;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+import com.github.mrbox.apilogging.metrics.ApiLoggingMetrics;
+import com.github.mrbox.apilogging.rollup.AtomicLatencySketch;
+import com.github.mrbox.apilogging.rollup.LatencySketch;
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *     日志组件自身开销的分析：
+ *      - 按阶段 ({@link ApiLoggingMetrics.Stage}) 记录每次执行的耗时，包括后台格式化线程中的阶段
+ *      - 按 Controller方法 记录每个请求在请求线程中各阶段耗时之和，即日志组件给该请求增加的延迟
+ *
+ *     耗时以纳秒记录到 {@link AtomicLatencySketch}，每次记录只做几次原子累加，不加锁、不分配对象，
+ *     相对误差约 3%。Controller方法数受 maxHandlers 限制，超出后新方法只计入阶段耗时。
+ *     结果通过 {@link #report()} 或 actuator 端点 /actuator/apilogging 查看。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class OverheadProfiler implements ApiLoggingMetrics {
+
+    private final ApiLoggingProperties properties;
+    private final AtomicLatencySketch[] stages;
+    private final ConcurrentMap<HandlerDescriptor, AtomicLatencySketch> handlers = new ConcurrentHashMap<>();
+    private volatile long since = System.currentTimeMillis();
+
+    public OverheadProfiler(ApiLoggingProperties properties) {
+        this.properties = properties;
+        Stage[] values = Stage.values();
+        this.stages = new AtomicLatencySketch[values.length];
+        for (int i = 0; i < values.length; i++) {
+            stages[i] = new AtomicLatencySketch();
+        }
+    }
+
+    @Override
+    public void recordStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordOverhead(HandlerDescriptor handler, long nanos) {
+        if (handler == null) {
+            return;
+        }
+        AtomicLatencySketch sketch = handlers.get(handler);
+        if (sketch == null) {
+            if (handlers.size() >= properties.current().getProfiler().getMaxHandlers()) {
+                return;
+            }
+            sketch = handlers.computeIfAbsent(handler, key -> new AtomicLatencySketch());
+        }
+        sketch.record(nanos);
+    }
+
+    @Override
+    public void recordRequest(HandlerDescriptor handler, int statusCode, long processingTimeMs) {
+    }
+
+    @Override
+    public void recordOutcome(Outcome outcome) {
+    }
+
+    @Override
+    public void recordSerializedBytes(int bytes) {
+    }
+
+    /**
+     * @return 各阶段和各Controller方法的开销统计，没有记录的项不输出
+     */
+    public OverheadReport report() {
+        OverheadReport report = new OverheadReport();
+        report.setSince(since);
+        Map<String, OverheadStats> stageStats = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            LatencySketch sketch = stages[stage.ordinal()].snapshot();
+            if (sketch.getCount() > 0) {
+                stageStats.put(stage.name().toLowerCase(Locale.ROOT), OverheadStats.of(sketch));
+            }
+        }
+        report.setStages(stageStats);
+        Map<String, OverheadStats> handlerStats = new TreeMap<>();
+        for (Map.Entry<HandlerDescriptor, AtomicLatencySketch> entry : handlers.entrySet()) {
+            LatencySketch sketch = entry.getValue().snapshot();
+            if (sketch.getCount() > 0) {
+                handlerStats.put(entry.getKey().getHandlerName(), OverheadStats.of(sketch));
+            }
+        }
+        report.setHandlers(handlerStats);
+        return report;
+    }
+
+    /**
+     * 清空已记录的开销，重新开始统计
+     */
+    public void reset() {
+        for (AtomicLatencySketch sketch : stages) {
+            sketch.reset();
+        }
+        handlers.clear();
+        since = System.currentTimeMillis();
+    }
+
+    /**
+     * 开销统计报告
+     */
+    @Data
+    public static class OverheadReport {
+        private long since; // 开始统计的时间戳 (毫秒)
+        private Map<String, OverheadStats> stages; // 按阶段的单次耗时
+        private Map<String, OverheadStats> handlers; // 按Controller方法的每个请求的总开销
+    }
+
+    /**
+     * 单项的耗时统计，单位为纳秒
+     */
+    @Data
+    public static class OverheadStats {
+        private long count;
+        private long meanNs;
+        private long p50Ns;
+        private long p99Ns;
+        private long maxNs;
+
+        static OverheadStats of(LatencySketch sketch) {
+            OverheadStats stats = new OverheadStats();
+            stats.setCount(sketch.getCount());
+            stats.setMeanNs(sketch.getSum() / sketch.getCount());
+            stats.setP50Ns(sketch.valueAtPercentile(50D));
+            stats.setP99Ns(sketch.valueAtPercentile(99D));
+            stats.setMaxNs(sketch.getMax());
+            return stats;
+        }
+    }
+}
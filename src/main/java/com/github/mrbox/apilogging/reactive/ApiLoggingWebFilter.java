@@ -0,0 +1,446 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
+import com.github.mrbox.apilogging.filter.Filter;
+import com.github.mrbox.apilogging.formatter.LogContentFormatter;
+import com.github.mrbox.apilogging.logger.ApiLoggingLogger;
+import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+import com.github.mrbox.apilogging.model.DetailedLogRecord;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import com.github.mrbox.apilogging.sampling.LogSampler;
+import com.github.mrbox.apilogging.trace.TraceContext;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <pre>
+ *     WebFlux 应用的请求日志引擎，与 Servlet 应用的 {@link com.github.mrbox.apilogging.ApiLoggingAspect} 对应：
+ *      - 请求进入处理链前执行强制详细日志模式匹配、触发器和 {@link ReactivePreFilter}
+ *      - 处理链发出完成、错误或取消信号后计算耗时，再次执行触发器和 {@link ReactivePostFilter}，确定最终日志模式
+ *      - 日志上下文通过 Reactor Context 传递，业务代码可通过 {@link #currentContext()} 获取，不使用 ThreadLocal
+ *
+ *     请求体、响应体在流经时按 maxPayloadLength 复制前若干字节，不缓冲完整内容、不改变背压；
+ *     请求体只在进入处理链前已确定为详细模式时采集，响应体只在写出时已确定为详细模式时采集。
+ *
+ *     事件循环线程上只做采集，日志的格式化和发布在 publishScheduler 上执行，不阻塞事件循环线程。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class ApiLoggingWebFilter implements WebFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiLoggingWebFilter.class);
+
+    /**
+     * Reactor Context 中日志上下文的key
+     */
+    public static final Class<ApiLoggingDataContext> CONTEXT_KEY = ApiLoggingDataContext.class;
+
+    /**
+     * 默认顺序，尽早进入以便计时覆盖整个处理链
+     */
+    public static final int DEFAULT_ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+    /**
+     * 处理链被取消（通常是客户端断开）时的错误指示
+     */
+    static final String CANCELLED_INDICATOR = "WARN:CANCELLED";
+
+    private final ApiLoggingProperties properties;
+    private final List<ReactiveDetailedLogTrigger> detailedLogTriggers;
+    private final List<ReactivePreFilter> preFilters;
+    private final List<ReactivePostFilter> postFilters;
+    private final ApiLoggingLogger logger;
+    private final LogContentFormatter logContentFormatter;
+    private final LogSampler logSampler;
+    private final Scheduler publishScheduler;
+
+    /**
+     * @param logSampler       精简日志采样器，为 null 时不采样
+     * @param publishScheduler 格式化和发布日志的调度器
+     */
+    public ApiLoggingWebFilter(ApiLoggingProperties properties,
+                               List<ReactiveDetailedLogTrigger> detailedLogTriggers,
+                               List<ReactivePreFilter> preFilters,
+                               List<ReactivePostFilter> postFilters,
+                               ApiLoggingLogger logger,
+                               LogContentFormatter logContentFormatter,
+                               LogSampler logSampler,
+                               Scheduler publishScheduler) {
+        this.properties = properties;
+        this.detailedLogTriggers = Optional.ofNullable(detailedLogTriggers).orElse(Collections.emptyList());
+        this.preFilters = sorted(preFilters);
+        this.postFilters = sorted(postFilters);
+        this.logger = logger;
+        this.logContentFormatter = logContentFormatter;
+        this.logSampler = logSampler;
+        this.publishScheduler = publishScheduler;
+    }
+
+    /**
+     * 获取当前请求的日志上下文，可在业务代码中修改生效的日志模式
+     *
+     * @return 日志上下文，不在日志记录范围内时为空
+     */
+    public static Mono<ApiLoggingDataContext> currentContext() {
+        return Mono.deferContextual(view -> Mono.justOrEmpty(view.getOrEmpty(CONTEXT_KEY)));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // 整个请求只读取一次配置快照，处理期间配置刷新不影响当前请求
+        CompiledApiLoggingConfig config = properties.compiled();
+        ApiLoggingProperties current = config.getProperties();
+        if (!current.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        ReactiveApiLoggingRequest request = new ReactiveApiLoggingRequest(exchange);
+        ApiLoggingDataContext loggingDataContext = new ApiLoggingDataContext(current.getLogMode());
+
+        boolean triggered = determineEffectiveLogModeByUriPattern(request, loggingDataContext, config)
+                || determineEffectiveLogModeByTriggers(request, null, loggingDataContext, config);
+        if (!triggered && shouldSkipByPreFilters(request)) {
+            return chain.filter(exchange);
+        }
+
+        TraceContext traceContext = TraceContext.resolve(request::getHeader, current.getTraceIdHeader());
+        double traceWeight = logSampler != null && !triggered ? logSampler.sampleTrace(traceContext) : 1D;
+
+        int maxPayloadLength = current.getMaxPayloadLength();
+        boolean captureRequestBody = maxPayloadLength != 0 && traceWeight != LogSampler.DROPPED
+                && loggingDataContext.getEffectiveLogMode() == LogMode.DETAILED
+                && !config.isExcludedArgumentContentType(request.getHeader(HttpHeaders.CONTENT_TYPE));
+        BodyCapture requestBody = captureRequestBody ? new BodyCapture(maxPayloadLength) : null;
+        // 响应体在写出时才确定是否需要复制，精简日志的请求不分配
+        boolean captureResponseBody = maxPayloadLength != 0 && traceWeight != LogSampler.DROPPED;
+
+        ReactiveLogState state = new ReactiveLogState(config, request, loggingDataContext, traceContext, traceWeight,
+                triggered, requestBody, captureResponseBody);
+        ServerWebExchange decorated = decorate(exchange, state, config);
+
+        // 在终止信号向下游传递之前记录，计时截止到完成信号
+        return chain.filter(decorated)
+                .doOnSuccess(v -> complete(state, null, false))
+                .doOnError(e -> complete(state, e, false))
+                .doOnCancel(() -> complete(state, null, true))
+                .contextWrite(Context.of(CONTEXT_KEY, loggingDataContext));
+    }
+
+    /**
+     * 处理链发出终止信号后确定最终日志模式，在发出信号的线程中只做判断，格式化和发布交由调度器
+     *
+     * @param cancelled 处理链是否被取消，取消的请求不按默认的 200 记录，并带有 {@link #CANCELLED_INDICATOR}
+     */
+    private void complete(ReactiveLogState state, Throwable exception, boolean cancelled) {
+        try {
+            state.exception = exception;
+            long processingTimeMs = (System.nanoTime() - state.startNanos) / 1_000_000L;
+            CompiledApiLoggingConfig config = state.config;
+            ReactiveApiLoggingRequest request = state.request;
+
+            boolean triggered = state.triggered
+                    || determineEffectiveLogModeByUriPattern(request, state.loggingDataContext, config)
+                    || determineEffectiveLogModeByTriggers(request, state.exception, state.loggingDataContext, config);
+            if (!triggered && shouldSkipByPostFilters(request, state.exception, state.loggingDataContext,
+                    processingTimeMs)) {
+                return;
+            }
+
+            LogMode finalMode = state.loggingDataContext.getEffectiveLogMode();
+            Integer statusCode = resolveStatusCode(request, state.exception);
+            if (statusCode == null && state.exception == null && !cancelled) {
+                // 未显式设置状态码时按默认的 200 提交
+                statusCode = 200;
+            }
+
+            DetailedLogRecord logRecord = new DetailedLogRecord();
+            logRecord.setLogMode(finalMode.name());
+            logRecord.setClientIp(request.getClientIp());
+            logRecord.setRequestTimestamp(state.requestTimestamp);
+            String query = request.getQuery();
+            logRecord.setUri(query == null || query.isEmpty() ? request.getPath() : request.getPath() + "?" + query);
+            logRecord.setRoute(request.getRoute());
+            if (state.traceContext != null) {
+                logRecord.setTraceId(state.traceContext.getTraceId());
+                logRecord.setSpanId(state.traceContext.getSpanId());
+            }
+            logRecord.setControllerHandler(request.getHandlerName());
+            logRecord.setProcessingTimeMs(processingTimeMs);
+            logRecord.setStatusCode(statusCode != null ? statusCode : SimpleLogRecord.UNSET);
+            String errorIndicator = resolveErrorIndicator(statusCode, state.exception);
+            logRecord.setErrorIndicator(errorIndicator == null && cancelled ? CANCELLED_INDICATOR : errorIndicator);
+
+            if (logSampler != null) {
+                double sampleWeight = logSampler.sample(logRecord, state.traceWeight);
+                if (sampleWeight == LogSampler.DROPPED) {
+                    return;
+                }
+                logRecord.setSampleWeight(sampleWeight);
+            }
+
+            // 请求头在事件循环线程上复制，请求结束后原对象可能被回收
+            if (finalMode == LogMode.DETAILED) {
+                logRecord.setRequestHeader(formatRequestHeaders(request, config));
+            }
+            publishScheduler.schedule(() -> formatAndPublish(logRecord, finalMode, state));
+        } catch (Throwable e) {
+            log.error("请求日志记录失败，异常信息:{}", e.getMessage(), e);
+        }
+    }
+
+    private void formatAndPublish(DetailedLogRecord logRecord, LogMode finalMode, ReactiveLogState state) {
+        try {
+            if (state.exception != null) {
+                logRecord.setExceptionStacktrace(
+                        logContentFormatter.formatException(state.exception, finalMode, state.config.getProperties()));
+            }
+            if (finalMode == LogMode.DETAILED) {
+                if (state.requestBody != null) {
+                    logRecord.setRequestParams(state.requestBody.getContent());
+                }
+                if (state.exception == null && state.responseBody != null) {
+                    logRecord.setResponseData(state.responseBody.getContent());
+                }
+                logger.publish(logRecord);
+            } else {
+                logger.publish(new SimpleLogRecord().copyFrom(logRecord));
+            }
+        } catch (Throwable e) {
+            log.error("请求日志记录失败，异常信息:{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 包装请求和响应，在数据缓冲区流经时复制内容
+     */
+    private ServerWebExchange decorate(ServerWebExchange exchange, ReactiveLogState state,
+                                       CompiledApiLoggingConfig config) {
+        if (state.requestBody == null && !state.captureResponseBody) {
+            return exchange;
+        }
+        ServerWebExchange.Builder builder = exchange.mutate();
+        if (state.requestBody != null) {
+            builder.request(new ServerHttpRequestDecorator(exchange.getRequest()) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return super.getBody().doOnNext(state.requestBody::append);
+                }
+            });
+        }
+        if (state.captureResponseBody) {
+            ServerHttpResponse response = exchange.getResponse();
+            builder.response(new ServerHttpResponseDecorator(response) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    MediaType contentType = getHeaders().getContentType();
+                    if (contentType != null && config.isExcludedArgumentContentType(contentType.toString())) {
+                        return super.writeWith(body);
+                    }
+                    BodyCapture responseBody = responseBodyCapture(state, config);
+                    if (responseBody == null) {
+                        return super.writeWith(body);
+                    }
+                    return super.writeWith(Flux.from(body).doOnNext(responseBody::append));
+                }
+
+                @Override
+                public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                    return writeWith(Flux.from(body).flatMapSequential(p -> p));
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    /**
+     * 写出响应时状态码和业务代码对日志模式的修改已经确定，此时为详细日志分配响应体的复制缓冲区。
+     * 写出之后才出现的异常不记录响应体，不影响结果。
+     *
+     * @return 响应体的复制缓冲区，不需要复制时为 null
+     */
+    private BodyCapture responseBodyCapture(ReactiveLogState state, CompiledApiLoggingConfig config) {
+        if (state.responseBody == null) {
+            boolean detailed = state.loggingDataContext.getEffectiveLogMode() == LogMode.DETAILED
+                    || determineEffectiveLogModeByTriggers(state.request, null, state.loggingDataContext, config);
+            if (detailed) {
+                state.responseBody = new BodyCapture(config.getProperties().getMaxPayloadLength());
+            }
+        }
+        return state.responseBody;
+    }
+
+    private boolean determineEffectiveLogModeByUriPattern(ReactiveApiLoggingRequest request,
+                                                          ApiLoggingDataContext context,
+                                                          CompiledApiLoggingConfig config) {
+        if (config.getForceDetailedPatternIndex().isEmpty()) {
+            return false;
+        }
+        boolean matched = config.isForceDetailed(request.getRoute(), request.getPath());
+        if (matched) {
+            context.setEffectiveLogMode(LogMode.DETAILED);
+        }
+        return matched;
+    }
+
+    private boolean determineEffectiveLogModeByTriggers(ReactiveApiLoggingRequest request, Throwable exception,
+                                                        ApiLoggingDataContext context,
+                                                        CompiledApiLoggingConfig config) {
+        try {
+            for (ReactiveDetailedLogTrigger trigger : detailedLogTriggers) {
+                if (config.getTriggers().contains(trigger.name())
+                        && trigger.shouldLogDetailed(request, exception, context, config.getProperties())) {
+                    context.setEffectiveLogMode(LogMode.DETAILED);
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("自动切换日志模式异常:{}", e.getMessage(), e);
+        }
+        return false;
+    }
+
+    private boolean shouldSkipByPreFilters(ReactiveApiLoggingRequest request) {
+        for (ReactivePreFilter filter : preFilters) {
+            try {
+                if (filter.shouldSkipLogging(request)) {
+                    log.debug("请求被前置过滤器 {} 过滤，跳过日志记录", filter.name());
+                    return true;
+                }
+            } catch (Exception e) {
+                log.warn("前置过滤器 {} 执行异常: {}", filter.name(), e.getMessage(), e);
+            }
+        }
+        return false;
+    }
+
+    private boolean shouldSkipByPostFilters(ReactiveApiLoggingRequest request, Throwable exception,
+                                            ApiLoggingDataContext context, long processingTimeMs) {
+        for (ReactivePostFilter filter : postFilters) {
+            try {
+                if (filter.shouldSkipLogging(request, exception, context, processingTimeMs)) {
+                    log.debug("请求被后置过滤器 {} 过滤，跳过日志记录", filter.name());
+                    return true;
+                }
+            } catch (Exception e) {
+                log.warn("后置过滤器 {} 执行异常: {}", filter.name(), e.getMessage(), e);
+            }
+        }
+        return false;
+    }
+
+    private Map<String, String> formatRequestHeaders(ReactiveApiLoggingRequest request,
+                                                     CompiledApiLoggingConfig config) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : request.getHeaders().entrySet()) {
+            String headerName = entry.getKey();
+            if (config.isSensitiveHeader(headerName)) {
+                headers.put(headerName, config.getProperties().getSensitive().getMask());
+            } else if (!entry.getValue().isEmpty()) {
+                headers.put(headerName, entry.getValue().get(0));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * 错误信号发出时异常尚未被 WebExceptionHandler 转换为响应，按异常推断状态码
+     *
+     * @param request   响应式请求
+     * @param exception 处理过程中的异常
+     * @return 状态码，未设置时为 null
+     */
+    static Integer resolveStatusCode(ReactiveApiLoggingRequest request, Throwable exception) {
+        if (exception instanceof ResponseStatusException) {
+            return ((ResponseStatusException) exception).getRawStatusCode();
+        }
+        Integer statusCode = request.getStatusCode();
+        if (exception != null && (statusCode == null || statusCode < 400)) {
+            return 500;
+        }
+        return statusCode;
+    }
+
+    private static String resolveErrorIndicator(Integer statusCode, Throwable exception) {
+        if (exception != null) {
+            String errorType = exception.getClass().getSimpleName();
+            return statusCode != null && statusCode >= 500 ? "ERROR:" + errorType : "WARN:" + errorType;
+        }
+        if (statusCode != null && statusCode >= 400) {
+            return statusCode >= 500 ? "ERROR_HTTP_STATUS_" + statusCode : "WARN_HTTP_STATUS_" + statusCode;
+        }
+        return null;
+    }
+
+    private static <T extends Filter> List<T> sorted(List<T> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> sortedFilters = new ArrayList<>(filters);
+        sortedFilters.sort(Comparator.comparingInt(Filter::getOrder));
+        return Collections.unmodifiableList(sortedFilters);
+    }
+
+    @Override
+    public int getOrder() {
+        return DEFAULT_ORDER;
+    }
+
+    /**
+     * 单个请求的日志状态，随处理链的信号传递，不依赖线程
+     */
+    private static final class ReactiveLogState {
+        private final CompiledApiLoggingConfig config;
+        private final ReactiveApiLoggingRequest request;
+        private final ApiLoggingDataContext loggingDataContext;
+        private final TraceContext traceContext;
+        private final double traceWeight;
+        private final boolean triggered;
+        private final BodyCapture requestBody;
+        private final boolean captureResponseBody;
+        private BodyCapture responseBody;
+        private final long requestTimestamp = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private Throwable exception;
+
+        private ReactiveLogState(CompiledApiLoggingConfig config, ReactiveApiLoggingRequest request,
+                                 ApiLoggingDataContext loggingDataContext, TraceContext traceContext,
+                                 double traceWeight, boolean triggered,
+                                 BodyCapture requestBody, boolean captureResponseBody) {
+            this.config = config;
+            this.request = request;
+            this.loggingDataContext = loggingDataContext;
+            this.traceContext = traceContext;
+            this.traceWeight = traceWeight;
+            this.triggered = triggered;
+            this.requestBody = requestBody;
+            this.captureResponseBody = captureResponseBody;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.mrbox.apilogging.reactive;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <pre>
+ *     请求体、响应体流经时复制前若干字节，不改变原数据缓冲区的读写位置，也不持有缓冲区引用。
+ *     超出上限的部分只计数不复制，内存占用不超过上限。
+ * </pre>
+ *
+ * @author Zwk
+ */
+final class BodyCapture {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int limit;
+    private byte[] bytes;
+    private int size;
+    private boolean truncated;
+
+    /**
+     * @param limit 最多复制的字节数，小于 0 表示不限制
+     */
+    BodyCapture(int limit) {
+        this.limit = limit;
+        this.bytes = new byte[limit >= 0 ? Math.min(limit, INITIAL_CAPACITY) : INITIAL_CAPACITY];
+    }
+
+    /**
+     * 复制数据缓冲区中可读的字节，同一请求的数据缓冲区按顺序到达
+     */
+    synchronized void append(DataBuffer buffer) {
+        int readable = buffer.readableByteCount();
+        int count = limit >= 0 ? Math.min(readable, limit - size) : readable;
+        if (count < readable) {
+            truncated = true;
+        }
+        if (count <= 0) {
+            return;
+        }
+        if (size + count > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(size + count, bytes.length * 2));
+        }
+        ByteBuffer view = buffer.asByteBuffer(buffer.readPosition(), count);
+        view.get(bytes, size, count);
+        size += count;
+    }
+
+    /**
+     * @return 已复制的内容，按 UTF-8 解码，超出上限时追加截断标记
+     */
+    synchronized String getContent() {
+        if (size == 0 && !truncated) {
+            return null;
+        }
+        String content = new String(bytes, 0, size, StandardCharsets.UTF_8);
+        return truncated ? content + "...[已截断]" : content;
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.ApiLoggingAutoConfiguration;
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.ApiLoggingConfigRefresher;
+import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
+import com.github.mrbox.apilogging.formatter.LogContentFormatter;
+import com.github.mrbox.apilogging.logger.ApiLoggingLogger;
+import com.github.mrbox.apilogging.logger.AsyncApiLoggingLogger;
+import com.github.mrbox.apilogging.logger.DefaultJsonLogger;
+import com.github.mrbox.apilogging.sampling.LogSampler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.web.server.WebFilter;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * 日志组件在 WebFlux 应用中的自动配置类，注册 {@link ApiLoggingWebFilter}。
+ *
+ * @author Zwk
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnClass(WebFilter.class)
+@EnableConfigurationProperties(ApiLoggingProperties.class)
+@ConditionalOnProperty(prefix = ApiLoggingAutoConfiguration.PREFIX, name = "enabled", havingValue = "true")
+@Import(ApiLoggingAutoConfiguration.EnvironmentChangeRefreshConfiguration.class)
+public class ReactiveApiLoggingAutoConfiguration {
+
+    private final ApiLoggingProperties properties;
+
+    public ReactiveApiLoggingAutoConfiguration(ApiLoggingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ApiLoggingLogger apiLoggingLogger(@Autowired(required = false) ObjectMapper objectMapper) {
+        return new DefaultJsonLogger(objectMapper);
+    }
+
+    /**
+     * 异步发布装饰器，包装实际的日志发布器
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = ApiLoggingAutoConfiguration.PREFIX, name = "async.enabled", havingValue = "true")
+    public AsyncApiLoggingLogger asyncApiLoggingLogger(ApiLoggingLogger apiLoggingLogger) {
+        return new AsyncApiLoggingLogger(apiLoggingLogger, properties.getAsync());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public LogContentFormatter logContentFormatter(@Autowired(required = false) ObjectMapper objectMapper) {
+        return new DefaultLogContentFormatter(objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @Conditional(ApiLoggingAutoConfiguration.SamplingCondition.class)
+    public LogSampler logSampler() {
+        return new LogSampler(properties);
+    }
+
+    /**
+     * 不传入 {@link com.github.mrbox.apilogging.handler.RouteRegistry}：路由模板注册表从 Spring MVC 的
+     * RequestMappingInfoHandlerMapping 收集路由，WebFlux 应用中不存在该映射，强制详细日志模式在每个请求中按路由匹配；
+     * 响应式过滤器的结果不缓存，也不需要 FilterManager
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ApiLoggingConfigRefresher apiLoggingConfigRefresher(Environment environment) {
+        return new ApiLoggingConfigRefresher(properties, environment);
+    }
+
+    // --- 触发器 Beans ---
+    @Bean
+    @ConditionalOnMissingBean
+    public ReactiveHeaderDetailedLogTrigger reactiveHeaderDetailedLogTrigger() {
+        return new ReactiveHeaderDetailedLogTrigger();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReactiveHttpStatusCodeDetailedLogTrigger reactiveHttpStatusCodeDetailedLogTrigger() {
+        return new ReactiveHttpStatusCodeDetailedLogTrigger();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReactiveExceptionDetailedLogTrigger reactiveExceptionDetailedLogTrigger() {
+        return new ReactiveExceptionDetailedLogTrigger();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ApiLoggingWebFilter apiLoggingWebFilter(
+            List<ReactiveDetailedLogTrigger> detailedLogTriggers,
+            @Autowired(required = false) List<ReactivePreFilter> preFilters,
+            @Autowired(required = false) List<ReactivePostFilter> postFilters,
+            ApiLoggingLogger apiLoggingLogger,
+            LogContentFormatter logContentFormatter,
+            ObjectProvider<LogSampler> logSampler) {
+
+        return new ApiLoggingWebFilter(properties, detailedLogTriggers, preFilters, postFilters, apiLoggingLogger,
+                logContentFormatter, logSampler.getIfAvailable(), Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+
+import java.net.InetSocketAddress;
+
+/**
+ * <pre>
+ *     响应式请求的只读视图，供 {@link ReactivePreFilter}、{@link ReactivePostFilter}、
+ *     {@link ReactiveDetailedLogTrigger} 使用，与 Servlet 版本的 HttpServletRequest 对应。
+ *
+ *     路由模板、Controller方法在请求经过 HandlerMapping 后才可用，前置过滤器中为 null。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class ReactiveApiLoggingRequest {
+
+    private static final String UNKNOWN_IP = "unknown";
+
+    private final ServerWebExchange exchange;
+
+    public ReactiveApiLoggingRequest(ServerWebExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    /**
+     * @return 原始的 ServerWebExchange
+     */
+    public ServerWebExchange getExchange() {
+        return exchange;
+    }
+
+    /**
+     * @return 请求方法
+     */
+    public String getMethod() {
+        return exchange.getRequest().getMethodValue();
+    }
+
+    /**
+     * @return 原始请求路径，不含查询字符串
+     */
+    public String getPath() {
+        return exchange.getRequest().getPath().value();
+    }
+
+    /**
+     * @return 原始查询字符串，没有时为 null
+     */
+    public String getQuery() {
+        return exchange.getRequest().getURI().getRawQuery();
+    }
+
+    /**
+     * @param name 请求头名称，不区分大小写
+     * @return 请求头的第一个值
+     */
+    public String getHeader(String name) {
+        return exchange.getRequest().getHeaders().getFirst(name);
+    }
+
+    /**
+     * @return 全部请求头，只读
+     */
+    public HttpHeaders getHeaders() {
+        return exchange.getRequest().getHeaders();
+    }
+
+    /**
+     * @return 命中的路由模板，如 /orders/{id}，尚未经过 HandlerMapping 时为 null
+     */
+    public String getRoute() {
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern instanceof PathPattern) {
+            return ((PathPattern) pattern).getPatternString();
+        }
+        return pattern != null ? pattern.toString() : null;
+    }
+
+    /**
+     * @return 命中的Controller方法，尚未经过 HandlerMapping 或不是注解Controller时为 null
+     */
+    public HandlerMethod getHandlerMethod() {
+        Object handler = exchange.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        return handler instanceof HandlerMethod ? (HandlerMethod) handler : null;
+    }
+
+    /**
+     * @return "类名#方法名"，不是注解Controller时为 null
+     */
+    public String getHandlerName() {
+        HandlerMethod handlerMethod = getHandlerMethod();
+        return handlerMethod != null
+                ? HandlerDescriptor.of(handlerMethod.getBeanType(), handlerMethod.getMethod()).getHandlerName() : null;
+    }
+
+    /**
+     * @return 响应状态码，尚未设置时为 null
+     */
+    public Integer getStatusCode() {
+        return exchange.getResponse().getRawStatusCode();
+    }
+
+    /**
+     * @return 客户端IP，规则与 Servlet 版本一致
+     */
+    public String getClientIp() {
+        HttpHeaders headers = getHeaders();
+        String ip = headers.getFirst("X-Forwarded-For");
+        if (ip == null || ip.isEmpty() || UNKNOWN_IP.equalsIgnoreCase(ip)) {
+            ip = headers.getFirst("Proxy-Client-IP");
+        }
+        if (ip == null || ip.isEmpty() || UNKNOWN_IP.equalsIgnoreCase(ip)) {
+            ip = headers.getFirst("WL-Proxy-Client-IP");
+        }
+        if (ip == null || ip.isEmpty() || UNKNOWN_IP.equalsIgnoreCase(ip)) {
+            ip = headers.getFirst("HTTP_CLIENT_IP");
+        }
+        if (ip == null || ip.isEmpty() || UNKNOWN_IP.equalsIgnoreCase(ip)) {
+            ip = headers.getFirst("HTTP_X_FORWARDED_FOR");
+        }
+        if (ip == null || ip.isEmpty() || UNKNOWN_IP.equalsIgnoreCase(ip)) {
+            ServerHttpRequest request = exchange.getRequest();
+            InetSocketAddress remoteAddress = request.getRemoteAddress();
+            ip = remoteAddress != null && remoteAddress.getAddress() != null
+                    ? remoteAddress.getAddress().getHostAddress() : UNKNOWN_IP;
+        }
+        return ip;
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+
+/**
+ * 响应式请求的详细日志触发器接口，与 {@link com.github.mrbox.apilogging.trigger.DetailedLogTrigger} 对应，
+ * 同样通过 {@link #name()} 受 triggers 配置控制。
+ *
+ * @author Zwk
+ */
+public interface ReactiveDetailedLogTrigger {
+    /**
+     * @return 触发器名称
+     */
+    String name();
+
+    /**
+     * 判断是否应为当前请求触发详细日志记录，在请求进入处理链前和完成信号后各调用一次，不能阻塞。
+     *
+     * @param request            响应式请求
+     * @param exception          处理过程中发生的异常，请求进入处理链前为 null
+     * @param loggingDataContext 共享上下文
+     * @param properties         日志配置属性
+     * @return 如果应激活详细日志记录，则返回 true，否则返回 false
+     */
+    boolean shouldLogDetailed(ReactiveApiLoggingRequest request,
+                              Throwable exception,
+                              ApiLoggingDataContext loggingDataContext,
+                              ApiLoggingProperties properties);
+}
@@ -0,0 +1,25 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+
+/**
+ * 基于异常的响应式详细日志触发器，当处理链发出错误信号时触发详细日志。
+ *
+ * @author Zwk
+ */
+public class ReactiveExceptionDetailedLogTrigger implements ReactiveDetailedLogTrigger {
+
+    @Override
+    public String name() {
+        return "exception";
+    }
+
+    @Override
+    public boolean shouldLogDetailed(ReactiveApiLoggingRequest request,
+                                     Throwable exception,
+                                     ApiLoggingDataContext loggingDataContext,
+                                     ApiLoggingProperties properties) {
+        return exception != null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
+import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+import org.springframework.util.StringUtils;
+
+/**
+ * 基于HTTP请求头的响应式详细日志触发器，当请求头中包含特定值时触发详细日志。
+ *
+ * @author Zwk
+ */
+public class ReactiveHeaderDetailedLogTrigger implements ReactiveDetailedLogTrigger {
+
+    @Override
+    public String name() {
+        return "header";
+    }
+
+    @Override
+    public boolean shouldLogDetailed(ReactiveApiLoggingRequest request,
+                                     Throwable exception,
+                                     ApiLoggingDataContext loggingDataContext,
+                                     ApiLoggingProperties properties) {
+        CompiledApiLoggingConfig config = properties.compiled();
+        if (StringUtils.hasText(config.getTriggerHeaderName())) {
+            String headerValue = request.getHeader(config.getTriggerHeaderName());
+            return headerValue != null && headerValue.equalsIgnoreCase(config.getTriggerHeaderValue());
+        }
+        return false;
+    }
+}
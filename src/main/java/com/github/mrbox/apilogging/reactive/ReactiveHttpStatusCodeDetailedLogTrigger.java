@@ -0,0 +1,31 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
+import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+
+/**
+ * 基于HTTP响应状态码的响应式详细日志触发器，当返回特定错误状态码时触发详细日志。
+ *
+ * @author Zwk
+ */
+public class ReactiveHttpStatusCodeDetailedLogTrigger implements ReactiveDetailedLogTrigger {
+
+    @Override
+    public String name() {
+        return "statusCode";
+    }
+
+    @Override
+    public boolean shouldLogDetailed(ReactiveApiLoggingRequest request,
+                                     Throwable exception,
+                                     ApiLoggingDataContext loggingDataContext,
+                                     ApiLoggingProperties properties) {
+        CompiledApiLoggingConfig config = properties.compiled();
+        if (config.isDetailedStatusCodesEmpty()) {
+            return false;
+        }
+        Integer status = ApiLoggingWebFilter.resolveStatusCode(request, exception);
+        return status != null && config.isDetailedStatusCode(status);
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.filter.Filter;
+import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+
+/**
+ * 响应式后置过滤器接口，与 {@link com.github.mrbox.apilogging.filter.PostFilter} 对应，在处理链发出完成或错误信号后调用。
+ *
+ * <p>此时可以获取路由模板、Controller方法和响应状态码；在发出信号的线程中执行，不能阻塞。</p>
+ *
+ * @author Zwk
+ */
+@FunctionalInterface
+public interface ReactivePostFilter extends Filter {
+
+    /**
+     * 判断是否应该跳过日志记录
+     *
+     * @param request            响应式请求
+     * @param exception          处理过程中的异常，可能为null
+     * @param loggingDataContext 日志上下文数据
+     * @param processingTimeMs   从进入过滤器到完成信号的耗时（毫秒）
+     * @return true表示跳过日志记录，false表示继续处理
+     */
+    boolean shouldSkipLogging(ReactiveApiLoggingRequest request,
+                              Throwable exception,
+                              ApiLoggingDataContext loggingDataContext,
+                              long processingTimeMs);
+}
@@ -0,0 +1,22 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.filter.Filter;
+
+/**
+ * 响应式前置过滤器接口，与 {@link com.github.mrbox.apilogging.filter.PreFilter} 对应，在请求进入处理链前调用。
+ *
+ * <p>此时请求尚未经过 HandlerMapping，只能基于URI、请求头等请求信息判断；在事件循环线程中执行，不能阻塞。</p>
+ *
+ * @author Zwk
+ */
+@FunctionalInterface
+public interface ReactivePreFilter extends Filter {
+
+    /**
+     * 判断是否应该跳过日志记录
+     *
+     * @param request 响应式请求
+     * @return true表示跳过日志记录，false表示继续处理
+     */
+    boolean shouldSkipLogging(ReactiveApiLoggingRequest request);
+}
@@ -0,0 +1,77 @@
+package com.github.mrbox.apilogging.rollup;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <pre>
+ *     可并发记录的 {@link LatencySketch}：桶划分相同，每次记录只做原子累加，不加锁、不分配对象。
+ *     {@link #snapshot()} 生成不可并发修改的直方图用于计算分位数、编码和合并；
+ *     读取与记录并发时各统计值之间可能相差正在进行的几次记录。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class AtomicLatencySketch {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(LatencySketch.BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值，负数按 0 记录
+     *
+     * @param value 值，单位由调用方决定
+     */
+    public void record(long value) {
+        long v = Math.max(0L, value);
+        buckets.incrementAndGet(LatencySketch.bucketIndex(v));
+        sum.addAndGet(v);
+        long currentMin;
+        while (v < (currentMin = min.get()) && !min.compareAndSet(currentMin, v)) {
+            // 重试
+        }
+        long currentMax;
+        while (v > (currentMax = max.get()) && !max.compareAndSet(currentMax, v)) {
+            // 重试
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * @return 已记录的值的个数
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return 当前记录的直方图副本
+     */
+    public LatencySketch snapshot() {
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < LatencySketch.BUCKET_COUNT; i++) {
+            long bucketCount = buckets.get(i);
+            if (bucketCount != 0) {
+                sketch.addBucket(i, bucketCount);
+            }
+        }
+        sketch.setStats(count.get(), sum.get(), min.get(), max.get());
+        return sketch;
+    }
+
+    /**
+     * 清空记录，与记录并发时可能保留部分正在进行的记录
+     */
+    public void reset() {
+        count.set(0L);
+        sum.set(0L);
+        min.set(Long.MAX_VALUE);
+        max.set(0L);
+        for (int i = 0; i < LatencySketch.BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.github.mrbox.apilogging.rollup;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * <pre>
+ *     可合并的耗时直方图（毫秒）：
+ *      - 0~31 毫秒每个值一个桶；之后每个 2 的幂区间均分为 32 个桶，相对误差不超过 1/32（约 3%）
+ *      - 超过 2^32 毫秒的值计入最后一个桶
+ *      - 桶的划分固定，不同节点、不同周期的直方图直接按桶相加即可合并，合并后的分位数与直接记录全部值一致
+ *
+ *     可通过 Java 序列化，或 {@link #toBase64()} / {@link #fromBase64(String)} 编码为紧凑的字符串，
+ *     汇总记录中的 latencySketch 字段即为该编码。本类不是线程安全的，并发记录见 {@link RollupAggregator}。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class LatencySketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 31;
+
+    /**
+     * 桶数：精确桶 + 每个 2 的幂区间的 32 个桶
+     */
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final byte ENCODING_VERSION = 1;
+
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public LatencySketch() {
+        this.counts = new long[BUCKET_COUNT];
+    }
+
+    /**
+     * 记录一个耗时，负数按 0 记录
+     *
+     * @param valueMs 耗时（毫秒）
+     */
+    public void record(long valueMs) {
+        long value = Math.max(0L, valueMs);
+        counts[bucketIndex(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 合并另一个直方图
+     *
+     * @param other 要合并的直方图
+     * @return 当前直方图
+     */
+    public LatencySketch merge(LatencySketch other) {
+        if (other == null || other.count == 0) {
+            return this;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * @param percentile 分位数，取值 0~100
+     * @return 该分位数所在桶的上界，不超过记录的最大值；没有记录时返回 0
+     */
+    public long valueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0L;
+        }
+        double p = Math.max(0D, Math.min(100D, percentile));
+        long rank = Math.max(1L, (long) Math.ceil(p / 100D * count));
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, bucketUpperBound(i)));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return 最小值，没有记录时返回 0
+     */
+    public long getMin() {
+        return count == 0 ? 0L : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * <pre>
+     * 编码为 Base64 字符串（URL 安全，无填充）：
+     * 版本号，count、sum、min、max，非空桶数，之后每个非空桶为 与上一非空桶的下标差、计数，整数均为变长编码。
+     * </pre>
+     */
+    public String toBase64() {
+        int nonEmpty = 0;
+        for (long c : counts) {
+            if (c != 0) {
+                nonEmpty++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 10 * 5 + nonEmpty * 12);
+        buffer.put(ENCODING_VERSION);
+        putVarLong(buffer, count);
+        putVarLong(buffer, sum);
+        putVarLong(buffer, getMin());
+        putVarLong(buffer, max);
+        putVarLong(buffer, nonEmpty);
+        int previous = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] != 0) {
+                putVarLong(buffer, i - previous);
+                putVarLong(buffer, counts[i]);
+                previous = i;
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    /**
+     * 解码 {@link #toBase64()} 的结果
+     *
+     * @param encoded 编码后的字符串
+     * @return 直方图
+     * @throws IllegalArgumentException 编码格式不正确
+     */
+    public static LatencySketch fromBase64(String encoded) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(encoded));
+            if (buffer.get() != ENCODING_VERSION) {
+                throw new IllegalArgumentException("不支持的直方图编码版本");
+            }
+            LatencySketch sketch = new LatencySketch();
+            sketch.setStats(getVarLong(buffer), getVarLong(buffer), getVarLong(buffer), getVarLong(buffer));
+            long nonEmpty = getVarLong(buffer);
+            int index = 0;
+            for (long i = 0; i < nonEmpty; i++) {
+                index += (int) getVarLong(buffer);
+                sketch.counts[index] = getVarLong(buffer);
+            }
+            return sketch;
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            throw new IllegalArgumentException("直方图编码格式不正确", e);
+        }
+    }
+
+    /**
+     * @return 耗时所在桶的下标
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(value));
+        if (exponent == MAX_EXPONENT && value >= (1L << (MAX_EXPONENT + 1))) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return 桶内的最大耗时
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * 按桶累加计数，供并发累加器在周期结束时生成直方图
+     */
+    void addBucket(int index, long bucketCount) {
+        counts[index] += bucketCount;
+    }
+
+    /**
+     * 设置按桶累加之外的统计值
+     */
+    void setStats(long count, long sum, long min, long max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = count == 0 ? Long.MAX_VALUE : min;
+        this.max = max;
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long result = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("直方图编码格式不正确");
+    }
+}
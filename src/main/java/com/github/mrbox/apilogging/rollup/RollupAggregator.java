@@ -0,0 +1,263 @@
+package com.github.mrbox.apilogging.rollup;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.logger.ApiLoggingLogger;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.model.RollupLogRecord;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import com.github.mrbox.apilogging.pattern.RouteMatchCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <pre>
+ *     精简日志的按路由汇总：
+ *      - 路由优先使用 Controller方法，无 Controller方法时使用路由模板，同一路由模板的不同请求方法分别汇总
+ *      - 每条记录累加到路由当前周期的请求数、错误数、状态码类别计数和耗时直方图 ({@link LatencySketch})
+ *      - 没有错误指示的精简日志只累加不发布；带有错误指示的记录和详细日志累加后仍逐条发布
+ *      - 每个周期结束时为有请求的路由发布一条 {@link RollupLogRecord}
+ *
+ *     请求线程只做原子累加，不加锁：每个路由持有当前周期的累加窗口，周期结束时替换为空窗口，
+ *     等待仍在写入旧窗口的线程完成后再读取，写入线程发现窗口已被替换时改写新窗口，记录不会丢失也不会重复。
+ *     routes 配置从当前配置快照读取，刷新后立即生效，不再匹配的路由在下个周期起不再有汇总记录。
+ *     路由数受 maxRoutes 限制，超出后新路由的记录逐条发布。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class RollupAggregator implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupAggregator.class);
+
+    private static final String[] STATUS_FAMILIES = {"1xx", "2xx", "3xx", "4xx", "5xx", "unknown"};
+    private static final int UNKNOWN_FAMILY = STATUS_FAMILIES.length - 1;
+
+    /**
+     * 关闭时等待进行中的周期发布完成的最长时间（秒）
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final ApiLoggingProperties properties;
+    private final ApiLoggingLogger logger;
+    private final ConcurrentMap<String, RouteAccumulator> accumulators = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile long windowStart = System.currentTimeMillis();
+
+    /**
+     * @param properties 日志配置属性
+     * @param logger     发布汇总记录的发布器
+     */
+    public RollupAggregator(ApiLoggingProperties properties, ApiLoggingLogger logger) {
+        this.properties = properties;
+        this.logger = logger;
+        long intervalMs = TimeUnit.SECONDS.toMillis(Math.max(1, properties.getRollup().getIntervalSeconds()));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-logging-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(this::flushSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 累加一条日志记录
+     *
+     * @param record 已确定日志模式、状态码、错误指示和处理耗时的日志记录
+     * @return 记录是否已被汇总，为 true 时不需要再逐条发布
+     */
+    public boolean record(SimpleLogRecord record) {
+        String routeKey = record.getControllerHandler() != null ? record.getControllerHandler() : record.getRoute();
+        if (routeKey == null) {
+            return false;
+        }
+        RouteMatchCache routes = properties.compiled().getRollupRoutes();
+        if (!routes.getIndex().isEmpty()
+                && !routes.matches(record.getRoute() != null ? record.getRoute() : record.getControllerHandler())) {
+            return false;
+        }
+        RouteAccumulator accumulator = accumulators.get(routeKey);
+        if (accumulator == null) {
+            if (accumulators.size() >= properties.current().getRollup().getMaxRoutes()) {
+                return false;
+            }
+            accumulator = accumulators.computeIfAbsent(routeKey,
+                    key -> new RouteAccumulator(record.getRoute(), record.getControllerHandler()));
+        }
+        accumulator.record(record.processingTimeMsValue(), record.statusCodeValue(), record.getErrorIndicator() != null);
+        return record.getErrorIndicator() == null && !LogMode.DETAILED.name().equals(record.getLogMode());
+    }
+
+    /**
+     * 结束当前周期：为有请求的路由发布汇总记录
+     */
+    public void flush() {
+        long start = this.windowStart;
+        long now = System.currentTimeMillis();
+        this.windowStart = now;
+        for (RouteAccumulator accumulator : accumulators.values()) {
+            RollupLogRecord record = accumulator.rollover(start, now - start);
+            if (record != null) {
+                logger.publish(record);
+            }
+        }
+    }
+
+    /**
+     * @return 当前汇总的路由数
+     */
+    public int getRouteCount() {
+        return accumulators.size();
+    }
+
+    /**
+     * 停止周期发布并等待进行中的发布完成后，发布最后一个周期。
+     * 窗口的替换和读取只允许发布线程执行，不等待会与进行中的发布同时访问窗口
+     */
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("api-logging 汇总记录发布未在 {} 秒内完成，放弃最后一个周期的汇总记录", SHUTDOWN_TIMEOUT_SECONDS);
+                scheduler.shutdownNow();
+                return;
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        flushSafely();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            log.warn("api-logging 汇总记录发布失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private static int statusFamily(int statusCode) {
+        int family = statusCode / 100;
+        return family >= 1 && family <= 5 ? family - 1 : UNKNOWN_FAMILY;
+    }
+
+    /**
+     * 单个路由的累加状态
+     */
+    private static final class RouteAccumulator {
+        private final String route;
+        private final String controllerHandler;
+        private volatile Window current = new Window();
+
+        /**
+         * 上个周期读取完成后清空的窗口，只由发布线程访问，下个周期直接复用
+         */
+        private Window spare = new Window();
+
+        private RouteAccumulator(String route, String controllerHandler) {
+            this.route = route;
+            this.controllerHandler = controllerHandler;
+        }
+
+        private void record(long processingTimeMs, int statusCode, boolean error) {
+            while (true) {
+                Window window = current;
+                window.writers.incrementAndGet();
+                if (window == current) {
+                    window.add(processingTimeMs, statusCode, error);
+                    window.writers.decrementAndGet();
+                    return;
+                }
+                // 窗口已被替换，发布线程可能已经读取，改写新窗口
+                window.writers.decrementAndGet();
+            }
+        }
+
+        /**
+         * 替换当前窗口，等待写入完成后生成汇总记录
+         *
+         * @return 汇总记录，周期内没有请求时返回 null
+         */
+        private RollupLogRecord rollover(long start, long windowMs) {
+            Window retired = current;
+            current = spare;
+            while (retired.writers.get() != 0) {
+                Thread.yield();
+            }
+            RollupLogRecord record = retired.latency.getCount() > 0 ? retired.toRecord(this, start, windowMs) : null;
+            retired.reset();
+            spare = retired;
+            return record;
+        }
+    }
+
+    /**
+     * 一个周期的累加值
+     */
+    private static final class Window {
+        private final AtomicInteger writers = new AtomicInteger();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLongArray statusFamilies = new AtomicLongArray(STATUS_FAMILIES.length);
+        private final AtomicLatencySketch latency = new AtomicLatencySketch();
+
+        private void add(long processingTimeMs, int statusCode, boolean error) {
+            statusFamilies.incrementAndGet(statusFamily(statusCode));
+            if (error) {
+                errors.incrementAndGet();
+            }
+            latency.record(processingTimeMs);
+        }
+
+        private RollupLogRecord toRecord(RouteAccumulator accumulator, long start, long windowMs) {
+            LatencySketch sketch = latency.snapshot();
+
+            Map<String, Long> statusCounts = new LinkedHashMap<>();
+            for (int i = 0; i < STATUS_FAMILIES.length; i++) {
+                long familyCount = statusFamilies.get(i);
+                if (familyCount != 0) {
+                    statusCounts.put(STATUS_FAMILIES[i], familyCount);
+                }
+            }
+
+            RollupLogRecord record = new RollupLogRecord();
+            record.setLogMode(RollupLogRecord.LOG_MODE);
+            record.setRequestTimestamp(start);
+            record.setRoute(accumulator.route);
+            record.setControllerHandler(accumulator.controllerHandler);
+            record.setWindowMs(windowMs);
+            record.setRequestCount(sketch.getCount());
+            record.setErrorCount(errors.get());
+            record.setStatusCounts(statusCounts);
+            record.setLatencyMinMs(sketch.getMin());
+            record.setLatencyMaxMs(sketch.getMax());
+            record.setLatencySumMs(sketch.getSum());
+            record.setLatencyP50Ms(sketch.valueAtPercentile(50D));
+            record.setLatencyP90Ms(sketch.valueAtPercentile(90D));
+            record.setLatencyP99Ms(sketch.valueAtPercentile(99D));
+            record.setLatencySketch(sketch.toBase64());
+            return record;
+        }
+
+        private void reset() {
+            errors.set(0L);
+            for (int i = 0; i < STATUS_FAMILIES.length; i++) {
+                statusFamilies.set(i, 0L);
+            }
+            latency.reset();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.github.mrbox.apilogging.sampling;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import com.github.mrbox.apilogging.pattern.PathPatternIndex;
+import com.github.mrbox.apilogging.trace.TraceContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ *     精简日志的按路由采样。
+ *
+ *     以下记录始终保留，不参与采样，权重为 1：
+ *      - 带有错误指示（异常、4xx/5xx 状态码）的记录
+ *      - 触发了详细模式的记录
+ *      - 处理耗时不小于慢请求阈值的记录
+ *
+ *     按 traceId 的一致性采样由 sampling.trace.enabled 单独启用，不依赖 sampling.enabled。
+ *     方法执行前先按 {@link #sampleTrace} 决定是否保留整条链路：
+ *     优先使用上游传递的采样标记，否则按 traceId 的哈希值与采样率比较，同样配置的各服务对同一链路结果相同。
+ *     被丢弃的请求不再采集参数，但上述始终保留的记录仍然保留。
+ *
+ *     启用 sampling.enabled 时，其余记录先按采样率随机保留，再经过每个路由独立的令牌桶限流。
+ *     带有 traceId 的记录已由链路作出决定，不再按路由的采样率随机丢弃（采样率为 0 的路由仍全部丢弃）；
+ *     令牌桶限流按各实例的流量独立进行，会丢弃已被链路保留的记录，启用限流的路由不再保证链路一致。
+ *     令牌桶以单个 AtomicLong 记录理论到达时间（GCRA），通过 CAS 无锁更新；统计计数使用分段的 LongAdder。
+ *
+ *     保留的记录带有采样权重，表示该记录代表的请求数：采样率（含按 traceId 哈希的采样率）的倒数，
+ *     乘以上次保留后被限流丢弃的记录数加一。由上游采样标记决定的部分不计入权重。
+ *     下游按权重求和即可还原请求总数。
+ *
+ *     路由优先使用路由模板，无路由模板时使用 Controller方法，不使用取值不可枚举的原始URI。
+ *     配置快照刷新后按新配置重建采样规则，令牌桶状态随之重置；刷新后停用采样时所有记录保留，权重为 1。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class LogSampler {
+
+    /**
+     * 记录被丢弃时返回的权重
+     */
+    public static final double DROPPED = 0D;
+
+    private static final double KEPT_UNSAMPLED = 1D;
+
+    private final ApiLoggingProperties properties;
+    private volatile Rules rules;
+
+    private final LongAdder sampledCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder bypassedCount = new LongAdder();
+
+    public LogSampler(ApiLoggingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @return 当前配置是否启用按 traceId 的一致性采样，未启用时不需要在方法执行前解析链路追踪上下文
+     */
+    public boolean isTraceSamplingEnabled() {
+        return getRules().traceEnabled;
+    }
+
+    /**
+     * 方法执行前按 traceId 作出一致性采样决定
+     *
+     * @param traceContext 链路追踪上下文，可以为 null
+     * @return 链路采样权重，{@link #DROPPED} 表示丢弃，未启用或请求没有 traceId 时返回 1
+     */
+    public double sampleTrace(TraceContext traceContext) {
+        Rules currentRules = getRules();
+        if (!currentRules.traceEnabled || traceContext == null) {
+            return KEPT_UNSAMPLED;
+        }
+        if (currentRules.respectSampledFlag && traceContext.getSampled() != null) {
+            return traceContext.getSampled() ? KEPT_UNSAMPLED : DROPPED;
+        }
+        if (currentRules.traceRate >= 1D) {
+            return KEPT_UNSAMPLED;
+        }
+        double position = (traceHash(traceContext.getTraceId()) >>> 11) * 0x1.0p-53;
+        return position < currentRules.traceRate ? 1D / currentRules.traceRate : DROPPED;
+    }
+
+    /**
+     * 判断是否保留日志记录
+     *
+     * @param record 已确定日志模式、状态码、错误指示和处理耗时的日志记录
+     * @return 采样权重，{@link #DROPPED} 表示丢弃
+     */
+    public double sample(SimpleLogRecord record) {
+        return sample(record, KEPT_UNSAMPLED);
+    }
+
+    /**
+     * 判断是否保留日志记录
+     *
+     * @param record      已确定日志模式、状态码、错误指示和处理耗时的日志记录
+     * @param traceWeight {@link #sampleTrace} 的结果
+     * @return 采样权重，{@link #DROPPED} 表示丢弃，当前配置未启用任何采样时返回 1
+     */
+    public double sample(SimpleLogRecord record, double traceWeight) {
+        Rules currentRules = getRules();
+        if (!currentRules.enabled && !currentRules.traceEnabled) {
+            return KEPT_UNSAMPLED;
+        }
+        if (isAlwaysKept(record, currentRules.slowThresholdMs)) {
+            bypassedCount.increment();
+            return KEPT_UNSAMPLED;
+        }
+        if (traceWeight == DROPPED) {
+            droppedCount.increment();
+            return DROPPED;
+        }
+
+        if (!currentRules.enabled) {
+            // 只启用了按 traceId 的一致性采样
+            sampledCount.increment();
+            return traceWeight;
+        }
+
+        // 已由链路作出决定的记录再随机丢弃，各服务对同一链路的结果就不再一致
+        boolean traceDecided = currentRules.traceEnabled && record.getTraceId() != null;
+        RouteState state = currentRules.stateOf(routeKey(record));
+        double weight = state.sample(!traceDecided);
+        if (weight == DROPPED) {
+            droppedCount.increment();
+        } else {
+            sampledCount.increment();
+        }
+        return weight * traceWeight;
+    }
+
+    /**
+     * @return 参与采样并被保留的记录数
+     */
+    public long getSampledCount() {
+        return sampledCount.sum();
+    }
+
+    /**
+     * @return 被采样丢弃的记录数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * @return 不参与采样直接保留的记录数（错误、详细模式、慢请求）
+     */
+    public long getBypassedCount() {
+        return bypassedCount.sum();
+    }
+
+    private static boolean isAlwaysKept(SimpleLogRecord record, long slowThresholdMs) {
+        if (record.getErrorIndicator() != null || LogMode.DETAILED.name().equals(record.getLogMode())) {
+            return true;
+        }
+        // 以基本类型读取，避免装箱
+        long processingTimeMs = record.processingTimeMsValue();
+        return slowThresholdMs >= 0 && processingTimeMs != SimpleLogRecord.UNSET && processingTimeMs >= slowThresholdMs;
+    }
+
+    /**
+     * <pre>
+     * traceId 的哈希值，与 JVM 无关，各服务对同一 traceId 的计算结果相同。
+     * 十六进制的 traceId 取低 64 位，其他格式使用 FNV-1a，再经过 MurmurHash3 的 fmix64 打散。
+     * </pre>
+     */
+    static long traceHash(String traceId) {
+        long hash;
+        int length = traceId.length();
+        if (length >= 16 && isHex(traceId, length - 16)) {
+            hash = Long.parseUnsignedLong(traceId.substring(length - 16), 16);
+        } else {
+            hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < length; i++) {
+                hash ^= traceId.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static boolean isHex(String value, int start) {
+        for (int i = start; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String routeKey(SimpleLogRecord record) {
+        if (record.getRoute() != null) {
+            return record.getRoute();
+        }
+        return record.getControllerHandler() != null ? record.getControllerHandler() : "";
+    }
+
+    /**
+     * 配置快照变化后重建采样规则
+     */
+    private Rules getRules() {
+        CompiledApiLoggingConfig config = properties.compiled();
+        Rules current = this.rules;
+        if (current == null || current.config != config) {
+            current = new Rules(config, config.getProperties().getSampling());
+            this.rules = current;
+        }
+        return current;
+    }
+
+    /**
+     * 按某一配置快照编译的采样规则，以及各路由的采样状态
+     */
+    private static final class Rules {
+        private final CompiledApiLoggingConfig config;
+        private final boolean enabled;
+        private final long slowThresholdMs;
+        private final boolean traceEnabled;
+        private final double traceRate;
+        private final boolean respectSampledFlag;
+        private final double defaultRate;
+        private final int defaultRatePerSecond;
+        private final List<RouteRule> routeRules;
+        private final ConcurrentMap<String, RouteState> states = new ConcurrentHashMap<>();
+
+        private Rules(CompiledApiLoggingConfig config, ApiLoggingProperties.Sampling sampling) {
+            this.config = config;
+            this.enabled = sampling.isEnabled();
+            this.slowThresholdMs = sampling.getSlowThresholdMs();
+            ApiLoggingProperties.TraceSampling traceSampling = sampling.getTrace();
+            this.traceEnabled = traceSampling != null && traceSampling.isEnabled();
+            this.traceRate = traceSampling != null ? Math.max(0D, Math.min(1D, traceSampling.getRate())) : 1D;
+            this.respectSampledFlag = traceSampling != null && traceSampling.isRespectSampledFlag();
+            this.defaultRate = sampling.getRate();
+            this.defaultRatePerSecond = sampling.getRatePerSecond();
+            List<RouteRule> rules = new ArrayList<>();
+            if (sampling.getRoutes() != null) {
+                for (Map.Entry<String, ApiLoggingProperties.RouteSampling> entry : sampling.getRoutes().entrySet()) {
+                    if (entry.getKey() != null && entry.getValue() != null) {
+                        rules.add(new RouteRule(entry.getKey(), entry.getValue()));
+                    }
+                }
+            }
+            this.routeRules = Collections.unmodifiableList(rules);
+        }
+
+        private RouteState stateOf(String routeKey) {
+            RouteState state = states.get(routeKey);
+            if (state == null) {
+                state = states.computeIfAbsent(routeKey, this::createState);
+            }
+            return state;
+        }
+
+        /**
+         * 按配置顺序使用第一个匹配的路由规则，未配置的项使用默认值
+         */
+        private RouteState createState(String routeKey) {
+            for (RouteRule rule : routeRules) {
+                if (rule.pattern.matches(routeKey)) {
+                    ApiLoggingProperties.RouteSampling routeSampling = rule.sampling;
+                    return new RouteState(
+                            routeSampling.getRate() != null ? routeSampling.getRate() : defaultRate,
+                            routeSampling.getRatePerSecond() != null
+                                    ? routeSampling.getRatePerSecond() : defaultRatePerSecond);
+                }
+            }
+            return new RouteState(defaultRate, defaultRatePerSecond);
+        }
+    }
+
+    private static final class RouteRule {
+        private final PathPatternIndex pattern;
+        private final ApiLoggingProperties.RouteSampling sampling;
+
+        private RouteRule(String pattern, ApiLoggingProperties.RouteSampling sampling) {
+            this.pattern = PathPatternIndex.compile(Collections.singletonList(pattern));
+            this.sampling = sampling;
+        }
+    }
+
+    /**
+     * 单个路由的采样状态
+     */
+    private static final class RouteState {
+        private static final long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final double rate;
+        private final double rateWeight;
+
+        /**
+         * 令牌桶参数：每个令牌的间隔和允许的突发量，间隔 <=0 表示不限流
+         */
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final AtomicLong theoreticalArrivalNanos;
+
+        /**
+         * 上次保留后被限流丢弃的记录数
+         */
+        private final AtomicLong throttledSinceLastKept = new AtomicLong();
+
+        private RouteState(double rate, int ratePerSecond) {
+            this.rate = Math.max(0D, Math.min(1D, rate));
+            this.rateWeight = this.rate > 0D ? 1D / this.rate : 0D;
+            if (ratePerSecond > 0) {
+                this.emissionIntervalNanos = Math.max(1L, ONE_SECOND_NANOS / ratePerSecond);
+                // 允许一秒内的突发
+                this.burstToleranceNanos = ONE_SECOND_NANOS - emissionIntervalNanos;
+            } else {
+                this.emissionIntervalNanos = 0L;
+                this.burstToleranceNanos = 0L;
+            }
+            this.theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+        }
+
+        /**
+         * @param applyRate 是否按采样率随机丢弃，不按采样率时权重不包含采样率的倒数
+         */
+        private double sample(boolean applyRate) {
+            if (rate <= 0D || (applyRate && rate < 1D && ThreadLocalRandom.current().nextDouble() >= rate)) {
+                return DROPPED;
+            }
+            if (!tryAcquire()) {
+                throttledSinceLastKept.incrementAndGet();
+                return DROPPED;
+            }
+            long throttled = emissionIntervalNanos > 0L ? throttledSinceLastKept.getAndSet(0L) : 0L;
+            return (applyRate ? rateWeight : 1D) * (throttled + 1L);
+        }
+
+        private boolean tryAcquire() {
+            if (emissionIntervalNanos <= 0L) {
+                return true;
+            }
+            long now = System.nanoTime();
+            while (true) {
+                long tat = theoreticalArrivalNanos.get();
+                long base = tat - now > 0L ? tat : now;
+                if (base - now > burstToleranceNanos) {
+                    return false;
+                }
+                if (theoreticalArrivalNanos.compareAndSet(tat, base + emissionIntervalNanos)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.mrbox.apilogging.servlet;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ *     响应内容采集使用的字节缓冲区池，缓冲区大小与采集上限一致，上限变化后旧的缓冲区不再放回。
+ *     池中最多保留 {@link #MAX_POOLED} 个缓冲区，超出的在归还时丢弃。
+ * </pre>
+ *
+ * @author Zwk
+ */
+final class CaptureBufferPool {
+
+    static final int MAX_POOLED = 64;
+
+    private static final ConcurrentLinkedQueue<byte[]> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private CaptureBufferPool() {
+    }
+
+    static byte[] acquire(int size) {
+        byte[] buffer;
+        while ((buffer = POOL.poll()) != null) {
+            POOLED.decrementAndGet();
+            if (buffer.length == size) {
+                return buffer;
+            }
+        }
+        return new byte[size];
+    }
+
+    static void release(byte[] buffer) {
+        if (POOLED.incrementAndGet() > MAX_POOLED) {
+            POOLED.decrementAndGet();
+            return;
+        }
+        POOL.offer(buffer);
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.mrbox.apilogging.servlet;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 请求体、响应体采集内容的类型判断和解码
+ *
+ * @author Zwk
+ */
+final class CapturedContent {
+
+    private static final String TRUNCATED = "...[已截断]";
+
+    private CapturedContent() {
+    }
+
+    /**
+     * @param contentType Content-Type，不能为 null
+     * @return 是否为可以按文本记录的内容类型
+     */
+    static boolean isText(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("json") || type.contains("xml")
+                || type.contains("javascript") || type.startsWith("application/x-www-form-urlencoded");
+    }
+
+    /**
+     * @return Content-Type 中声明的字符集，未声明或无法识别时为 UTF-8
+     */
+    static Charset resolveCharset(String contentType) {
+        if (contentType != null) {
+            int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (index >= 0) {
+                String name = contentType.substring(index + "charset=".length());
+                int end = name.indexOf(';');
+                name = (end >= 0 ? name.substring(0, end) : name).trim().replace("\"", "");
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalArgumentException e) {
+                    return StandardCharsets.UTF_8;
+                }
+            }
+        }
+        // JSON 规定使用 UTF-8，Spring 读写 JSON 时不声明字符集
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * 解码采集到的内容，超出采集上限时丢弃截断处不完整的多字节字符并追加截断标记
+     *
+     * @param buffer   采集缓冲区
+     * @param captured 已采集的字节数
+     * @param total    实际读写的字节数
+     * @param charset  字符集
+     * @return 解码后的内容
+     */
+    static String decode(byte[] buffer, int captured, long total, Charset charset) {
+        boolean truncated = total > captured;
+        int length = truncated && StandardCharsets.UTF_8.equals(charset)
+                ? completeUtf8Length(buffer, captured) : captured;
+        String content = new String(buffer, 0, length, charset);
+        return truncated ? content + TRUNCATED : content;
+    }
+
+    /**
+     * @return 去掉末尾不完整的 UTF-8 字符后的长度
+     */
+    private static int completeUtf8Length(byte[] bytes, int length) {
+        // 从末尾向前找到最后一个字符的首字节，最多回退 3 个字节
+        for (int i = length - 1; i >= 0 && i >= length - 4; i--) {
+            int b = bytes[i] & 0xFF;
+            if ((b & 0xC0) == 0x80) {
+                continue;
+            }
+            int expected = b < 0x80 ? 1 : (b & 0xE0) == 0xC0 ? 2 : (b & 0xF0) == 0xE0 ? 3 : 4;
+            return length - i >= expected ? length : i;
+        }
+        return length;
+    }
+}
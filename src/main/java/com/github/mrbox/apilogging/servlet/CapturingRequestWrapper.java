@@ -0,0 +1,157 @@
+package com.github.mrbox.apilogging.servlet;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+
+/**
+ * <pre>
+ *     采集原始请求体的包装类，由 {@link RequestCapturingFilter} 创建并保存在请求属性中。
+ *
+ *     应用读取请求体时（getInputStream()、getReader()），文本类型（JSON、表单、文本、XML）的请求体前 N 个字节
+ *     被复制到池化的缓冲区中，其他类型（如 multipart、octet-stream）只统计读取的字节数，不复制内容。
+ *     请求体不会被预先读取，应用没有读取的内容不会被采集；容器解析的表单参数不经过包装的输入流。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class CapturingRequestWrapper extends HttpServletRequestWrapper {
+
+    /**
+     * 保存包装对象的请求属性名
+     */
+    public static final String ATTRIBUTE = CapturingRequestWrapper.class.getName();
+
+    private final int maxBytes;
+    private CapturingServletInputStream inputStream;
+    private BufferedReader reader;
+
+    private byte[] captureBuffer;
+    private int captured;
+    private volatile long bytesRead;
+    private boolean released;
+
+    /**
+     * @param request  被包装的请求
+     * @param maxBytes 最多复制的字节数，小于等于 0 时只统计字节数
+     */
+    public CapturingRequestWrapper(HttpServletRequest request, int maxBytes) {
+        super(request);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取当前请求的请求包装对象
+     *
+     * @param request 当前请求
+     * @return 请求包装对象，未注册 {@link RequestCapturingFilter} 时返回 null
+     */
+    public static CapturingRequestWrapper get(ServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        Object wrapper = request.getAttribute(ATTRIBUTE);
+        return wrapper instanceof CapturingRequestWrapper ? (CapturingRequestWrapper) wrapper : null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            String contentType = getContentType();
+            if (maxBytes > 0 && !released && contentType != null && CapturedContent.isText(contentType)) {
+                captureBuffer = CaptureBufferPool.acquire(maxBytes);
+            }
+            inputStream = new CapturingServletInputStream(this, super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            // 与容器一致，未声明字符集时按 ISO-8859-1 读取
+            String encoding = getCharacterEncoding();
+            Charset charset;
+            try {
+                charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                // 与容器一致，不支持的字符集抛出 UnsupportedEncodingException
+                UnsupportedEncodingException exception = new UnsupportedEncodingException(encoding);
+                exception.initCause(e);
+                throw exception;
+            }
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+        return reader;
+    }
+
+    /**
+     * @return 应用已读取的请求体字节数
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return 请求体是否完整采集，没有超出采集上限
+     */
+    public boolean isCaptureComplete() {
+        return captureBuffer != null && bytesRead <= captured;
+    }
+
+    /**
+     * <pre>
+     * 获取采集到的请求体：
+     *  - 按 Content-Type 中声明的字符集解码，未声明时按 UTF-8 解码，截断处不完整的多字节字符被丢弃
+     *  - 超出采集上限时追加截断标记，完整大小见 {@link #getBytesRead()}
+     * </pre>
+     *
+     * @return 采集到的请求体，非文本类型、未读取请求体或已归还缓冲区时返回 null
+     */
+    public String getCapturedBody() {
+        byte[] buffer = this.captureBuffer;
+        if (buffer == null || bytesRead == 0) {
+            return null;
+        }
+        return CapturedContent.decode(buffer, captured, bytesRead, CapturedContent.resolveCharset(getContentType()));
+    }
+
+    /**
+     * 归还采集缓冲区，可重复调用
+     */
+    public void releaseCapture() {
+        released = true;
+        byte[] buffer = this.captureBuffer;
+        if (buffer != null) {
+            this.captureBuffer = null;
+            CaptureBufferPool.release(buffer);
+        }
+    }
+
+    void capture(int b) {
+        byte[] buffer = this.captureBuffer;
+        if (buffer != null && captured < buffer.length) {
+            buffer[captured++] = (byte) b;
+        }
+        bytesRead++;
+    }
+
+    void capture(byte[] b, int off, int len) {
+        byte[] buffer = this.captureBuffer;
+        if (buffer != null && captured < buffer.length) {
+            int count = Math.min(len, buffer.length - captured);
+            System.arraycopy(b, off, buffer, captured, count);
+            captured += count;
+        }
+        bytesRead += len;
+    }
+}
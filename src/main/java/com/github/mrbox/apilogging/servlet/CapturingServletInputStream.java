@@ -0,0 +1,64 @@
+package com.github.mrbox.apilogging.servlet;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.IOException;
+
+/**
+ * 统计读取字节数的输入流，数据直接从被包装的输入流读取，读到的字节交给请求包装对象采集
+ *
+ * @author Zwk
+ */
+final class CapturingServletInputStream extends ServletInputStream {
+
+    private final CapturingRequestWrapper request;
+    private final ServletInputStream delegate;
+
+    CapturingServletInputStream(CapturingRequestWrapper request, ServletInputStream delegate) {
+        this.request = request;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = delegate.read();
+        if (b >= 0) {
+            request.capture(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = delegate.read(b, off, len);
+        if (count > 0) {
+            request.capture(b, off, count);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return delegate.isFinished();
+    }
+
+    @Override
+    public boolean isReady() {
+        return delegate.isReady();
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+        delegate.setReadListener(readListener);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return delegate.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
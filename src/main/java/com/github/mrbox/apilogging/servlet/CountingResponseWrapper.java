@@ -0,0 +1,202 @@
+package com.github.mrbox.apilogging.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+
+/**
+ * <pre>
+ *     统计响应输出的包装类，由 {@link ResponseCountingFilter} 创建并保存在请求属性中。
+ *
+ *     只统计 getOutputStream() 写出的内容（StreamingResponseBody、ResponseBodyEmitter、SseEmitter
+ *     以及 HttpMessageConverter 均使用该输出流），计数输出流在首次获取时才创建，响应内容不做缓冲。
+ *
+ *     调用 {@link #startCapture(int)} 后，输出流额外把前 N 个字节复制到池化的缓冲区中，供详细日志记录返回值，
+ *     超出部分只计数不保存。采集在请求线程或异步处理线程中单线程进行，缓冲区在过滤器链结束或日志记录完成后归还。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class CountingResponseWrapper extends HttpServletResponseWrapper {
+
+    /**
+     * 保存包装对象的请求属性名
+     */
+    public static final String ATTRIBUTE = CountingResponseWrapper.class.getName();
+
+    private volatile CountingServletOutputStream outputStream;
+
+    private byte[] captureBuffer;
+    private int captured;
+    private volatile boolean chainCompleted;
+    private Runnable afterChain;
+
+    public CountingResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * 获取当前请求的响应包装对象
+     *
+     * @param request 当前请求
+     * @return 响应包装对象，未注册 {@link ResponseCountingFilter} 时返回 null
+     */
+    public static CountingResponseWrapper get(ServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        Object wrapper = request.getAttribute(ATTRIBUTE);
+        return wrapper instanceof CountingResponseWrapper ? (CountingResponseWrapper) wrapper : null;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        CountingServletOutputStream stream = this.outputStream;
+        if (stream == null) {
+            synchronized (this) {
+                stream = this.outputStream;
+                if (stream == null) {
+                    stream = new CountingServletOutputStream(this, super.getOutputStream());
+                    this.outputStream = stream;
+                }
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * @return 已写出的字节数
+     */
+    public long getBytesWritten() {
+        CountingServletOutputStream stream = this.outputStream;
+        return stream != null ? stream.getBytesWritten() : 0L;
+    }
+
+    /**
+     * @return 已写出的事件数，text/event-stream 响应为 SSE 事件数，其他响应为推送的数据块数
+     */
+    public long getEventCount() {
+        CountingServletOutputStream stream = this.outputStream;
+        return stream != null ? stream.getEventCount() : 0L;
+    }
+
+    /**
+     * @return 写出第一个字节的时间戳（毫秒数），尚未写出时为 0
+     */
+    public long getFirstByteTimestamp() {
+        CountingServletOutputStream stream = this.outputStream;
+        return stream != null ? stream.getFirstByteTimestamp() : 0L;
+    }
+
+    /**
+     * @return 写出是否失败，通常是客户端断开了连接
+     */
+    public boolean isWriteFailed() {
+        CountingServletOutputStream stream = this.outputStream;
+        return stream != null && stream.isWriteFailed();
+    }
+
+    /**
+     * 开始采集写出的响应内容
+     *
+     * @param maxBytes 最多保存的字节数
+     * @return 是否开始采集，已写出内容或已在采集时返回 false
+     */
+    public boolean startCapture(int maxBytes) {
+        if (maxBytes <= 0 || captureBuffer != null || getBytesWritten() > 0) {
+            return false;
+        }
+        captureBuffer = CaptureBufferPool.acquire(maxBytes);
+        captured = 0;
+        return true;
+    }
+
+    /**
+     * <pre>
+     * 获取采集到的响应内容：
+     *  - 按 Content-Type 中声明的字符集解码，未声明时按 UTF-8 解码，截断处不完整的多字节字符被丢弃
+     *  - 超出采集上限时追加截断标记，完整大小见 {@link #getBytesWritten()}
+     *  - 非文本类型的响应只记录 Content-Type
+     * </pre>
+     *
+     * @return 采集到的响应内容，未采集或未通过输出流写出内容时返回 null
+     */
+    public String getCapturedBody() {
+        byte[] buffer = this.captureBuffer;
+        long bytesWritten = getBytesWritten();
+        if (buffer == null || bytesWritten == 0) {
+            return null;
+        }
+        String contentType = getContentType();
+        if (contentType != null && !CapturedContent.isText(contentType)) {
+            return "[忽略Content-Type:" + contentType + "]";
+        }
+        return CapturedContent.decode(buffer, captured, bytesWritten, CapturedContent.resolveCharset(contentType));
+    }
+
+    /**
+     * 归还采集缓冲区，不再采集后续写出的内容，可重复调用
+     */
+    public void releaseCapture() {
+        byte[] buffer = this.captureBuffer;
+        if (buffer != null) {
+            this.captureBuffer = null;
+            CaptureBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * @return 过滤器链是否已结束，同步请求此时响应内容已全部写出
+     */
+    public boolean isChainCompleted() {
+        return chainCompleted;
+    }
+
+    /**
+     * 注册过滤器链结束后执行的回调，只在同步请求结束时执行，开始异步处理的请求不会执行
+     *
+     * @param callback 回调
+     */
+    public void afterChain(Runnable callback) {
+        this.afterChain = callback;
+    }
+
+    /**
+     * 由 {@link ResponseCountingFilter} 在过滤器链结束后调用
+     *
+     * @param asyncStarted 请求是否开始了异步处理
+     */
+    void completeChain(boolean asyncStarted) {
+        chainCompleted = true;
+        if (asyncStarted) {
+            return;
+        }
+        Runnable callback = this.afterChain;
+        this.afterChain = null;
+        try {
+            if (callback != null) {
+                callback.run();
+            }
+        } finally {
+            releaseCapture();
+        }
+    }
+
+    void capture(int b) {
+        byte[] buffer = this.captureBuffer;
+        if (buffer != null && captured < buffer.length) {
+            buffer[captured++] = (byte) b;
+        }
+    }
+
+    void capture(byte[] b, int off, int len) {
+        byte[] buffer = this.captureBuffer;
+        if (buffer != null && captured < buffer.length) {
+            int count = Math.min(len, buffer.length - captured);
+            System.arraycopy(b, off, buffer, captured, count);
+            captured += count;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.github.mrbox.apilogging.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+
+/**
+ * <pre>
+ *     统计写出字节数的输出流，数据直接写入被包装的输出流，不做任何缓冲；
+ *     响应包装对象开始采集时，额外复制前 N 个字节。
+ *
+ *     事件数的统计方式：
+ *      - text/event-stream 响应按事件结束符（空行 "\n\n"）计数
+ *      - 其他响应按写出数据后的 flush 次数计数，即推送的数据块数
+ *
+ *     Servlet 输出流本身不支持并发写出，SseEmitter 等在多个线程中发送时由调用方串行化。
+ *     计数状态的修改在本对象的锁内进行（不包括对被包装输出流的写出），即使调用方没有串行化，计数也不会丢失；
+ *     统计结果以 volatile 字段发布，供完成日志的其他线程读取。
+ * </pre>
+ *
+ * @author Zwk
+ */
+final class CountingServletOutputStream extends ServletOutputStream {
+
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    private final CountingResponseWrapper response;
+    private final ServletOutputStream delegate;
+
+    private volatile long bytesWritten;
+    private volatile long eventCount;
+    private volatile long firstByteTimestamp;
+    private volatile boolean writeFailed;
+
+    // 以下状态只在持有本对象的锁时访问
+    private boolean eventStream;
+    private boolean unflushedData;
+    private byte lastByte;
+
+    CountingServletOutputStream(CountingResponseWrapper response, ServletOutputStream delegate) {
+        this.response = response;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        try {
+            delegate.write(b);
+        } catch (IOException e) {
+            writeFailed = true;
+            throw e;
+        }
+        count(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        try {
+            delegate.write(b, off, len);
+        } catch (IOException e) {
+            writeFailed = true;
+            throw e;
+        }
+        if (len <= 0) {
+            return;
+        }
+        count(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            delegate.flush();
+        } catch (IOException e) {
+            writeFailed = true;
+            throw e;
+        }
+        endChunk();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            delegate.close();
+        } catch (IOException e) {
+            writeFailed = true;
+            throw e;
+        }
+        endChunk();
+    }
+
+    @Override
+    public boolean isReady() {
+        return delegate.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        delegate.setWriteListener(writeListener);
+    }
+
+    private synchronized void count(int b) {
+        beforeCount();
+        if (eventStream) {
+            countEvents((byte) b);
+        }
+        response.capture(b);
+        bytesWritten++;
+    }
+
+    private synchronized void count(byte[] b, int off, int len) {
+        beforeCount();
+        if (eventStream) {
+            for (int i = off; i < off + len; i++) {
+                countEvents(b[i]);
+            }
+        }
+        response.capture(b, off, len);
+        bytesWritten += len;
+    }
+
+    private void beforeCount() {
+        if (firstByteTimestamp == 0) {
+            firstByteTimestamp = System.currentTimeMillis();
+            String contentType = response.getContentType();
+            eventStream = contentType != null && contentType.startsWith(EVENT_STREAM);
+        }
+        unflushedData = true;
+    }
+
+    private void countEvents(byte b) {
+        if (b == '\n' && lastByte == '\n') {
+            eventCount++;
+            // 连续的空行只算一个事件结束符
+            lastByte = 0;
+            return;
+        }
+        if (b != '\r') {
+            lastByte = b;
+        }
+    }
+
+    private synchronized void endChunk() {
+        if (unflushedData && !eventStream) {
+            eventCount++;
+        }
+        unflushedData = false;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    long getEventCount() {
+        return eventCount;
+    }
+
+    long getFirstByteTimestamp() {
+        return firstByteTimestamp;
+    }
+
+    boolean isWriteFailed() {
+        return writeFailed;
+    }
+}
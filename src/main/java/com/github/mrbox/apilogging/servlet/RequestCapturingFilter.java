@@ -0,0 +1,73 @@
+package com.github.mrbox.apilogging.servlet;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * <pre>
+ *     将请求包装为 {@link CapturingRequestWrapper}，供详细日志直接记录应用读取的原始请求体，不再序列化Controller参数。
+ *     每个请求最多复制 maxPayloadLength 个字节，采集缓冲区在请求结束时归还，开始异步处理的请求在异步处理完成后归还。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class RequestCapturingFilter extends OncePerRequestFilter {
+
+    private final ApiLoggingProperties properties;
+
+    public RequestCapturingFilter(ApiLoggingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CapturingRequestWrapper wrapper = new CapturingRequestWrapper(request, properties.current().getMaxPayloadLength());
+        request.setAttribute(CapturingRequestWrapper.ATTRIBUTE, wrapper);
+        try {
+            filterChain.doFilter(wrapper, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(wrapper));
+            } else {
+                wrapper.releaseCapture();
+            }
+        }
+    }
+
+    /**
+     * 异步处理结束后归还采集缓冲区
+     */
+    private static final class ReleaseListener implements AsyncListener {
+        private final CapturingRequestWrapper wrapper;
+
+        private ReleaseListener(CapturingRequestWrapper wrapper) {
+            this.wrapper = wrapper;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            wrapper.releaseCapture();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.mrbox.apilogging.servlet;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * <pre>
+ *     将响应包装为 {@link CountingResponseWrapper}，供切面在流式响应完成后读取写出的字节数、事件数和首字节时间。
+ *
+ *     异步派发沿用首次派发时包装的响应，不再重复包装。
+ *     过滤器链结束后执行切面注册的回调，同步请求的详细日志在响应写出后才能使用采集到的响应内容。
+ *
+ *     日志组件被关闭，或流式响应统计和响应内容采集都未启用时不包装响应，按当前的配置快照判断。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public class ResponseCountingFilter extends OncePerRequestFilter {
+
+    private final ApiLoggingProperties properties;
+
+    public ResponseCountingFilter(ApiLoggingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ApiLoggingProperties current = properties.current();
+        if (!current.isEnabled()
+                || (!current.getStreaming().isEnabled() && !current.getResponseCapture().isEnabled())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        CountingResponseWrapper wrapper = new CountingResponseWrapper(response);
+        request.setAttribute(CountingResponseWrapper.ATTRIBUTE, wrapper);
+        try {
+            filterChain.doFilter(request, wrapper);
+        } finally {
+            wrapper.completeChain(request.isAsyncStarted());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.mrbox.apilogging.trace;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ *     从请求头中解析的链路追踪上下文，依次尝试：
+ *      - W3C Trace Context: traceparent: 00-{traceId}-{parentId}-{flags}
+ *      - B3 单请求头: b3: {traceId}-{spanId}[-{sampled}[-{parentSpanId}]]
+ *      - B3 多请求头: X-B3-TraceId、X-B3-SpanId、X-B3-Sampled、X-B3-Flags
+ *      - 自定义的 traceId 请求头
+ *
+ *     实例不可变。
+ * </pre>
+ *
+ * @author Zwk
+ */
+public final class TraceContext {
+
+    public static final String TRACEPARENT = "traceparent";
+    public static final String B3 = "b3";
+    public static final String B3_TRACE_ID = "X-B3-TraceId";
+    public static final String B3_SPAN_ID = "X-B3-SpanId";
+    public static final String B3_SAMPLED = "X-B3-Sampled";
+    public static final String B3_FLAGS = "X-B3-Flags";
+
+    private static final int TRACEPARENT_LENGTH = 55;
+
+    private final String traceId;
+    private final String spanId;
+    private final Boolean sampled;
+
+    public TraceContext(String traceId, String spanId, Boolean sampled) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.sampled = sampled;
+    }
+
+    /**
+     * 解析请求的链路追踪上下文
+     *
+     * @param request           当前请求
+     * @param traceIdHeaderName 自定义的 traceId 请求头，可以为空
+     * @return 链路追踪上下文，请求没有可识别的 traceId 时返回 null
+     */
+    public static TraceContext resolve(HttpServletRequest request, String traceIdHeaderName) {
+        if (request == null) {
+            return null;
+        }
+        // 大多数请求不携带链路追踪请求头，先直接判断，避免为每个请求创建读取请求头的函数
+        if (request.getHeader(TRACEPARENT) == null && request.getHeader(B3) == null
+                && request.getHeader(B3_TRACE_ID) == null
+                && (traceIdHeaderName == null || traceIdHeaderName.isEmpty()
+                || request.getHeader(traceIdHeaderName) == null)) {
+            return null;
+        }
+        return resolve(request::getHeader, traceIdHeaderName);
+    }
+
+    /**
+     * 解析链路追踪上下文
+     *
+     * @param headers           按名称获取请求头的函数，名称不区分大小写
+     * @param traceIdHeaderName 自定义的 traceId 请求头，可以为空
+     * @return 链路追踪上下文，没有可识别的 traceId 时返回 null
+     */
+    public static TraceContext resolve(Function<String, String> headers, String traceIdHeaderName) {
+        TraceContext context = parseTraceparent(headers.apply(TRACEPARENT));
+        if (context == null) {
+            context = parseB3(headers.apply(B3));
+        }
+        if (context == null) {
+            context = parseB3Multi(headers);
+        }
+        if (context == null && traceIdHeaderName != null && !traceIdHeaderName.isEmpty()) {
+            String traceId = headers.apply(traceIdHeaderName);
+            if (traceId != null && !traceId.isEmpty()) {
+                context = new TraceContext(traceId, null, null);
+            }
+        }
+        return context;
+    }
+
+    /**
+     * @param value traceparent 请求头，例如 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01
+     */
+    static TraceContext parseTraceparent(String value) {
+        if (value == null || value.length() < TRACEPARENT_LENGTH
+                || value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-') {
+            return null;
+        }
+        String traceId = value.substring(3, 35);
+        String spanId = value.substring(36, 52);
+        if (!isValidId(traceId) || !isValidId(spanId) || !isHex(value, 53, 55)) {
+            return null;
+        }
+        int flags = Integer.parseInt(value.substring(53, 55), 16);
+        return new TraceContext(traceId, spanId, (flags & 0x01) != 0);
+    }
+
+    /**
+     * @param value b3 请求头，例如 80f198ee56343ba864fe8b2a57d3eff7-e457b5a2e4d86bd1-1，只有采样标记时忽略
+     */
+    static TraceContext parseB3(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split("-", 4);
+        if (parts.length < 2 || !isValidId(parts[0]) || !isValidId(parts[1])) {
+            return null;
+        }
+        return new TraceContext(parts[0], parts[1], parts.length > 2 ? parseB3Sampled(parts[2]) : null);
+    }
+
+    private static TraceContext parseB3Multi(Function<String, String> headers) {
+        String traceId = headers.apply(B3_TRACE_ID);
+        if (!isValidId(traceId)) {
+            return null;
+        }
+        Boolean sampled = "1".equals(headers.apply(B3_FLAGS))
+                ? Boolean.TRUE : parseB3Sampled(headers.apply(B3_SAMPLED));
+        return new TraceContext(traceId, headers.apply(B3_SPAN_ID), sampled);
+    }
+
+    private static Boolean parseB3Sampled(String value) {
+        if ("1".equals(value) || "d".equals(value) || "true".equalsIgnoreCase(value)) {
+            return Boolean.TRUE;
+        }
+        if ("0".equals(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * 非空、全部为十六进制字符且不全为 0
+     */
+    private static boolean isValidId(String id) {
+        if (id == null || id.isEmpty() || !isHex(id, 0, id.length())) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) != '0') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHex(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return traceId
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return 上游的 spanId，可能为 null
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return 上游的采样标记，未携带时为 null
+     */
+    public Boolean getSampled() {
+        return sampled;
+    }
+}
@@ -29,8 +29,8 @@ public class ExceptionDetailedLogTrigger implements DetailedLogTrigger {
                                      Throwable exception,
                                      ApiLoggingDataContext loggingDataContext,
                                      ApiLoggingProperties properties) {
-        // 如果存在任何异常，则触发详细日志记录。
-        return exception != null;
+        // 如果存在任何异常，则触发详细日志记录；被去重的重复异常不再触发
+        return exception != null && (loggingDataContext == null || !loggingDataContext.isExceptionSuppressed());
     }
 
 }
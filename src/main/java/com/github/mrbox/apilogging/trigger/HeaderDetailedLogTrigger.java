@@ -3,6 +3,7 @@ package com.github.mrbox.apilogging.trigger;
 
 
 import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
 import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
 import org.springframework.util.StringUtils;
 
@@ -30,11 +31,11 @@ public class HeaderDetailedLogTrigger implements DetailedLogTrigger {
                                      ApiLoggingDataContext loggingDataContext,
                                      ApiLoggingProperties properties) {
         if (request == null) return false;
-        ApiLoggingProperties.HeaderTriggerProperties headerProps = properties.getHeaderTrigger();
-        if (StringUtils.hasText(headerProps.getHeaderName())) {
-            String headerValue = request.getHeader(headerProps.getHeaderName());
+        CompiledApiLoggingConfig config = properties.compiled();
+        if (StringUtils.hasText(config.getTriggerHeaderName())) {
+            String headerValue = request.getHeader(config.getTriggerHeaderName());
             if (headerValue != null) {
-                return headerValue.equalsIgnoreCase(headerProps.getDetailedValue());
+                return headerValue.equalsIgnoreCase(config.getTriggerHeaderValue());
             }
         }
         return false;
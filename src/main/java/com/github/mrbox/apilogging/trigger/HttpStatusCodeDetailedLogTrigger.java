@@ -1,6 +1,7 @@
 package com.github.mrbox.apilogging.trigger;
 
 import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.config.CompiledApiLoggingConfig;
 import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,29 +33,35 @@ public class HttpStatusCodeDetailedLogTrigger implements DetailedLogTrigger {
             ApiLoggingDataContext loggingDataContext,
             ApiLoggingProperties properties) {
 
-        if (properties.getDetailedLogOnStatusCodes() == null || properties.getDetailedLogOnStatusCodes().isEmpty()) {
+        CompiledApiLoggingConfig config = properties.compiled();
+        if (config.isDetailedStatusCodesEmpty()) {
             return false;
         }
 
-        Integer status = null;
+        // 状态码以基本类型处理，未获取到时为 -1
+        int status = -1;
 
         // 首先检查ResponseEntity，因为它更准确地反映了当前响应的实际状态码
         if (loggingDataContext != null && loggingDataContext.getProceedResult() instanceof ResponseEntity) {
             try {
                 ResponseEntity<?> responseEntity = (ResponseEntity<?>) loggingDataContext.getProceedResult();
                 status = responseEntity.getStatusCodeValue();
-                logger.debug("从ResponseEntity获取状态码: {}", status);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("从ResponseEntity获取状态码: {}", status);
+                }
             } catch (Exception e) {
                 logger.warn("从ResponseEntity获取状态码失败: {}", e.getMessage());
             }
         }
 
         // 如果没有从ResponseEntity获取到状态码，尝试从response对象获取
-        if (status == null && response != null) {
+        if (status < 0 && response != null) {
             status = response.getStatus();
-            logger.debug("从HttpServletResponse获取状态码: {}", status);
+            if (logger.isDebugEnabled()) {
+                logger.debug("从HttpServletResponse获取状态码: {}", status);
+            }
         }
 
-        return status != null && properties.getDetailedLogOnStatusCodes().contains(status);
+        return status >= 0 && config.isDetailedStatusCode(status);
     }
 }
@@ -0,0 +1,352 @@
+package com.github.mrbox.apilogging;
+
+import com.github.mrbox.apilogging.filter.FilterManager;
+import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
+import com.github.mrbox.apilogging.logger.ApiLoggingLogger;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import com.github.mrbox.apilogging.profiler.OverheadProfiler;
+import com.github.mrbox.apilogging.sampling.LogSampler;
+import com.github.mrbox.apilogging.trigger.DetailedLogTrigger;
+import com.github.mrbox.apilogging.trigger.ExceptionDetailedLogTrigger;
+import com.github.mrbox.apilogging.trigger.HeaderDetailedLogTrigger;
+import com.github.mrbox.apilogging.trigger.HttpStatusCodeDetailedLogTrigger;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+/**
+ * 精简日志请求线程路径的内存分配测试，只测量切面本身，发布器不序列化记录。
+ * 基准模块中 ApiLoggingAspectBenchmark -prof gc 报告的分配还包括 DefaultJsonLogger 生成的 JSON 字符串和
+ * MockHttpServletRequest 查找请求头的分配。
+ */
+public class ApiLoggingAspectAllocationTest {
+
+    private static final int WARMUP_REQUESTS = 50_000;
+    private static final int MEASURED_REQUESTS = 20_000;
+
+    private final Logger componentLogger = (Logger) LoggerFactory.getLogger("com.github.mrbox.apilogging");
+    private Level originalLevel;
+
+    @BeforeEach
+    void setUp() {
+        // 与生产环境一致，不输出组件的调试日志
+        originalLevel = componentLogger.getLevel();
+        componentLogger.setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        componentLogger.setLevel(originalLevel);
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testSimpleModeAllocatesNearZeroBytesPerRequest() throws Throwable {
+        ApiLoggingProperties properties = createProperties();
+        properties.getSampling().setEnabled(true);
+        properties.refreshCompiled();
+        CountingLogger logger = new CountingLogger(true);
+        ApiLoggingAspect aspect = new ApiLoggingAspect(properties, createTriggers(),
+                logger, new DefaultLogContentFormatter(null), new FilterManager(null, null),
+                new ApiLoggingAspect.OptionalComponents().logSampler(new LogSampler(properties)));
+
+        long allocatedPerRequest = measureAllocatedBytesPerRequest(aspect);
+
+        assertThat(logger.published).isEqualTo(WARMUP_REQUESTS + MEASURED_REQUESTS);
+        assertThat(logger.lastStatusCode).isEqualTo(200);
+        assertThat(logger.lastUri).isEqualTo("/orders/42?page=1&size=20");
+        assertThat(logger.lastSampleWeight).isEqualTo(1D);
+        assertThat(allocatedPerRequest).as("每个请求分配的字节数").isLessThan(16L);
+    }
+
+    @Test
+    void testRecordOwningLoggerAllocatesOnlyThePublishedRecord() throws Throwable {
+        CountingLogger logger = new CountingLogger(false);
+        ApiLoggingAspect aspect = new ApiLoggingAspect(createProperties(), createTriggers(),
+                logger, new DefaultLogContentFormatter(null), new FilterManager(null, null));
+
+        long allocatedPerRequest = measureAllocatedBytesPerRequest(aspect);
+
+        // 持有记录引用的发布器每条日志得到一个新的 SimpleLogRecord（压缩指针下约 100 字节），此外不再分配
+        assertThat(logger.published).isEqualTo(WARMUP_REQUESTS + MEASURED_REQUESTS);
+        assertThat(allocatedPerRequest).as("每个请求分配的字节数").isLessThan(256L);
+    }
+
+    @Test
+    void testOverheadProfilerAllocatesNearZeroBytesPerRequest() throws Throwable {
+        ApiLoggingProperties properties = createProperties();
+        OverheadProfiler profiler = new OverheadProfiler(properties);
+        CountingLogger logger = new CountingLogger(true);
+        ApiLoggingAspect aspect = new ApiLoggingAspect(properties, createTriggers(),
+                logger, new DefaultLogContentFormatter(null), new FilterManager(null, null),
+                new ApiLoggingAspect.OptionalComponents().metrics(profiler));
+
+        long allocatedPerRequest = measureAllocatedBytesPerRequest(aspect);
+
+        assertThat(allocatedPerRequest).as("启用开销分析时每个请求分配的字节数").isLessThan(16L);
+        OverheadProfiler.OverheadReport report = profiler.report();
+        long requests = WARMUP_REQUESTS + MEASURED_REQUESTS;
+        assertThat(report.getStages().get("uri_pattern").getCount()).isEqualTo(requests);
+        assertThat(report.getStages().get("return_value").getCount()).isEqualTo(requests);
+        assertThat(report.getStages().get("record_conversion").getCount()).isEqualTo(requests);
+        assertThat(report.getStages().get("publish").getCount()).isEqualTo(requests);
+        // 精简日志不格式化请求头和异常
+        assertThat(report.getStages()).doesNotContainKeys("request_headers", "exception");
+        assertThat(report.getHandlers().get("OrderController#getOrder").getCount()).isEqualTo(requests);
+    }
+
+    private static ApiLoggingProperties createProperties() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.setEnabled(true);
+        properties.getTriggers().add("header");
+        properties.refreshCompiled();
+        return properties;
+    }
+
+    private static List<DetailedLogTrigger> createTriggers() {
+        return Arrays.asList(new HeaderDetailedLogTrigger(), new HttpStatusCodeDetailedLogTrigger(),
+                new ExceptionDetailedLogTrigger());
+    }
+
+    /**
+     * 预热后测量每个请求在请求线程中分配的字节数
+     */
+    private static long measureAllocatedBytesPerRequest(ApiLoggingAspect aspect) throws Throwable {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeThat(threadMXBean.isThreadAllocatedMemorySupported()).isTrue();
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(new StubRequest(), new MockHttpServletResponse()));
+        StubJoinPoint joinPoint = new StubJoinPoint();
+
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            aspect.logRequestAndResponse(joinPoint);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            aspect.logRequestAndResponse(joinPoint);
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_REQUESTS;
+    }
+
+    /**
+     * 同步读取记录的发布器，不拼接URI、不装箱
+     */
+    private static final class CountingLogger implements ApiLoggingLogger {
+        private final boolean recordReuse;
+        private long published;
+        private int lastStatusCode;
+        private double lastSampleWeight;
+        private SimpleLogRecord lastRecord;
+        private String lastUri;
+
+        CountingLogger(boolean recordReuse) {
+            this.recordReuse = recordReuse;
+        }
+
+        @Override
+        public void publish(SimpleLogRecord logRecord) {
+            published++;
+            lastStatusCode = logRecord.statusCodeValue();
+            lastSampleWeight = logRecord.sampleWeightValue();
+            if (!recordReuse) {
+                lastRecord = logRecord;
+            } else if (lastUri == null) {
+                lastUri = logRecord.getUri();
+            }
+        }
+
+        @Override
+        public boolean supportsRecordReuse() {
+            return recordReuse;
+        }
+    }
+
+    /**
+     * 请求头查找不分配对象的请求
+     */
+    private static final class StubRequest extends HttpServletRequestWrapper {
+
+        StubRequest() {
+            super(new MockHttpServletRequest("GET", "/orders/42"));
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return "/orders/42";
+        }
+
+        @Override
+        public String getQueryString() {
+            return "page=1&size=20";
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE.equals(name) ? "/orders/{id}" : null;
+        }
+    }
+
+    public static class OrderController {
+        public String getOrder(String id) {
+            return "order-" + id;
+        }
+    }
+
+    private static final class StubJoinPoint implements ProceedingJoinPoint, MethodSignature {
+
+        private static final Method METHOD;
+
+        static {
+            try {
+                METHOD = OrderController.class.getMethod("getOrder", String.class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private final OrderController target = new OrderController();
+        private final Object[] args = {"42"};
+        private final Object result = "order-42";
+
+        @Override
+        public Object proceed() {
+            return result;
+        }
+
+        @Override
+        public Object proceed(Object[] args) {
+            return result;
+        }
+
+        @Override
+        public void set$AroundClosure(AroundClosure arc) {
+        }
+
+        @Override
+        public Object getThis() {
+            return target;
+        }
+
+        @Override
+        public Object getTarget() {
+            return target;
+        }
+
+        @Override
+        public Object[] getArgs() {
+            return args;
+        }
+
+        @Override
+        public Signature getSignature() {
+            return this;
+        }
+
+        @Override
+        public SourceLocation getSourceLocation() {
+            return null;
+        }
+
+        @Override
+        public String getKind() {
+            return METHOD_EXECUTION;
+        }
+
+        @Override
+        public StaticPart getStaticPart() {
+            return null;
+        }
+
+        @Override
+        public String toShortString() {
+            return METHOD.getName();
+        }
+
+        @Override
+        public String toLongString() {
+            return METHOD.toString();
+        }
+
+        @Override
+        public String getName() {
+            return METHOD.getName();
+        }
+
+        @Override
+        public int getModifiers() {
+            return METHOD.getModifiers();
+        }
+
+        @Override
+        public Class getDeclaringType() {
+            return OrderController.class;
+        }
+
+        @Override
+        public String getDeclaringTypeName() {
+            return OrderController.class.getName();
+        }
+
+        @Override
+        public Class getReturnType() {
+            return String.class;
+        }
+
+        @Override
+        public Method getMethod() {
+            return METHOD;
+        }
+
+        @Override
+        public Class[] getParameterTypes() {
+            return METHOD.getParameterTypes();
+        }
+
+        @Override
+        public String[] getParameterNames() {
+            return new String[]{"id"};
+        }
+
+        @Override
+        public Class[] getExceptionTypes() {
+            return new Class[0];
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.github.mrbox.apilogging;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.formatter.LogContentFormatter;
 import com.github.mrbox.apilogging.logger.DefaultJsonLogger;
+import com.github.mrbox.apilogging.model.CaptureMode;
 import com.github.mrbox.apilogging.model.DetailedLogRecord;
 import com.github.mrbox.apilogging.model.LogMode;
 import com.github.mrbox.apilogging.model.SimpleLogRecord;
@@ -12,18 +14,29 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 // 使用SpringBootTest加载完整的应用上下文，包括自动配置
@@ -47,12 +60,15 @@ public class ApiLoggingAspectTest {
         @MockBean(name = "apiLoggingLogger") // 使用名称确保替换自动配置类中的bean
         private DefaultJsonLogger defaultJsonLogger;
 
+        @SpyBean
+        private LogContentFormatter logContentFormatter;
+
         private ArgumentCaptor<SimpleLogRecord> logRecordCaptor;
 
         @BeforeEach
         void setUp() {
                 // 每个测试前重置mock对象
-                reset(defaultJsonLogger);
+                reset(defaultJsonLogger, logContentFormatter);
 
                 // 为每个测试重置properties到默认测试状态，避免测试间干扰
                 properties = originalProperties;
@@ -64,15 +80,27 @@ public class ApiLoggingAspectTest {
                 properties.getSensitive().setRequestHeaders(new HashSet<>());
                 properties.getSensitive().setArgNames(new HashSet<>());
                 properties.setMaxPayloadLength(1000);
+                properties.setCaptureMode(CaptureMode.LAZY);
+                properties.getResponseCapture().setEnabled(false);
+                properties.getStreaming().setEnabled(true);
+                properties.getRequestCapture().setEnabled(false);
 
                 logRecordCaptor = ArgumentCaptor.forClass(SimpleLogRecord.class);
         }
 
+        /**
+         * 测试中直接修改了配置属性，执行请求前重新编译配置快照
+         */
+        private ResultActions perform(RequestBuilder requestBuilder) throws Exception {
+                properties.refreshCompiled();
+                return mockMvc.perform(requestBuilder);
+        }
+
         // --- 基础功能测试用例 ---
 
         @Test
         void testGetRequestAbstractLog() throws Exception {
-                mockMvc.perform(MockMvcRequestBuilders.get("/test-apilogging/get")
+                perform(MockMvcRequestBuilders.get("/test-apilogging/get")
                                 .param("paramA", "valueA")
                                 .param("paramB", "valueB"))
                                 .andExpect(status().isOk());
@@ -94,7 +122,7 @@ public class ApiLoggingAspectTest {
                 properties.getHeaderTrigger().setHeaderName("X-Log-Detailed");
                 properties.getHeaderTrigger().setDetailedValue("true");
 
-                mockMvc.perform(MockMvcRequestBuilders.get("/test-apilogging/get")
+                perform(MockMvcRequestBuilders.get("/test-apilogging/get")
                                 .param("paramA", "valueA")
                                 .param("paramB", "valueB")
                                 .header("X-Log-Detailed", "true"))
@@ -115,7 +143,7 @@ public class ApiLoggingAspectTest {
         void testPostFormRequestDetailedLog() throws Exception {
                 properties.setLogMode(LogMode.DETAILED); // 设置为详细模式进行测试
 
-                mockMvc.perform(MockMvcRequestBuilders.post("/test-apilogging/form")
+                perform(MockMvcRequestBuilders.post("/test-apilogging/form")
                                 .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                                 .param("username", "testUser")
                                 .param("password", "secretPass"))
@@ -136,7 +164,7 @@ public class ApiLoggingAspectTest {
                 payload.setField2("data2");
                 payload.setSensitiveField("verySecretData");
 
-                mockMvc.perform(MockMvcRequestBuilders.post("/test-apilogging/json")
+                perform(MockMvcRequestBuilders.post("/test-apilogging/json")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(payload))
                                 .header("X-Sensitive-Header", "sensitiveValue"))
@@ -163,7 +191,7 @@ public class ApiLoggingAspectTest {
                 payload.setField1("data1");
                 payload.setSensitiveField("superSecretValue");
 
-                mockMvc.perform(MockMvcRequestBuilders.post("/test-apilogging/json")
+                perform(MockMvcRequestBuilders.post("/test-apilogging/json")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(payload))
                                 .header("X-Sensitive-Header", "topSecretToken"))
@@ -188,7 +216,7 @@ public class ApiLoggingAspectTest {
                                 MediaType.TEXT_PLAIN_VALUE,
                                 "Hello, World!".getBytes());
 
-                mockMvc.perform(MockMvcRequestBuilders.multipart("/test-apilogging/upload")
+                perform(MockMvcRequestBuilders.multipart("/test-apilogging/upload")
                                 .file(file)
                                 .param("metadata", "test-metadata"))
                                 .andExpect(status().isOk());
@@ -211,7 +239,7 @@ public class ApiLoggingAspectTest {
                 MockMultipartFile file = new MockMultipartFile("file", "test.txt", MediaType.TEXT_PLAIN_VALUE,
                                 "content".getBytes());
 
-                mockMvc.perform(MockMvcRequestBuilders.multipart("/test-apilogging/upload")
+                perform(MockMvcRequestBuilders.multipart("/test-apilogging/upload")
                                 .file(file)
                                 .param("metadata", "meta-info")) // .param here for query/form part, not file part
                                 .andExpect(status().isOk());
@@ -228,7 +256,7 @@ public class ApiLoggingAspectTest {
         void testFileDownloadRequestLogging() throws Exception {
                 properties.setLogMode(LogMode.DETAILED);
 
-                mockMvc.perform(MockMvcRequestBuilders.get("/test-apilogging/download"))
+                perform(MockMvcRequestBuilders.get("/test-apilogging/download"))
                                 .andExpect(status().isOk());
 
                 verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
@@ -245,7 +273,7 @@ public class ApiLoggingAspectTest {
 
                 // org.springframework.web.util.NestedServletException is expected
                 try {
-                        mockMvc.perform(MockMvcRequestBuilders.get("/test-apilogging/exception"))
+                        perform(MockMvcRequestBuilders.get("/test-apilogging/exception"))
                                         .andReturn();
                 } catch (Exception e) {
                         // Expected
@@ -270,7 +298,7 @@ public class ApiLoggingAspectTest {
                 assertThat(properties.getDetailedLogOnStatusCodes()).contains(403);
                 System.out.println("配置的状态码集合: " + properties.getDetailedLogOnStatusCodes());
 
-                mockMvc.perform(MockMvcRequestBuilders.get("/test-apilogging/error-status"))
+                perform(MockMvcRequestBuilders.get("/test-apilogging/error-status"))
                                 .andExpect(status().isForbidden());
 
                 verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
@@ -289,11 +317,274 @@ public class ApiLoggingAspectTest {
                 assertThat(((DetailedLogRecord) record).getResponseData()).contains("Forbidden access");
         }
 
+        @Test
+        void testRouteTemplateMatchesForceDetailedPattern() throws Exception {
+                properties.setLogMode(LogMode.SIMPLE);
+                properties.getForceDetailedLogPatterns().add("/test-apilogging/status/{code}");
+                try {
+                        perform(MockMvcRequestBuilders.get("/test-apilogging/status/200")
+                                        .header("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"))
+                                        .andExpect(status().isOk());
+                } finally {
+                        properties.getForceDetailedLogPatterns().clear();
+                }
+
+                verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
+                SimpleLogRecord record = logRecordCaptor.getValue();
+
+                // 按路由模板匹配，而不是原始URI
+                assertThat(record.getUri()).isEqualTo("/test-apilogging/status/200");
+                assertThat(record.getRoute()).isEqualTo("/test-apilogging/status/{code}");
+                assertThat(record.getTraceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+                assertThat(record.getSpanId()).isEqualTo("00f067aa0ba902b7");
+                assertThat(record.getLogMode()).isEqualTo(LogMode.DETAILED.name());
+        }
+
+        @Test
+        void testConcreteUriMatchesForceDetailedPattern() throws Exception {
+                properties.setLogMode(LogMode.SIMPLE);
+                properties.getForceDetailedLogPatterns().add("/test-apilogging/status/200");
+                try {
+                        perform(MockMvcRequestBuilders.get("/test-apilogging/status/200"))
+                                        .andExpect(status().isOk());
+                } finally {
+                        properties.getForceDetailedLogPatterns().clear();
+                }
+
+                verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
+                SimpleLogRecord record = logRecordCaptor.getValue();
+
+                // 路由模板未命中时匹配原始URI
+                assertThat(record.getRoute()).isEqualTo("/test-apilogging/status/{code}");
+                assertThat(record.getLogMode()).isEqualTo(LogMode.DETAILED.name());
+        }
+
+        @Test
+        void testContextPathMatchesForceDetailedPattern() throws Exception {
+                properties.setLogMode(LogMode.SIMPLE);
+                properties.getForceDetailedLogPatterns().add("/app/test-apilogging/**");
+                try {
+                        perform(MockMvcRequestBuilders.get("/app/test-apilogging/status/200").contextPath("/app"))
+                                        .andExpect(status().isOk());
+                } finally {
+                        properties.getForceDetailedLogPatterns().clear();
+                }
+
+                verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
+                SimpleLogRecord record = logRecordCaptor.getValue();
+
+                // 路由模板不含 context-path，带 context-path 的模式匹配原始URI
+                assertThat(record.getUri()).isEqualTo("/app/test-apilogging/status/200");
+                assertThat(record.getRoute()).isEqualTo("/test-apilogging/status/{code}");
+                assertThat(record.getLogMode()).isEqualTo(LogMode.DETAILED.name());
+        }
+
+        @Test
+        void testRouteTemplateOnlyIgnoresConcreteUriPattern() throws Exception {
+                properties.setLogMode(LogMode.SIMPLE);
+                properties.setRouteTemplateOnly(true);
+                properties.getForceDetailedLogPatterns().add("/test-apilogging/status/200");
+                try {
+                        perform(MockMvcRequestBuilders.get("/test-apilogging/status/200"))
+                                        .andExpect(status().isOk());
+                } finally {
+                        properties.setRouteTemplateOnly(false);
+                        properties.getForceDetailedLogPatterns().clear();
+                }
+
+                verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
+                assertThat(logRecordCaptor.getValue().getLogMode()).isEqualTo(LogMode.SIMPLE.name());
+        }
+
+        @Test
+        void testAsyncCompletableFutureLoggedOnCompletion() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/async-future"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                // 方法返回时异步处理尚未完成，不应记录日志
+                verify(defaultJsonLogger, never()).publish(any(SimpleLogRecord.class));
+
+                mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+                assertThat(record.getStatusCode()).isEqualTo(200);
+                assertThat(record.getResponseData()).contains("async-ok");
+                // 耗时覆盖异步处理
+                assertThat(record.getProcessingTimeMs()).isGreaterThanOrEqualTo(80L);
+        }
+
+        @Test
+        void testAsyncCallableLoggedWithFinalStatus() throws Exception {
+                properties.setLogMode(LogMode.SIMPLE);
+                properties.getDetailedLogOnStatusCodes().add(202);
+                MvcResult mvcResult;
+                try {
+                        mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/async-callable"))
+                                        .andExpect(request().asyncStarted())
+                                        .andReturn();
+                        mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isAccepted());
+                } finally {
+                        properties.getDetailedLogOnStatusCodes().remove(202);
+                }
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                SimpleLogRecord record = logRecordCaptor.getValue();
+                assertThat(record.getStatusCode()).isEqualTo(202);
+                assertThat(record.getLogMode()).isEqualTo(LogMode.DETAILED.name());
+                assertThat(((DetailedLogRecord) record).getResponseData()).contains("callable-ok");
+                assertThat(record.getProcessingTimeMs()).isGreaterThanOrEqualTo(80L);
+        }
+
+        @Test
+        void testAsyncCallableErrorLoggedOnce() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/async-callable-error"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isBadGateway());
+
+                DetailedLogRecord record = captureSingleAsyncRecord();
+                assertThat(record.getStatusCode()).isEqualTo(502);
+                assertThat(record.getErrorIndicator()).isEqualTo("ERROR:ResponseStatusException");
+                assertThat(record.getExceptionStacktrace()).contains("callable-failed");
+                assertPooledStateReleased();
+        }
+
+        @Test
+        void testAsyncCallableTimeoutLoggedOnce() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/async-callable-slow"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                assertThat(TestApiLoggingController.slowCallableStarted.await(5, TimeUnit.SECONDS)).isTrue();
+                timeout(mvcResult);
+                // MockMvc 从 postProcess 获取异步结果，等待 Callable 执行完成后再分派，
+                // 请求的结果仍为超时，Callable 的结果不再覆盖超时
+                Thread.sleep(400);
+                mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isServiceUnavailable());
+
+                DetailedLogRecord record = captureSingleAsyncRecord();
+                assertThat(record.getStatusCode()).isEqualTo(503);
+                // Callable 超时的结果不经过 postProcess，超时异常由切面显式记录
+                assertThat(record.getErrorIndicator()).isEqualTo("ERROR:AsyncRequestTimeoutException");
+                assertThat(record.getExceptionStacktrace()).contains("AsyncRequestTimeoutException");
+                assertThat(record.getResponseData()).isNull();
+                assertPooledStateReleased();
+        }
+
+        @Test
+        void testAsyncDeferredResultTimeoutLoggedOnce() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/async-deferred-pending"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                timeout(mvcResult);
+                mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isServiceUnavailable());
+
+                DetailedLogRecord record = captureSingleAsyncRecord();
+                assertThat(record.getStatusCode()).isEqualTo(503);
+                assertThat(record.getErrorIndicator()).isEqualTo("ERROR:AsyncRequestTimeoutException");
+                assertThat(record.getExceptionStacktrace()).contains("AsyncRequestTimeoutException");
+                assertPooledStateReleased();
+        }
+
+        @Test
+        void testAsyncDeferredResultErrorResultLoggedOnce() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/async-deferred-error"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isConflict());
+
+                DetailedLogRecord record = captureSingleAsyncRecord();
+                assertThat(record.getStatusCode()).isEqualTo(409);
+                assertThat(record.getErrorIndicator()).isEqualTo("WARN:ResponseStatusException");
+                assertThat(record.getExceptionStacktrace()).contains("deferred-failed");
+                assertPooledStateReleased();
+        }
+
+        /**
+         * 触发异步请求的超时，与容器的超时回调相同
+         */
+        private static void timeout(MvcResult mvcResult) throws Exception {
+                MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+                for (AsyncListener listener : asyncContext.getListeners()) {
+                        listener.onTimeout(new AsyncEvent(asyncContext));
+                }
+        }
+
+        private DetailedLogRecord captureSingleAsyncRecord() {
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                return (DetailedLogRecord) logRecordCaptor.getValue();
+        }
+
+        /**
+         * 异步请求的状态不占用请求线程的复用状态，之后的同步请求得到干净的日志记录
+         */
+        private void assertPooledStateReleased() throws Exception {
+                reset(defaultJsonLogger);
+                perform(MockMvcRequestBuilders.get("/test-apilogging/get")
+                                .param("paramA", "valueA")
+                                .param("paramB", "valueB"))
+                                .andExpect(status().isOk());
+
+                ArgumentCaptor<SimpleLogRecord> captor = ArgumentCaptor.forClass(SimpleLogRecord.class);
+                verify(defaultJsonLogger, times(1)).publish(captor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) captor.getValue();
+                assertThat(record.getStatusCode()).isEqualTo(200);
+                assertThat(record.getErrorIndicator()).isNull();
+                assertThat(record.getExceptionStacktrace()).isNull();
+                assertThat(record.getResponseData()).contains("valueA");
+                reset(defaultJsonLogger);
+        }
+
+        @Test
+        void testStreamingResponseBodyCountsBytesWithoutSerializing() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/stream-body"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+                assertThat(record.getResponseData()).startsWith("[流式响应:");
+                assertThat(record.getStreamStatus()).isEqualTo("COMPLETED");
+                assertThat(record.getStreamBytes()).isEqualTo(21L);
+                assertThat(record.getStreamEvents()).isEqualTo(3L);
+                assertThat(record.getTimeToFirstByteMs()).isNotNull();
+        }
+
+        @Test
+        void testSseEmitterCountsEvents() throws Exception {
+                properties.setLogMode(LogMode.SIMPLE);
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/sse"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                SimpleLogRecord record = logRecordCaptor.getValue();
+                assertThat(record.getStreamStatus()).isEqualTo("COMPLETED");
+                assertThat(record.getStreamEvents()).isEqualTo(3L);
+                assertThat(record.getStreamBytes())
+                                .isEqualTo((long) mvcResult.getResponse().getContentAsByteArray().length);
+        }
+
         @Test
         void testLoggingDisabled() throws Exception {
                 properties.setEnabled(false);
 
-                mockMvc.perform(MockMvcRequestBuilders.get("/test-apilogging/get")
+                perform(MockMvcRequestBuilders.get("/test-apilogging/get")
                                 .param("paramA", "valueA")
                                 .param("paramB", "valueB"))
                                 .andExpect(status().isOk());
@@ -309,7 +600,7 @@ public class ApiLoggingAspectTest {
                 TestApiLoggingController.TestData payload = new TestApiLoggingController.TestData();
                 payload.setField1("ThisIsALongFieldValue");
 
-                mockMvc.perform(MockMvcRequestBuilders.post("/test-apilogging/json")
+                perform(MockMvcRequestBuilders.post("/test-apilogging/json")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(payload)))
                                 .andExpect(status().isOk());
@@ -317,14 +608,16 @@ public class ApiLoggingAspectTest {
                 verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
                 DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
 
-                // 完全匹配实际输出格式
-                assertThat(record.getRequestParams()).isEqualTo("{\"data\":{\"...[已截断]");
+                // 在字段名中截断，丢弃未写完的字段名，截断标记作为 "..." 字段的值
+                assertThat(record.getRequestParams()).startsWith("{\"data\":{\"...\":\"...[已截断, 原始长度>")
+                                .endsWith("]\"}}");
+                objectMapper.readTree(record.getRequestParams());
         }
 
         // 测试 voidResponse 返回 Response<Void>
         @Test
         void testVoidResponse() throws Exception {
-                mockMvc.perform(MockMvcRequestBuilders.get("/test-apilogging/void-response"))
+                perform(MockMvcRequestBuilders.get("/test-apilogging/void-response"))
                         .andExpect(status().isOk());
 
                 verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
@@ -342,7 +635,7 @@ public class ApiLoggingAspectTest {
                 payload.setField1("input1");
                 payload.setField2("input2");
 
-                mockMvc.perform(MockMvcRequestBuilders.post("/test-apilogging/test-data-response")
+                perform(MockMvcRequestBuilders.post("/test-apilogging/test-data-response")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(payload)))
                         .andExpect(status().isOk());
@@ -363,7 +656,7 @@ public class ApiLoggingAspectTest {
                 payload.setField1("input1");
                 payload.setField2("input2");
 
-                mockMvc.perform(MockMvcRequestBuilders.post("/test-apilogging/test-void-response")
+                perform(MockMvcRequestBuilders.post("/test-apilogging/test-void-response")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(payload)))
                         .andExpect(status().isOk());
@@ -375,6 +668,183 @@ public class ApiLoggingAspectTest {
                 // 断言返回体为void，可根据实际日志内容补充
         }
 
+        // --- 请求信息采集时机测试用例 ---
+
+        @Test
+        void testLazyCaptureSkipsRequestContentForSimpleLog() throws Exception {
+                properties.setLogMode(LogMode.SIMPLE);
+                TestApiLoggingController.TestData payload = new TestApiLoggingController.TestData();
+                payload.setField1("original");
+
+                perform(MockMvcRequestBuilders.post("/test-apilogging/mutate-argument")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(payload)))
+                        .andExpect(status().isOk());
+
+                verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
+                SimpleLogRecord record = logRecordCaptor.getValue();
+
+                assertThat(record).isNotInstanceOf(DetailedLogRecord.class);
+                assertThat(record.getLogMode()).isEqualTo(LogMode.SIMPLE.name());
+                // 精简日志只记录带查询参数的URI，不格式化参数和请求头
+                verify(logContentFormatter, never()).formatArguments(any(), any(), any());
+                verify(logContentFormatter, never()).captureArguments(any(), any(), any());
+                verify(logContentFormatter, never()).formatRequestHeaders(any(), any());
+        }
+
+        @Test
+        void testLazyCaptureRecordsArgumentsAfterExecution() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+                TestApiLoggingController.TestData payload = new TestApiLoggingController.TestData();
+                payload.setField1("original");
+
+                perform(MockMvcRequestBuilders.post("/test-apilogging/mutate-argument")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(payload))
+                                .header("X-Lazy-Header", "lazy"))
+                        .andExpect(status().isOk());
+
+                verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+
+                // 延迟采集记录的是方法执行后的参数状态
+                assertThat(record.getRequestParams()).contains("\"field1\":\"mutated\"");
+                assertThat(record.getRequestHeader()).containsKey("X-Lazy-Header");
+                verify(logContentFormatter).formatRequestHeaders(any(), any());
+        }
+
+        @Test
+        void testEagerCaptureSnapshotsArgumentsBeforeExecution() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+                properties.setCaptureMode(CaptureMode.EAGER);
+                TestApiLoggingController.TestData payload = new TestApiLoggingController.TestData();
+                payload.setField1("original");
+
+                perform(MockMvcRequestBuilders.post("/test-apilogging/mutate-argument")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(payload)))
+                        .andExpect(status().isOk());
+
+                verify(defaultJsonLogger, atLeastOnce()).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+
+                assertThat(record.getRequestParams()).contains("\"field1\":\"original\"")
+                                .doesNotContain("mutated");
+        }
+
+        @Test
+        void testRequestParamsCapturedFromRawBody() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+                properties.getRequestCapture().setEnabled(true);
+                String body = "{ \"field1\" : \"原始内容\", \"field2\" : 2 }";
+
+                perform(MockMvcRequestBuilders.post("/test-apilogging/json")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body.getBytes(StandardCharsets.UTF_8)))
+                        .andExpect(status().isOk());
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+                // 请求体参数记录的是原始请求体，保留了原有的空白
+                assertThat(record.getRequestParams()).isEqualTo("{\"data\":" + body + "}");
+                assertThat(record.getRequestBytes()).isEqualTo(body.getBytes(StandardCharsets.UTF_8).length);
+        }
+
+        @Test
+        void testRawBodyKeepsOtherArguments() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+                properties.getRequestCapture().setEnabled(true);
+                String body = "{ \"field1\" : \"原始内容\" }";
+
+                perform(MockMvcRequestBuilders.post("/test-apilogging/orders/42")
+                                .param("operator", "alice")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body.getBytes(StandardCharsets.UTF_8)))
+                        .andExpect(status().isOk());
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+                // 只有请求体参数使用原始请求体，路径变量和请求参数照常记录
+                assertThat(objectMapper.readTree(record.getRequestParams()))
+                                .isEqualTo(objectMapper.readTree("{\"id\":42,\"operator\":\"alice\",\"data\":" + body + "}"));
+                assertThat(record.getRequestParams()).contains(body);
+        }
+
+        @Test
+        void testRawBodyNotUsedWithSensitiveArguments() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+                properties.getRequestCapture().setEnabled(true);
+                properties.getSensitive().getArgNames().add("data");
+
+                perform(MockMvcRequestBuilders.post("/test-apilogging/json")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"field1\":\"secret\"}"))
+                        .andExpect(status().isOk());
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+                assertThat(record.getRequestParams()).doesNotContain("secret");
+        }
+
+        @Test
+        void testResponseDataCapturedFromWrittenBytes() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+                properties.getResponseCapture().setEnabled(true);
+                TestApiLoggingController.TestData payload = new TestApiLoggingController.TestData();
+                payload.setField1("值1");
+                payload.setField2("value2");
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.post("/test-apilogging/json")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(payload)))
+                        .andExpect(status().isOk())
+                        .andReturn();
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+                byte[] body = mvcResult.getResponse().getContentAsByteArray();
+                assertThat(record.getResponseData()).isEqualTo(new String(body, StandardCharsets.UTF_8));
+                assertThat(record.getResponseBytes()).isEqualTo(body.length);
+        }
+
+        @Test
+        void testCapturedResponseTruncatedWithTrueSize() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+                properties.getResponseCapture().setEnabled(true);
+                properties.setMaxPayloadLength(16);
+                TestApiLoggingController.TestData payload = new TestApiLoggingController.TestData();
+                payload.setField1("一二三四五六七八九十");
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.post("/test-apilogging/json")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(payload)))
+                        .andExpect(status().isOk())
+                        .andReturn();
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+                // 前16个字节为 {"field1":" 和一个完整的汉字，第二个汉字被截断的字节不计入
+                assertThat(record.getResponseData()).isEqualTo("{\"field1\":\"一...[已截断]");
+                assertThat(record.getResponseBytes())
+                                .isEqualTo(mvcResult.getResponse().getContentAsByteArray().length);
+        }
+
+        @Test
+        void testAsyncResponseCapturedOnCompletion() throws Exception {
+                properties.setLogMode(LogMode.DETAILED);
+                properties.getResponseCapture().setEnabled(true);
+
+                MvcResult mvcResult = perform(MockMvcRequestBuilders.get("/test-apilogging/async-future"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+
+                verify(defaultJsonLogger, times(1)).publish(logRecordCaptor.capture());
+                DetailedLogRecord record = (DetailedLogRecord) logRecordCaptor.getValue();
+                assertThat(record.getResponseData()).isEqualTo("async-ok");
+                assertThat(record.getResponseBytes()).isEqualTo(8L);
+        }
+
         // --- 过滤器功能测试用例 ---
 
         /**
@@ -382,7 +852,7 @@ public class ApiLoggingAspectTest {
          */
         @Test
         void tetMethodFilter() throws Exception {
-                mockMvc.perform(MockMvcRequestBuilders.post("/test-apilogging/test-method-filter")
+                perform(MockMvcRequestBuilders.post("/test-apilogging/test-method-filter")
                                 .contentType(MediaType.APPLICATION_JSON))
                         .andExpect(status().isOk());
 
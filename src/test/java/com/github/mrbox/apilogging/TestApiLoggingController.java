@@ -8,9 +8,17 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * 用于测试ApiLoggingAspect切面
@@ -94,12 +102,126 @@ public class TestApiLoggingController {
         return data;
     }
 
+    @PostMapping("/orders/{id}")
+    @ResponseBody
+    public String updateOrder(@PathVariable long id, @RequestParam String operator, @RequestBody TestData data) {
+        return "ok";
+    }
+
+    @PostMapping("/mutate-argument")
+    @ResponseBody
+    public String mutateArgument(@RequestBody TestData data) {
+        data.setField1("mutated");
+        return "ok";
+    }
+
     @PostMapping("/test-method-filter")
     @ResponseBody
     public String testMethodFilter() {
         return "ok";
     }
 
+    @GetMapping("/async-future")
+    @ResponseBody
+    public CompletableFuture<String> asyncFuture() {
+        return CompletableFuture.supplyAsync(() -> {
+            sleep(80);
+            return "async-ok";
+        });
+    }
+
+    @GetMapping("/async-callable")
+    @ResponseBody
+    public Callable<ResponseEntity<String>> asyncCallable() {
+        return () -> {
+            sleep(80);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body("callable-ok");
+        };
+    }
+
+    @GetMapping("/async-callable-error")
+    @ResponseBody
+    public Callable<String> asyncCallableError() {
+        return () -> {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "callable-failed");
+        };
+    }
+
+    /**
+     * 慢 Callable 开始执行后计数，超时前需要等待 Callable 已在线程池中开始执行，否则超时时任务直接被取消
+     */
+    static volatile CountDownLatch slowCallableStarted = new CountDownLatch(1);
+
+    @GetMapping("/async-callable-slow")
+    @ResponseBody
+    public Callable<String> asyncCallableSlow() {
+        slowCallableStarted = new CountDownLatch(1);
+        return () -> {
+            slowCallableStarted.countDown();
+            // 超时时 Spring MVC 会中断 Callable，这里忽略中断，保证超时的结果先于 Callable 的结果设置
+            long deadline = System.currentTimeMillis() + 300;
+            while (System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ignored) {
+                    // 继续等待
+                }
+            }
+            return "callable-late";
+        };
+    }
+
+    @GetMapping("/async-deferred-pending")
+    @ResponseBody
+    public DeferredResult<String> asyncDeferredPending() {
+        return new DeferredResult<>();
+    }
+
+    @GetMapping("/async-deferred-error")
+    @ResponseBody
+    public DeferredResult<String> asyncDeferredError() {
+        DeferredResult<String> deferredResult = new DeferredResult<>();
+        CompletableFuture.runAsync(() -> {
+            sleep(50);
+            deferredResult.setErrorResult(new ResponseStatusException(HttpStatus.CONFLICT, "deferred-failed"));
+        });
+        return deferredResult;
+    }
+
+    @GetMapping("/stream-body")
+    public StreamingResponseBody streamBody() {
+        return outputStream -> {
+            for (int i = 0; i < 3; i++) {
+                outputStream.write("chunk-".concat(String.valueOf(i)).getBytes(StandardCharsets.UTF_8));
+                outputStream.flush();
+            }
+        };
+    }
+
+    @GetMapping("/sse")
+    public SseEmitter sse() {
+        SseEmitter emitter = new SseEmitter();
+        CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < 3; i++) {
+                    emitter.send(SseEmitter.event().name("tick").data("event-" + i));
+                }
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Data
     public static class TestData {
         private String field1;
@@ -4,6 +4,8 @@ import com.github.mrbox.apilogging.filter.FilterManager;
 import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
 import com.github.mrbox.apilogging.formatter.LogContentFormatter;
 import com.github.mrbox.apilogging.logger.ApiLoggingLogger;
+import com.github.mrbox.apilogging.servlet.RequestCapturingFilter;
+import com.github.mrbox.apilogging.servlet.ResponseCountingFilter;
 import com.github.mrbox.apilogging.trigger.DetailedLogTrigger;
 import com.github.mrbox.apilogging.trigger.ExceptionDetailedLogTrigger;
 import com.github.mrbox.apilogging.trigger.HeaderDetailedLogTrigger;
@@ -12,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
@@ -52,6 +55,19 @@ public class TestConfig {
         return new ExceptionDetailedLogTrigger();
     }
 
+    @Bean
+    public ResponseCountingFilter responseCountingFilter(ApiLoggingProperties properties) {
+        return new ResponseCountingFilter(properties);
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestCapturingFilter> requestCapturingFilter(ApiLoggingProperties properties) {
+        FilterRegistrationBean<RequestCapturingFilter> registration =
+                new FilterRegistrationBean<>(new RequestCapturingFilter(properties));
+        registration.setOrder(properties.getRequestCapture().getFilterOrder());
+        return registration;
+    }
+
     @Bean
     @Primary
     public ApiLoggingAspect apiLoggingAspect(
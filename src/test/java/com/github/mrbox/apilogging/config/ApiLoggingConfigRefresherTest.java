@@ -0,0 +1,119 @@
+package com.github.mrbox.apilogging.config;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 配置快照编译和运行时刷新测试
+ */
+public class ApiLoggingConfigRefresherTest {
+
+    @Test
+    void testCompiledConfig() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getSensitive().getRequestHeaders().add("X-Api-Key");
+        properties.getExcludedArgumentOnContentTypes().add("Application/XML");
+        properties.getForceDetailedLogPatterns().add("/api/admin/**");
+
+        CompiledApiLoggingConfig config = properties.compiled();
+
+        assertThat(config.isSensitiveHeader("authorization")).isTrue();
+        assertThat(config.isSensitiveHeader("x-api-key")).isTrue();
+        assertThat(config.isSensitiveHeader("Accept")).isFalse();
+        assertThat(config.isExcludedArgumentContentType("application/xml;charset=UTF-8")).isTrue();
+        assertThat(config.isExcludedArgumentContentType("MULTIPART/FORM-DATA; boundary=x")).isTrue();
+        assertThat(config.isExcludedArgumentContentType("application/json")).isFalse();
+        assertThat(config.isDetailedStatusCode(500)).isTrue();
+        assertThat(config.isDetailedStatusCode(200)).isFalse();
+        assertThat(config.isDetailedStatusCode(-1)).isFalse();
+        assertThat(config.getForceDetailedPatternIndex().matches("/api/admin/users")).isTrue();
+        assertThat(properties.compiled()).isSameAs(config);
+    }
+
+    @Test
+    void testRefreshFromEnvironment() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        MockEnvironment environment = new MockEnvironment();
+        ApiLoggingConfigRefresher refresher = new ApiLoggingConfigRefresher(properties, environment);
+
+        CompiledApiLoggingConfig before = properties.compiled();
+        assertThat(before.isDetailedStatusCode(429)).isFalse();
+
+        environment.setProperty("mr-box.api-logging.detailed-log-on-status-codes", "429,503");
+        environment.setProperty("mr-box.api-logging.sensitive.request-headers", "Cookie");
+        environment.setProperty("mr-box.api-logging.max-payload-length", "64");
+        CompiledApiLoggingConfig after = refresher.refresh();
+
+        // 旧快照保持不变，新快照整体替换
+        assertThat(after).isNotSameAs(before);
+        assertThat(properties.compiled()).isSameAs(after);
+        assertThat(before.isDetailedStatusCode(500)).isTrue();
+        assertThat(after.isDetailedStatusCode(429)).isTrue();
+        assertThat(after.isDetailedStatusCode(500)).isFalse();
+        assertThat(after.isSensitiveHeader("cookie")).isTrue();
+        assertThat(after.isSensitiveHeader("Authorization")).isFalse();
+        assertThat(properties.current().getMaxPayloadLength()).isEqualTo(64);
+        assertThat(after.getProperties()).isSameAs(properties.current());
+        // 新配置同时复制到注入的配置属性对象，但不与快照共享
+        assertThat(properties.getMaxPayloadLength()).isEqualTo(64);
+        assertThat(properties.getDetailedLogOnStatusCodes()).containsExactlyInAnyOrder(429, 503);
+        assertThat(properties.getDetailedLogOnStatusCodes()).isNotSameAs(after.getProperties().getDetailedLogOnStatusCodes());
+    }
+
+    @Test
+    void testSnapshotIsolatedFromPropertyChanges() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        CompiledApiLoggingConfig config = properties.compiled();
+
+        properties.setMaxPayloadLength(64);
+        properties.getSensitive().getRequestHeaders().add("Cookie");
+        properties.getDetailedLogOnStatusCodes().add(429);
+        properties.getSampling().getRoutes().put("/api/**", new ApiLoggingProperties.RouteSampling());
+
+        // 修改配置属性对象不影响已发布的快照，包括快照中复制的配置属性
+        assertThat(properties.compiled()).isSameAs(config);
+        assertThat(properties.current()).isNotSameAs(properties);
+        assertThat(properties.current().getMaxPayloadLength()).isEqualTo(1024);
+        assertThat(properties.current().getSensitive().getRequestHeaders()).doesNotContain("Cookie");
+        assertThat(properties.current().getSampling().getRoutes()).isEmpty();
+        assertThat(config.isSensitiveHeader("Cookie")).isFalse();
+        assertThat(config.isDetailedStatusCode(429)).isFalse();
+
+        CompiledApiLoggingConfig refreshed = properties.refreshCompiled();
+        assertThat(refreshed.getProperties().getMaxPayloadLength()).isEqualTo(64);
+        assertThat(refreshed.getProperties().getSampling().getRoutes()).containsKey("/api/**");
+        assertThat(refreshed.isSensitiveHeader("cookie")).isTrue();
+        assertThat(refreshed.isDetailedStatusCode(429)).isTrue();
+        assertThat(refreshed.getProperties().compiled()).isSameAs(refreshed);
+    }
+
+    @Test
+    void testRefreshRestoresDefaultsForRemovedKeys() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        MockEnvironment environment = new MockEnvironment();
+        ApiLoggingConfigRefresher refresher = new ApiLoggingConfigRefresher(properties, environment);
+
+        Map<String, Object> source = new HashMap<>();
+        source.put("mr-box.api-logging.max-payload-length", "64");
+        source.put("mr-box.api-logging.detailed-log-on-status-codes", "429");
+        environment.getPropertySources().addFirst(new MapPropertySource("remote", source));
+        refresher.refresh();
+        assertThat(properties.current().getMaxPayloadLength()).isEqualTo(64);
+        assertThat(properties.compiled().isDetailedStatusCode(429)).isTrue();
+
+        environment.getPropertySources().remove("remote");
+        refresher.refresh();
+
+        ApiLoggingProperties defaults = new ApiLoggingProperties();
+        assertThat(properties.current().getMaxPayloadLength()).isEqualTo(defaults.getMaxPayloadLength());
+        assertThat(properties.compiled().isDetailedStatusCode(429)).isFalse();
+        assertThat(properties.compiled().isDetailedStatusCode(500)).isTrue();
+    }
+}
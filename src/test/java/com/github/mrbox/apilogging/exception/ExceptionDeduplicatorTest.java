@@ -0,0 +1,134 @@
+package com.github.mrbox.apilogging.exception;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.ExceptionSummaryRecord;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 重复异常去重的测试
+ */
+public class ExceptionDeduplicatorTest {
+
+    private final List<SimpleLogRecord> published = new CopyOnWriteArrayList<>();
+    private ExceptionDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getExceptionDedup().setMaxFullStacks(2);
+        // 窗口足够长，测试中手动结束窗口
+        properties.getExceptionDedup().setWindowMs(3_600_000L);
+        deduplicator = new ExceptionDeduplicator(properties, published::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deduplicator.destroy();
+    }
+
+    @Test
+    void testFingerprintStableForSameSite() {
+        String[] fingerprints = new String[2];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = deduplicator.fingerprint(siteA("message-" + i));
+        }
+        String first = fingerprints[0];
+        String second = fingerprints[1];
+        String other = deduplicator.fingerprint(siteB("message-0"));
+
+        // 指纹与异常信息无关，只与类型和抛出位置有关
+        assertThat(first).hasSize(16).isEqualTo(second);
+        assertThat(other).isNotEqualTo(first);
+    }
+
+    @Test
+    void testFullStacksLimitedPerWindow() {
+        String fingerprint = null;
+        for (int i = 0; i < 5; i++) {
+            IllegalStateException exception = siteA("x");
+            fingerprint = deduplicator.fingerprint(exception);
+            assertThat(deduplicator.recordOccurrence(fingerprint, exception)).isEqualTo(i < 2);
+        }
+
+        deduplicator.flush();
+
+        assertThat(published).hasSize(1);
+        ExceptionSummaryRecord summary = (ExceptionSummaryRecord) published.get(0);
+        assertThat(summary.getLogMode()).isEqualTo(ExceptionSummaryRecord.LOG_MODE);
+        assertThat(summary.getExceptionFingerprint()).isEqualTo(fingerprint);
+        assertThat(summary.getExceptionType()).isEqualTo(IllegalStateException.class.getName());
+        assertThat(summary.getTopFrame()).contains("siteA");
+        assertThat(summary.getOccurrences()).isEqualTo(5L);
+        assertThat(summary.getSuppressedCount()).isEqualTo(3L);
+
+        // 新窗口重新记录完整堆栈
+        assertThat(deduplicator.recordOccurrence(fingerprint, siteA("x"))).isTrue();
+    }
+
+    @Test
+    void testIdleFingerprintRemoved() {
+        String fingerprint = deduplicator.fingerprint(siteB("y"));
+        deduplicator.recordOccurrence(fingerprint, siteB("y"));
+
+        deduplicator.flush();
+        // 未超过完整堆栈次数，不发布汇总
+        assertThat(published).isEmpty();
+        assertThat(deduplicator.getFingerprintCount()).isEqualTo(1);
+
+        deduplicator.flush();
+        assertThat(deduplicator.getFingerprintCount()).isZero();
+    }
+
+    @Test
+    void testNoOccurrenceLostWhileFlushing() throws Exception {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        // 每个窗口都发布汇总，汇总次数之和即为记录的总次数
+        properties.getExceptionDedup().setMaxFullStacks(0);
+        properties.getExceptionDedup().setWindowMs(3_600_000L);
+        List<SimpleLogRecord> summaries = new CopyOnWriteArrayList<>();
+        ExceptionDeduplicator concurrent = new ExceptionDeduplicator(properties, summaries::add);
+        IllegalStateException exception = siteA("z");
+        String fingerprint = concurrent.fingerprint(exception);
+
+        int threads = 4;
+        int perThread = 20_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    concurrent.recordOccurrence(fingerprint, exception);
+                    // 制造指纹在窗口内没有出现、被移除的时机
+                    if (i % 64 == 0) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        while (!done.await(0, TimeUnit.MILLISECONDS)) {
+            concurrent.flush();
+        }
+        concurrent.destroy();
+
+        long total = summaries.stream().mapToLong(r -> ((ExceptionSummaryRecord) r).getOccurrences()).sum();
+        assertThat(total).isEqualTo((long) threads * perThread);
+    }
+
+    private static IllegalStateException siteA(String message) {
+        return new IllegalStateException(message);
+    }
+
+    private static IllegalStateException siteB(String message) {
+        return new IllegalStateException(message);
+    }
+}
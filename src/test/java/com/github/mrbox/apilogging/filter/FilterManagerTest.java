@@ -0,0 +1,187 @@
+package com.github.mrbox.apilogging.filter;
+
+import com.github.mrbox.apilogging.model.ApiLoggingDataContext;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 过滤器结果缓存和执行顺序的测试
+ */
+public class FilterManagerTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    private static ProceedingJoinPoint joinPoint(String methodName) throws NoSuchMethodException {
+        Method method = SampleController.class.getMethod(methodName);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new SampleController());
+        return joinPoint;
+    }
+
+    private static HttpServletRequest request(String route) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, route);
+        return request;
+    }
+
+    @Test
+    void testHandlerOnlyVerdictsMemoizedPerHandlerAndRoute() throws Exception {
+        RecordingPreFilter routeFilter = new RecordingPreFilter("route", 0, false,
+                EnumSet.of(FilterInput.HANDLER, FilterInput.ROUTE));
+        FilterManager filterManager = new FilterManager(Collections.singletonList(routeFilter), null);
+        ProceedingJoinPoint orders = joinPoint("orders");
+        ProceedingJoinPoint users = joinPoint("users");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(filterManager.shouldSkipLoggingByPreFilters(orders, request("/orders/{id}"))).isFalse();
+        }
+        assertThat(calls).hasSize(1);
+
+        // 不同的路由和Controller方法分别计算
+        filterManager.shouldSkipLoggingByPreFilters(orders, request("/orders"));
+        filterManager.shouldSkipLoggingByPreFilters(users, request("/orders/{id}"));
+        assertThat(calls).hasSize(3);
+
+        // 没有路由模板时不缓存
+        filterManager.shouldSkipLoggingByPreFilters(orders, request(null));
+        filterManager.shouldSkipLoggingByPreFilters(orders, request(null));
+        assertThat(calls).hasSize(5);
+
+        // 配置刷新后重新计算
+        filterManager.clearCache();
+        filterManager.shouldSkipLoggingByPreFilters(orders, request("/orders/{id}"));
+        assertThat(calls).hasSize(6);
+    }
+
+    @Test
+    void testFiltersRunInOrderAcrossCachedAndUncachedSegments() throws Exception {
+        List<PreFilter> filters = Arrays.asList(
+                new RecordingPreFilter("handler-3", 3, false, EnumSet.of(FilterInput.HANDLER)),
+                new RecordingPreFilter("request-1", 1, false, EnumSet.of(FilterInput.HEADER)),
+                new RecordingPreFilter("request-4", 4, false, EnumSet.of(FilterInput.URI)),
+                new RecordingPreFilter("handler-2", 2, false, EnumSet.of(FilterInput.HANDLER)));
+        FilterManager filterManager = new FilterManager(filters, null);
+
+        filterManager.shouldSkipLoggingByPreFilters(joinPoint("orders"), request("/orders/{id}"));
+        assertThat(calls).containsExactly("request-1", "handler-2", "handler-3", "request-4");
+
+        calls.clear();
+        filterManager.shouldSkipLoggingByPreFilters(joinPoint("orders"), request("/orders/{id}"));
+        assertThat(calls).containsExactly("request-1", "request-4");
+    }
+
+    @Test
+    void testEarlierRequestFilterShortCircuitsLaterHandlerFilter() throws Exception {
+        List<PreFilter> filters = Arrays.asList(
+                new RecordingPreFilter("handler-2", 2, true, EnumSet.of(FilterInput.HANDLER)),
+                new RecordingPreFilter("request-1", 1, true, EnumSet.of(FilterInput.HEADER)));
+        FilterManager filterManager = new FilterManager(filters, null);
+
+        assertThat(filterManager.shouldSkipLoggingByPreFilters(joinPoint("orders"), request("/orders/{id}"))).isTrue();
+        assertThat(calls).containsExactly("request-1");
+    }
+
+    @Test
+    void testRequestPostFiltersKeepOrderAndResponseFiltersRunAfter() throws Exception {
+        List<PostFilter> filters = Arrays.asList(
+                new RecordingPostFilter("response-0", 0, EnumSet.of(FilterInput.RESPONSE)),
+                new RecordingPostFilter("handler-2", 2, EnumSet.of(FilterInput.HANDLER)),
+                new RecordingPostFilter("request-1", 1, EnumSet.of(FilterInput.HEADER)));
+        FilterManager filterManager = new FilterManager(null, filters);
+
+        assertThat(filterManager.shouldSkipLoggingByPostFilters(joinPoint("orders"), request("/orders/{id}"),
+                null, null, null, null, 0L)).isFalse();
+        // 依赖执行结果的过滤器在方法执行后判断，其余按优先级在方法执行前判断
+        assertThat(calls).containsExactly("request-1", "handler-2", "response-0");
+    }
+
+    private final class RecordingPreFilter implements PreFilter {
+        private final String name;
+        private final int order;
+        private final boolean skip;
+        private final Set<FilterInput> inputs;
+
+        private RecordingPreFilter(String name, int order, boolean skip, Set<FilterInput> inputs) {
+            this.name = name;
+            this.order = order;
+            this.skip = skip;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public boolean shouldSkipLogging(ProceedingJoinPoint joinPoint, HttpServletRequest request) {
+            calls.add(name);
+            return skip;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public Set<FilterInput> decisionInputs() {
+            return inputs;
+        }
+    }
+
+    private final class RecordingPostFilter implements PostFilter {
+        private final String name;
+        private final int order;
+        private final Set<FilterInput> inputs;
+
+        private RecordingPostFilter(String name, int order, Set<FilterInput> inputs) {
+            this.name = name;
+            this.order = order;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public boolean shouldSkipLogging(ProceedingJoinPoint joinPoint, HttpServletRequest request,
+                                         HttpServletResponse response, Object result, Throwable exception,
+                                         ApiLoggingDataContext loggingDataContext, long processingTimeMs) {
+            calls.add(name);
+            return false;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public Set<FilterInput> decisionInputs() {
+            return inputs;
+        }
+    }
+
+    public static class SampleController {
+        public String orders() {
+            return "orders";
+        }
+
+        public String users() {
+            return "users";
+        }
+    }
+}
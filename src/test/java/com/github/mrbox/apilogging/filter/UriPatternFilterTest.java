@@ -0,0 +1,56 @@
+package com.github.mrbox.apilogging.filter;
+
+import com.github.mrbox.apilogging.filter.impl.UriPatternPostFilter;
+import com.github.mrbox.apilogging.filter.impl.UriPatternPreFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * URI模式过滤器按路由模板和原始URI匹配的测试
+ */
+public class UriPatternFilterTest {
+
+    private static MockHttpServletRequest request(String contextPath, String path, String route) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", contextPath + path);
+        request.setContextPath(contextPath);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, route);
+        return request;
+    }
+
+    @Test
+    void testRouteTemplatePattern() {
+        UriPatternPreFilter filter = new UriPatternPreFilter(Collections.singleton("/orders/{id}"));
+
+        assertThat(filter.shouldSkipLogging(null, request("", "/orders/42", "/orders/{id}"))).isTrue();
+        assertThat(filter.shouldSkipLogging(null, request("", "/users/42", "/users/{id}"))).isFalse();
+    }
+
+    @Test
+    void testConcreteUriAndContextPathPatterns() {
+        UriPatternPreFilter concrete = new UriPatternPreFilter(Collections.singleton("/orders/42"));
+        UriPatternPostFilter contextPath = new UriPatternPostFilter(Collections.singleton("/app/orders/**"));
+
+        // 路由模板未命中时匹配原始URI，原始URI含 context-path
+        assertThat(concrete.shouldSkipLogging(null, request("", "/orders/42", "/orders/{id}"))).isTrue();
+        assertThat(concrete.shouldSkipLogging(null, request("", "/orders/43", "/orders/{id}"))).isFalse();
+        assertThat(contextPath.shouldSkipLogging(null, request("/app", "/orders/42", "/orders/{id}"),
+                null, null, null, null, 0L)).isTrue();
+        assertThat(concrete.decisionInputs()).isEqualTo(EnumSet.of(FilterInput.ROUTE, FilterInput.URI));
+    }
+
+    @Test
+    void testRouteTemplateOnly() {
+        UriPatternPreFilter filter = new UriPatternPreFilter(Collections.singleton("/orders/42"), true);
+
+        assertThat(filter.shouldSkipLogging(null, request("", "/orders/42", "/orders/{id}"))).isFalse();
+        // 没有路由模板时仍然匹配原始URI
+        assertThat(filter.shouldSkipLogging(null, request("", "/orders/42", null))).isTrue();
+        assertThat(filter.decisionInputs()).isEqualTo(EnumSet.of(FilterInput.ROUTE));
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.mrbox.apilogging.formatter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 有长度上限的序列化测试
+ */
+public class BoundedJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DefaultLogContentFormatter formatter = new DefaultLogContentFormatter(objectMapper);
+
+    @Test
+    void testStopSerializingAtLimit() throws Exception {
+        AtomicInteger serialized = new AtomicInteger();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            items.add(new Item(i, serialized));
+        }
+        String full = objectMapper.writeValueAsString(Collections.singletonMap("items", items));
+        serialized.set(0);
+
+        String result = formatter.writeValueTruncated(Collections.singletonMap("items", items), 1024);
+
+        // 补全时只丢弃末尾未写完的字段名或数字
+        assertThat(result).startsWith(full.substring(0, 1000));
+        assertThat(objectMapper.readTree(result).get("items")).isNotEmpty();
+        long estimated = markedLength(result, "原始长度约");
+        assertThat(estimated).isBetween(full.length() * 8L / 10, full.length() * 12L / 10);
+        // 只序列化了生成器缓冲区能容纳的少量元素
+        assertThat(serialized.get()).isLessThan(1_000);
+    }
+
+    @Test
+    void testWithinLimit() throws Exception {
+        Item item = new Item(7, new AtomicInteger());
+        String json = objectMapper.writeValueAsString(item);
+
+        assertThat(formatter.writeValueTruncated(item, json.length())).isEqualTo(json);
+        assertThat(formatter.writeValueTruncated(item, -1)).isEqualTo(json);
+        // 字段名之后补上冒号，截断标记作为字段的值
+        assertThat(formatter.writeValueTruncated(item, 5))
+                .isEqualTo(json.substring(0, 5) + ":\"...[已截断, 原始长度>" + json.length() + "]\"}");
+    }
+
+    @Test
+    void testEstimateStringLength() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            text.append('a');
+        }
+        String full = objectMapper.writeValueAsString(text.toString());
+
+        String result = formatter.writeValueTruncated(text.toString(), 1024);
+
+        // 顶层值为字符串时为完整长度
+        assertThat(result).isEqualTo(full.substring(0, 1024) + "...[已截断, 原始长度约" + full.length() + "]\"");
+    }
+
+    @Test
+    void testLowerBoundForObject() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            text.append('a');
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("content", text.toString());
+        body.put("tail", text.toString());
+        String full = objectMapper.writeValueAsString(body);
+
+        String result = formatter.writeValueTruncated(body, 1024);
+
+        // 字符串之后还有其他字段，只能给出已知的最小长度：截断所在的字符串结束的位置
+        assertThat(result).startsWith(full.substring(0, 1024) + "...[已截断, 原始长度>").endsWith("]\"}");
+        assertThat(objectMapper.readTree(result).get("content").asText()).endsWith("]");
+        assertThat(markedLength(result, "原始长度>")).isEqualTo(full.indexOf(",\"tail\""));
+    }
+
+    @Test
+    void testCompleteTruncatedJson() throws Exception {
+        String marker = "...[已截断]";
+        // 字符串值中截断
+        assertThat(BoundedJsonWriter.complete("{\"a\":[\"xy", marker)).isEqualTo("{\"a\":[\"xy...[已截断]\"]}");
+        // 不拆分转义序列和代理对
+        assertThat(BoundedJsonWriter.complete("[\"a\\u00", marker)).isEqualTo("[\"a...[已截断]\"]");
+        assertThat(BoundedJsonWriter.complete("[\"a\\", marker)).isEqualTo("[\"a...[已截断]\"]");
+        assertThat(BoundedJsonWriter.complete("[\"\\\"b", marker)).isEqualTo("[\"\\\"b...[已截断]\"]");
+        assertThat(BoundedJsonWriter.complete("[\"a\ud83d", marker)).isEqualTo("[\"a...[已截断]\"]");
+        // 丢弃未写完的字段名、数字和字面量
+        assertThat(BoundedJsonWriter.complete("{\"a\":1,\"bc", marker)).isEqualTo("{\"a\":1,\"...\":\"...[已截断]\"}");
+        assertThat(BoundedJsonWriter.complete("{\"a\":12", marker)).isEqualTo("{\"a\":\"...[已截断]\"}");
+        assertThat(BoundedJsonWriter.complete("[true,fal", marker)).isEqualTo("[true,\"...[已截断]\"]");
+        // 缺少的分隔符、字段和值
+        assertThat(BoundedJsonWriter.complete("[{\"a\":1}", marker)).isEqualTo("[{\"a\":1},\"...[已截断]\"]");
+        assertThat(BoundedJsonWriter.complete("{\"a\":{}", marker)).isEqualTo("{\"a\":{},\"...\":\"...[已截断]\"}");
+        assertThat(BoundedJsonWriter.complete("{\"a\"", marker)).isEqualTo("{\"a\":\"...[已截断]\"}");
+        assertThat(BoundedJsonWriter.complete("{\"a\":", marker)).isEqualTo("{\"a\":\"...[已截断]\"}");
+        assertThat(BoundedJsonWriter.complete("", marker)).isEqualTo("\"...[已截断]\"");
+    }
+
+    @Test
+    void testTruncatedOutputIsValidJsonAtEveryLength() throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", -12.5e3);
+        body.put("flags", new boolean[]{true, false});
+        body.put("text", "引号\"反斜杠\\换行\n😀");
+        body.put("items", Collections.singletonList(Collections.singletonMap("k", null)));
+        String full = objectMapper.writeValueAsString(body);
+
+        for (int length = 0; length < full.length(); length++) {
+            String result = formatter.writeValueTruncated(body, length);
+            assertThat(objectMapper.readTree(result)).as("length=%d: %s", length, result).isNotNull();
+        }
+    }
+
+    private static long markedLength(String result, String prefix) {
+        int start = result.indexOf(prefix) + prefix.length();
+        return Long.parseLong(result.substring(start, result.indexOf(']', start)));
+    }
+
+    public static class Item {
+        private final int id;
+        private final AtomicInteger serialized;
+
+        Item(int id, AtomicInteger serialized) {
+            this.id = id;
+            this.serialized = serialized;
+        }
+
+        public int getId() {
+            serialized.incrementAndGet();
+            return id;
+        }
+
+        public String getName() {
+            return "item-" + id;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.mrbox.apilogging.formatter;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.LogMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 详细日志后台格式化的快照和线程池测试
+ */
+public class DetailedFormattingOffloadTest {
+
+    private final DefaultLogContentFormatter formatter = new DefaultLogContentFormatter(null);
+
+    @Test
+    void testSnapshotFormattingMatchesInlineFormatting() {
+        for (SnapshotStrategy strategy : SnapshotStrategy.values()) {
+            for (int maxPayloadLength : new int[]{-1, 10, 1024}) {
+                ApiLoggingProperties properties = new ApiLoggingProperties();
+                properties.setMaxPayloadLength(maxPayloadLength);
+                properties.getOffload().setDefaultSnapshot(strategy);
+
+                Map<String, Object> body = newBody();
+                String inline = formatter.formatReturnValue(body, LogMode.DETAILED, properties);
+                PayloadSnapshot snapshot = formatter.captureReturnValue(body, LogMode.DETAILED, properties);
+
+                assertThat(formatter.formatCapturedReturnValue(snapshot, properties))
+                        .as("strategy=%s, maxPayloadLength=%s", strategy, maxPayloadLength)
+                        .isEqualTo(inline);
+            }
+        }
+    }
+
+    @Test
+    void testSnapshotIsolatedFromLaterModification() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getOffload().getSnapshotTypes().put(Map.class.getName(), SnapshotStrategy.DEEP_COPY);
+        properties.getOffload().getSnapshotTypes().put(List.class.getName(), SnapshotStrategy.SERIALIZE);
+        properties.refreshCompiled();
+
+        Map<String, Object> body = newBody();
+        List<String> items = new ArrayList<>();
+        items.add("first");
+        PayloadSnapshot mapSnapshot = formatter.captureReturnValue(body, LogMode.DETAILED, properties);
+        PayloadSnapshot listSnapshot = formatter.captureReturnValue(items, LogMode.DETAILED, properties);
+
+        body.put("name", "modified");
+        items.add("second");
+
+        assertThat(formatter.formatCapturedReturnValue(mapSnapshot, properties))
+                .contains("\"name\":\"original\"").doesNotContain("modified");
+        assertThat(formatter.formatCapturedReturnValue(listSnapshot, properties)).isEqualTo("[\"first\"]");
+    }
+
+    @Test
+    void testDeepCopySnapshotByDefault() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        Map<String, Object> body = newBody();
+        PayloadSnapshot snapshot = formatter.captureReturnValue(body, LogMode.DETAILED, properties);
+        body.put("name", "modified");
+
+        assertThat(snapshot.getValue()).isNotSameAs(body);
+        assertThat(formatter.formatCapturedReturnValue(snapshot, properties)).contains("\"name\":\"original\"");
+    }
+
+    @Test
+    void testReferenceSnapshotForConfiguredType() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getOffload().getSnapshotTypes().put(Map.class.getName(), SnapshotStrategy.REFERENCE);
+        properties.refreshCompiled();
+        Map<String, Object> body = newBody();
+        PayloadSnapshot snapshot = formatter.captureReturnValue(body, LogMode.DETAILED, properties);
+
+        assertThat(snapshot.getValue()).isSameAs(body);
+        // 简单类型始终直接引用
+        String text = "text";
+        assertThat(formatter.captureReturnValue(text, LogMode.DETAILED, properties).getValue()).isSameAs(text);
+    }
+
+    @Test
+    void testExecutorFallsBackWhenSaturated() throws Exception {
+        ApiLoggingProperties.Offload config = new ApiLoggingProperties.Offload();
+        config.setThreads(1);
+        config.setQueueCapacity(1);
+        DetailedFormattingExecutor executor = new DetailedFormattingExecutor(config);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        Runnable blocking = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+        try {
+            // 第一个任务占用唯一的线程，第二个任务进入队列，第三个任务被拒绝
+            assertThat(executor.execute(blocking)).isTrue();
+            assertThat(executor.execute(blocking)).isTrue();
+            assertThat(executor.execute(done::countDown)).isFalse();
+            assertThat(executor.getInlineCount()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.destroy();
+        assertThat(executor.getOffloadedCount()).isEqualTo(2);
+    }
+
+    private static Map<String, Object> newBody() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("name", "original");
+        body.put("count", 3);
+        return body;
+    }
+}
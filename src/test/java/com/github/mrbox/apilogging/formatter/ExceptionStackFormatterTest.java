@@ -0,0 +1,99 @@
+package com.github.mrbox.apilogging.formatter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 逐帧格式化异常堆栈的测试
+ */
+public class ExceptionStackFormatterTest {
+
+    private final ExceptionStackFormatter formatter = new ExceptionStackFormatter();
+
+    @Test
+    void testRootCauseKeptWithinMaxLines() {
+        IllegalStateException root = new IllegalStateException("root");
+        RuntimeException exception = nested(40, root);
+
+        String trace = formatter.format(exception, "", 6);
+        String[] lines = trace.split("\n");
+
+        assertThat(lines).hasSize(6);
+        assertThat(lines[0]).isEqualTo("java.lang.RuntimeException: wrapper");
+        assertThat(lines[4]).isEqualTo("Caused by: java.lang.IllegalStateException: root");
+        // 根因只输出与外层不同的帧
+        assertThat(lines[5]).contains(getClass().getName() + ".testRootCauseKeptWithinMaxLines");
+    }
+
+    @Test
+    void testStopAfterPackagePrefix() {
+        RuntimeException exception = nested(10, null);
+
+        String trace = formatter.format(exception, ExceptionStackFormatterTest.class.getName(), 20);
+        String[] lines = trace.split("\n");
+
+        // 第一帧即匹配包名前缀，之后再输出2帧
+        assertThat(lines).hasSize(4);
+        assertThat(lines[1]).contains(".nested(");
+    }
+
+    @Test
+    void testSameTraceFormattedOnce() {
+        String first = null;
+        for (int i = 0; i < 3; i++) {
+            String trace = formatter.format(sameSite("id-" + i), "", 5);
+            assertThat(trace).startsWith("java.lang.IllegalArgumentException: id-" + i + "\n");
+            if (first == null) {
+                first = trace;
+            } else {
+                assertThat(trace.substring(trace.indexOf('\n'))).isEqualTo(first.substring(first.indexOf('\n')));
+            }
+        }
+        assertThat(formatter.cachedTraceCount()).isEqualTo(1);
+
+        formatter.format(sameSite("other"), "", 8);
+        assertThat(formatter.cachedTraceCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testTracesDifferingBelowHashedFramesCachedSeparately() {
+        IllegalStateException a = withFrames("a.Caller");
+        IllegalStateException b = withFrames("b.Caller");
+
+        String traceA = formatter.format(a, "", 20);
+        String traceB = formatter.format(b, "", 20);
+
+        assertThat(formatter.cachedTraceCount()).isEqualTo(2);
+        assertThat(traceA).contains("a.Caller.call").doesNotContain("b.Caller");
+        assertThat(traceB).contains("b.Caller.call").doesNotContain("a.Caller");
+        assertThat(formatter.format(withFrames("a.Caller"), "", 20)).isEqualTo(traceA);
+        assertThat(formatter.cachedTraceCount()).isEqualTo(2);
+    }
+
+    /**
+     * 栈顶 12 帧相同，之后是不同的调用方
+     */
+    private static IllegalStateException withFrames(String caller) {
+        StackTraceElement[] frames = new StackTraceElement[14];
+        for (int i = 0; i < 12; i++) {
+            frames[i] = new StackTraceElement("com.example.Util", "step" + i, "Util.java", i + 1);
+        }
+        frames[12] = new StackTraceElement(caller, "call", "Caller.java", 10);
+        frames[13] = new StackTraceElement("java.lang.Thread", "run", "Thread.java", 748);
+        IllegalStateException exception = new IllegalStateException("failed");
+        exception.setStackTrace(frames);
+        return exception;
+    }
+
+    private static RuntimeException nested(int depth, Throwable cause) {
+        if (depth > 0) {
+            return nested(depth - 1, cause);
+        }
+        return new RuntimeException("wrapper", cause);
+    }
+
+    private static IllegalArgumentException sameSite(String message) {
+        return new IllegalArgumentException(message);
+    }
+}
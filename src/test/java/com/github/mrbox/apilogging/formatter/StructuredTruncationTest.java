@@ -0,0 +1,263 @@
+package com.github.mrbox.apilogging.formatter;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.LogMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 参数和返回值按结构截断的测试
+ */
+public class StructuredTruncationTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DefaultLogContentFormatter formatter = new DefaultLogContentFormatter(objectMapper);
+
+    @Test
+    void testTruncateCollectionsStringsAndDepth() throws Exception {
+        ApiLoggingProperties properties = truncationProperties();
+        properties.getTruncation().setMaxCollectionElements(4);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("tags", Arrays.asList("a", "b", "c", "d", "e", "f"));
+        body.put("note", "0123456789abcdef");
+        body.put("nested", Collections.singletonMap("level2", Collections.singletonMap("level3", new Node("deep"))));
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        for (int i = 0; i < 6; i++) {
+            scores.put("k" + i, i);
+        }
+        body.put("scores", scores);
+
+        String json = formatter.formatReturnValue(body, LogMode.DETAILED, properties);
+        JsonNode tree = objectMapper.readTree(json);
+
+        assertThat(tree.get("tags").toString()).isEqualTo("[\"a\",\"b\",\"c\",\"d\",\"...+2 more\"]");
+        assertThat(tree.get("note").asText()).isEqualTo("01234567...+8 more");
+        assertThat(tree.get("nested").get("level2").get("level3").asText()).isEqualTo("[超出最大深度: Node]");
+        assertThat(tree.get("scores").toString()).isEqualTo("{\"k0\":0,\"k1\":1,\"k2\":2,\"k3\":3,\"...\":\"+2 more\"}");
+    }
+
+    @Test
+    void testArgumentWrapperNotCounted() throws Exception {
+        ApiLoggingProperties properties = truncationProperties();
+        Map<String, Object> args = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            args.put("arg" + i, Collections.singletonMap("value", i));
+        }
+
+        String json = formatter.formatCapturedArguments(PayloadSnapshot.deferred(args), properties);
+
+        assertThat(objectMapper.readTree(json).size()).isEqualTo(5);
+        assertThat(json).contains("\"arg4\":{\"value\":4}");
+    }
+
+    @Test
+    void testCostBoundedByLoggedElements() throws Exception {
+        ApiLoggingProperties properties = truncationProperties();
+        AtomicInteger accessed = new AtomicInteger();
+        List<Integer> huge = new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                accessed.incrementAndGet();
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return 10_000_000;
+            }
+        };
+
+        String json = formatter.formatReturnValue(huge, LogMode.DETAILED, properties);
+
+        assertThat(json).isEqualTo("[0,1,2,\"...+9999997 more\"]");
+        assertThat(accessed.get()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void testPageSummary() throws Exception {
+        ApiLoggingProperties properties = truncationProperties();
+        List<String> content = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            content.add("row" + i);
+        }
+
+        String json = formatter.formatReturnValue(new PageImpl<>(content, PageRequest.of(2, 10), 95),
+                LogMode.DETAILED, properties);
+
+        assertThat(json).isEqualTo("{\"content\":[\"row0\",\"row1\",\"row2\",\"...+7 more\"],\"number\":2,\"size\":10,"
+                + "\"numberOfElements\":10,\"hasNext\":true,\"totalElements\":95,\"totalPages\":10}");
+    }
+
+    @Test
+    void testSnapshotFormattingMatchesInlineFormatting() {
+        for (SnapshotStrategy strategy : SnapshotStrategy.values()) {
+            ApiLoggingProperties properties = truncationProperties();
+            properties.getOffload().setDefaultSnapshot(strategy);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("items", Arrays.asList(new Node("n1"), new Node("n2"), new Node("n3"), new Node("n4")));
+            body.put("text", "a long text value");
+
+            String inline = formatter.formatReturnValue(body, LogMode.DETAILED, properties);
+            PayloadSnapshot snapshot = formatter.captureReturnValue(body, LogMode.DETAILED, properties);
+
+            assertThat(formatter.formatCapturedReturnValue(snapshot, properties)).as("strategy=%s", strategy)
+                    .isEqualTo(inline);
+        }
+    }
+
+    @Test
+    void testPolymorphicPayload() throws Exception {
+        ObjectMapper typedMapper = new ObjectMapper()
+                .activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        DefaultLogContentFormatter typedFormatter = new DefaultLogContentFormatter(typedMapper);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("tags", new ArrayList<>(Arrays.asList("a", "b", "c", "d", "e")));
+        body.put("shapes", new ArrayList<>(Arrays.asList(new Circle(1), new Circle(2), new Circle(3), new Circle(4))));
+
+        ApiLoggingProperties properties = truncationProperties();
+        // 类型信息的包装数组也计入深度
+        properties.getTruncation().setMaxDepth(6);
+
+        String json = typedFormatter.formatReturnValue(body, LogMode.DETAILED, properties);
+        JsonNode tree = objectMapper.readTree(json);
+
+        // 默认类型信息包装数组中的容器同样截断
+        assertThat(tree.get(0).asText()).isEqualTo("java.util.LinkedHashMap");
+        assertThat(tree.get(1).get("tags").toString())
+                .isEqualTo("[\"java.util.ArrayList\",[\"a\",\"b\",\"c\",\"...+2 more\"]]");
+        JsonNode shapes = tree.get(1).get("shapes").get(1);
+        assertThat(shapes).hasSize(4);
+        // 元素声明类型为 Object，默认类型信息按类名包装每个元素，与不截断时 Jackson 的输出一致
+        JsonNode expected = objectMapper.readTree(
+                typedMapper.writeValueAsString(new ArrayList<>(Collections.singletonList(new Circle(1))))).get(1).get(0);
+        assertThat(shapes.get(0)).isEqualTo(expected);
+        assertThat(shapes.get(0).get(0).asText()).isEqualTo(Circle.class.getName());
+        assertThat(shapes.get(3).asText()).isEqualTo("...+1 more");
+    }
+
+    @Test
+    void testAnnotatedPayload() throws Exception {
+        Annotated payload = new Annotated();
+        payload.names = Arrays.asList("a", "b", "c", "d");
+        payload.dates = Arrays.asList(new Date(0), new Date(0));
+        payload.attributes = new LinkedHashMap<>();
+        payload.attributes.put("k1", "v1");
+        payload.attributes.put("k2", null);
+
+        String json = formatter.formatReturnValue(payload, LogMode.DETAILED, truncationProperties());
+
+        assertThat(json).isEqualTo("{\"names\":[\"A\",\"B\",\"C\",\"...+1 more\"],"
+                + "\"dates\":[\"1970-01-01\",\"1970-01-01\"],\"attributes\":{\"k1\":\"v1\"}}");
+    }
+
+    @Test
+    void testOrderedMapTruncatedAfterSorting() throws Exception {
+        ObjectMapper sortingMapper = new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        for (int i = 5; i >= 0; i--) {
+            scores.put("k" + i, i);
+        }
+
+        String json = new DefaultLogContentFormatter(sortingMapper)
+                .formatReturnValue(scores, LogMode.DETAILED, truncationProperties());
+
+        assertThat(json).isEqualTo("{\"k0\":0,\"k1\":1,\"k2\":2,\"...\":\"+3 more\"}");
+    }
+
+    @Test
+    void testPayloadLengthCutStillValidJson() throws Exception {
+        ApiLoggingProperties properties = truncationProperties();
+        properties.setMaxPayloadLength(24);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("items", Arrays.asList(new Node("n1"), new Node("n2"), new Node("n3"), new Node("n4")));
+
+        String json = formatter.formatReturnValue(body, LogMode.DETAILED, properties);
+
+        assertThat(json).contains("...[已截断");
+        assertThat(objectMapper.readTree(json).get("items").isArray()).isTrue();
+    }
+
+    private static ApiLoggingProperties truncationProperties() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.setMaxPayloadLength(-1);
+        properties.getTruncation().setEnabled(true);
+        properties.getTruncation().setMaxDepth(3);
+        properties.getTruncation().setMaxCollectionElements(3);
+        properties.getTruncation().setMaxStringLength(8);
+        return properties;
+    }
+
+    public static class Node {
+        private final String name;
+
+        Node(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+    @JsonSubTypes(@JsonSubTypes.Type(Circle.class))
+    public abstract static class Shape {
+    }
+
+    @JsonTypeName("circle")
+    public static class Circle extends Shape {
+        private final int radius;
+
+        Circle(int radius) {
+            this.radius = radius;
+        }
+
+        public int getRadius() {
+            return radius;
+        }
+    }
+
+    public static class Annotated {
+        @JsonSerialize(contentUsing = UpperCaseSerializer.class)
+        public List<String> names;
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd", timezone = "UTC")
+        public List<Date> dates;
+        @JsonInclude(content = JsonInclude.Include.NON_NULL)
+        public Map<String, String> attributes;
+    }
+
+    public static class UpperCaseSerializer extends JsonSerializer<String> {
+        @Override
+        public void serialize(String value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(value.toUpperCase());
+        }
+    }
+}
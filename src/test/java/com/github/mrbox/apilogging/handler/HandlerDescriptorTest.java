@@ -0,0 +1,122 @@
+package com.github.mrbox.apilogging.handler;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
+import com.github.mrbox.apilogging.handler.HandlerDescriptor.ArgumentStrategy;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Test;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Controller方法描述信息的参数策略、参数名称和脱敏标记的测试
+ */
+public class HandlerDescriptorTest {
+
+    private static Method method(String name) {
+        return Arrays.stream(SampleController.class.getMethods())
+                .filter(m -> m.getName().equals(name))
+                .findFirst()
+                .orElseThrow(IllegalArgumentException::new);
+    }
+
+    private static HandlerDescriptor descriptor(String methodName) {
+        return HandlerDescriptor.of(SampleController.class, method(methodName));
+    }
+
+    @Test
+    void testArgumentStrategiesResolvedFromDeclaredTypes() {
+        HandlerDescriptor descriptor = descriptor("create");
+
+        assertThat(descriptor.getArgumentStrategies()).containsExactly(
+                ArgumentStrategy.SIMPLE_VALUE, ArgumentStrategy.SIMPLE_VALUE, ArgumentStrategy.SIMPLE_VALUE,
+                ArgumentStrategy.IGNORED, ArgumentStrategy.IGNORED, ArgumentStrategy.MULTIPART,
+                ArgumentStrategy.RUNTIME, ArgumentStrategy.RUNTIME);
+        assertThat(descriptor.getRequestBodyIndex()).isEqualTo(7);
+        assertThat(descriptor.getHandlerName()).isEqualTo("SampleController#create");
+        assertThat(descriptor("list").getRequestBodyIndex()).isEqualTo(-1);
+    }
+
+    @Test
+    void testParameterNamesAndCache() {
+        HandlerDescriptor descriptor = descriptor("create");
+
+        assertThat(descriptor.getParameterNames()).containsExactly(
+                "id", "name", "count", "request", "model", "file", "extra", "body");
+        assertThat(descriptor("list").getParameterNames()).isEmpty();
+        // 同一个类和方法只解析一次
+        assertThat(descriptor("create")).isSameAs(descriptor);
+    }
+
+    @Test
+    void testSensitiveFlagsRecomputedOnlyForNewSet() {
+        HandlerDescriptor descriptor = descriptor("create");
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getSensitive().setArgNames(new HashSet<>(Arrays.asList("name", "body")));
+        properties.refreshCompiled();
+
+        Set<String> argNames = properties.compiled().getSensitiveArgNames();
+        boolean[] flags = descriptor.getSensitiveFlags(argNames);
+        assertThat(flags).containsExactly(false, true, false, false, false, false, false, true);
+        // 集合引用不变时直接返回已计算的结果
+        assertThat(descriptor.getSensitiveFlags(argNames)).isSameAs(flags);
+
+        // 配置刷新后生成新的集合，重新计算
+        properties.getSensitive().setArgNames(Collections.singleton("id"));
+        properties.refreshCompiled();
+        assertThat(descriptor.getSensitiveFlags(properties.compiled().getSensitiveArgNames()))
+                .containsExactly(true, false, false, false, false, false, false, false);
+        assertThat(descriptor.getSensitiveFlags(null)).containsOnly(false);
+    }
+
+    @Test
+    void testSimpleValueStrategyHonoursFormatterOverride() throws Exception {
+        Method method = method("create");
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new SampleController());
+        when(joinPoint.getArgs()).thenReturn(new Object[]{1L, "secret", 2, null, null, null, null, null});
+
+        // 子类不再把字符串视为简单值类型
+        DefaultLogContentFormatter formatter = new DefaultLogContentFormatter(null) {
+            @Override
+            protected boolean isSimpleValueType(Object value) {
+                return !(value instanceof String) && super.isSimpleValueType(value);
+            }
+        };
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getSensitive().setArgNames(Collections.emptySet());
+        properties.refreshCompiled();
+
+        String arguments = formatter.formatArguments(joinPoint, null, properties);
+        assertThat(arguments).contains("\"id\":1", "\"count\":2", "[忽略复杂类型: java.lang.String]")
+                .doesNotContain("secret");
+    }
+
+    public static class SampleController {
+        public String create(Long id, String name, int count, HttpServletRequest request, Model model,
+                             MultipartFile file, Object extra, @RequestBody Map<String, Object> body) {
+            return "created";
+        }
+
+        public String list() {
+            return "list";
+        }
+    }
+}
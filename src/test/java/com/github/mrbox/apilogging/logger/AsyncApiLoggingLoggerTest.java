@@ -0,0 +1,182 @@
+package com.github.mrbox.apilogging.logger;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 异步发布器的环形队列、溢出策略和关闭时清空队列的测试。
+ * 队列容量为 2，被包装的发布器在发布第一条记录时阻塞：第一条记录占用一个槽位直到发布完成，
+ * 再写入一条记录后队列已满。
+ */
+public class AsyncApiLoggingLoggerTest {
+
+    private final BlockingLogger delegate = new BlockingLogger();
+    private AsyncApiLoggingLogger asyncLogger;
+
+    @AfterEach
+    void tearDown() {
+        delegate.release();
+        if (asyncLogger != null) {
+            asyncLogger.destroy();
+        }
+    }
+
+    private AsyncApiLoggingLogger create(AsyncOverflowPolicy policy) {
+        ApiLoggingProperties.Async config = new ApiLoggingProperties.Async();
+        config.setBufferSize(2);
+        config.setConsumerThreads(1);
+        config.setOverflowPolicy(policy);
+        config.setShutdownTimeoutMs(5000);
+        asyncLogger = new AsyncApiLoggingLogger(delegate, config);
+        return asyncLogger;
+    }
+
+    private static SimpleLogRecord record(String uri) {
+        SimpleLogRecord record = new SimpleLogRecord(0L, uri, "TestController#test", "SIMPLE");
+        record.setStatusCode(200);
+        return record;
+    }
+
+    /**
+     * 第一条记录被消费线程取出并阻塞在发布中，第二条记录写入队列，此后队列已满
+     */
+    private void fillBuffer(AsyncApiLoggingLogger logger) throws InterruptedException {
+        assertThat(logger.getCapacity()).isEqualTo(2);
+        logger.publish(record("/r0"));
+        assertThat(delegate.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        logger.publish(record("/r1"));
+        assertThat(logger.getQueueDepth()).isEqualTo(1);
+    }
+
+    private static Thread publishInBackground(AsyncApiLoggingLogger logger, SimpleLogRecord record) {
+        Thread thread = new Thread(() -> logger.publish(record));
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void testDropNewestWhenFull() throws Exception {
+        AsyncApiLoggingLogger logger = create(AsyncOverflowPolicy.DROP_NEWEST);
+        fillBuffer(logger);
+
+        logger.publish(record("/r2"));
+        assertThat(logger.getDroppedCount()).isEqualTo(1L);
+        assertThat(logger.getQueueDepth()).isEqualTo(1);
+
+        delegate.release();
+        logger.destroy();
+        assertThat(delegate.uris()).containsExactly("/r0", "/r1");
+        assertThat(logger.getPublishedCount()).isEqualTo(2L);
+        assertThat(logger.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void testBlockWaitsForFreeSlot() throws Exception {
+        AsyncApiLoggingLogger logger = create(AsyncOverflowPolicy.BLOCK);
+        fillBuffer(logger);
+
+        Thread producer = publishInBackground(logger, record("/r2"));
+        producer.join(200);
+        assertThat(producer.isAlive()).isTrue();
+        assertThat(logger.getDroppedCount()).isZero();
+
+        delegate.release();
+        producer.join(5000);
+        assertThat(producer.isAlive()).isFalse();
+        logger.destroy();
+        assertThat(delegate.uris()).containsExactly("/r0", "/r1", "/r2");
+        assertThat(logger.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void testDropSimpleKeepErrorsWhenFull() throws Exception {
+        AsyncApiLoggingLogger logger = create(AsyncOverflowPolicy.DROP_SIMPLE_KEEP_ERRORS);
+        fillBuffer(logger);
+
+        logger.publish(record("/simple"));
+        assertThat(logger.getDroppedCount()).isEqualTo(1L);
+
+        SimpleLogRecord error = record("/error");
+        error.setErrorIndicator("ERROR_500");
+        Thread producer = publishInBackground(logger, error);
+        producer.join(200);
+        // 带错误指示的记录不丢弃，等待空闲槽位
+        assertThat(producer.isAlive()).isTrue();
+        assertThat(logger.getDroppedCount()).isEqualTo(1L);
+
+        delegate.release();
+        producer.join(5000);
+        logger.destroy();
+        assertThat(delegate.uris()).containsExactly("/r0", "/r1", "/error");
+    }
+
+    @Test
+    void testDestroyFlushesQueuedRecords() throws Exception {
+        AsyncApiLoggingLogger logger = create(AsyncOverflowPolicy.DROP_NEWEST);
+        fillBuffer(logger);
+
+        Thread closer = new Thread(logger::destroy);
+        closer.start();
+        delegate.release();
+        closer.join(5000);
+
+        assertThat(closer.isAlive()).isFalse();
+        assertThat(delegate.uris()).containsExactly("/r0", "/r1");
+        assertThat(logger.getPublishedCount()).isEqualTo(2L);
+        assertThat(logger.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void testPublishInCallerThreadAfterDestroy() {
+        AsyncApiLoggingLogger logger = create(AsyncOverflowPolicy.DROP_NEWEST);
+        delegate.release();
+        logger.destroy();
+
+        logger.publish(record("/late"));
+
+        // 关闭后在调用线程中同步发布，不丢弃
+        assertThat(delegate.uris()).containsExactly("/late");
+        assertThat(delegate.threads).containsExactly(Thread.currentThread().getName());
+        assertThat(logger.getDroppedCount()).isZero();
+    }
+
+    /**
+     * 发布第一条记录时阻塞，直到调用 release()
+     */
+    private static final class BlockingLogger implements ApiLoggingLogger {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final List<SimpleLogRecord> published = new CopyOnWriteArrayList<>();
+        private final List<String> threads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(SimpleLogRecord logRecord) {
+            entered.countDown();
+            try {
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            published.add(logRecord);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        List<String> uris() {
+            return published.stream().map(SimpleLogRecord::getUri).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.mrbox.apilogging.logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.mrbox.apilogging.model.DetailedLogRecord;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 日志记录流式 JSON 编码器测试
+ */
+public class JsonLogRecordEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonLogRecordEncoder encoder = new JsonLogRecordEncoder();
+
+    @Test
+    void testSameOutputAsObjectMapper() throws Exception {
+        SimpleLogRecord simple = new SimpleLogRecord(1767225600000L, "/orders/42?lang=中文&emoji=😀", "OrderController#get", "SIMPLE");
+        simple.setRoute("/orders/{id}");
+        simple.setStatusCode(200);
+        simple.setProcessingTimeMs(0L);
+        assertThat(encoder.encodeToString(simple)).isEqualTo(objectMapper.writeValueAsString(simple));
+        assertThat(encoder.encodeToString(new SimpleLogRecord())).isEqualTo(objectMapper.writeValueAsString(new SimpleLogRecord()));
+
+        // 分开设置的路径和查询参数直接拼接写出
+        SimpleLogRecord split = new SimpleLogRecord(1767225600000L, null, "OrderController#get", "SIMPLE");
+        split.setUri("/orders/42", "lang=中文&q=\"x\"");
+        assertThat(split.getUri()).isEqualTo("/orders/42?lang=中文&q=\"x\"");
+        assertThat(encoder.encodeToString(split)).isEqualTo(objectMapper.writeValueAsString(split));
+        assertThat(new SimpleLogRecord().copyFrom(split).getUri()).isEqualTo(split.getUri());
+
+        DetailedLogRecord detailed = new DetailedLogRecord();
+        detailed.copyFrom(simple);
+        detailed.setLogMode("DETAILED");
+        detailed.setErrorIndicator("ERROR:NullPointerException");
+        detailed.setExceptionStacktrace("java.lang.NullPointerException\n\tat Order.get(Order.java:7)\u0000");
+        detailed.setSampleWeight(10.0D);
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("user-agent", "curl/8.0 \"quoted\"");
+        headers.put("x-empty", null);
+        detailed.setRequestHeader(headers);
+        detailed.setRequestParams("{\"id\":\"42\"}");
+        detailed.setResponseData("\"<b>\\u2028</b>\"");
+        assertThat(encoder.encodeToString(detailed)).isEqualTo(objectMapper.writeValueAsString(detailed));
+        assertThat(encoder.lastEncodedLength()).isEqualTo(objectMapper.writeValueAsString(detailed).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void testReuseBufferAcrossRecords() throws Exception {
+        DetailedLogRecord large = new DetailedLogRecord();
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            payload.append("data-");
+        }
+        large.setResponseData(payload.toString());
+        assertThat(encoder.encodeToString(large)).isEqualTo(objectMapper.writeValueAsString(large));
+
+        SimpleLogRecord small = new SimpleLogRecord(1L, "/a", "A#a", "SIMPLE");
+        assertThat(encoder.encodeToString(small)).isEqualTo("{\"logMode\":\"SIMPLE\",\"requestTimestamp\":1,\"uri\":\"/a\",\"controllerHandler\":\"A#a\"}");
+        assertThat(encoder.encodeToString(small)).isEqualTo(objectMapper.writeValueAsString(small));
+    }
+
+    @Test
+    void testCompatibilityCheck() {
+        assertThat(encoder.isCompatibleWith(objectMapper)).isTrue();
+        assertThat(encoder.isCompatibleWith(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT))).isFalse();
+        assertThat(encoder.isCompatibleWith(new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE))).isFalse();
+        assertThat(encoder.isCompatibleWith(new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS))).isFalse();
+
+        assertThat(encoder.supports(new DetailedLogRecord())).isTrue();
+        assertThat(encoder.supports(new DetailedLogRecord() {
+        })).isFalse();
+    }
+}
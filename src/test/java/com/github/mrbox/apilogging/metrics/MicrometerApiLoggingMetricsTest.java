@@ -0,0 +1,90 @@
+package com.github.mrbox.apilogging.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+import com.github.mrbox.apilogging.logger.DefaultJsonLogger;
+import com.github.mrbox.apilogging.logger.JsonLogRecordEncoder;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Micrometer 指标的测试
+ */
+public class MicrometerApiLoggingMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private MicrometerApiLoggingMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new MicrometerApiLoggingMetrics(registry, new ApiLoggingProperties());
+    }
+
+    @Test
+    void testRequestTimerByHandlerAndStatusFamily() throws Exception {
+        HandlerDescriptor handler = HandlerDescriptor.of(MicrometerApiLoggingMetricsTest.class,
+                MicrometerApiLoggingMetricsTest.class.getDeclaredMethod("testRequestTimerByHandlerAndStatusFamily"));
+
+        metrics.recordRequest(handler, 200, 10);
+        metrics.recordRequest(handler, 204, 30);
+        metrics.recordRequest(handler, 503, 5);
+        metrics.recordRequest(handler, SimpleLogRecord.UNSET, 1);
+
+        String handlerName = "MicrometerApiLoggingMetricsTest#testRequestTimerByHandlerAndStatusFamily";
+        Timer ok = registry.get(MicrometerApiLoggingMetrics.REQUESTS)
+                .tags("handler", handlerName, "status", "2xx").timer();
+        assertThat(ok.count()).isEqualTo(2L);
+        assertThat(ok.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(40D);
+        assertThat(registry.get(MicrometerApiLoggingMetrics.REQUESTS).tag("status", "5xx").timer().count()).isEqualTo(1L);
+        assertThat(registry.get(MicrometerApiLoggingMetrics.REQUESTS).tag("status", "unknown").timer().count())
+                .isEqualTo(1L);
+        // 指标按描述信息缓存，之后的请求不再按名称和标签查找
+        assertThat(metrics.cachedRouteCount()).isEqualTo(1);
+
+        // 另一个实例不使用其他注册表的指标
+        SimpleMeterRegistry otherRegistry = new SimpleMeterRegistry();
+        new MicrometerApiLoggingMetrics(otherRegistry, new ApiLoggingProperties()).recordRequest(handler, 200, 1);
+        assertThat(otherRegistry.get(MicrometerApiLoggingMetrics.REQUESTS).timer().count()).isEqualTo(1L);
+        assertThat(ok.count()).isEqualTo(2L);
+    }
+
+    @Test
+    void testPipelineMeters() {
+        metrics.recordStage(ApiLoggingMetrics.Stage.RETURN_VALUE, TimeUnit.MICROSECONDS.toNanos(250));
+        metrics.recordOutcome(ApiLoggingMetrics.Outcome.PUBLISHED);
+        metrics.recordOutcome(ApiLoggingMetrics.Outcome.FILTERED);
+        metrics.recordOutcome(ApiLoggingMetrics.Outcome.FILTERED);
+
+        assertThat(registry.get(MicrometerApiLoggingMetrics.STAGE).tag("stage", "return_value").timer()
+                .totalTime(TimeUnit.MICROSECONDS)).isEqualTo(250D);
+        assertThat(registry.get(MicrometerApiLoggingMetrics.STAGE).tag("stage", "publish").timer().count()).isZero();
+        assertThat(registry.get(MicrometerApiLoggingMetrics.RECORDS).tag("outcome", "filtered").counter().count())
+                .isEqualTo(2D);
+        assertThat(registry.get(MicrometerApiLoggingMetrics.RECORDS).tag("outcome", "sampled_out").counter().count())
+                .isZero();
+    }
+
+    @Test
+    void testSerializedBytesRecordedByLogger() throws Exception {
+        DefaultJsonLogger logger = new DefaultJsonLogger(new ObjectMapper(), metrics);
+        SimpleLogRecord record = new SimpleLogRecord(1700000000000L, "/orders/订单", "OrderController#get", "SIMPLE");
+
+        logger.publish(record);
+
+        int expected = new JsonLogRecordEncoder().encodeToString(record).getBytes(StandardCharsets.UTF_8).length;
+        DistributionSummary serialized = registry.get(MicrometerApiLoggingMetrics.SERIALIZED).summary();
+        assertThat(serialized.count()).isEqualTo(1L);
+        assertThat(serialized.totalAmount()).isEqualTo(expected);
+    }
+}
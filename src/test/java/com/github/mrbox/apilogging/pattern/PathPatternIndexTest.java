@@ -0,0 +1,116 @@
+package com.github.mrbox.apilogging.pattern;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PathPatternIndex 与 AntPathMatcher 的语义一致性测试
+ */
+public class PathPatternIndexTest {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "", "/", "*", "**", "/*", "/**", "/**/", "**/a", "a/**",
+            "/health", "/health/", "/actuator/**", "/actuator/*", "/actuator/*/",
+            "/api/admin/**", "/api/*/users", "/api/**/users", "/api/**/users/",
+            "/static/**/*.js", "/static/**/*.css", "/assets/**", "/favicon.ico",
+            "/test-apilogging/*", "/test-apilogging/get", "/test-apilogging/status/{code}",
+            "/users/{id:\\d+}", "/users/{id}/orders/{orderId}", "/users/{id}/**",
+            "/a/**/b/**/c", "/a/**/**/b", "/**/b", "/**/b/", "/a/?", "/a/??/c",
+            "/a/b*", "/a/*b", "/a/b**", "/a/{x}-{y}", "/files/*.*", "a/b", "a/*", "/a//b",
+            "/debug/**", "/v{version}/**", "/A/B", "/a/b/c/d/e/f/g", "/**/*.html");
+
+    private static final List<String> PATHS = Arrays.asList(
+            "", "/", "//", "a", "a/", "/a", "/a/", "a/b", "a/b/", "/a/b", "/a/b/", "/a//b", "/a/b/c",
+            "/a/x/b/y/c", "/a/b/c/", "/a/x/y/b", "/a/b/b", "/x/b", "/x/y/b", "/x/b/", "/b", "/b/",
+            "/health", "/health/", "/health/x", "/actuator", "/actuator/", "/actuator/info",
+            "/actuator/info/", "/actuator/metrics/jvm", "/api/admin", "/api/admin/", "/api/admin/users/1",
+            "/api/v1/users", "/api/v1/v2/users", "/api/users", "/api/users/", "/api/v1/users/",
+            "/static/app.js", "/static/js/app.js", "/static/js/app.css", "/static/js/app.jsx",
+            "/assets", "/favicon.ico", "/favicon.icox", "/test-apilogging/get", "/test-apilogging/",
+            "/test-apilogging/status/404", "/test-apilogging/status/", "/users/123", "/users/abc",
+            "/users/1/orders/2", "/users/1/orders/", "/users/1/x/y", "/a/c", "/a/cc/c", "/a/bb",
+            "/a/xb", "/a/b**", "/a/1-2", "/a/1-", "/files/a.txt", "/files/atxt", "/debug",
+            "/v1/x", "/v/x", "/A/B", "/a/B", "/a/b/c/d/e/f/g", "/index.html", "/x/y/index.html",
+            "a/b/c", "b", "/a/?", "/a/%20");
+
+    @Test
+    void testSinglePatternParity() {
+        for (String pattern : PATTERNS) {
+            PathPatternIndex index = PathPatternIndex.compile(Collections.singletonList(pattern));
+            for (String path : PATHS) {
+                assertThat(index.matches(path))
+                        .as("pattern [%s] path [%s]", pattern, path)
+                        .isEqualTo(pathMatcher.match(pattern, path));
+            }
+        }
+    }
+
+    @Test
+    void testCombinedPatternParity() {
+        PathPatternIndex index = PathPatternIndex.compile(PATTERNS.subList(9, PATTERNS.size()));
+        for (String path : PATHS) {
+            boolean expected = PATTERNS.subList(9, PATTERNS.size()).stream()
+                    .anyMatch(pattern -> pathMatcher.match(pattern, path));
+            assertThat(index.matches(path)).as("path [%s]", path).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testRandomPatternParity() {
+        String[] patternSegments = {"a", "b", "c", "*", "**", "?", "a*", "*b", "{v}", "{v:[ab]+}", "a?c"};
+        String[] pathSegments = {"a", "b", "c", "ab", "abc", "bb", "x", "aac"};
+        Random random = new Random(20260117L);
+
+        for (int round = 0; round < 300; round++) {
+            List<String> patterns = new ArrayList<>();
+            int patternCount = 1 + random.nextInt(6);
+            for (int i = 0; i < patternCount; i++) {
+                patterns.add(randomPath(random, patternSegments, 4));
+            }
+            PathPatternIndex index = PathPatternIndex.compile(patterns);
+
+            for (int i = 0; i < 50; i++) {
+                String path = randomPath(random, pathSegments, 5);
+                boolean expected = patterns.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+                assertThat(index.matches(path))
+                        .as("patterns %s path [%s]", patterns, path)
+                        .isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void testEmptyIndex() {
+        assertThat(PathPatternIndex.compile(null).matches("/a")).isFalse();
+        assertThat(PathPatternIndex.compile(Collections.emptyList()).isEmpty()).isTrue();
+        assertThat(PathPatternIndex.compile(Collections.singletonList("/**")).matches(null)).isFalse();
+    }
+
+    private static String randomPath(Random random, String[] segments, int maxSegments) {
+        StringBuilder path = new StringBuilder();
+        if (random.nextInt(5) != 0) {
+            path.append('/');
+        }
+        int count = random.nextInt(maxSegments + 1);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                path.append('/');
+            }
+            path.append(segments[random.nextInt(segments.length)]);
+        }
+        if (count > 0 && random.nextInt(4) == 0) {
+            path.append('/');
+        }
+        return path.toString();
+    }
+}
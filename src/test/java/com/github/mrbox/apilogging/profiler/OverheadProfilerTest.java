@@ -0,0 +1,69 @@
+package com.github.mrbox.apilogging.profiler;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.handler.HandlerDescriptor;
+import com.github.mrbox.apilogging.metrics.ApiLoggingMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 自身开销分析的测试
+ */
+public class OverheadProfilerTest {
+
+    @Test
+    void testStageAndHandlerPercentiles() throws Exception {
+        OverheadProfiler profiler = new OverheadProfiler(new ApiLoggingProperties());
+        HandlerDescriptor handler = handler("testStageAndHandlerPercentiles");
+
+        for (int i = 1; i <= 100; i++) {
+            profiler.recordStage(ApiLoggingMetrics.Stage.RETURN_VALUE, TimeUnit.MICROSECONDS.toNanos(i));
+            profiler.recordOverhead(handler, TimeUnit.MICROSECONDS.toNanos(i * 2L));
+        }
+
+        OverheadProfiler.OverheadReport report = profiler.report();
+        assertThat(report.getStages()).containsOnlyKeys("return_value");
+        OverheadProfiler.OverheadStats returnValue = report.getStages().get("return_value");
+        assertThat(returnValue.getCount()).isEqualTo(100L);
+        assertThat(returnValue.getMaxNs()).isEqualTo(100_000L);
+        assertThat(returnValue.getMeanNs()).isEqualTo(50_500L);
+        // 直方图的相对误差约 3%
+        assertThat((double) returnValue.getP50Ns()).isCloseTo(50_000D, within(50_000D * 0.04));
+        assertThat((double) returnValue.getP99Ns()).isCloseTo(99_000D, within(99_000D * 0.04));
+
+        OverheadProfiler.OverheadStats handlerStats =
+                report.getHandlers().get("OverheadProfilerTest#testStageAndHandlerPercentiles");
+        assertThat(handlerStats.getCount()).isEqualTo(100L);
+        assertThat(handlerStats.getMaxNs()).isEqualTo(200_000L);
+    }
+
+    @Test
+    void testMaxHandlersAndReset() throws Exception {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getProfiler().setMaxHandlers(1);
+        OverheadProfiler profiler = new OverheadProfiler(properties);
+
+        profiler.recordOverhead(handler("testStageAndHandlerPercentiles"), 1_000L);
+        profiler.recordOverhead(handler("testMaxHandlersAndReset"), 1_000L);
+        profiler.recordStage(ApiLoggingMetrics.Stage.PUBLISH, 1_000L);
+
+        assertThat(profiler.report().getHandlers())
+                .containsOnlyKeys("OverheadProfilerTest#testStageAndHandlerPercentiles");
+
+        long since = profiler.report().getSince();
+        Thread.sleep(2L);
+        profiler.reset();
+        OverheadProfiler.OverheadReport report = profiler.report();
+        assertThat(report.getStages()).isEmpty();
+        assertThat(report.getHandlers()).isEmpty();
+        assertThat(report.getSince()).isGreaterThan(since);
+    }
+
+    private static HandlerDescriptor handler(String methodName) throws NoSuchMethodException {
+        return HandlerDescriptor.of(OverheadProfilerTest.class, OverheadProfilerTest.class.getDeclaredMethod(methodName));
+    }
+}
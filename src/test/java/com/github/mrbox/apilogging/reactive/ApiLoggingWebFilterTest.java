@@ -0,0 +1,177 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.formatter.DefaultLogContentFormatter;
+import com.github.mrbox.apilogging.model.DetailedLogRecord;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * WebFlux 请求日志引擎测试
+ */
+public class ApiLoggingWebFilterTest {
+
+    private final List<SimpleLogRecord> records = new CopyOnWriteArrayList<>();
+    private ApiLoggingProperties properties;
+    private ApiLoggingWebFilter filter;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ApiLoggingProperties();
+        properties.setEnabled(true);
+        properties.getTriggers().add("header");
+        records.clear();
+
+        filter = new ApiLoggingWebFilter(properties,
+                Arrays.asList(new ReactiveHeaderDetailedLogTrigger(), new ReactiveExceptionDetailedLogTrigger(),
+                        new ReactiveHttpStatusCodeDetailedLogTrigger()),
+                Collections.singletonList(request -> request.getPath().startsWith("/reactive/health")),
+                Collections.emptyList(),
+                records::add, new DefaultLogContentFormatter(null), null, Schedulers.immediate());
+        client = WebTestClient.bindToController(new ReactiveTestController()).webFilter(filter).build();
+    }
+
+    @Test
+    void testSimpleLogWithRouteAndCompletionTiming() {
+        client.get().uri("/reactive/orders/42?verbose=false").exchange().expectStatus().isOk();
+
+        assertThat(records).hasSize(1);
+        SimpleLogRecord record = records.get(0);
+        assertThat(record).isNotInstanceOf(DetailedLogRecord.class);
+        assertThat(record.getLogMode()).isEqualTo(LogMode.SIMPLE.name());
+        assertThat(record.getUri()).isEqualTo("/reactive/orders/42?verbose=false");
+        assertThat(record.getRoute()).isEqualTo("/reactive/orders/{id}");
+        assertThat(record.getControllerHandler()).isEqualTo("ReactiveTestController#getOrder");
+        assertThat(record.getStatusCode()).isEqualTo(200);
+        // 计时覆盖到完成信号，包含延迟发出的结果
+        assertThat(record.getProcessingTimeMs()).isGreaterThanOrEqualTo(50L);
+    }
+
+    @Test
+    void testDetailedLogCapturesBodiesByHeaderTrigger() {
+        client.post().uri("/reactive/orders")
+                .header("X-Log-Mode", "DETAILED")
+                .header("Authorization", "Bearer secret")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"item\":\"book\"}")
+                .exchange().expectStatus().isOk();
+
+        assertThat(records).hasSize(1);
+        DetailedLogRecord record = (DetailedLogRecord) records.get(0);
+        assertThat(record.getLogMode()).isEqualTo(LogMode.DETAILED.name());
+        assertThat(record.getRequestParams()).isEqualTo("{\"item\":\"book\"}");
+        assertThat(record.getResponseData()).isEqualTo("created:{\"item\":\"book\"}");
+        assertThat(record.getRequestHeader()).containsEntry("Authorization", "****");
+    }
+
+    @Test
+    void testErrorSignalTriggersDetailedLog() {
+        client.get().uri("/reactive/failure").exchange().expectStatus().is5xxServerError();
+
+        assertThat(records).hasSize(1);
+        SimpleLogRecord record = records.get(0);
+        assertThat(record.getLogMode()).isEqualTo(LogMode.DETAILED.name());
+        assertThat(record.getStatusCode()).isEqualTo(500);
+        assertThat(record.getErrorIndicator()).isEqualTo("ERROR:IllegalStateException");
+        assertThat(record.getExceptionStacktrace()).contains("IllegalStateException: 接口异常");
+    }
+
+    @Test
+    void testContextAndPreFilter() {
+        client.get().uri("/reactive/context").exchange().expectStatus().isOk();
+        client.get().uri("/reactive/health").exchange().expectStatus().isOk();
+
+        // 业务代码通过 Reactor Context 切换日志模式；健康检查被前置过滤器跳过
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).getLogMode()).isEqualTo(LogMode.DETAILED.name());
+        assertThat(((DetailedLogRecord) records.get(0)).getResponseData()).isEqualTo("ok");
+    }
+
+    @Test
+    void testStatusCodeTriggerCapturesResponseBody() {
+        client.get().uri("/reactive/missing").exchange().expectStatus().isNotFound();
+
+        // 写出响应时按状态码确定为详细模式，采集响应体
+        assertThat(records).hasSize(1);
+        DetailedLogRecord record = (DetailedLogRecord) records.get(0);
+        assertThat(record.getLogMode()).isEqualTo(LogMode.DETAILED.name());
+        assertThat(record.getStatusCode()).isEqualTo(404);
+        assertThat(record.getResponseData()).isEqualTo("order not found");
+    }
+
+    @Test
+    void testCancelledRequestNotLoggedAsSuccess() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/reactive/slow"));
+
+        // 客户端断开时处理链被取消
+        filter.filter(exchange, e -> Mono.never()).subscribe().dispose();
+
+        assertThat(records).hasSize(1);
+        SimpleLogRecord record = records.get(0);
+        // 未提交状态码，不按默认的 200 记录
+        assertThat(record.getStatusCode()).isNull();
+        assertThat(record.getErrorIndicator()).isEqualTo(ApiLoggingWebFilter.CANCELLED_INDICATOR);
+    }
+
+    @RestController
+    @RequestMapping("/reactive")
+    static class ReactiveTestController {
+
+        @GetMapping("/orders/{id}")
+        public Mono<String> getOrder(@PathVariable String id) {
+            return Mono.just("order-" + id).delayElement(Duration.ofMillis(60));
+        }
+
+        @PostMapping("/orders")
+        public Mono<String> createOrder(@RequestBody String body) {
+            return Mono.just("created:" + body);
+        }
+
+        @GetMapping("/failure")
+        public Mono<String> failure() {
+            return Mono.error(new IllegalStateException("接口异常"));
+        }
+
+        @GetMapping("/context")
+        public Mono<String> context() {
+            return ApiLoggingWebFilter.currentContext()
+                    .doOnNext(context -> context.setEffectiveLogMode(LogMode.DETAILED))
+                    .map(context -> "ok");
+        }
+
+        @GetMapping("/missing")
+        public Mono<ResponseEntity<String>> missing() {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body("order not found"));
+        }
+
+        @GetMapping("/health")
+        public Mono<String> health() {
+            return Mono.just("UP");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.mrbox.apilogging.reactive;
+
+import com.github.mrbox.apilogging.ApiLoggingAspect;
+import com.github.mrbox.apilogging.ApiLoggingAutoConfiguration;
+import com.github.mrbox.apilogging.sampling.LogSampler;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * WebFlux 应用自动配置测试，两个自动配置同时参与条件判断，与应用实际加载时一致
+ */
+public class ReactiveApiLoggingAutoConfigurationTest {
+
+    private static final AutoConfigurations CONFIGURATIONS = AutoConfigurations.of(
+            JacksonAutoConfiguration.class, AopAutoConfiguration.class,
+            ApiLoggingAutoConfiguration.class, ReactiveApiLoggingAutoConfiguration.class);
+
+    private final ReactiveWebApplicationContextRunner reactiveRunner = new ReactiveWebApplicationContextRunner()
+            .withConfiguration(CONFIGURATIONS);
+
+    @Test
+    void testWebFilterRegisteredInReactiveApplication() {
+        reactiveRunner.withPropertyValues("mr-box.api-logging.enabled=true")
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context).hasSingleBean(ApiLoggingWebFilter.class);
+                    assertThat(context).hasSingleBean(ReactiveHeaderDetailedLogTrigger.class);
+                    assertThat(context).doesNotHaveBean(ApiLoggingAspect.class);
+                    assertThat(context).doesNotHaveBean(LogSampler.class);
+                });
+    }
+
+    @Test
+    void testSamplerRegisteredInReactiveApplication() {
+        reactiveRunner.withPropertyValues("mr-box.api-logging.enabled=true", "mr-box.api-logging.sampling.enabled=true")
+                .run(context -> assertThat(context).hasSingleBean(LogSampler.class));
+        // 只启用按 traceId 一致性采样时同样注册采样器
+        reactiveRunner.withPropertyValues("mr-box.api-logging.enabled=true", "mr-box.api-logging.sampling.trace.enabled=true")
+                .run(context -> assertThat(context.getBean(LogSampler.class).isTraceSamplingEnabled()).isTrue());
+    }
+
+    @Test
+    void testNothingRegisteredWhenDisabled() {
+        reactiveRunner.run(context -> assertThat(context).doesNotHaveBean(ApiLoggingWebFilter.class));
+    }
+
+    @Test
+    void testWebFilterNotRegisteredInServletApplication() {
+        new WebApplicationContextRunner()
+                .withConfiguration(CONFIGURATIONS)
+                .withPropertyValues("mr-box.api-logging.enabled=true")
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context).hasSingleBean(ApiLoggingAspect.class);
+                    assertThat(context).doesNotHaveBean(ApiLoggingWebFilter.class);
+                });
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.mrbox.apilogging.rollup;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.model.RollupLogRecord;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 精简日志按路由汇总的测试
+ */
+public class RollupAggregatorTest {
+
+    private final List<SimpleLogRecord> published = new CopyOnWriteArrayList<>();
+    private ApiLoggingProperties properties;
+    private RollupAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ApiLoggingProperties();
+        // 周期足够长，测试中手动结束周期
+        properties.getRollup().setIntervalSeconds(3600);
+        properties.getRollup().setRoutes(Collections.singletonList("/orders/**"));
+        aggregator = new RollupAggregator(properties, published::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregator.destroy();
+    }
+
+    @Test
+    void testSimpleRecordsFoldedAndErrorsKept() {
+        for (int i = 1; i <= 100; i++) {
+            assertThat(aggregator.record(record("/orders/{id}", LogMode.SIMPLE, 200, i, null))).isTrue();
+        }
+        // 错误和详细日志计入汇总，仍逐条发布
+        assertThat(aggregator.record(record("/orders/{id}", LogMode.SIMPLE, 500, 300, "ERROR:500"))).isFalse();
+        assertThat(aggregator.record(record("/orders/{id}", LogMode.DETAILED, 404, 5, "WARN:404"))).isFalse();
+        // 未匹配 routes 的路由不汇总
+        assertThat(aggregator.record(record("/users/{id}", LogMode.SIMPLE, 200, 1, null))).isFalse();
+
+        aggregator.flush();
+
+        assertThat(published).hasSize(1);
+        RollupLogRecord rollup = (RollupLogRecord) published.get(0);
+        assertThat(rollup.getLogMode()).isEqualTo(RollupLogRecord.LOG_MODE);
+        assertThat(rollup.getRoute()).isEqualTo("/orders/{id}");
+        assertThat(rollup.getRequestCount()).isEqualTo(102L);
+        assertThat(rollup.getErrorCount()).isEqualTo(2L);
+        assertThat(rollup.getStatusCounts()).containsEntry("2xx", 100L).containsEntry("4xx", 1L)
+                .containsEntry("5xx", 1L);
+        assertThat(rollup.getLatencyMinMs()).isEqualTo(1L);
+        assertThat(rollup.getLatencyMaxMs()).isEqualTo(300L);
+        assertThat(rollup.getLatencyP50Ms()).isBetween(50L, 52L);
+        assertThat(rollup.getLatencyP99Ms()).isBetween(99L, 101L);
+
+        // 没有请求的周期不发布
+        aggregator.flush();
+        assertThat(published).hasSize(1);
+    }
+
+    @Test
+    void testConcurrentRecordsNotLostAcrossFlush() throws Exception {
+        int threads = 4;
+        int perThread = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < perThread; i++) {
+                    aggregator.record(record("/orders", LogMode.SIMPLE, 200, i % 50, null));
+                }
+            });
+        }
+        start.countDown();
+        for (int i = 0; i < 20; i++) {
+            aggregator.flush();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        aggregator.flush();
+
+        long total = 0;
+        for (SimpleLogRecord record : published) {
+            total += ((RollupLogRecord) record).getRequestCount();
+        }
+        assertThat(total).isEqualTo((long) threads * perThread);
+    }
+
+    @Test
+    void testRefreshedRoutesApplyImmediately() {
+        assertThat(aggregator.record(record("/users/{id}", LogMode.SIMPLE, 200, 1, null))).isFalse();
+
+        properties.getRollup().setRoutes(Collections.singletonList("/users/**"));
+        properties.refreshCompiled();
+
+        assertThat(aggregator.record(record("/users/{id}", LogMode.SIMPLE, 200, 1, null))).isTrue();
+        assertThat(aggregator.record(record("/orders/{id}", LogMode.SIMPLE, 200, 1, null))).isFalse();
+        assertThat(aggregator.getRouteCount()).isEqualTo(1);
+
+        aggregator.flush();
+        assertThat(published).hasSize(1);
+        assertThat(((RollupLogRecord) published.get(0)).getRoute()).isEqualTo("/users/{id}");
+    }
+
+    @Test
+    void testDestroyPublishesLastWindow() {
+        assertThat(aggregator.record(record("/orders/{id}", LogMode.SIMPLE, 200, 1, null))).isTrue();
+
+        aggregator.destroy();
+
+        assertThat(published).hasSize(1);
+        assertThat(((RollupLogRecord) published.get(0)).getRequestCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void testSketchMergeableAndSerializable() throws Exception {
+        LatencySketch nodeA = new LatencySketch();
+        LatencySketch nodeB = new LatencySketch();
+        LatencySketch all = new LatencySketch();
+        for (long i = 0; i < 1000; i++) {
+            long value = i * 37 % 5000;
+            (i % 2 == 0 ? nodeA : nodeB).record(value);
+            all.record(value);
+        }
+
+        LatencySketch merged = LatencySketch.fromBase64(nodeA.toBase64()).merge(LatencySketch.fromBase64(nodeB.toBase64()));
+        assertThat(merged.getCount()).isEqualTo(all.getCount());
+        assertThat(merged.getSum()).isEqualTo(all.getSum());
+        for (double p : new double[]{0, 50, 90, 99, 100}) {
+            assertThat(merged.valueAtPercentile(p)).isEqualTo(all.valueAtPercentile(p));
+        }
+        // 桶上界与桶内任意值的相对误差不超过 1/32
+        for (long value = 1; value < 10_000_000L; value = value * 3 / 2 + 1) {
+            long upper = LatencySketch.bucketUpperBound(LatencySketch.bucketIndex(value));
+            assertThat(upper).isGreaterThanOrEqualTo(value);
+            assertThat(upper - value).isLessThanOrEqualTo(value / 32);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(all);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            LatencySketch copy = (LatencySketch) in.readObject();
+            assertThat(copy.valueAtPercentile(99)).isEqualTo(all.valueAtPercentile(99));
+        }
+    }
+
+    private static SimpleLogRecord record(String route, LogMode mode, int statusCode, long processingTimeMs,
+                                          String errorIndicator) {
+        SimpleLogRecord record = new SimpleLogRecord();
+        record.setLogMode(mode.name());
+        record.setRoute(route);
+        record.setStatusCode(statusCode);
+        record.setProcessingTimeMs(processingTimeMs);
+        record.setErrorIndicator(errorIndicator);
+        return record;
+    }
+}
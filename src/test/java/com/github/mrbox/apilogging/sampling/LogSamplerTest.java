@@ -0,0 +1,213 @@
+package com.github.mrbox.apilogging.sampling;
+
+import com.github.mrbox.apilogging.ApiLoggingProperties;
+import com.github.mrbox.apilogging.model.LogMode;
+import com.github.mrbox.apilogging.model.SimpleLogRecord;
+import com.github.mrbox.apilogging.trace.TraceContext;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 精简日志采样测试
+ */
+public class LogSamplerTest {
+
+    @Test
+    void testErrorsDetailedAndSlowRequestsAreAlwaysKept() {
+        ApiLoggingProperties properties = samplingProperties();
+        properties.getSampling().setRate(0);
+        properties.getSampling().setSlowThresholdMs(500);
+        LogSampler sampler = new LogSampler(properties);
+
+        SimpleLogRecord error = record("/orders/{id}", 10);
+        error.setErrorIndicator("ERROR_HTTP_STATUS_500");
+        SimpleLogRecord detailed = record("/orders/{id}", 10);
+        detailed.setLogMode(LogMode.DETAILED.name());
+        SimpleLogRecord slow = record("/orders/{id}", 800);
+
+        assertThat(sampler.sample(error)).isEqualTo(1D);
+        assertThat(sampler.sample(detailed)).isEqualTo(1D);
+        assertThat(sampler.sample(slow)).isEqualTo(1D);
+        assertThat(sampler.sample(record("/orders/{id}", 10))).isEqualTo(LogSampler.DROPPED);
+        assertThat(sampler.getBypassedCount()).isEqualTo(3);
+        assertThat(sampler.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testPerRouteRateLimitCarriesThrottledCountInWeight() {
+        ApiLoggingProperties properties = samplingProperties();
+        ApiLoggingProperties.RouteSampling orders = new ApiLoggingProperties.RouteSampling();
+        orders.setRatePerSecond(5);
+        properties.getSampling().getRoutes().put("/orders/**", orders);
+        LogSampler sampler = new LogSampler(properties);
+
+        int kept = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < 20; i++) {
+            double weight = sampler.sample(record("/orders/{id}", 10));
+            if (weight != LogSampler.DROPPED) {
+                kept++;
+                totalWeight += weight;
+            }
+        }
+        // 一秒内最多保留 5 条
+        assertThat(kept).isBetween(5, 6);
+        assertThat(sampler.getDroppedCount()).isEqualTo(20 - kept);
+
+        // 其他路由不受限
+        for (int i = 0; i < 20; i++) {
+            assertThat(sampler.sample(record("/users/{id}", 10))).isEqualTo(1D);
+        }
+
+        // 被限流的记录计入下一条保留记录的权重，保留记录的权重之和等于请求总数
+        int requests = 20;
+        double next;
+        do {
+            next = sampler.sample(record("/orders/{id}", 10));
+            requests++;
+        } while (next == LogSampler.DROPPED);
+        totalWeight += next;
+        assertThat(totalWeight).isEqualTo((double) requests);
+    }
+
+    @Test
+    void testProbabilisticRateWeight() {
+        ApiLoggingProperties properties = samplingProperties();
+        properties.getSampling().setRate(0.25);
+        LogSampler sampler = new LogSampler(properties);
+
+        for (int i = 0; i < 200; i++) {
+            double weight = sampler.sample(record("/orders/{id}", 10));
+            assertThat(weight).isIn(LogSampler.DROPPED, 4D);
+        }
+        assertThat(sampler.getSampledCount() + sampler.getDroppedCount()).isEqualTo(200);
+        assertThat(sampler.getSampledCount()).isBetween(10L, 100L);
+    }
+
+    @Test
+    void testTraceSamplingIsConsistentAcrossInstances() {
+        ApiLoggingProperties properties = samplingProperties();
+        properties.getSampling().getTrace().setEnabled(true);
+        properties.getSampling().getTrace().setRate(0.5);
+        LogSampler serviceA = new LogSampler(properties);
+        LogSampler serviceB = new LogSampler(properties);
+
+        int kept = 0;
+        for (int i = 0; i < 1000; i++) {
+            TraceContext trace = new TraceContext(String.format("%032x", i * 0x9E3779B97F4A7C15L), null, null);
+            double weight = serviceA.sampleTrace(trace);
+            assertThat(serviceB.sampleTrace(trace)).isEqualTo(weight);
+            assertThat(weight).isIn(LogSampler.DROPPED, 2D);
+            if (weight != LogSampler.DROPPED) {
+                kept++;
+            }
+        }
+        assertThat(kept).isBetween(400, 600);
+
+        // 上游采样标记优先
+        assertThat(serviceA.sampleTrace(new TraceContext("4bf92f3577b34da6a3ce929d0e0e4736", null, false)))
+                .isEqualTo(LogSampler.DROPPED);
+        assertThat(serviceA.sampleTrace(new TraceContext("4bf92f3577b34da6a3ce929d0e0e4736", null, true)))
+                .isEqualTo(1D);
+        assertThat(serviceA.sampleTrace(null)).isEqualTo(1D);
+
+        // 链路被丢弃的错误记录仍然保留
+        SimpleLogRecord error = record("/orders/{id}", 10);
+        error.setErrorIndicator("ERROR:NullPointerException");
+        assertThat(serviceA.sample(error, LogSampler.DROPPED)).isEqualTo(1D);
+        assertThat(serviceA.sample(record("/orders/{id}", 10), LogSampler.DROPPED)).isEqualTo(LogSampler.DROPPED);
+        assertThat(serviceA.sample(record("/orders/{id}", 10), 2D)).isEqualTo(2D);
+    }
+
+    @Test
+    void testDisabledByRefreshKeepsEverything() {
+        ApiLoggingProperties properties = samplingProperties();
+        properties.getSampling().setRate(0);
+        properties.getSampling().getTrace().setEnabled(true);
+        properties.getSampling().getTrace().setRate(0);
+        LogSampler sampler = new LogSampler(properties);
+        TraceContext trace = new TraceContext("4bf92f3577b34da6a3ce929d0e0e4736", null, null);
+        assertThat(sampler.sample(record("/orders/{id}", 10))).isEqualTo(LogSampler.DROPPED);
+        assertThat(sampler.sampleTrace(trace)).isEqualTo(LogSampler.DROPPED);
+
+        properties.getSampling().setEnabled(false);
+        properties.refreshCompiled();
+
+        assertThat(sampler.sample(record("/orders/{id}", 10))).isEqualTo(1D);
+        assertThat(sampler.getDroppedCount()).isEqualTo(1);
+        // 链路采样只按 trace.enabled 判断
+        assertThat(sampler.isTraceSamplingEnabled()).isTrue();
+        assertThat(sampler.sampleTrace(trace)).isEqualTo(LogSampler.DROPPED);
+
+        properties.getSampling().getTrace().setEnabled(false);
+        properties.refreshCompiled();
+
+        assertThat(sampler.isTraceSamplingEnabled()).isFalse();
+        assertThat(sampler.sampleTrace(trace)).isEqualTo(1D);
+    }
+
+    @Test
+    void testTraceSamplingWithoutRouteSampling() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getSampling().setRate(0);
+        properties.getSampling().getTrace().setEnabled(true);
+        LogSampler sampler = new LogSampler(properties);
+
+        assertThat(sampler.isTraceSamplingEnabled()).isTrue();
+        assertThat(sampler.sample(tracedRecord("/orders/{id}"), 2D)).isEqualTo(2D);
+        assertThat(sampler.sample(tracedRecord("/orders/{id}"), LogSampler.DROPPED)).isEqualTo(LogSampler.DROPPED);
+        // 未启用 sampling.enabled 时不按采样率丢弃
+        assertThat(sampler.sample(record("/orders/{id}", 10))).isEqualTo(1D);
+    }
+
+    @Test
+    void testTraceDecisionSkipsRouteRateButNotRateLimit() {
+        ApiLoggingProperties properties = samplingProperties();
+        properties.getSampling().setRate(0.01);
+        properties.getSampling().getTrace().setEnabled(true);
+        ApiLoggingProperties.RouteSampling limited = new ApiLoggingProperties.RouteSampling();
+        limited.setRatePerSecond(2);
+        properties.getSampling().getRoutes().put("/limited/**", limited);
+        ApiLoggingProperties.RouteSampling muted = new ApiLoggingProperties.RouteSampling();
+        muted.setRate(0D);
+        properties.getSampling().getRoutes().put("/health/**", muted);
+        LogSampler sampler = new LogSampler(properties);
+
+        // 链路保留的记录不再按路由采样率随机丢弃，权重只有链路部分
+        for (int i = 0; i < 200; i++) {
+            assertThat(sampler.sample(tracedRecord("/orders/{id}"), 4D)).isEqualTo(4D);
+        }
+        // 采样率为 0 的路由仍全部丢弃
+        assertThat(sampler.sample(tracedRecord("/health/check"), 1D)).isEqualTo(LogSampler.DROPPED);
+
+        // 限流仍然生效，被限流的记录计入下一条保留记录的权重
+        int kept = 0;
+        for (int i = 0; i < 10; i++) {
+            if (sampler.sample(tracedRecord("/limited/{id}"), 1D) != LogSampler.DROPPED) {
+                kept++;
+            }
+        }
+        assertThat(kept).isBetween(2, 3);
+    }
+
+    private static ApiLoggingProperties samplingProperties() {
+        ApiLoggingProperties properties = new ApiLoggingProperties();
+        properties.getSampling().setEnabled(true);
+        return properties;
+    }
+
+    private static SimpleLogRecord tracedRecord(String route) {
+        SimpleLogRecord record = record(route, 10);
+        record.setTraceId("4bf92f3577b34da6a3ce929d0e0e4736");
+        return record;
+    }
+
+    private static SimpleLogRecord record(String route, long processingTimeMs) {
+        SimpleLogRecord record = new SimpleLogRecord();
+        record.setLogMode(LogMode.SIMPLE.name());
+        record.setRoute(route);
+        record.setProcessingTimeMs(processingTimeMs);
+        return record;
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.mrbox.apilogging.servlet;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.StreamUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 原始请求体采集的测试
+ */
+public class CapturingRequestWrapperTest {
+
+    @Test
+    void testCaptureTextBodyUpToLimit() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders");
+        request.setContentType("text/plain;charset=UTF-8");
+        request.setContent("abc一二三".getBytes(StandardCharsets.UTF_8));
+        CapturingRequestWrapper wrapper = new CapturingRequestWrapper(request, 5);
+
+        String body = StreamUtils.copyToString(wrapper.getInputStream(), StandardCharsets.UTF_8);
+
+        // 应用读取到完整内容，采集内容在截断处丢弃不完整的汉字
+        assertThat(body).isEqualTo("abc一二三");
+        assertThat(wrapper.getCapturedBody()).isEqualTo("abc...[已截断]");
+        assertThat(wrapper.getBytesRead()).isEqualTo(12L);
+        wrapper.releaseCapture();
+        assertThat(wrapper.getCapturedBody()).isNull();
+    }
+
+    @Test
+    void testUnsupportedCharsetOnReader() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders");
+        request.setContentType("text/plain");
+        request.setCharacterEncoding("x-unknown-charset");
+        request.setContent("abc".getBytes(StandardCharsets.UTF_8));
+        CapturingRequestWrapper wrapper = new CapturingRequestWrapper(request, 16);
+
+        assertThatThrownBy(wrapper::getReader).isInstanceOf(UnsupportedEncodingException.class)
+                .hasMessage("x-unknown-charset");
+    }
+
+    @Test
+    void testBinaryBodyOnlyCounted() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/upload");
+        request.setContentType("application/octet-stream");
+        request.setContent(new byte[4096]);
+        CapturingRequestWrapper wrapper = new CapturingRequestWrapper(request, 1024);
+
+        StreamUtils.drain(wrapper.getInputStream());
+
+        assertThat(wrapper.getCapturedBody()).isNull();
+        assertThat(wrapper.getBytesRead()).isEqualTo(4096L);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.mrbox.apilogging.trace;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 链路追踪上下文解析测试
+ */
+public class TraceContextTest {
+
+    @Test
+    void testResolveTraceHeaders() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        request.addHeader("b3", "80f198ee56343ba864fe8b2a57d3eff7-e457b5a2e4d86bd1-0");
+        TraceContext w3c = TraceContext.resolve(request, null);
+        assertThat(w3c.getTraceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(w3c.getSpanId()).isEqualTo("00f067aa0ba902b7");
+        assertThat(w3c.getSampled()).isTrue();
+
+        request.removeHeader("traceparent");
+        TraceContext b3 = TraceContext.resolve(request, null);
+        assertThat(b3.getTraceId()).isEqualTo("80f198ee56343ba864fe8b2a57d3eff7");
+        assertThat(b3.getSampled()).isFalse();
+
+        request.removeHeader("b3");
+        request.addHeader("X-B3-TraceId", "463ac35c9f6413ad");
+        request.addHeader("X-B3-SpanId", "a2fb4a1d1a96d312");
+        TraceContext b3Multi = TraceContext.resolve(request, null);
+        assertThat(b3Multi.getTraceId()).isEqualTo("463ac35c9f6413ad");
+        assertThat(b3Multi.getSampled()).isNull();
+
+        MockHttpServletRequest custom = new MockHttpServletRequest();
+        custom.addHeader("X-Trace-Id", "order-20260101-0001");
+        assertThat(TraceContext.resolve(custom, null)).isNull();
+        assertThat(TraceContext.resolve(custom, "X-Trace-Id").getTraceId()).isEqualTo("order-20260101-0001");
+    }
+
+    @Test
+    void testRejectInvalidTraceparent() {
+        assertThat(TraceContext.parseTraceparent("00-00000000000000000000000000000000-00f067aa0ba902b7-01")).isNull();
+        assertThat(TraceContext.parseTraceparent("00-4bf92f3577b34da6a3ce929d0e0e473x-00f067aa0ba902b7-01")).isNull();
+        assertThat(TraceContext.parseTraceparent("garbage")).isNull();
+        assertThat(TraceContext.parseB3("1")).isNull();
+    }
+}